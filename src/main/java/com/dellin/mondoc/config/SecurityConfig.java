@@ -2,8 +2,11 @@ package com.dellin.mondoc.config;
 
 import com.dellin.mondoc.filter.CustomAuthenticationFilter;
 import com.dellin.mondoc.filter.CustomAuthorizationFilter;
+import com.dellin.mondoc.filter.VerifiedTokenCache;
+import com.dellin.mondoc.utils.EncodingUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -19,6 +22,7 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import static org.springframework.http.HttpMethod.GET;
 import static org.springframework.http.HttpMethod.POST;
 
 @Configuration
@@ -35,6 +39,8 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 	final AuthenticationEntryPoint authEntryPoint;
 	private final UserDetailsService userDetailsService;
 	private final BCryptPasswordEncoder encoder;
+	@Value("${security.token-cache.max-size:10000}")
+	private int tokenCacheSize;
 	
 	@Override
 	protected void configure(AuthenticationManagerBuilder auth) throws Exception {
@@ -65,7 +71,11 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 				.antMatchers("/comments/**").authenticated()
 				.antMatchers("/orders/update/**", "/orders/stopUpdate/**")
 				 .hasAnyAuthority("ROLE_ADMIN")
+				.antMatchers("/documents/update/**", "/documents/stopUpdate/**")
+				 .hasAnyAuthority("ROLE_ADMIN")
+				.antMatchers(GET, "/documents/*/*").authenticated()
 				.antMatchers("/documents/**").hasAnyAuthority("ROLE_ADMIN")
+				.antMatchers("/sync/**").hasAnyAuthority("ROLE_ADMIN")
 				.antMatchers("/companies/**").hasAnyAuthority("ROLE_ADMIN");
 		
 		http.authorizeRequests()
@@ -75,7 +85,9 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 				.anyRequest().authenticated().and()
 				.exceptionHandling().authenticationEntryPoint(authEntryPoint);
 		http.addFilter(customAuthenticationFilter);
-		http.addFilterBefore(new CustomAuthorizationFilter(),
+		VerifiedTokenCache tokenCache =
+				new VerifiedTokenCache(EncodingUtil.getVerifier(), tokenCacheSize);
+		http.addFilterBefore(new CustomAuthorizationFilter(tokenCache),
 				UsernamePasswordAuthenticationFilter.class);
 	}
 	
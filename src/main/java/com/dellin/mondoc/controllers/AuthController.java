@@ -132,7 +132,7 @@ public class AuthController {
 				
 				String refreshToken = EncodingUtil.getRefreshToken(authorizationHeader);
 				User user = userService.getUser(
-						EncodingUtil.getDecodedUsername(secret, authorizationHeader));
+						EncodingUtil.getDecodedUsername(authorizationHeader));
 				String accessToken = JWT.create()
 						.withSubject(user.getUsername())
 						.withExpiresAt(
@@ -1,5 +1,8 @@
 package com.dellin.mondoc.controllers;
 
+import com.dellin.mondoc.model.entity.Document;
+import com.dellin.mondoc.model.pojo.DeadLetter;
+import com.dellin.mondoc.model.pojo.StorageReport;
 import com.dellin.mondoc.service.DocumentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.enums.SecuritySchemeType;
@@ -8,16 +11,25 @@ import io.swagger.v3.oas.annotations.security.SecurityScheme;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import java.io.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.*;
+
 @RestController
 @RequestMapping("/documents")
 @RequiredArgsConstructor
 @Tag(name = "Documents", description = "The document API. Contains operations to "
-		+ "manually start and stop updating data of the available documents")
+		+ "manually start and stop updating data of the available documents, and to "
+		+ "download them")
 @SecurityScheme(type = SecuritySchemeType.HTTP, scheme = "bearer", bearerFormat = "JWT",
 				name = "Authorization")
 public class DocumentController {
@@ -33,6 +45,48 @@ public class DocumentController {
 		return ResponseEntity.ok().build();
 	}
 	
+	@GetMapping("/storage")
+	@Operation(summary = "Get disk usage of document data",
+			   security = @SecurityRequirement(name = "Authorization"))
+	public StorageReport getStorageReport() {
+		return documentService.getStorageReport();
+	}
+	
+	@GetMapping("/dead-letters")
+	@Operation(summary = "Get documents which failed to fetch permanently",
+			   security = @SecurityRequirement(name = "Authorization"))
+	public List<DeadLetter> getDeadLetters() {
+		return documentService.getDeadLetters();
+	}
+	
+	@PostMapping("/dead-letters/{id}/retry")
+	@Operation(summary = "Return the dead letter to the queue of documents to fetch",
+			   security = @SecurityRequirement(name = "Authorization"))
+	public ResponseEntity<?> retryDeadLetter(@PathVariable Long id) {
+		documentService.retryDeadLetter(id);
+		return ResponseEntity.ok().build();
+	}
+	
+	@GetMapping("/{uid}/{type}")
+	@Operation(summary = "Download the document",
+			   description = "Streams the document data. Supports range requests and "
+					   + "conditional requests by ETag",
+			   security = @SecurityRequirement(name = "Authorization"))
+	public ResponseEntity<Resource> getContent(@PathVariable String uid,
+			@PathVariable String type) {
+		
+		Document document = documentService.getDocument(uid, type);
+		Resource content = documentService.getContent(document);
+		return ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_PDF)
+				.eTag(document.getContentHash())
+				.header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline()
+						.filename(content.getFilename())
+						.build()
+						.toString())
+				.body(content);
+	}
+	
 	@GetMapping("/stopUpdate")
 	@Operation(summary = "Interrupt process of updating  documents",
 			   security = @SecurityRequirement(name = "Authorization"))
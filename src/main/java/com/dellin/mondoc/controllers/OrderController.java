@@ -1,14 +1,17 @@
 package com.dellin.mondoc.controllers;
 
+import com.dellin.mondoc.model.pojo.OrderFilter;
 import com.dellin.mondoc.model.pojo.OrderRequest;
 import com.dellin.mondoc.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.SecuritySchemeType;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.security.SecurityScheme;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import java.io.*;
 import lombok.RequiredArgsConstructor;
+import org.springdoc.api.annotations.ParameterObject;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -57,7 +60,24 @@ public class OrderController {
 			@RequestParam(required = false, defaultValue = "1") Integer page,
 			@RequestParam(required = false, defaultValue = "1") Integer perPage,
 			@RequestParam(required = false, defaultValue = "state") String sort,
-			@RequestParam(required = false, defaultValue = "ASC") Sort.Direction order) {
-		return orderService.getOrders(page, perPage, sort, order);
+			@RequestParam(required = false, defaultValue = "ASC") Sort.Direction order,
+			@Parameter(description = "Empty to read the first page by cursor, or the "
+					+ "token next of the previous page")
+			@RequestParam(required = false) String cursor,
+			@ParameterObject OrderFilter filter) {
+		if (cursor != null) {
+			return orderService.getOrdersAfter(cursor, perPage, sort, order, filter);
+		}
+		return orderService.getOrders(page, perPage, sort, order, filter);
+	}
+	
+	@GetMapping("/search")
+	@Operation(summary = "Search orders by docId, UID, company name and comments",
+			   security = @SecurityRequirement(name = "Authorization"))
+	public ModelMap search(@RequestParam String text,
+			@RequestParam(required = false, defaultValue = "10") Integer perPage,
+			@Parameter(description = "The token next of the previous page")
+			@RequestParam(required = false) String cursor) {
+		return orderService.search(text, cursor, perPage);
 	}
 }
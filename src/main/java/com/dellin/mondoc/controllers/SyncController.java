@@ -0,0 +1,91 @@
+package com.dellin.mondoc.controllers;
+
+import com.dellin.mondoc.jobs.OrderJob;
+import com.dellin.mondoc.model.entity.SyncRun;
+import com.dellin.mondoc.service.impl.DellinRateGovernor;
+import com.dellin.mondoc.service.impl.SyncJob;
+import com.dellin.mondoc.service.impl.SyncJobRegistry;
+import com.dellin.mondoc.service.impl.SyncRunService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.enums.SecuritySchemeType;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.security.SecurityScheme;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.*;
+
+@RestController
+@RequestMapping("/sync")
+@RequiredArgsConstructor
+@Tag(name = "Synchronization", description = "The synchronization API. Contains "
+		+ "operations to watch the state and progress of synchronizing with API Dellin, "
+		+ "stop sync jobs, resume and abandon stopped sync runs")
+@SecurityScheme(type = SecuritySchemeType.HTTP, scheme = "bearer", bearerFormat = "JWT",
+				name = "Authorization")
+public class SyncController {
+	
+	private final DellinRateGovernor rateGovernor;
+	private final SyncRunService syncRunService;
+	private final OrderJob orderJob;
+	private final SyncJobRegistry syncJobRegistry;
+	
+	@GetMapping("/rate")
+	@Operation(summary = "Get wait time metrics of API Dellin rate governor",
+			   security = @SecurityRequirement(name = "Authorization"))
+	public List<DellinRateGovernor.WaitMetrics> getRateMetrics() {
+		return rateGovernor.getMetrics();
+	}
+	
+	@GetMapping("/jobs")
+	@Operation(summary = "Get progress, throughput and ETA of the last sync jobs",
+			   security = @SecurityRequirement(name = "Authorization"))
+	public List<SyncJob.Progress> getJobs() {
+		return syncJobRegistry.getJobs();
+	}
+	
+	@GetMapping("/jobs/{name}")
+	@Operation(summary = "Get progress, throughput and ETA of the last sync job by name",
+			   security = @SecurityRequirement(name = "Authorization"))
+	public SyncJob.Progress getJob(@PathVariable String name) {
+		return syncJobRegistry.getJob(name);
+	}
+	
+	@PostMapping("/jobs/{name}/stop")
+	@Operation(summary = "Interrupt running sync job by name",
+			   security = @SecurityRequirement(name = "Authorization"))
+	public ResponseEntity<?> stopJob(@PathVariable String name) {
+		
+		syncJobRegistry.stop(name);
+		return ResponseEntity.ok().build();
+	}
+	
+	@GetMapping("/runs")
+	@Operation(summary = "Get all sync runs of orders with their checkpoints",
+			   security = @SecurityRequirement(name = "Authorization"))
+	public List<SyncRun> getRuns() {
+		return syncRunService.getRuns();
+	}
+	
+	@PostMapping("/runs/{id}/resume")
+	@Operation(summary = "Resume stopped sync run from its checkpoint",
+			   security = @SecurityRequirement(name = "Authorization"))
+	public ResponseEntity<?> resume(@PathVariable Long id) {
+		
+		orderJob.resume(id);
+		return ResponseEntity.ok().build();
+	}
+	
+	@PostMapping("/runs/{id}/abandon")
+	@Operation(summary = "Abandon stopped sync run",
+			   security = @SecurityRequirement(name = "Authorization"))
+	public SyncRun abandon(@PathVariable Long id) {
+		return syncRunService.abandon(id);
+	}
+}
@@ -3,6 +3,7 @@ package com.dellin.mondoc.controllers;
 import com.dellin.mondoc.model.dto.UserDTO;
 import com.dellin.mondoc.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.SecuritySchemeType;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.security.SecurityScheme;
@@ -72,8 +73,14 @@ public class UserController {
 	public ModelMap getUsers(
 			@RequestParam(required = false, defaultValue = "1") Integer page,
 			@RequestParam(required = false, defaultValue = "1") Integer perPage,
-			@RequestParam(required = false, defaultValue = "name") String sort,
-			@RequestParam(required = false, defaultValue = "ASC") Sort.Direction order) {
+			@RequestParam(required = false, defaultValue = "email") String sort,
+			@RequestParam(required = false, defaultValue = "ASC") Sort.Direction order,
+			@Parameter(description = "Empty to read the first page by cursor, or the "
+					+ "token next of the previous page")
+			@RequestParam(required = false) String cursor) {
+		if (cursor != null) {
+			return userService.getUsersAfter(cursor, perPage, sort, order);
+		}
 		return userService.getUsers(page, perPage, sort, order);
 	}
 }
@@ -0,0 +1,127 @@
+package com.dellin.mondoc.filter;
+
+import com.auth0.jwt.exceptions.InvalidClaimException;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.interfaces.JWTVerifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import lombok.AllArgsConstructor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+/**
+ * The bounded cache of access tokens already verified by {@link JWTVerifier}
+ * <p>
+ * A token is verified and its claims are parsed once, then its authentication is taken
+ * by the SHA-256 digest of token until the <i>exp</i> of token, so the tokens
+ * themselves are not kept in memory. Tokens without <i>exp</i> are verified every
+ * time. When the cache is full, expired tokens are removed, and the new token is not
+ * cached if it is still full.
+ */
+public class VerifiedTokenCache {
+	
+	/**
+	 * The verifier of tokens
+	 */
+	private final JWTVerifier verifier;
+	
+	/**
+	 * The maximal number of cached tokens
+	 */
+	private final int maxSize;
+	
+	/**
+	 * The verified tokens by digest
+	 */
+	private final Map<String, VerifiedToken> tokens = new ConcurrentHashMap<>();
+	
+	public VerifiedTokenCache(JWTVerifier verifier, int maxSize) {
+		this.verifier = verifier;
+		this.maxSize = maxSize;
+	}
+	
+	/**
+	 * Method that gets the authentication of the access token
+	 * <p>
+	 * Throws {@link JWTVerificationException} if the token is invalid, expired or has no
+	 * roles
+	 *
+	 * @param token the access token
+	 *
+	 * @return the {@link UsernamePasswordAuthenticationToken} of the token subject
+	 */
+	public UsernamePasswordAuthenticationToken getAuthentication(String token) {
+		long now = System.currentTimeMillis();
+		String digest = getDigest(token);
+		VerifiedToken verified = tokens.get(digest);
+		if (verified != null) {
+			if (verified.expiresAt > now) {
+				return verified.toAuthentication();
+			}
+			tokens.remove(digest, verified);
+		}
+		
+		DecodedJWT decodedJWT = verifier.verify(token);
+		String[] roles = decodedJWT.getClaim("roles").asArray(String.class);
+		if (roles == null) {
+			throw new InvalidClaimException("The Claim 'roles' is missing");
+		}
+		verified = new VerifiedToken(decodedJWT.getSubject(), Arrays.stream(roles)
+				.map(SimpleGrantedAuthority::new)
+				.collect(Collectors.toUnmodifiableList()),
+				decodedJWT.getExpiresAt() != null ? decodedJWT.getExpiresAt().getTime()
+						: 0);
+		if (verified.expiresAt > now && hasRoom(now)) {
+			tokens.put(digest, verified);
+		}
+		return verified.toAuthentication();
+	}
+	
+	/**
+	 * Method that gets the number of cached tokens
+	 *
+	 * @return the number of cached tokens
+	 */
+	public int size() {
+		return tokens.size();
+	}
+	
+	private boolean hasRoom(long now) {
+		if (tokens.size() < maxSize) {
+			return true;
+		}
+		tokens.values().removeIf(t -> t.expiresAt <= now);
+		return tokens.size() < maxSize;
+	}
+	
+	private static String getDigest(String token) {
+		try {
+			return Base64.getEncoder()
+					.encodeToString(MessageDigest.getInstance("SHA-256")
+							.digest(token.getBytes(StandardCharsets.US_ASCII)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * The subject and authorities of a verified token
+	 */
+	@AllArgsConstructor
+	private static final class VerifiedToken {
+		
+		private final String email;
+		private final List<SimpleGrantedAuthority> authorities;
+		private final long expiresAt;
+		
+		private UsernamePasswordAuthenticationToken toAuthentication() {
+			return new UsernamePasswordAuthenticationToken(email, null, authorities);
+		}
+	}
+}
@@ -1,23 +1,37 @@
 package com.dellin.mondoc.jobs;
 
-import com.dellin.mondoc.model.dto.SessionDTO;
+import com.dellin.mondoc.exceptions.CustomException;
 import com.dellin.mondoc.model.entity.Document;
-import com.dellin.mondoc.model.pojo.AuthDellin;
+import com.dellin.mondoc.model.entity.SyncRun;
+import com.dellin.mondoc.model.enums.DocumentFetchFailure;
+import com.dellin.mondoc.model.enums.SyncRunKind;
 import com.dellin.mondoc.model.pojo.DocumentRequest;
 import com.dellin.mondoc.model.pojo.DocumentRequestBuilder;
 import com.dellin.mondoc.model.pojo.DocumentResponse;
 import com.dellin.mondoc.model.pojo.OrderRequest;
 import com.dellin.mondoc.model.pojo.OrderRequestBuilder;
-import com.dellin.mondoc.model.pojo.OrderResponse;
 import com.dellin.mondoc.service.DocumentService;
 import com.dellin.mondoc.service.OrderService;
+import com.dellin.mondoc.service.impl.DellinCredentialPool;
+import com.dellin.mondoc.service.impl.DellinRateGovernor;
+import com.dellin.mondoc.service.impl.DellinSessionManager;
+import com.dellin.mondoc.service.impl.DocumentFetchQueue;
+import com.dellin.mondoc.service.impl.OrderSyncPipeline;
+import com.dellin.mondoc.service.impl.SyncJob;
+import com.dellin.mondoc.service.impl.SyncJobRegistry;
+import com.dellin.mondoc.service.impl.SyncPlanner;
+import com.dellin.mondoc.service.impl.SyncRunService;
 import com.dellin.mondoc.service.impl.SyncService;
-import com.dellin.mondoc.utils.OrderUtil;
+import com.dellin.mondoc.service.impl.SyncWatermarkService;
 import java.io.*;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -25,7 +39,8 @@ import retrofit2.Call;
 import retrofit2.Response;
 
 import java.util.*;
-import java.util.concurrent.*;
+import java.util.function.*;
+import java.util.stream.*;
 
 @Slf4j
 @Service
@@ -33,209 +48,443 @@ import java.util.concurrent.*;
 @EnableScheduling
 public class OrderJob {
 	
-	private static final String DATE_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX";
 	private final DocumentService documentService;
 	private final OrderService orderService;
 	private final SyncService syncService;
+	private final SyncWatermarkService syncWatermarkService;
+	private final SyncRunService syncRunService;
+	private final SyncJobRegistry syncJobRegistry;
+	private final DellinCredentialPool credentialPool;
+	private final DellinSessionManager sessionManager;
+	private final SyncPlanner syncPlanner;
+	private final DocumentFetchQueue documentFetchQueue;
 	
-	@Value("${api.appkey}")
-	String APPKEY = "";
-	@Value("${api.login}")
-	String LOGIN = "";
-	@Value("${api.password}")
-	String PASS = "";
+	/**
+	 * The count of retries of a failed sync run before the job goes on with the next one
+	 */
+	@Value("${api.sync.shard-retries:1}")
+	int shardRetries;
+	
+	/**
+	 * The count of documents leased from the queue at once
+	 */
+	@Value("${api.documents.batch-size:50}")
+	int batchSize;
 	
 	@Scheduled(cron = "0 0 21 ? * *")
 	//	@Scheduled(fixedDelay = 1000000L, initialDelay = 0)
-	public void getOrders() throws IOException {
+	public void getOrders() {
 		
 		log.info("Scheduled method [getOrders()] started to work");
-		
-		Date programStart = new Date();
+		DellinRateGovernor.setLane(DellinRateGovernor.Lane.BACKGROUND);
+		try {
+			Date programStart = new Date();
+			
+			/* Orders of every account of the pool are synchronized by its own job.
+			Jobs work in parallel, each within the rate budget of its appkey*/
+			
+			for (DellinCredentialPool.Account account : credentialPool.getAccounts()) {
+				try {
+					getOrders(account, programStart);
+				} catch (CustomException e) {
+					log.error("Orders of account [{}] can't be synchronized: {}",
+							account.getLogin(), e.getMessage());
+				}
+			}
+		} finally {
+			DellinRateGovernor.clearLane();
+		}
+	}
+	
+	/**
+	 * Method that starts synchronizing orders of one account of the pool
+	 *
+	 * @param account      the {@link DellinCredentialPool.Account} of API Dellin
+	 * @param programStart the time when program started
+	 */
+	private void getOrders(DellinCredentialPool.Account account, Date programStart) {
 		
 		/* STEP ONE
-		Get sessionID */
+		Check sessionID. Sessions are cached and refreshed by DellinSessionManager, so
+		the login request is sent only if the session of account is expired*/
 		
-		String sessionID = getSessionID();
+		sessionManager.getSessionID(account);
 		
 		/* STEP TWO
 		
-		Build OrderRequest to get totalPages
-		All we need are: appkey, sessionID, dates, page*/
+		Plan OrderRequests of the window.
+		All we need are: appkey, sessionID, dates, page.
+		If the watermark of the account is fresh, only orders changed since it are
+		requested, otherwise the full reconciliation of the period runs. The window of
+		full reconciliation is split into shards, every shard is a separate run*/
 		
 		LocalDate dateEnd = LocalDate.now();
 		LocalDate dateStart = dateEnd.minusMonths(2);
 		
-		ScheduledExecutorService executorService =
-				Executors.newSingleThreadScheduledExecutor();
+		Optional<LocalDateTime> lastUpdate =
+				syncWatermarkService.getLastUpdate(account.getLogin());
+		List<OrderRequest> shards =
+				syncPlanner.plan(dateStart, dateEnd, lastUpdate.orElse(null));
+		log.info("Orders sync mode of account [{}]: [{}], [{}] shards",
+				account.getLogin(),
+				lastUpdate.isPresent() ? "incremental since " + lastUpdate.get()
+						: "full reconciliation", shards.size());
 		
-		Runnable task = new Runnable() {
-			
-			int currentPage = 1;
-			final OrderRequestBuilder requestBuilder = OrderRequest.builder()
-					.setAppKey(APPKEY)
-					.setSessionID(sessionID)
-					.setPage(currentPage)
-					.setDateEnd(OrderUtil.getFormattedDate(dateEnd, DATE_PATTERN))
-					.setDateStart(OrderUtil.getFormattedDate(dateStart, DATE_PATTERN));
-			int totalPages = Integer.MAX_VALUE;
-			
-			@Override
-			public void run() {
-				
-				if (currentPage <= totalPages) {
-					log.info("Starting cycle of updating orders at [{}] page",
-							currentPage);
-					requestBuilder.setPage(currentPage);
-					
-					Date start = new Date();
-					log.info("Sending request to API");
-					
-					Call<OrderResponse> orders =
-							syncService.getRemoteData().update(requestBuilder.build());
-					try {
-						Response<OrderResponse> orderResponse = orders.execute();
-						log.info("Got the response in [{}] sec",
-								(new Date().getTime() - start.getTime()) / 1000.);
-			
-					/* STEP THREE
-					Get orders and put every new to DB or else update them */
-						
-						assert orderResponse.body() != null;
-						Collection<OrderResponse.Order> ord =
-								orderResponse.body().getOrders();
-						
-						orderService.createAndUpdateOrders(ord);
-						totalPages = orderResponse.body().getMetadata().getTotalPages();
-					} catch (IOException e) {
-						log.error(e.getMessage());
-					}
-					log.info("End of page: [{}]. Total pages: [{}]", currentPage,
-							totalPages);
-					currentPage++;
-				} else {
-					Date programEnd = new Date();
-					long ms = programEnd.getTime() - programStart.getTime();
-					log.info("Method [getOrders()] finished after [{}] sec of working",
-							(ms / 1000L));
-					executorService.shutdown();
-				}
+		/* STEP THREE
+		Get orders page by page and put every new to DB or else update them.
+		Pages are persisted by a separate stage of pipeline.
+		The watermark is moved only if all shards were synchronized*/
+		
+		execute(account, () -> syncRunService.createBatch(
+				SyncRunKind.SCHEDULED, account.getLogin(), shards, lastUpdate.isEmpty()),
+				programStart);
+	}
+	
+	/**
+	 * Method that resumes the stopped sync run from its checkpoint
+	 * <p>
+	 * Manual runs are resumed by {@link OrderService#resume(SyncRun)}. Scheduled runs
+	 * log in to API Dellin with their account of the pool again and continue in
+	 * background.
+	 *
+	 * @param id the id of pending, interrupted, stopped or failed run
+	 */
+	public void resume(Long id) {
+		SyncRun run = syncRunService.getResumable(id);
+		if (run.getKind() == SyncRunKind.MANUAL) {
+			orderService.resume(run);
+			return;
+		}
+		resume(run.getOwner(), Collections.singletonList(run));
+	}
+	
+	/**
+	 * Method that resumes the runs stopped by the last shutdown of application
+	 * <p>
+	 * Scheduled runs of one account, like the shards of one window, are resumed
+	 * together by one job of the account.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void resumeInterruptedRuns() {
+		Map<String, List<SyncRun>> scheduled = new LinkedHashMap<>();
+		for (SyncRun run : syncRunService.recoverInterrupted()) {
+			if (run.getKind() == SyncRunKind.SCHEDULED) {
+				scheduled.computeIfAbsent(run.getOwner(), o -> new ArrayList<>())
+						.add(run);
+				continue;
+			}
+			try {
+				orderService.resume(run);
+			} catch (CustomException e) {
+				log.error("Sync run [ID: {}] can't be resumed: {}", run.getId(),
+						e.getMessage());
+			}
+		}
+		
+		scheduled.forEach((login, runs) -> {
+			try {
+				resume(login, runs);
+			} catch (CustomException e) {
+				log.error("Sync runs of account [{}] can't be resumed: {}", login,
+						e.getMessage());
+			}
+		});
+	}
+	
+	/**
+	 * Method that resumes the scheduled runs of one account
+	 *
+	 * @param login the login of API Dellin account
+	 * @param runs  the {@link List}&lt;{@link SyncRun}&gt; to resume
+	 */
+	private void resume(String login, List<SyncRun> runs) {
+		DellinCredentialPool.Account account = credentialPool.getAccount(login);
+		sessionManager.getSessionID(account);
+		log.info("Sync runs {} of account [{}] are resumed", runs.stream()
+				.map(SyncRun::getId)
+				.collect(Collectors.toList()), login);
+		execute(account, () -> runs, new Date());
+	}
+	
+	/**
+	 * Method that executes the sync runs of the account in background one by one
+	 * <p>
+	 * The runs are executed as the {@link SyncJobRegistry#SCHEDULED_ORDERS} job of the
+	 * account, so they never overlap the previous scheduled runs of the same account.
+	 * All requests of the job take permits from the rate budget of the appkey of
+	 * account.
+	 * <p>
+	 * A failed run is retried from its checkpoint the configured number of times, then
+	 * the job goes on with the next run. The job fails at the end if any run failed.
+	 *
+	 * @param account      the {@link DellinCredentialPool.Account} of API Dellin
+	 * @param runsSupplier the supplier of {@link SyncRun} list to execute, called when
+	 *                     the job is started
+	 * @param programStart the time when program started
+	 */
+	private void execute(DellinCredentialPool.Account account,
+			Supplier<List<SyncRun>> runsSupplier, Date programStart) {
+		String login = account.getLogin();
+		String name = SyncJobRegistry.SCHEDULED_ORDERS + ":" + login;
+		syncJobRegistry.start(name, login, "pages", job -> {
+			DellinRateGovernor.setLane(DellinRateGovernor.Lane.BACKGROUND);
+			try {
+				executeRuns(job, account, runsSupplier.get(), programStart);
+			} finally {
+				DellinRateGovernor.clearLane();
+			}
+		});
+	}
+	
+	/**
+	 * Method that executes the sync runs one by one, retrying the failed ones
+	 * <p>
+	 * If the job is stopped, the runs not started yet are marked as stopped too, so the
+	 * pending shards of the batch aren't resumed after restart.
+	 *
+	 * @param job          current {@link SyncJob} of updating orders
+	 * @param account      the {@link DellinCredentialPool.Account} of API Dellin
+	 * @param runs         the {@link List}&lt;{@link SyncRun}&gt; to execute
+	 * @param programStart the time when program started
+	 */
+	private void executeRuns(SyncJob job, DellinCredentialPool.Account account,
+			List<SyncRun> runs, Date programStart) {
+		int failed = 0;
+		Iterator<SyncRun> iterator = runs.iterator();
+		while (iterator.hasNext()) {
+			SyncRun run = iterator.next();
+			OrderRequestBuilder requestBuilder = syncRunService.getRequestBuilder(run)
+					.setAppKey(account.getAppkey());
+			boolean done = execute(job, run, account, requestBuilder);
+			for (int retry = 1; !done && retry <= shardRetries
+					&& !job.getThread().isInterrupted(); retry++) {
+				log.warn("Sync run [ID: {}] is retried, attempt [{}] of [{}]",
+						run.getId(), retry, shardRetries);
+				done = execute(job, run, account, requestBuilder);
+			}
+			if (!done) {
+				failed++;
 			}
-		};
-		executorService.scheduleAtFixedRate(task, 0, 10, TimeUnit.SECONDS);
+			if (job.getThread().isInterrupted()) {
+				iterator.forEachRemaining(r -> syncRunService.finish(r, false));
+				break;
+			}
+		}
+		
+		Date programEnd = new Date();
+		long ms = programEnd.getTime() - programStart.getTime();
+		log.info("Sync runs of account [{}] finished after [{}] sec of working",
+				account.getLogin(), (ms / 1000L));
+		if (failed > 0) {
+			throw new CustomException(String.format("%s of %s sync runs failed",
+					failed, runs.size()), HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+	
+	/**
+	 * Method that executes one sync run from its start page
+	 * <p>
+	 * The run takes the current session of account. If the session is rejected, the
+	 * account logs in again once.
+	 *
+	 * @param job            current {@link SyncJob} of updating orders
+	 * @param run            the {@link SyncRun} to execute
+	 * @param account        the {@link DellinCredentialPool.Account} of API Dellin
+	 * @param requestBuilder the API request builder with appkey
+	 *
+	 * @return false if the run failed
+	 */
+	private boolean execute(SyncJob job, SyncRun run,
+			DellinCredentialPool.Account account, OrderRequestBuilder requestBuilder) {
+		syncRunService.begin(run);
+		try {
+			OrderSyncPipeline pipeline =
+					new OrderSyncPipeline(syncService, orderService::persistPage);
+			pipeline.withCheckpoint(
+					(page, number) -> syncRunService.checkpoint(run, page, number))
+					.withJob(job)
+					.withSession(sessionManager.getSessionID(account),
+							stale -> sessionManager.renew(account, stale));
+			boolean completed = pipeline.run(job.getThread(), requestBuilder,
+					SyncRunService.getStartPage(run), SyncRunService.getEndPage(run),
+					run.getLastPage() == null);
+			syncRunService.finish(run, completed);
+			return true;
+		} catch (RuntimeException e) {
+			syncRunService.fail(run, e.getMessage());
+			return false;
+		}
 	}
 	
+	/**
+	 * Method that queues all documents without data every night
+	 * <p>
+	 * Documents not queued yet by user requests or by synchronizing orders are queued
+	 * with the lowest priority, then the queue is drained.
+	 */
 	@Scheduled(cron = "0 30 21 ? * *")
 	//	@Scheduled(fixedDelay = 1000000L, initialDelay = 0)
-	public void getAvailableDocs() throws IOException {
+	public void getAvailableDocs() {
 		
 		log.info("Method [getAvailableDocs()] started to work");
+		documentFetchQueue.enqueueBacklog();
+		fetchQueuedDocs();
+	}
+	
+	/**
+	 * Method that drains {@link DocumentFetchQueue} in background
+	 * <p>
+	 * The queue is polled every <i>api.documents.poll-interval</i> ms, so the documents
+	 * users are waiting for and the documents of new orders are fetched within minutes.
+	 * Nothing is done while the queue is empty or the previous job is running.
+	 */
+	@Scheduled(fixedDelayString = "${api.documents.poll-interval:60000}",
+			   initialDelayString = "${api.documents.poll-interval:60000}")
+	public void fetchQueuedDocs() {
+		
+		if (!documentFetchQueue.hasAvailable()) {
+			return;
+		}
 		Date programStart = new Date();
 		
 		/* STEP ONE
-		Get sessionID */
+		Check sessionID of the main account. Printable documents are requested by it
+		only, since the rights to a document of other accounts are unknown*/
 		
-		String sessionID = getSessionID();
+		DellinCredentialPool.Account account = credentialPool.getMain();
+		DellinRateGovernor.setLane(DellinRateGovernor.Lane.BACKGROUND);
+		try {
+			sessionManager.getSessionID(account);
+		} finally {
+			DellinRateGovernor.clearLane();
+		}
 		
 		/* STEP TWO
+		Lease documents from the queue by batches, the most urgent first*/
 		
-		Build DocumentRequest
-		All we need are: appkey, sessionID, mode, docUID*/
-		
-		ScheduledExecutorService executorService =
-				Executors.newSingleThreadScheduledExecutor();
-		
-		//GET ALL DOCS IN DB WITH FIELD BASE64 MARKED BY NULL
-		List<Document> byBase64Null = documentService.getDocsByBase64Null();
-		
-		Runnable task = new Runnable() {
-			int count = 0;
-			
-			@Override
-			public void run() {
-				Document document = byBase64Null.get(count);
-				
-				if (count <= byBase64Null.size()) {
+		syncJobRegistry.tryStart(SyncJobRegistry.SCHEDULED_DOCUMENTS, account.getLogin(),
+				"documents", job -> {
+					DellinRateGovernor.setLane(DellinRateGovernor.Lane.BACKGROUND);
 					try {
-						log.info("Starting cycle of updating documents at [{}] of [{}]",
-								count + 1, byBase64Null.size());
-						
-						log.info("Current document to update: [ID: {}, TYPE:{}, UID: "
-										+ "{}, OrdID: {}]", document.getId(),
-								document.getType().name(), document.getUid(),
-								document.getOrder().getDocId());
-						
-						DocumentRequestBuilder requestBuilder = DocumentRequest.builder()
-								.setAppkey(APPKEY)
-								.setSessionID(sessionID)
-								.setMode(document.getType().name().toLowerCase())
-								.setDocUID(document.getUid());
-						
-						/*STEP THREE
-						 * Get doc from API and update one from DB
-						 * */
-						DocumentRequest build = requestBuilder.build();
-						Date start = new Date();
-						log.info("Sending request to API");
-						Call<DocumentResponse> availableDoc =
-								syncService.getRemoteData().getPrintableDoc(build);
-						
-						try {
-							Response<DocumentResponse> docResponse =
-									availableDoc.execute();
-							log.info("Got the response in [{}] sec",
-									(new Date().getTime() - start.getTime()) / 1000.);
-							
-							if (!docResponse.isSuccessful()) {
-								
-								log.error(docResponse.errorBody() != null
-										? docResponse.errorBody().string()
-										: "Unknown error");
-							} else {
-								assert docResponse.body() != null;
-								Collection<DocumentResponse.Data> data =
-										docResponse.body().getData();
-								documentService.updateDocData(document, data);
+						while (!job.getThread().isInterrupted()) {
+							List<Document> documents =
+									documentFetchQueue.lease(job.getName(), batchSize);
+							if (documents.isEmpty()) {
+								break;
 							}
-						} catch (NullPointerException e) {
-							log.error(e.getMessage());
+							updateDocs(job, account, documents);
 						}
-						
-						count++;
-						log.info("Scheduled method [getAvailableDocs()] ended process on "
-								+ "doc {} of {}", count, byBase64Null.size());
-					} catch (IOException e) {
-						log.error(e.getMessage());
+					} finally {
+						DellinRateGovernor.clearLane();
+						documentFetchQueue.release(job.getName());
 					}
-				} else {
 					
 					Date programEnd = new Date();
 					long ms = programEnd.getTime() - programStart.getTime();
-					log.info("Method [getAvailableDocs()] finished after [{}] sec of "
+					log.info("Method [fetchQueuedDocs()] finished after [{}] sec of "
 							+ "working", (ms / 1000L));
-					executorService.shutdown();
-				}
-			}
-		};
-		executorService.scheduleAtFixedRate(task, 0, 10, TimeUnit.SECONDS);
+				});
 	}
 	
-	private String getSessionID() throws IOException {
-		SessionDTO sessionDTO = new SessionDTO();
-		sessionDTO.setAppkey(APPKEY);
-		sessionDTO.setLogin(LOGIN);
-		sessionDTO.setPassword(PASS);
-		Call<AuthDellin> login = syncService.getRemoteData().login(sessionDTO);
-		
-		Response<AuthDellin> response = login.execute();
-		
-		if (!response.isSuccessful()) {
-			throw new IOException(
-					response.errorBody() != null ? response.errorBody().string()
-							: "Unknown error");
-		}
+	/**
+	 * Method that updates the leased documents by API Dellin data
+	 * <p>
+	 * A document which failed to fetch is reported to {@link DocumentFetchQueue}. If the
+	 * session is rejected, the account logs in again once and the document is requested
+	 * again. The second failure of session stops the job, since the rest of the batch
+	 * would fail too. A fetch cut by the stop of job isn't a failure, the document stays
+	 * leased until the job returns its lease.
+	 *
+	 * @param job       current {@link SyncJob} of updating documents
+	 * @param account   the {@link DellinCredentialPool.Account} of API Dellin
+	 * @param documents the {@link List}&lt;{@link Document}&gt; to update
+	 */
+	private void updateDocs(SyncJob job, DellinCredentialPool.Account account,
+			List<Document> documents) {
+		Thread thread = job.getThread();
+		job.addTotal(documents.size());
+		String sessionID = sessionManager.getSessionID(account);
+		boolean renewed = false;
 		
-		assert response.body() != null;
-		return response.body().getData().getSessionID();
+		for (int count = 0; count < documents.size() && !thread.isInterrupted();
+				count++) {
+			Document document = documents.get(count);
+			log.info("Starting cycle of updating documents at [{}] of [{}]",
+					count + 1, documents.size());
+			
+			log.info("Current document to update: [ID: {}, TYPE:{}, UID: {}, "
+							+ "OrdID: {}]", document.getId(),
+					document.getType().name(), document.getUid(),
+					document.getOrder().getDocId());
+			
+			DocumentRequestBuilder requestBuilder = DocumentRequest.builder()
+					.setAppkey(account.getAppkey())
+					.setSessionID(sessionID)
+					.setMode(document.getType().name().toLowerCase())
+					.setDocUID(document.getUid());
+			
+			/*STEP THREE
+			 * Get doc from API and update one from DB.
+			 * The interval between requests is kept by DellinRateGovernor
+			 * */
+			DocumentRequest build = requestBuilder.build();
+			Date start = new Date();
+			long fetchStart = System.nanoTime();
+			log.info("Sending request to API");
+			Call<DocumentResponse> availableDoc =
+					syncService.getRemoteData().getPrintableDoc(build,
+							account.getAppkey());
+			
+			try {
+				Response<DocumentResponse> docResponse = availableDoc.execute();
+				log.info("Got the response in [{}] sec",
+						(new Date().getTime() - start.getTime()) / 1000.);
+				job.record("fetch", System.nanoTime() - fetchStart);
+				
+				if (docResponse.code() == 401 && !renewed) {
+					log.warn("Session of API Dellin is rejected, document [UID: {}] is "
+							+ "requested again with a new one", document.getUid());
+					sessionID = sessionManager.renew(account, sessionID);
+					renewed = true;
+					count--;
+					continue;
+				}
+				renewed = false;
+				
+				if (!docResponse.isSuccessful()) {
+					String error = docResponse.errorBody() != null
+							? docResponse.errorBody().string() : "Unknown error";
+					log.error(error);
+					if (documentFetchQueue.fail(document, docResponse.code(), error)
+							== DocumentFetchFailure.SESSION) {
+						thread.interrupt();
+					}
+				} else if (docResponse.body() == null
+						|| docResponse.body().getData() == null
+						|| docResponse.body().getData().isEmpty()) {
+					documentFetchQueue.fail(document, docResponse.code(),
+							"Empty document data");
+				} else {
+					Collection<DocumentResponse.Data> data =
+							docResponse.body().getData();
+					long persistStart = System.nanoTime();
+					documentService.updateDocData(document, data);
+					job.record("persist", System.nanoTime() - persistStart);
+				}
+			} catch (IOException e) {
+				if (DocumentFetchQueue.isStopped(thread, e)) {
+					log.warn("Update of document [UID: {}] stopped: {}",
+							document.getUid(), e.getMessage());
+					thread.interrupt();
+					break;
+				}
+				log.error(e.getMessage());
+				documentFetchQueue.fail(document, 0, e.getMessage());
+			}
+			job.advance();
+			
+			log.info("Scheduled method [fetchQueuedDocs()] ended process on "
+					+ "doc {} of {}", count + 1, documents.size());
+		}
 	}
 }
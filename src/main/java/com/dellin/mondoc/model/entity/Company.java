@@ -21,6 +21,7 @@ import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
@@ -32,7 +33,8 @@ import javax.persistence.Table;
 @Getter
 @Setter
 @Entity
-@Table(name = "companies")
+@Table(name = "companies",
+	   indexes = @Index(name = "idx_companies_inn", columnList = "inn"))
 @AllArgsConstructor
 @NoArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
@@ -28,7 +28,10 @@ import javax.persistence.Table;
 @Getter
 @Setter
 @Entity
-@Table(name = "documents", indexes = @Index(name = "idx_uid", columnList = "doc_uid"))
+@Table(name = "documents",
+	   indexes = {@Index(name = "idx_uid", columnList = "doc_uid"),
+				  @Index(name = "idx_documents_order_type",
+						 columnList = "order_id, type")})
 @AllArgsConstructor
 @NoArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
@@ -46,8 +49,21 @@ public class Document {
 	@Enumerated(value = EnumType.STRING)
 	OrderDocType type;
 	
-	@Column(columnDefinition = "TEXT")
-	String base64;
+	/**
+	 * The id of {@link DocumentContent} with the decoded data, or null if the data isn't
+	 * fetched yet
+	 */
+	@Column(name = "content_id")
+	Long contentId;
+	
+	@Column(name = "content_size")
+	Long contentSize;
+	
+	/**
+	 * The SHA-256 hash of data in hex
+	 */
+	@Column(name = "content_hash", length = 64)
+	String contentHash;
 	
 	@Column(columnDefinition = "TEXT")
 	String url;
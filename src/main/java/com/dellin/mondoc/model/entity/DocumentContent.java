@@ -0,0 +1,79 @@
+package com.dellin.mondoc.model.entity;
+
+import java.time.LocalDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * The decoded data of a printable document
+ * <p>
+ * The data is kept apart from {@link Document}, which refers to it by id, so queries
+ * of document metadata never load it. Equal data is stored once: the content is found
+ * by its hash and counts the documents referring to it. The unique index of hash is
+ * created by {@link com.dellin.mondoc.service.impl.DocumentContentService#reconcile()}
+ * after the equal contents stored before deduplication are merged.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "document_contents")
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class DocumentContent {
+	
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(nullable = false)
+	private Long id;
+	
+	/**
+	 * The data as stored, compressed by gzip if {@link #compressed}
+	 */
+	@Column(nullable = false)
+	byte[] data;
+	
+	/**
+	 * The size of decoded data
+	 */
+	@Column(nullable = false)
+	long size;
+	
+	/**
+	 * The size of data as stored, null for data stored before compression
+	 */
+	@Column(name = "stored_size")
+	Long storedSize;
+	
+	@Column(columnDefinition = "boolean default false not null")
+	boolean compressed;
+	
+	/**
+	 * The count of documents referring to the content
+	 */
+	@Column(name = "ref_count", columnDefinition = "integer default 1 not null")
+	int refCount;
+	
+	/**
+	 * The SHA-256 hash of data in hex
+	 */
+	@Column(nullable = false, length = 64)
+	String hash;
+	
+	@CreationTimestamp
+	@Column(name = "created_at", columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP",
+			updatable = false)
+	LocalDateTime createdAt;
+}
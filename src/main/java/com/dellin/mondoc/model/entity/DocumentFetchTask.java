@@ -0,0 +1,105 @@
+package com.dellin.mondoc.model.entity;
+
+import com.dellin.mondoc.model.enums.DocumentFetchPriority;
+import java.time.LocalDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.OneToOne;
+import javax.persistence.Table;
+
+/**
+ * The entry of the queue of documents to fetch from API Dellin
+ * <p>
+ * A document is queued at most once. The entry is leased by a worker until
+ * <i>leased_until</i> and removed when the document data is saved, so the entry of a
+ * document the worker failed to fetch is given to a worker again after its lease.
+ * <p>
+ * A failed fetch is recorded in the entry: a transient failure postpones the next
+ * attempt until <i>retry_at</i>, a permanent failure or too many transient ones make
+ * the entry a dead letter, which stays in the queue but is never leased again.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "document_fetch_queue",
+	   indexes = @Index(name = "idx_fetch_queue_order",
+						columnList = "priority, enqueued_at"))
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class DocumentFetchTask {
+	
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(nullable = false)
+	private Long id;
+	
+	@OneToOne
+	@JoinColumn(name = "document_id", unique = true, nullable = false)
+	Document document;
+	
+	/**
+	 * The priority of entry, stored by ordinal so the queue is ordered by it
+	 */
+	@Enumerated(EnumType.ORDINAL)
+	@Column(nullable = false)
+	DocumentFetchPriority priority;
+	
+	@Column(name = "enqueued_at", nullable = false)
+	LocalDateTime enqueuedAt;
+	
+	/**
+	 * The name of sync job the entry is leased by
+	 */
+	@Column(name = "lease_owner")
+	String leaseOwner;
+	
+	@Column(name = "leased_until")
+	LocalDateTime leasedUntil;
+	
+	/**
+	 * The count of leases of entry
+	 */
+	int attempts;
+	
+	/**
+	 * The count of failed fetches in a row
+	 */
+	@Column(columnDefinition = "integer default 0 not null")
+	int failures;
+	
+	/**
+	 * The time the entry can't be leased before, after a transient failure
+	 */
+	@Column(name = "retry_at")
+	LocalDateTime retryAt;
+	
+	/**
+	 * The http status of the last failure, or 0 if there was no response
+	 */
+	@Column(name = "last_status")
+	Integer lastStatus;
+	
+	@Column(name = "last_error", length = 1000)
+	String lastError;
+	
+	/**
+	 * The time the entry became a dead letter
+	 */
+	@Column(name = "dead_at")
+	LocalDateTime deadAt;
+}
@@ -2,6 +2,7 @@ package com.dellin.mondoc.model.entity;
 
 import com.dellin.mondoc.model.enums.EntityStatus;
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.time.LocalDateTime;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -21,6 +22,8 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.JoinTable;
 import javax.persistence.ManyToOne;
 import javax.persistence.NamedAttributeNode;
 import javax.persistence.NamedEntityGraph;
@@ -31,7 +34,8 @@ import javax.persistence.Table;
 @Setter
 @Entity
 @Table(name = "orders",
-	   indexes = @Index(name = "idx_uid", columnList = "uid", unique = true))
+	   indexes = {@Index(name = "idx_uid", columnList = "uid", unique = true),
+				  @Index(name = "idx_orders_company", columnList = "company_id, status")})
 @AllArgsConstructor
 @NoArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
@@ -71,6 +75,17 @@ public class Order {
 	String uid;
 	
 	@OneToMany(cascade = CascadeType.ALL)
+	@JoinTable(name = "orders_comments", joinColumns = @JoinColumn(name = "order_id"),
+			   inverseJoinColumns = @JoinColumn(name = "comments_id"),
+			   indexes = @Index(name = "idx_orders_comments_order",
+								columnList = "order_id"))
 	@JsonBackReference(value = "order_comments")
 	Collection<Comment> comments;
+	
+	/**
+	 * The lower-case docId, UID and comments of order matched by search
+	 */
+	@JsonIgnore
+	@Column(name = "search_text", columnDefinition = "TEXT")
+	String searchText;
 }
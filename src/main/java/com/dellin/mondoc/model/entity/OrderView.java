@@ -0,0 +1,103 @@
+package com.dellin.mondoc.model.entity;
+
+import com.dellin.mondoc.model.enums.EntityStatus;
+import com.dellin.mondoc.model.enums.OrderDocType;
+import java.time.LocalDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * The row of listing of orders
+ * <p>
+ * The order is kept together with the name of its company, the count and the last of
+ * its comments and the masks of its documents, so the listing is read of this table
+ * only. The row is written in the same transaction as the order, documents or comments
+ * it is made of.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "order_view",
+	   indexes = {@Index(name = "idx_order_view_doc_id", columnList = "doc_id",
+						 unique = true),
+				  @Index(name = "idx_order_view_uid", columnList = "uid"),
+				  @Index(name = "idx_order_view_state", columnList = "state, id"),
+				  @Index(name = "idx_order_view_company_state",
+						 columnList = "company_id, state"),
+				  @Index(name = "idx_order_view_company_created",
+						 columnList = "company_id, created_at"),
+				  @Index(name = "idx_order_view_company_updated",
+						 columnList = "company_id, updated_at")})
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class OrderView {
+	
+	/**
+	 * The id of {@link Order}
+	 */
+	@Id
+	@Column(nullable = false)
+	Long id;
+	
+	@Column(name = "doc_id", nullable = false)
+	String docId;
+	
+	String uid;
+	
+	@Column(name = "company_id")
+	Long companyId;
+	
+	@Column(name = "company_name")
+	String companyName;
+	
+	@Column(name = "company_inn")
+	String companyInn;
+	
+	String state;
+	
+	@Enumerated(EnumType.STRING)
+	EntityStatus status;
+	
+	@Column(name = "created_at")
+	LocalDateTime createdAt;
+	
+	@Column(name = "updated_at")
+	LocalDateTime updatedAt;
+	
+	@Column(name = "comment_count", nullable = false)
+	int commentCount;
+	
+	@Column(name = "last_comment_text", columnDefinition = "TEXT")
+	String lastCommentText;
+	
+	@Column(name = "last_comment_user")
+	String lastCommentUser;
+	
+	@Column(name = "last_comment_at")
+	LocalDateTime lastCommentAt;
+	
+	/**
+	 * The mask of {@link OrderDocType#getBit()} of the documents of order
+	 */
+	@Column(nullable = false)
+	int documents;
+	
+	/**
+	 * The mask of {@link OrderDocType#getBit()} of the documents with data or link
+	 */
+	@Column(name = "documents_ready", nullable = false)
+	int documentsReady;
+}
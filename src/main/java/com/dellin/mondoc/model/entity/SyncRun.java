@@ -0,0 +1,109 @@
+package com.dellin.mondoc.model.entity;
+
+import com.dellin.mondoc.model.enums.SyncRunKind;
+import com.dellin.mondoc.model.enums.SyncRunStatus;
+import java.time.LocalDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.CreationTimestamp;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * The run of synchronizing orders with API Dellin with its request parameters and the
+ * checkpoint of the last persisted page
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "sync_runs")
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SyncRun {
+	
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(nullable = false)
+	private Long id;
+	
+	@Enumerated(EnumType.STRING)
+	SyncRunKind kind;
+	
+	@Enumerated(EnumType.STRING)
+	SyncRunStatus status;
+	
+	/**
+	 * The login of API Dellin account for scheduled runs, the user email for manual ones
+	 */
+	String owner;
+	
+	String batch;
+	
+	/**
+	 * The comma separated docIds of request
+	 */
+	@Column(name = "doc_ids", columnDefinition = "TEXT")
+	String docIds;
+	
+	@Column(name = "date_start")
+	String dateStart;
+	
+	@Column(name = "date_end")
+	String dateEnd;
+	
+	@Column(name = "last_update")
+	String lastUpdate;
+	
+	@Column(name = "first_page")
+	Integer firstPage;
+	
+	/**
+	 * The last page of run, or null if it is taken from API responses
+	 */
+	@Column(name = "last_page")
+	Integer lastPage;
+	
+	/**
+	 * The checkpoint: the last page persisted to database
+	 */
+	@Column(name = "completed_page")
+	Integer completedPage;
+	
+	@Column(name = "total_pages")
+	Integer totalPages;
+	
+	@Column(name = "full_reconciliation")
+	boolean fullReconciliation;
+	
+	/**
+	 * The generation time of the first page, as given by API Dellin
+	 */
+	@Column(name = "generated_at")
+	String generatedAt;
+	
+	@Column(columnDefinition = "TEXT")
+	String error;
+	
+	@Column(name = "started_at")
+	LocalDateTime startedAt;
+	
+	@CreationTimestamp
+	@Column(name = "created_at", columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP",
+			updatable = false)
+	LocalDateTime createdAt;
+	
+	@Column(name = "updated_at")
+	LocalDateTime updatedAt;
+}
@@ -0,0 +1,56 @@
+package com.dellin.mondoc.model.entity;
+
+import java.time.LocalDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * The last successful synchronization point of orders with API Dellin for one
+ * credential
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "sync_watermarks")
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SyncWatermark {
+	
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(nullable = false)
+	private Long id;
+	
+	/**
+	 * The login of API Dellin account the orders were synchronized with
+	 */
+	@Column(unique = true, nullable = false)
+	String credential;
+	
+	/**
+	 * The time of API Dellin all orders changed before were synchronized at
+	 */
+	@Column(name = "synced_at")
+	LocalDateTime syncedAt;
+	
+	/**
+	 * The time of the last full reconciliation
+	 */
+	@Column(name = "full_synced_at")
+	LocalDateTime fullSyncedAt;
+	
+	@Column(name = "updated_at")
+	LocalDateTime updatedAt;
+}
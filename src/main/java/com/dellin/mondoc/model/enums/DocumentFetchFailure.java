@@ -0,0 +1,41 @@
+package com.dellin.mondoc.model.enums;
+
+/**
+ * The kind of failure of fetching a document from API Dellin
+ */
+public enum DocumentFetchFailure {
+	
+	/**
+	 * The failure which may pass by itself: no response, timeout, too many requests,
+	 * an error of API Dellin or empty data. The document is retried with backoff
+	 */
+	TRANSIENT,
+	/**
+	 * The failure which is the same on every request of the document, like an unknown
+	 * UID. The document is taken out of the queue as a dead letter
+	 */
+	PERMANENT,
+	/**
+	 * The session isn't valid anymore. The failure isn't the document's, so it isn't
+	 * counted, and the rest of the batch is useless with the same session
+	 */
+	SESSION;
+	
+	/**
+	 * Method that classifies the failure by the http status of API Dellin response
+	 *
+	 * @param status the http status, or 0 if there was no response
+	 *
+	 * @return the {@link DocumentFetchFailure} kind
+	 */
+	public static DocumentFetchFailure of(int status) {
+		if (status == 401) {
+			return SESSION;
+		}
+		if (status >= 400 && status < 500 && status != 408 && status != 425
+				&& status != 429) {
+			return PERMANENT;
+		}
+		return TRANSIENT;
+	}
+}
@@ -0,0 +1,20 @@
+package com.dellin.mondoc.model.enums;
+
+/**
+ * The priority of a document in the fetch queue, the most urgent first
+ */
+public enum DocumentFetchPriority {
+	
+	/**
+	 * Documents of companies a user asked to update
+	 */
+	REQUESTED,
+	/**
+	 * Documents of orders found by the latest synchronizing of orders
+	 */
+	RECENT,
+	/**
+	 * All other documents without data
+	 */
+	BACKLOG
+}
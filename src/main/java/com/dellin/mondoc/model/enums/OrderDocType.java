@@ -3,15 +3,40 @@ package com.dellin.mondoc.model.enums;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
+import java.util.*;
+
 @Getter
 @RequiredArgsConstructor
 public enum OrderDocType {
 	
-	BILL("Счёт"),
-	ORDER("Накладная"),
-	INVOICE("Счёт-фактура"),
-	GIVEOUT("Накладная на выдачу"),
-	SHIPPING("Накладная");
+	BILL("Счёт", 1),
+	ORDER("Накладная", 2),
+	INVOICE("Счёт-фактура", 4),
+	GIVEOUT("Накладная на выдачу", 8),
+	SHIPPING("Накладная", 16);
 	
 	private final String description;
+	
+	/**
+	 * The bit of the type in the masks of documents of order, stored in the
+	 * order views, so it must not change
+	 */
+	private final int bit;
+	
+	/**
+	 * Method that gets the types of the mask of documents of order
+	 *
+	 * @param mask the bits of types
+	 *
+	 * @return the {@link Set} of {@link OrderDocType}
+	 */
+	public static Set<OrderDocType> of(int mask) {
+		Set<OrderDocType> types = EnumSet.noneOf(OrderDocType.class);
+		for (OrderDocType type : values()) {
+			if ((mask & type.getBit()) != 0) {
+				types.add(type);
+			}
+		}
+		return types;
+	}
 }
@@ -0,0 +1,9 @@
+package com.dellin.mondoc.model.enums;
+
+public enum SyncJobState {
+	
+	RUNNING,
+	COMPLETED,
+	INTERRUPTED,
+	FAILED
+}
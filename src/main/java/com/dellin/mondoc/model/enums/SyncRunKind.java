@@ -0,0 +1,7 @@
+package com.dellin.mondoc.model.enums;
+
+public enum SyncRunKind {
+	
+	SCHEDULED,
+	MANUAL
+}
@@ -0,0 +1,12 @@
+package com.dellin.mondoc.model.enums;
+
+public enum SyncRunStatus {
+	
+	PENDING,
+	RUNNING,
+	INTERRUPTED,
+	STOPPED,
+	COMPLETED,
+	FAILED,
+	ABANDONED
+}
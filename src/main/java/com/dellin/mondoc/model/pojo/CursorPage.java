@@ -0,0 +1,23 @@
+package com.dellin.mondoc.model.pojo;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.*;
+
+/**
+ * The page of a listing read by keyset
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CursorPage<T> {
+	
+	List<T> content;
+	/**
+	 * The cursor after the last row, or null if it is the last page
+	 */
+	PageCursor next;
+}
@@ -0,0 +1,40 @@
+package com.dellin.mondoc.model.pojo;
+
+import com.dellin.mondoc.model.enums.OrderDocType;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import java.time.LocalDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Model view class of a document taken out of the fetch queue after its failures
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class DeadLetter {
+	
+	/**
+	 * The id of queue entry
+	 */
+	Long id;
+	String uid;
+	OrderDocType type;
+	/**
+	 * The count of failed fetches in a row
+	 */
+	int failures;
+	/**
+	 * The http status of the last failure, or 0 if there was no response
+	 */
+	Integer lastStatus;
+	String lastError;
+	LocalDateTime deadAt;
+}
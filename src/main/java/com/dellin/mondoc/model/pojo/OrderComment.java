@@ -0,0 +1,28 @@
+package com.dellin.mondoc.model.pojo;
+
+import java.time.LocalDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Row of the comments of a page of orders, read by one query
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class OrderComment {
+	
+	/**
+	 * The docId of commented order
+	 */
+	String docId;
+	String userName;
+	LocalDateTime updatedAt;
+	String text;
+	
+	public CommentHistory toHistory() {
+		return new CommentHistory(userName, updatedAt, text);
+	}
+}
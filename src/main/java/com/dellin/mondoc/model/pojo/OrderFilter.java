@@ -0,0 +1,58 @@
+package com.dellin.mondoc.model.pojo;
+
+import com.dellin.mondoc.model.enums.OrderDocType;
+import io.swagger.v3.oas.annotations.Parameter;
+import java.time.LocalDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.format.annotation.DateTimeFormat;
+
+/**
+ * The filters of the listing of orders
+ * <p>
+ * Every filter which is set narrows the listing, the ones left null are not applied.
+ * The dates are bound from ISO date-time, the ranges include both bounds.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class OrderFilter {
+	
+	@Parameter(description = "The state of order")
+	String state;
+	
+	@Parameter(description = "The INN of payer-company")
+	String companyInn;
+	
+	@Parameter(description = "The earliest time the order was created")
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+	LocalDateTime createdFrom;
+	
+	@Parameter(description = "The latest time the order was created")
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+	LocalDateTime createdTo;
+	
+	@Parameter(description = "The earliest time the order was updated")
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+	LocalDateTime updatedFrom;
+	
+	@Parameter(description = "The latest time the order was updated")
+	@DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+	LocalDateTime updatedTo;
+	
+	@Parameter(description = "The type of document the order has not got")
+	OrderDocType missingDocType;
+	
+	@Parameter(description = "Whether the order has comments")
+	Boolean commented;
+	
+	@Parameter(description = "The words which docId, UID, payer-company name or "
+			+ "comments of order contain")
+	String text;
+}
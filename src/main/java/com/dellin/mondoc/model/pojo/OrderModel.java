@@ -1,6 +1,7 @@
 package com.dellin.mondoc.model.pojo;
 
 import com.dellin.mondoc.model.entity.Document;
+import com.dellin.mondoc.model.enums.OrderDocType;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -34,6 +35,10 @@ public class OrderModel {
 	 * The field collection of available documents
 	 */
 	Collection<Document> documents;
+	/**
+	 * The field collection of types of documents with data or link
+	 */
+	Collection<OrderDocType> readyDocuments;
 	/**
 	 * The field of state of order
 	 */
@@ -46,5 +51,17 @@ public class OrderModel {
 	 * The field collection of available order comments
 	 */
 	Collection<CommentHistory> comments = new ArrayList<>();
+	
+	/**
+	 * Constructor of the listing row, read by query without documents and comments
+	 */
+	public OrderModel(String docId, String companyName, String state, String uid,
+			Collection<OrderDocType> readyDocuments) {
+		this.docId = docId;
+		this.companyName = companyName;
+		this.state = state;
+		this.uid = uid;
+		this.readyDocuments = readyDocuments;
+	}
 }
 
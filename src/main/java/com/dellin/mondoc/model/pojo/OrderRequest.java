@@ -19,6 +19,7 @@ public class OrderRequest {
 	Collection<String> docIds;
 	String dateStart;
 	String dateEnd;
+	String lastUpdate;
 	Integer page;
 	
 	public OrderRequest(OrderRequestBuilder orderRequestBuilder) {
@@ -27,6 +28,7 @@ public class OrderRequest {
 		this.docIds = orderRequestBuilder.docIds;
 		this.dateStart = orderRequestBuilder.dateStart;
 		this.dateEnd = orderRequestBuilder.dateEnd;
+		this.lastUpdate = orderRequestBuilder.lastUpdate;
 		this.page = orderRequestBuilder.page;
 	}
 	
@@ -15,6 +15,7 @@ public class OrderRequestBuilder {
 	Collection<String> docIds;
 	String dateStart;
 	String dateEnd;
+	String lastUpdate;
 	Integer page;
 	
 	public OrderRequestBuilder setAppKey(String appKey) {
@@ -42,6 +43,11 @@ public class OrderRequestBuilder {
 		return this;
 	}
 	
+	public OrderRequestBuilder setLastUpdate(String lastUpdate) {
+		this.lastUpdate = lastUpdate;
+		return this;
+	}
+	
 	public OrderRequestBuilder setPage(Integer page) {
 		this.page = page;
 		return this;
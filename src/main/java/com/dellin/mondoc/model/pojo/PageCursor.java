@@ -0,0 +1,123 @@
+package com.dellin.mondoc.model.pojo;
+
+import com.dellin.mondoc.exceptions.CustomException;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+
+import java.util.*;
+
+/**
+ * The position of a listing read by keyset
+ * <p>
+ * The cursor keeps the key of sorting and the value of the key and the id of the last
+ * row returned, so the next page is read after them without offset. The client gets
+ * it as an opaque token by {@link #encode()}.
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PageCursor {
+	
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	
+	/**
+	 * The key of sorting
+	 */
+	String sort;
+	Sort.Direction direction;
+	/**
+	 * The value of the key of the last row, or null
+	 */
+	String value;
+	/**
+	 * The id of the last row, or null for the first page
+	 */
+	Long id;
+	
+	/**
+	 * Method that gets the cursor of the page requested
+	 * <p>
+	 * An empty token starts the listing sorted by the key and direction given, a token
+	 * returned before continues the listing in its own sorting.
+	 * <p>
+	 * Throws {@link CustomException} with http <b>400</b> status if the token is broken
+	 * or the key of sorting is not one of the keys available
+	 *
+	 * @param token     the token of cursor or an empty string
+	 * @param sort      the key of sorting of the first page
+	 * @param direction the direction of sorting of the first page
+	 * @param keys      the keys of sorting available
+	 *
+	 * @return the {@link PageCursor}
+	 */
+	public static PageCursor of(String token, String sort, Sort.Direction direction,
+			Collection<String> keys) {
+		PageCursor cursor;
+		if (token == null || token.isEmpty()) {
+			cursor = new PageCursor(sort,
+					direction != null ? direction : Sort.Direction.ASC, null, null);
+		} else {
+			cursor = decode(token);
+		}
+		if (cursor.sort == null || cursor.direction == null
+				|| !keys.contains(cursor.sort)) {
+			throw new CustomException(String.format(
+					"Sorting by [%s] is not available, use one of %s",
+					cursor.sort, keys), HttpStatus.BAD_REQUEST);
+		}
+		return cursor;
+	}
+	
+	/**
+	 * Method that gets the cursor after the row
+	 *
+	 * @param value the value of the key of sorting of the row
+	 * @param id    the id of the row
+	 *
+	 * @return the {@link PageCursor} in the same sorting
+	 */
+	public PageCursor after(String value, Long id) {
+		return new PageCursor(sort, direction, value, id);
+	}
+	
+	@JsonIgnore
+	public boolean isFirst() {
+		return id == null;
+	}
+	
+	/**
+	 * Method that gets the opaque token of cursor
+	 *
+	 * @return the URL-safe token
+	 */
+	public String encode() {
+		try {
+			return Base64.getUrlEncoder()
+					.withoutPadding()
+					.encodeToString(MAPPER.writeValueAsBytes(this));
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private static PageCursor decode(String token) {
+		try {
+			return MAPPER.readValue(Base64.getUrlDecoder().decode(token),
+					PageCursor.class);
+		} catch (IllegalArgumentException | IOException e) {
+			throw new CustomException(String.format("Cursor [%s] is not valid", token),
+					HttpStatus.BAD_REQUEST);
+		}
+	}
+}
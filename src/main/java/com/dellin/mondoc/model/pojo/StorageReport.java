@@ -0,0 +1,46 @@
+package com.dellin.mondoc.model.pojo;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Model view class of the disk usage of document data
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class StorageReport {
+	
+	/**
+	 * The count of documents with data
+	 */
+	long documents;
+	/**
+	 * The count of distinct data stored
+	 */
+	long contents;
+	/**
+	 * The size of decoded data of all documents, as if every document kept its copy
+	 */
+	long rawBytes;
+	/**
+	 * The size of decoded distinct data
+	 */
+	long uniqueBytes;
+	/**
+	 * The size of data as stored, after deduplication and compression
+	 */
+	long storedBytes;
+	/**
+	 * The share of raw bytes saved by storing
+	 */
+	double savedRatio;
+}
@@ -0,0 +1,32 @@
+package com.dellin.mondoc.model.pojo;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.*;
+
+/**
+ * Immutable view of the authenticated user which read requests need
+ * <p>
+ * Roles are taken from the claims of access token, the id and the companies of user
+ * from the database.
+ */
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class UserPrincipal {
+	
+	Long id;
+	String email;
+	/**
+	 * The ids of companies which orders the user can view
+	 */
+	Set<Long> companyIds;
+	Set<String> roles;
+	
+	public boolean hasRole(String role) {
+		return roles.contains(role);
+	}
+}
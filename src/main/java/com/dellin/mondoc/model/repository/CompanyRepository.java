@@ -12,4 +12,7 @@ public interface CompanyRepository extends JpaRepository<Company, Long> {
 	
 	@EntityGraph(type = EntityGraph.EntityGraphType.FETCH, value = "company_entity-graph")
 	Optional<Company> findByInn(String inn);
+	
+	@EntityGraph(type = EntityGraph.EntityGraphType.FETCH, value = "company_entity-graph")
+	List<Company> findByInnIn(Collection<String> inns);
 }
@@ -0,0 +1,114 @@
+package com.dellin.mondoc.model.repository;
+
+import com.dellin.mondoc.model.entity.DocumentContent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+@Repository
+public interface DocumentContentRepository extends JpaRepository<DocumentContent, Long> {
+	
+	/**
+	 * Reads the part of stored data without loading the whole data
+	 *
+	 * @param id     the id of content
+	 * @param from   the first byte to read, from 1
+	 * @param length the count of bytes to read
+	 *
+	 * @return the bytes, fewer at the end of data
+	 */
+	@Query(value = "select substring(c.data from :from for :length) "
+			+ "from document_contents c where c.id = :id",
+		   nativeQuery = true)
+	byte[] findChunk(@Param("id") Long id, @Param("from") long from,
+			@Param("length") int length);
+	
+	@Query("select c.id from DocumentContent c where c.hash = :hash")
+	Optional<Long> findIdByHash(@Param("hash") String hash);
+	
+	@Query("select c.compressed from DocumentContent c where c.id = :id")
+	Optional<Boolean> findCompressedById(@Param("id") Long id);
+	
+	@Modifying
+	@Transactional
+	@Query("update DocumentContent c set c.refCount = c.refCount + 1 "
+			+ "where c.hash = :hash")
+	int incrementRefCount(@Param("hash") String hash);
+	
+	/**
+	 * Inserts the content or, if the content with the same hash was inserted
+	 * meanwhile, adds a reference to it
+	 *
+	 * @return the id of content
+	 */
+	@Transactional
+	@Query(value = "insert into document_contents "
+			+ "(data, size, stored_size, compressed, hash, ref_count, created_at) "
+			+ "values (:data, :size, :storedSize, :compressed, :hash, 1, now()) "
+			+ "on conflict (hash) do update "
+			+ "set ref_count = document_contents.ref_count + 1 returning id",
+		   nativeQuery = true)
+	Long insertOrReference(@Param("data") byte[] data, @Param("size") long size,
+			@Param("storedSize") long storedSize, @Param("compressed") boolean compressed,
+			@Param("hash") String hash);
+	
+	@Modifying
+	@Transactional
+	@Query("update DocumentContent c set c.refCount = c.refCount - 1 where c.id = :id")
+	int decrementRefCount(@Param("id") Long id);
+	
+	@Modifying
+	@Transactional
+	@Query("delete from DocumentContent c where c.id = :id and c.refCount <= 0")
+	int deleteUnreferenced(@Param("id") Long id);
+	
+	/**
+	 * Points documents to the first of equal contents stored before deduplication
+	 */
+	@Modifying
+	@Transactional
+	@Query(value = "update documents d set content_id = k.keep "
+			+ "from (select id, min(id) over (partition by hash) as keep "
+			+ "from document_contents) k "
+			+ "where d.content_id = k.id and k.id <> k.keep",
+		   nativeQuery = true)
+	int mergeDuplicates();
+	
+	/**
+	 * Sets the reference count of every content to the count of its documents
+	 */
+	@Modifying
+	@Transactional
+	@Query(value = "update document_contents c set ref_count = r.count "
+			+ "from (select c2.id, count(d.id) as count from document_contents c2 "
+			+ "left join documents d on d.content_id = c2.id group by c2.id) r "
+			+ "where c.id = r.id and c.ref_count <> r.count",
+		   nativeQuery = true)
+	int recountReferences();
+	
+	@Modifying
+	@Transactional
+	@Query("delete from DocumentContent c where c.refCount <= 0")
+	int deleteAllUnreferenced();
+	
+	/**
+	 * Creates the unique index of hash, which {@link #insertOrReference} relies on
+	 */
+	@Modifying
+	@Transactional
+	@Query(value = "create unique index if not exists idx_content_hash "
+			+ "on document_contents (hash)", nativeQuery = true)
+	void createHashIndex();
+	
+	@Query("select coalesce(sum(c.size), 0) from DocumentContent c")
+	long sumSize();
+	
+	@Query("select coalesce(sum(coalesce(c.storedSize, c.size)), 0) "
+			+ "from DocumentContent c")
+	long sumStoredSize();
+}
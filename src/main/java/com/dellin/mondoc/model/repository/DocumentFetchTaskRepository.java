@@ -0,0 +1,103 @@
+package com.dellin.mondoc.model.repository;
+
+import com.dellin.mondoc.model.entity.Document;
+import com.dellin.mondoc.model.entity.DocumentFetchTask;
+import java.time.LocalDateTime;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+@Repository
+public interface DocumentFetchTaskRepository
+		extends JpaRepository<DocumentFetchTask, Long> {
+	
+	@Modifying
+	@Query(value = "insert into document_fetch_queue as q "
+			+ "(document_id, priority, enqueued_at, attempts) "
+			+ "select d.id, :priority, :now, 0 from documents d "
+			+ "where d.doc_uid in :uids and d.content_id is null "
+			+ "and (d.status is null or d.status <> 'DELETED') "
+			+ "on conflict (document_id) do update "
+			+ "set priority = least(q.priority, excluded.priority)",
+		   nativeQuery = true)
+	int enqueueByUids(@Param("uids") Collection<String> uids,
+			@Param("priority") int priority, @Param("now") LocalDateTime now);
+	
+	@Modifying
+	@Query(value = "insert into document_fetch_queue as q "
+			+ "(document_id, priority, enqueued_at, attempts) "
+			+ "select d.id, :priority, :now, 0 from documents d "
+			+ "join orders o on o.id = d.order_id "
+			+ "where o.company_id in :companies and d.content_id is null "
+			+ "and (d.status is null or d.status <> 'DELETED') "
+			+ "on conflict (document_id) do update "
+			+ "set priority = least(q.priority, excluded.priority)",
+		   nativeQuery = true)
+	int enqueueByCompanies(@Param("companies") Collection<Long> companies,
+			@Param("priority") int priority, @Param("now") LocalDateTime now);
+	
+	@Modifying
+	@Query(value = "insert into document_fetch_queue "
+			+ "(document_id, priority, enqueued_at, attempts) "
+			+ "select d.id, :priority, :now, 0 from documents d "
+			+ "where d.content_id is null "
+			+ "and (d.status is null or d.status <> 'DELETED') "
+			+ "on conflict (document_id) do nothing",
+		   nativeQuery = true)
+	int enqueueAll(@Param("priority") int priority, @Param("now") LocalDateTime now);
+	
+	@Query(value = "select q.* from document_fetch_queue q "
+			+ "where q.dead_at is null "
+			+ "and (q.leased_until is null or q.leased_until < :now) "
+			+ "and (q.retry_at is null or q.retry_at < :now) "
+			+ "order by q.priority, q.enqueued_at, q.id limit :limit "
+			+ "for update skip locked",
+		   nativeQuery = true)
+	List<DocumentFetchTask> findAvailable(@Param("now") LocalDateTime now,
+			@Param("limit") int limit);
+	
+	@Query(value = "select q.* from document_fetch_queue q "
+			+ "join documents d on d.id = q.document_id "
+			+ "join orders o on o.id = d.order_id "
+			+ "where o.company_id in :companies "
+			+ "and q.dead_at is null "
+			+ "and (q.leased_until is null or q.leased_until < :now) "
+			+ "and (q.retry_at is null or q.retry_at < :now) "
+			+ "order by q.priority, q.enqueued_at, q.id limit :limit "
+			+ "for update of q skip locked",
+		   nativeQuery = true)
+	List<DocumentFetchTask> findAvailableByCompanies(
+			@Param("companies") Collection<Long> companies,
+			@Param("now") LocalDateTime now, @Param("limit") int limit);
+	
+	@Query("select case when count(q) > 0 then true else false end "
+			+ "from DocumentFetchTask q "
+			+ "where q.deadAt is null "
+			+ "and (q.leasedUntil is null or q.leasedUntil < :now) "
+			+ "and (q.retryAt is null or q.retryAt < :now)")
+	boolean existsAvailable(@Param("now") LocalDateTime now);
+	
+	Optional<DocumentFetchTask> findByDocument(Document document);
+	
+	List<DocumentFetchTask> findByDeadAtNotNullOrderByDeadAtDesc();
+	
+	@Modifying
+	@Query("delete from DocumentFetchTask q where q.document = :document")
+	int deleteByDocument(@Param("document") Document document);
+	
+	@Modifying
+	@Query(value = "delete from document_fetch_queue q using documents d "
+			+ "where d.id = q.document_id "
+			+ "and (d.content_id is not null or d.status = 'DELETED')",
+		   nativeQuery = true)
+	int deleteStale();
+	
+	@Modifying
+	@Query("update DocumentFetchTask q set q.leaseOwner = null, q.leasedUntil = null "
+			+ "where q.leaseOwner = :owner")
+	int releaseByOwner(@Param("owner") String owner);
+}
@@ -3,17 +3,72 @@ package com.dellin.mondoc.model.repository;
 import com.dellin.mondoc.model.entity.Company;
 import com.dellin.mondoc.model.entity.Document;
 import com.dellin.mondoc.model.enums.OrderDocType;
+import java.time.LocalDateTime;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
 
 @Repository
 public interface DocumentRepository extends JpaRepository<Document, Long> {
 	
-	Collection<Document> findByBase64NullAndOrder_Company(Company company);
+	@Query("select d from Document d "
+			+ "where d.contentId is null and d.order.company = :company "
+			+ "and (d.status is null "
+			+ "or d.status <> com.dellin.mondoc.model.enums.EntityStatus.DELETED)")
+	Collection<Document> findActiveWithoutContentByCompany(
+			@Param("company") Company company);
 	
-	List<Document> findByBase64Null();
+	@Query("select d from Document d where d.contentId is null and (d.status is null "
+			+ "or d.status <> com.dellin.mondoc.model.enums.EntityStatus.DELETED)")
+	List<Document> findActiveWithoutContent();
 	
 	Optional<Document> findByUidAndType(String uid, OrderDocType type);
+	
+	List<Document> findByUidIn(Collection<String> uids);
+	
+	@Modifying
+	@Query("update Document d "
+			+ "set d.status = com.dellin.mondoc.model.enums.EntityStatus.DELETED, "
+			+ "d.updatedAt = :now where d.order in "
+			+ "(select o from Order o where o.docId in :ids or o.uid in :ids) "
+			+ "and (d.status is null "
+			+ "or d.status <> com.dellin.mondoc.model.enums.EntityStatus.DELETED)")
+	int markDeletedByOrders(@Param("ids") Collection<String> ids,
+			@Param("now") LocalDateTime now);
+	
+	long countByContentIdNotNull();
+	
+	@Query("select coalesce(sum(d.contentSize), 0) from Document d")
+	long sumContentSize();
+	
+	@Query(value = "select count(*) > 0 from information_schema.columns "
+			+ "where table_schema = current_schema() and table_name = 'documents' "
+			+ "and column_name = 'base64'",
+		   nativeQuery = true)
+	boolean hasLegacyPayloadColumn();
+	
+	@Query(value = "select id from documents "
+			+ "where base64 is not null and content_id is null order by id limit :limit",
+		   nativeQuery = true)
+	List<Long> findLegacyPayloadIds(@Param("limit") int limit);
+	
+	@Query(value = "select base64 from documents where id = :id", nativeQuery = true)
+	String findLegacyPayload(@Param("id") Long id);
+	
+	@Modifying
+	@Transactional
+	@Query(value = "update documents set base64 = null where id = :id",
+		   nativeQuery = true)
+	int clearLegacyPayload(@Param("id") Long id);
+	
+	@Modifying
+	@Transactional
+	@Query(value = "alter table documents drop column if exists base64",
+		   nativeQuery = true)
+	void dropLegacyPayloadColumn();
 }
@@ -0,0 +1,133 @@
+package com.dellin.mondoc.model.repository;
+
+import com.dellin.mondoc.model.pojo.CursorPage;
+import com.dellin.mondoc.model.pojo.PageCursor;
+import org.springframework.data.domain.Sort;
+
+import java.util.*;
+import java.util.function.*;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+
+/**
+ * The JPQL of a page read by keyset
+ * <p>
+ * Rows are sorted by the key and then by id in the same direction, null values of the
+ * key go last in ascending order and first in descending one. The condition takes the
+ * rows after the ones of {@link PageCursor}, so every page is read by the index of the
+ * key without offset and without count.
+ */
+class KeysetQuery {
+	
+	private final String path;
+	private final String id;
+	private final PageCursor cursor;
+	private final Function<String, Object> parser;
+	
+	/**
+	 * @param alias  the alias of entity in the query
+	 * @param path   the path of the key of sorting
+	 * @param cursor the {@link PageCursor} of the page
+	 */
+	KeysetQuery(String alias, String path, PageCursor cursor) {
+		this(alias, path, cursor, value -> value);
+	}
+	
+	/**
+	 * @param alias  the alias of entity in the query
+	 * @param path   the path of the key of sorting
+	 * @param cursor the {@link PageCursor} of the page
+	 * @param parser the function which gets the value of the key of its text in cursor
+	 */
+	KeysetQuery(String alias, String path, PageCursor cursor,
+			Function<String, Object> parser) {
+		this.path = path;
+		this.id = alias + ".id";
+		this.cursor = cursor;
+		this.parser = parser;
+	}
+	
+	/**
+	 * Method that gets the condition of the rows after the cursor
+	 *
+	 * @return the JPQL condition, or an empty string for the first page
+	 */
+	String where() {
+		if (cursor.isFirst()) {
+			return "";
+		}
+		boolean asc = cursor.getDirection().isAscending();
+		String after = asc ? " > " : " < ";
+		if (path.equals(id)) {
+			return id + after + ":keysetId";
+		}
+		if (cursor.getValue() == null) {
+			return asc ? "(" + path + " is null and " + id + after + ":keysetId)"
+					: "(" + path + " is not null or " + id + after + ":keysetId)";
+		}
+		return "(" + path + after + ":keysetValue or (" + path + " = :keysetValue and "
+				+ id + after + ":keysetId)" + (asc ? " or " + path + " is null)" : ")");
+	}
+	
+	/**
+	 * Method that gets the sorting of the rows
+	 *
+	 * @return the JPQL clause beginning with <i>order by</i>
+	 */
+	String orderBy() {
+		String direction = cursor.getDirection().isAscending() ? " asc" : " desc";
+		if (path.equals(id)) {
+			return " order by " + id + direction;
+		}
+		String nulls = cursor.getDirection().isAscending() ? " nulls last, "
+				: " nulls first, ";
+		return " order by " + path + direction + nulls + id + direction;
+	}
+	
+	/**
+	 * Method that reads the page
+	 * <p>
+	 * The query selects the columns of the row, its id and the value of the key. One row
+	 * more than the size is read to know if there is the next page.
+	 *
+	 * @param entityManager the {@link EntityManager}
+	 * @param columns       the JPQL selection of the columns of the row
+	 * @param from          the JPQL from <i>from</i> to the end of the condition
+	 * @param parameters    the parameters of the query
+	 * @param row           the function which makes the row of its columns
+	 * @param size          the number of rows on page
+	 *
+	 * @return the {@link CursorPage}
+	 */
+	<T> CursorPage<T> getPage(EntityManager entityManager, String columns, String from,
+			Map<String, Object> parameters, Function<Object[], T> row, int size) {
+		String where = where();
+		if (!where.isEmpty()) {
+			where = (from.contains(" where ") ? " and " : " where ") + where;
+		}
+		String select = "select " + columns + ", " + id + ", " + path + " ";
+		TypedQuery<Object[]> query = entityManager.createQuery(
+				select + from + where + orderBy(), Object[].class);
+		parameters.forEach(query::setParameter);
+		if (!cursor.isFirst()) {
+			query.setParameter("keysetId", cursor.getId());
+			if (!path.equals(id) && cursor.getValue() != null) {
+				query.setParameter("keysetValue", parser.apply(cursor.getValue()));
+			}
+		}
+		List<Object[]> rows = query.setMaxResults(size + 1).getResultList();
+		
+		List<T> content = new ArrayList<>();
+		for (int i = 0; i < rows.size() && i < size; i++) {
+			content.add(row.apply(rows.get(i)));
+		}
+		PageCursor next = null;
+		if (rows.size() > size) {
+			Object[] last = rows.get(size - 1);
+			Object value = last[last.length - 1];
+			next = cursor.after(value != null ? String.valueOf(value) : null,
+					(Long) last[last.length - 2]);
+		}
+		return new CursorPage<>(content, next);
+	}
+}
@@ -2,19 +2,74 @@ package com.dellin.mondoc.model.repository;
 
 import com.dellin.mondoc.model.entity.Company;
 import com.dellin.mondoc.model.entity.Order;
+import com.dellin.mondoc.model.pojo.OrderComment;
+import java.time.LocalDateTime;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository
+		extends JpaRepository<Order, Long>, OrderRepositoryCustom {
 	
 	@EntityGraph(type = EntityGraph.EntityGraphType.FETCH, value = "order_entity-graph")
 	Optional<Order> findByDocId(String docId);
 	
-	Page<Order> findByCompanyIn(Collection<Company> companies, Pageable pageable);
+	@EntityGraph(type = EntityGraph.EntityGraphType.FETCH, value = "order_entity-graph")
+	List<Order> findByDocIdIn(Collection<String> docIds);
+	
+	@Query("select o from Order o where o.company in :companies and (o.status is null "
+			+ "or o.status <> com.dellin.mondoc.model.enums.EntityStatus.DELETED)")
+	Page<Order> findActiveByCompanyIn(@Param("companies") Collection<Company> companies,
+			Pageable pageable);
+	
+	@Query("select new com.dellin.mondoc.model.pojo.OrderComment(o.docId, u.email, "
+			+ "c.updatedAt, c.text) from Order o join o.comments c left join c.user u "
+			+ "where o.docId in :docIds order by c.id")
+	List<OrderComment> findComments(@Param("docIds") Collection<String> docIds);
+	
+	@Modifying
+	@Query("update Order o "
+			+ "set o.status = com.dellin.mondoc.model.enums.EntityStatus.DELETED, "
+			+ "o.updatedAt = :now where (o.docId in :ids or o.uid in :ids) "
+			+ "and (o.status is null "
+			+ "or o.status <> com.dellin.mondoc.model.enums.EntityStatus.DELETED)")
+	int markDeleted(@Param("ids") Collection<String> ids,
+			@Param("now") LocalDateTime now);
+	
+	@Modifying
+	@Transactional
+	@Query(value = "create extension if not exists pg_trgm", nativeQuery = true)
+	void createTrigramExtension();
+	
+	@Modifying
+	@Transactional
+	@Query(value = "create index if not exists idx_orders_search on orders "
+			+ "using gin (search_text gin_trgm_ops)", nativeQuery = true)
+	void createSearchIndex();
+	
+	@Modifying
+	@Transactional
+	@Query(value = "create index if not exists idx_order_view_company_search "
+			+ "on order_view using gin (lower(company_name) gin_trgm_ops)",
+		   nativeQuery = true)
+	void createCompanyNameSearchIndex();
+	
+	@Modifying
+	@Transactional
+	@Query(value = "update orders o set search_text = lower(concat_ws(' ', o.doc_id, "
+			+ "o.uid, (select string_agg(c.text, ' ' order by c.id) "
+			+ "from orders_comments oc join comments c on c.id = oc.comments_id "
+			+ "where oc.order_id = o.id))) "
+			+ "where o.id in (select id from orders where search_text is null "
+			+ "order by id limit :limit)", nativeQuery = true)
+	int fillSearchText(@Param("limit") int limit);
 }
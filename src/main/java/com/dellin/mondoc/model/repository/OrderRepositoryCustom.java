@@ -0,0 +1,29 @@
+package com.dellin.mondoc.model.repository;
+
+import com.dellin.mondoc.model.pojo.CursorPage;
+import com.dellin.mondoc.model.pojo.OrderFilter;
+import com.dellin.mondoc.model.pojo.OrderModel;
+import com.dellin.mondoc.model.pojo.PageCursor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.*;
+
+/**
+ * The queries of orders built at runtime
+ */
+public interface OrderRepositoryCustom {
+	
+	/**
+	 * The keys of sorting of orders with their paths, each of them is served by an index
+	 */
+	Map<String, String> SORT_PATHS = Map.of("id", "v.id", "docId", "v.docId", "state",
+			"v.state", "uid", "v.uid", "createdAt", "v.createdAt", "updatedAt",
+			"v.updatedAt");
+	
+	Page<OrderModel> findModels(Collection<Long> companyIds, boolean commentedOnly,
+			OrderFilter filter, Pageable pageable);
+	
+	CursorPage<OrderModel> findModelsAfter(Collection<Long> companyIds,
+			boolean commentedOnly, OrderFilter filter, PageCursor cursor, int size);
+}
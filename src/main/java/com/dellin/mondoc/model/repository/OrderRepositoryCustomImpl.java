@@ -0,0 +1,170 @@
+package com.dellin.mondoc.model.repository;
+
+import com.dellin.mondoc.model.entity.OrderView;
+import com.dellin.mondoc.model.enums.OrderDocType;
+import com.dellin.mondoc.model.pojo.CursorPage;
+import com.dellin.mondoc.model.pojo.OrderFilter;
+import com.dellin.mondoc.model.pojo.OrderModel;
+import com.dellin.mondoc.model.pojo.PageCursor;
+import java.time.LocalDateTime;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.*;
+import java.util.function.*;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+
+public class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+	
+	private static final String COLUMNS = "v.docId, v.companyName, v.state, v.uid, "
+			+ "v.documentsReady";
+	
+	private static final Set<String> TIME_KEYS = Set.of("createdAt", "updatedAt");
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	/**
+	 * Method that reads the page of listing of orders by offset
+	 * <p>
+	 * Orders of the companies of user which are not deleted are read, with only the
+	 * commented ones for a user who is not admin. Then each filter which is set narrows
+	 * the listing. Every word of the text filter is matched as a substring of
+	 * <i>search_text</i> of order or of the name of its company. The orders are read of
+	 * {@link OrderView}, only the text filter looks into the orders and the filter of
+	 * missing type into the documents by <i>idx_documents_order_type</i>.
+	 *
+	 * @param companyIds    the ids of companies of user
+	 * @param commentedOnly whether only the commented orders are read
+	 * @param filter        the {@link OrderFilter}
+	 * @param pageable      the {@link Pageable} sorted by the keys of {@link #SORT_PATHS}
+	 *
+	 * @return the {@link Page} of {@link OrderModel} without comments
+	 */
+	@Override
+	public Page<OrderModel> findModels(Collection<Long> companyIds, boolean commentedOnly,
+			OrderFilter filter, Pageable pageable) {
+		Map<String, Object> parameters = new HashMap<>();
+		String from = from(companyIds, commentedOnly, filter, parameters);
+		
+		StringJoiner orderBy = new StringJoiner(", ", " order by ", "");
+		for (Sort.Order order : pageable.getSort()) {
+			orderBy.add(SORT_PATHS.get(order.getProperty())
+					+ (order.isAscending() ? " asc" : " desc"));
+		}
+		orderBy.add("v.id asc");
+		
+		TypedQuery<Object[]> query = entityManager.createQuery(
+				"select " + COLUMNS + " " + from + orderBy, Object[].class);
+		parameters.forEach(query::setParameter);
+		List<OrderModel> content = new ArrayList<>();
+		query.setFirstResult((int) pageable.getOffset())
+				.setMaxResults(pageable.getPageSize())
+				.getResultList()
+				.forEach(r -> content.add(toModel(r)));
+		
+		TypedQuery<Long> count = entityManager.createQuery("select count(v) " + from,
+				Long.class);
+		parameters.forEach(count::setParameter);
+		return new PageImpl<>(content, pageable, count.getSingleResult());
+	}
+	
+	/**
+	 * Method that reads the page of listing of orders by keyset
+	 * <p>
+	 * The orders are the ones of {@link #findModels}
+	 *
+	 * @param companyIds    the ids of companies of user
+	 * @param commentedOnly whether only the commented orders are read
+	 * @param filter        the {@link OrderFilter}
+	 * @param cursor        the {@link PageCursor} with a key of {@link #SORT_PATHS}
+	 * @param size          the number of orders on page
+	 *
+	 * @return the {@link CursorPage} of {@link OrderModel} without comments
+	 */
+	@Override
+	public CursorPage<OrderModel> findModelsAfter(Collection<Long> companyIds,
+			boolean commentedOnly, OrderFilter filter, PageCursor cursor, int size) {
+		Function<String, Object> parser = TIME_KEYS.contains(cursor.getSort())
+				? LocalDateTime::parse : value -> value;
+		KeysetQuery query = new KeysetQuery("v", SORT_PATHS.get(cursor.getSort()), cursor,
+				parser);
+		
+		Map<String, Object> parameters = new HashMap<>();
+		String from = from(companyIds, commentedOnly, filter, parameters);
+		return query.getPage(entityManager, COLUMNS, from, parameters,
+				OrderRepositoryCustomImpl::toModel, size);
+	}
+	
+	private static String from(Collection<Long> companyIds, boolean commentedOnly,
+			OrderFilter filter, Map<String, Object> parameters) {
+		StringBuilder from = new StringBuilder("from OrderView v "
+				+ "where v.companyId in :companyIds and (v.status is null "
+				+ "or v.status <> com.dellin.mondoc.model.enums.EntityStatus.DELETED)");
+		parameters.put("companyIds", companyIds);
+		if (commentedOnly) {
+			from.append(" and v.commentCount > 0");
+		}
+		
+		if (filter.getState() != null) {
+			from.append(" and v.state = :state");
+			parameters.put("state", filter.getState());
+		}
+		if (filter.getCompanyInn() != null) {
+			from.append(" and v.companyInn = :companyInn");
+			parameters.put("companyInn", filter.getCompanyInn());
+		}
+		if (filter.getCreatedFrom() != null) {
+			from.append(" and v.createdAt >= :createdFrom");
+			parameters.put("createdFrom", filter.getCreatedFrom());
+		}
+		if (filter.getCreatedTo() != null) {
+			from.append(" and v.createdAt <= :createdTo");
+			parameters.put("createdTo", filter.getCreatedTo());
+		}
+		if (filter.getUpdatedFrom() != null) {
+			from.append(" and v.updatedAt >= :updatedFrom");
+			parameters.put("updatedFrom", filter.getUpdatedFrom());
+		}
+		if (filter.getUpdatedTo() != null) {
+			from.append(" and v.updatedAt <= :updatedTo");
+			parameters.put("updatedTo", filter.getUpdatedTo());
+		}
+		if (filter.getMissingDocType() != null) {
+			from.append(" and not exists (select d.id from Document d "
+					+ "where d.order.id = v.id and d.type = :missingDocType)");
+			parameters.put("missingDocType", filter.getMissingDocType());
+		}
+		if (filter.getCommented() != null) {
+			from.append(filter.getCommented() ? " and v.commentCount > 0"
+					: " and v.commentCount = 0");
+		}
+		if (filter.getText() != null && !filter.getText().isBlank()) {
+			String[] words = filter.getText()
+					.trim()
+					.toLowerCase(Locale.ROOT)
+					.split("\\s+");
+			for (int i = 0; i < words.length; i++) {
+				from.append(" and (v.id in (select o.id from Order o ")
+						.append("where o.searchText like :text").append(i)
+						.append(" escape '!') or lower(v.companyName) like :text")
+						.append(i).append(" escape '!')");
+				parameters.put("text" + i, "%" + escapeLike(words[i]) + "%");
+			}
+		}
+		return from.toString();
+	}
+	
+	private static String escapeLike(String word) {
+		return word.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+	}
+	
+	private static OrderModel toModel(Object[] row) {
+		return new OrderModel((String) row[0], (String) row[1], (String) row[2],
+				(String) row[3], OrderDocType.of((Integer) row[4]));
+	}
+}
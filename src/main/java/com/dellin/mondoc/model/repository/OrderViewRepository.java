@@ -0,0 +1,42 @@
+package com.dellin.mondoc.model.repository;
+
+import com.dellin.mondoc.model.entity.OrderView;
+import java.time.LocalDateTime;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+@Repository
+public interface OrderViewRepository
+		extends JpaRepository<OrderView, Long>, OrderViewRepositoryCustom {
+	
+	@Modifying
+	@Transactional
+	@Query("update OrderView v set v.companyName = :name where v.companyId = :companyId")
+	int renameCompany(@Param("companyId") Long companyId, @Param("name") String name);
+	
+	@Modifying
+	@Transactional
+	@Query("update OrderView v "
+			+ "set v.status = com.dellin.mondoc.model.enums.EntityStatus.DELETED, "
+			+ "v.updatedAt = :now where (v.docId in :ids or v.uid in :ids) "
+			+ "and (v.status is null "
+			+ "or v.status <> com.dellin.mondoc.model.enums.EntityStatus.DELETED)")
+	int markDeleted(@Param("ids") Collection<String> ids,
+			@Param("now") LocalDateTime now);
+	
+	@Modifying
+	@Transactional
+	@Query("update OrderView v "
+			+ "set v.documentsReady = v.documentsReady "
+			+ "+ :bit * (1 - mod(v.documentsReady / :bit, 2)), "
+			+ "v.status = com.dellin.mondoc.model.enums.EntityStatus.UPDATED, "
+			+ "v.updatedAt = :now where v.id = :id")
+	int markDocumentReady(@Param("id") Long id, @Param("bit") int bit,
+			@Param("now") LocalDateTime now);
+}
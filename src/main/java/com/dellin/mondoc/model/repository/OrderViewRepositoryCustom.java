@@ -0,0 +1,15 @@
+package com.dellin.mondoc.model.repository;
+
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * The queries of the listing of orders built at runtime
+ */
+public interface OrderViewRepositoryCustom {
+	
+	@Transactional
+	int fill(int limit);
+	
+	@Transactional
+	void dropIndex(String name);
+}
@@ -0,0 +1,67 @@
+package com.dellin.mondoc.model.repository;
+
+import com.dellin.mondoc.model.entity.OrderView;
+import com.dellin.mondoc.model.enums.OrderDocType;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+public class OrderViewRepositoryCustomImpl implements OrderViewRepositoryCustom {
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	/**
+	 * Method that writes the rows of listing of the orders which have none
+	 * <p>
+	 * The bits of document types are taken of {@link OrderDocType}, so the masks are the
+	 * same as the ones written by the services.
+	 *
+	 * @param limit the number of orders written at once
+	 *
+	 * @return the number of written {@link OrderView}
+	 */
+	@Override
+	public int fill(int limit) {
+		StringBuilder bit = new StringBuilder("case d.type");
+		for (OrderDocType type : OrderDocType.values()) {
+			bit.append(" when '").append(type.name()).append("' then ")
+					.append(type.getBit());
+		}
+		bit.append(" end");
+		
+		String sql = "insert into order_view (id, doc_id, uid, company_id, company_name, "
+				+ "company_inn, state, status, created_at, updated_at, comment_count, "
+				+ "last_comment_text, last_comment_user, last_comment_at, documents, "
+				+ "documents_ready) "
+				+ "select o.id, o.doc_id, o.uid, c.id, c.name, c.inn, o.state, o.status, "
+				+ "o.created_at, o.updated_at, "
+				+ "(select count(*) from orders_comments oc where oc.order_id = o.id), "
+				+ "lc.text, u.email, lc.updated_at, "
+				+ "coalesce((select sum(distinct " + bit + ") from documents d "
+				+ "where d.order_id = o.id), 0), "
+				+ "coalesce((select sum(distinct " + bit + ") from documents d "
+				+ "where d.order_id = o.id "
+				+ "and (d.content_id is not null or d.url is not null)), 0) "
+				+ "from orders o left join companies c on c.id = o.company_id "
+				+ "left join comments lc on lc.id = (select max(oc.comments_id) "
+				+ "from orders_comments oc where oc.order_id = o.id) "
+				+ "left join users u on u.id = lc.user_id "
+				+ "where o.id in (select x.id from orders x where not exists "
+				+ "(select v.id from order_view v where v.id = x.id) "
+				+ "order by x.id limit :limit)";
+		return entityManager.createNativeQuery(sql)
+				.setParameter("limit", limit)
+				.executeUpdate();
+	}
+	
+	/**
+	 * Method that drops the index the listing doesn't use any more
+	 *
+	 * @param name the name of index, a constant of the caller
+	 */
+	@Override
+	public void dropIndex(String name) {
+		entityManager.createNativeQuery("drop index if exists " + name).executeUpdate();
+	}
+}
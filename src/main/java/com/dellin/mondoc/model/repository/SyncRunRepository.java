@@ -0,0 +1,18 @@
+package com.dellin.mondoc.model.repository;
+
+import com.dellin.mondoc.model.entity.SyncRun;
+import com.dellin.mondoc.model.enums.SyncRunStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+@Repository
+public interface SyncRunRepository extends JpaRepository<SyncRun, Long> {
+	
+	List<SyncRun> findByStatusIn(Collection<SyncRunStatus> statuses);
+	
+	List<SyncRun> findAllByOrderByIdDesc();
+	
+	List<SyncRun> findByBatch(String batch);
+}
@@ -0,0 +1,13 @@
+package com.dellin.mondoc.model.repository;
+
+import com.dellin.mondoc.model.entity.SyncWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+@Repository
+public interface SyncWatermarkRepository extends JpaRepository<SyncWatermark, Long> {
+	
+	Optional<SyncWatermark> findByCredential(String credential);
+}
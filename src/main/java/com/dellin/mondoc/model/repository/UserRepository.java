@@ -2,12 +2,20 @@ package com.dellin.mondoc.model.repository;
 
 import com.dellin.mondoc.model.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.*;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
 	
 	Optional<User> findByEmail(String email);
+	
+	@Query("select u.id from User u where u.email = :email")
+	Optional<Long> findIdByEmail(@Param("email") String email);
+	
+	@Query("select c.id from User u join u.companies c where u.id = :id")
+	Set<Long> findCompanyIds(@Param("id") Long id);
 }
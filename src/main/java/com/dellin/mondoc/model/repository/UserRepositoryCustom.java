@@ -0,0 +1,20 @@
+package com.dellin.mondoc.model.repository;
+
+import com.dellin.mondoc.model.entity.User;
+import com.dellin.mondoc.model.pojo.CursorPage;
+import com.dellin.mondoc.model.pojo.PageCursor;
+
+import java.util.*;
+
+/**
+ * The queries of users built at runtime
+ */
+public interface UserRepositoryCustom {
+	
+	/**
+	 * The keys of sorting of users with their paths, each of them is served by an index
+	 */
+	Map<String, String> SORT_PATHS = Map.of("id", "u.id", "email", "u.email");
+	
+	CursorPage<User> findAll(PageCursor cursor, int size);
+}
@@ -0,0 +1,31 @@
+package com.dellin.mondoc.model.repository;
+
+import com.dellin.mondoc.model.entity.User;
+import com.dellin.mondoc.model.pojo.CursorPage;
+import com.dellin.mondoc.model.pojo.PageCursor;
+
+import java.util.*;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	/**
+	 * Method that reads the page of users by keyset
+	 *
+	 * @param cursor the {@link PageCursor} with a key of {@link #SORT_PATHS}
+	 * @param size   the number of users on page
+	 *
+	 * @return the {@link CursorPage} of {@link User}
+	 */
+	@Override
+	public CursorPage<User> findAll(PageCursor cursor, int size) {
+		KeysetQuery query = new KeysetQuery("u", SORT_PATHS.get(cursor.getSort()),
+				cursor);
+		return query.getPage(entityManager, "u", "from User u",
+				Collections.emptyMap(), r -> (User) r[0], size);
+	}
+}
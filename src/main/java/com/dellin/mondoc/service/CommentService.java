@@ -12,5 +12,6 @@ public interface CommentService {
 	@Transactional
 	void addCommentToOrder(String docId, Long id);
 	
+	@Transactional
 	ResponseEntity<CommentDTO> update(CommentDTO commentDTO);
 }
@@ -1,7 +1,10 @@
 package com.dellin.mondoc.service;
 
 import com.dellin.mondoc.model.entity.Document;
+import com.dellin.mondoc.model.pojo.DeadLetter;
 import com.dellin.mondoc.model.pojo.DocumentResponse;
+import com.dellin.mondoc.model.pojo.StorageReport;
+import org.springframework.core.io.Resource;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
@@ -13,7 +16,18 @@ public interface DocumentService {
 	
 	void stopUpdate();
 	
+	@Transactional
 	void updateDocData(Document document, Collection<DocumentResponse.Data> data);
 	
-	List<Document> getDocsByBase64Null();
+	List<Document> getDocsWithoutContent();
+	
+	Document getDocument(String uid, String type);
+	
+	Resource getContent(Document document);
+	
+	StorageReport getStorageReport();
+	
+	List<DeadLetter> getDeadLetters();
+	
+	void retryDeadLetter(Long id);
 }
@@ -1,6 +1,8 @@
 package com.dellin.mondoc.service;
 
 import com.dellin.mondoc.model.entity.Order;
+import com.dellin.mondoc.model.entity.SyncRun;
+import com.dellin.mondoc.model.pojo.OrderFilter;
 import com.dellin.mondoc.model.pojo.OrderRequest;
 import com.dellin.mondoc.model.pojo.OrderResponse;
 import java.io.*;
@@ -15,11 +17,26 @@ public interface OrderService {
 	@Transactional
 	void update(OrderRequest orderRequest) throws IOException;
 	
+	void resume(SyncRun run);
+	
+	@Transactional
+	void persistPage(OrderResponse page);
+	
+	@Transactional
 	void createAndUpdateOrders(Collection<OrderResponse.Order> orders);
 	
+	@Transactional
+	void deleteOrders(Collection<String> ids);
+	
 	Order getOrder(String docId);
 	
-	ModelMap getOrders(Integer page, Integer perPage, String sort, Sort.Direction order);
+	ModelMap getOrders(Integer page, Integer perPage, String sort, Sort.Direction order,
+			OrderFilter filter);
+	
+	ModelMap getOrdersAfter(String cursor, Integer perPage, String sort,
+			Sort.Direction order, OrderFilter filter);
+	
+	ModelMap search(String text, String cursor, Integer perPage);
 	
 	void stopUpdate();
 }
@@ -20,5 +20,8 @@ public interface UserService {
 	
 	ModelMap getUsers(Integer page, Integer perPage, String sort, Sort.Direction order);
 	
+	ModelMap getUsersAfter(String cursor, Integer perPage, String sort,
+			Sort.Direction order);
+	
 	void updateStatus(User user, EntityStatus status);
 }
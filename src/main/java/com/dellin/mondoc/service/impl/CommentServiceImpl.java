@@ -7,6 +7,7 @@ import com.dellin.mondoc.model.entity.Order;
 import com.dellin.mondoc.model.entity.User;
 import com.dellin.mondoc.model.enums.EntityStatus;
 import com.dellin.mondoc.model.repository.CommentRepository;
+import com.dellin.mondoc.model.repository.UserRepository;
 import com.dellin.mondoc.service.CommentService;
 import com.dellin.mondoc.service.OrderService;
 import com.dellin.mondoc.service.UserService;
@@ -35,16 +36,31 @@ public class CommentServiceImpl implements CommentService {
 	 */
 	private final CommentRepository commentRepository;
 	
+	/**
+	 * Repository which contains users
+	 */
+	private final UserRepository userRepository;
+	
 	/**
 	 * User service class
 	 */
 	private final UserService userService;
 	
+	/**
+	 * Cache of the authenticated users
+	 */
+	private final UserPrincipalCache userPrincipalCache;
+	
 	/**
 	 * Order service class
 	 */
 	private final OrderService orderService;
 	
+	/**
+	 * Read model of the listing of orders
+	 */
+	private final OrderViewService orderViewService;
+	
 	/**
 	 * ObjectMapper for reading and writing JSON
 	 */
@@ -95,7 +111,8 @@ public class CommentServiceImpl implements CommentService {
 	 * <p>
 	 * Method parameters must belong to previously created objects. It is important to
 	 * keep in mind that an order can have more than one comment, while one comment cannot
-	 * apply to several orders.
+	 * apply to several orders. The search text and the listing row of order are written
+	 * with the comment.
 	 *
 	 * @param docId the value of {@link Order} required field
 	 * @param id    the value of {@link Comment} required field
@@ -114,12 +131,14 @@ public class CommentServiceImpl implements CommentService {
 		order.getComments().add(comment);
 		order.setStatus(EntityStatus.UPDATED);
 		order.setUpdatedAt(LocalDateTime.now());
+		order.setSearchText(OrderSearchIndex.getSearchText(order));
 		
 		comment.setOrder(order);
 		comment.setStatus(EntityStatus.UPDATED);
 		comment.setUpdatedAt(LocalDateTime.now());
 		
 		commentRepository.save(comment);
+		orderViewService.refreshComments(order);
 		log.info("Comment [ID: {}] was added to order [ID: {}]", comment.getId(),
 				order.getDocId());
 	}
@@ -129,7 +148,8 @@ public class CommentServiceImpl implements CommentService {
 	 * <p>
 	 * Returns the ResponseEntity object with http <b>200</b> status if well-updated.
 	 * Updating data is possible only for authorized users, since any change is recorded
-	 * in the history
+	 * in the history. The search text and the listing row of the commented order are
+	 * written with the comment.
 	 *
 	 * @param commentDTO the {@link CommentDTO} object to update
 	 *
@@ -145,15 +165,21 @@ public class CommentServiceImpl implements CommentService {
 					HttpStatus.BAD_REQUEST);
 		}
 		comment.setText(text);
+		if (comment.getOrder() != null) {
+			comment.getOrder()
+					.setSearchText(OrderSearchIndex.getSearchText(comment.getOrder()));
+		}
 		
-		String email = SecurityContextHolder.getContext().getAuthentication().getName();
-		User user = userService.getUser(email);
-		comment.setUser(user);
+		comment.setUser(userRepository.getReferenceById(userPrincipalCache.getCurrent()
+				.getId()));
 		comment.setStatus(EntityStatus.UPDATED);
 		comment.setUpdatedAt(LocalDateTime.now());
 		
 		CommentDTO dto =
 				mapper.convertValue(commentRepository.save(comment), CommentDTO.class);
+		if (comment.getOrder() != null) {
+			orderViewService.refreshComments(comment.getOrder());
+		}
 		
 		return ResponseEntity.status(HttpStatus.OK).body(dto);
 	}
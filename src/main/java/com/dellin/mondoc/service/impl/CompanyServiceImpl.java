@@ -37,6 +37,10 @@ public class CompanyServiceImpl implements CompanyService {
 	 * User service class
 	 */
 	private final UserService userService;
+	/**
+	 * Cache of the authenticated users
+	 */
+	private final UserPrincipalCache userPrincipalCache;
 	/**
 	 * ObjectMapper for reading and writing JSON
 	 */
@@ -107,6 +111,7 @@ public class CompanyServiceImpl implements CompanyService {
 		company.setUpdatedAt(LocalDateTime.now());
 		
 		companyRepository.save(company);
+		userPrincipalCache.evict(email);
 		log.info("Company [NAME: {}, INN: {}] was added to user [EMAIL: {}]",
 				company.getName(), company.getInn(), user.getEmail());
 	}
@@ -0,0 +1,143 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.exceptions.CustomException;
+import com.dellin.mondoc.model.dto.SessionDTO;
+import com.dellin.mondoc.model.pojo.AuthDellin;
+import java.io.*;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import retrofit2.Call;
+import retrofit2.Response;
+
+import java.util.*;
+
+/**
+ * The pool of API Dellin accounts used by scheduled synchronizing
+ * <p>
+ * The pool consists of the main account configured by <i>api.appkey</i>,
+ * <i>api.login</i> and <i>api.password</i>, and the additional accounts listed in
+ * <i>api.accounts</i>. Every appkey has its own rate budget in
+ * {@link DellinRateGovernor}, so orders of accounts with different appkeys are
+ * synchronized in parallel.
+ */
+@Service
+@RequiredArgsConstructor
+@ConfigurationProperties(prefix = "api")
+public class DellinCredentialPool {
+	
+	/**
+	 * Injection of Retrofit service requests
+	 */
+	private final SyncService syncService;
+	
+	@Value("${api.appkey}")
+	String APPKEY = "";
+	@Value("${api.login}")
+	String LOGIN = "";
+	@Value("${api.password}")
+	String PASS = "";
+	
+	/**
+	 * The additional accounts of API Dellin
+	 */
+	@Setter
+	private List<Account> accounts = new ArrayList<>();
+	
+	/**
+	 * Method that gets the main account of API Dellin
+	 *
+	 * @return the {@link Account} configured by <i>api.login</i>
+	 */
+	public Account getMain() {
+		return new Account(APPKEY, LOGIN, PASS);
+	}
+	
+	/**
+	 * Method that gets all accounts of the pool, the main account first
+	 * <p>
+	 * An additional account with the login of an account already in the pool is
+	 * skipped.
+	 *
+	 * @return the {@link List}&lt;{@link Account}&gt;
+	 */
+	public List<Account> getAccounts() {
+		Map<String, Account> pool = new LinkedHashMap<>();
+		pool.put(LOGIN, getMain());
+		accounts.forEach(a -> pool.putIfAbsent(a.getLogin(), a));
+		return new ArrayList<>(pool.values());
+	}
+	
+	/**
+	 * Method that finds the account of the pool by login
+	 * <p>
+	 * Returns the Account if found or else a {@link CustomException} with http
+	 * <b>400</b> status
+	 *
+	 * @param login the login of API Dellin account
+	 *
+	 * @return the {@link Account} object
+	 */
+	public Account getAccount(String login) {
+		return getAccounts().stream()
+				.filter(a -> a.getLogin().equals(login))
+				.findFirst()
+				.orElseThrow(() -> new CustomException(String.format(
+						"Account with login: %s is not configured", login),
+						HttpStatus.BAD_REQUEST));
+	}
+	
+	/**
+	 * Method that logs in to API Dellin by the account
+	 * <p>
+	 * The request takes a permit from the buckets of the appkey of account.
+	 *
+	 * @param account the {@link Account} to log in
+	 *
+	 * @return the sessionID of API Dellin
+	 *
+	 * @throws IOException if login to API Dellin failed
+	 */
+	public String login(Account account) throws IOException {
+		SessionDTO sessionDTO = new SessionDTO();
+		sessionDTO.setAppkey(account.getAppkey());
+		sessionDTO.setLogin(account.getLogin());
+		sessionDTO.setPassword(account.getPassword());
+		Call<AuthDellin> login = syncService.getRemoteData().login(sessionDTO,
+				account.getAppkey());
+		
+		Response<AuthDellin> response = login.execute();
+		
+		if (!response.isSuccessful()) {
+			throw new IOException(
+					response.errorBody() != null ? response.errorBody().string()
+							: "Unknown error");
+		}
+		
+		assert response.body() != null;
+		return response.body().getData().getSessionID();
+	}
+	
+	/**
+	 * The account of API Dellin
+	 */
+	@Getter
+	@Setter
+	@NoArgsConstructor
+	@AllArgsConstructor
+	@FieldDefaults(level = AccessLevel.PRIVATE)
+	public static class Account {
+		
+		String appkey;
+		String login;
+		String password;
+	}
+}
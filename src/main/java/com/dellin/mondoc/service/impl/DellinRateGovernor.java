@@ -0,0 +1,347 @@
+package com.dellin.mondoc.service.impl;
+
+import java.io.*;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * The shared rate governor of all requests to API Dellin
+ * <p>
+ * Every endpoint group of API Dellin (login, orders, printable) has its own token
+ * bucket with the configured interval between two permits and burst size. All callers
+ * of {@link SyncService#getRemoteData()} take permits from the same buckets, so the
+ * scheduled jobs and the manually started updates together never exceed the
+ * recommended rate.
+ * <p>
+ * Callers are divided into two lanes. Permits are given to the waiting
+ * {@link Lane#INTERACTIVE} callers first, the {@link Lane#BACKGROUND} ones get the
+ * permits that nobody interactive waits for. The lane belongs to the current thread,
+ * by default it is interactive.
+ * <p>
+ * Every appkey of API Dellin has its own set of buckets, so the accounts synchronized
+ * in parallel don't share one rate budget, and the manual updates take permits from the
+ * same budget as the scheduled jobs with the same appkey. Callers pass the appkey as the
+ * {@link retrofit2.http.Tag} of request, requests without it use the
+ * {@link #DEFAULT_ACCOUNT} buckets. The buckets of an appkey not used for
+ * <i>api.rate.idle-minutes</i> are dropped, since full buckets are the same as new
+ * ones.
+ */
+@Slf4j
+@Service
+public class DellinRateGovernor {
+	
+	public static final String LOGIN = "login";
+	public static final String ORDERS = "orders";
+	public static final String PRINTABLE = "printable";
+	public static final String DEFAULT_ACCOUNT = "default";
+	
+	/**
+	 * The lane of requests sent by the current thread
+	 */
+	private static final ThreadLocal<Lane> currentLane =
+			ThreadLocal.withInitial(() -> Lane.INTERACTIVE);
+	
+	/**
+	 * The interval between two permits and burst size by endpoint group
+	 */
+	private final Map<String, long[]> limits = new HashMap<>();
+	/**
+	 * The token buckets by appkey
+	 */
+	private final Map<String, Budget> budgets = new ConcurrentHashMap<>();
+	/**
+	 * The time the buckets of an unused appkey are kept
+	 */
+	private final long idleNanos;
+	
+	public DellinRateGovernor(
+			@Value("${api.rate.login.interval:10000}") long loginInterval,
+			@Value("${api.rate.login.burst:1}") int loginBurst,
+			@Value("${api.rate.orders.interval:10000}") long ordersInterval,
+			@Value("${api.rate.orders.burst:1}") int ordersBurst,
+			@Value("${api.rate.printable.interval:10000}") long printableInterval,
+			@Value("${api.rate.printable.burst:1}") int printableBurst,
+			@Value("${api.rate.idle-minutes:60}") long idleMinutes) {
+		limits.put(LOGIN, new long[]{loginInterval, loginBurst});
+		limits.put(ORDERS, new long[]{ordersInterval, ordersBurst});
+		limits.put(PRINTABLE, new long[]{printableInterval, printableBurst});
+		idleNanos = TimeUnit.MINUTES.toNanos(idleMinutes);
+	}
+	
+	/**
+	 * Method that sets the lane of all further requests of the current thread
+	 *
+	 * @param lane the {@link Lane} of current thread
+	 */
+	public static void setLane(Lane lane) {
+		currentLane.set(lane);
+	}
+	
+	/**
+	 * Method that resets the lane of the current thread to {@link Lane#INTERACTIVE}
+	 * <p>
+	 * Threads of schedulers and pools are shared, so the lane set for a job is reset
+	 * when the job ends.
+	 */
+	public static void clearLane() {
+		currentLane.remove();
+	}
+	
+	/**
+	 * Method that finds the endpoint group of API Dellin by request path
+	 *
+	 * @param path the path of request
+	 *
+	 * @return the endpoint group
+	 */
+	public static String getEndpoint(String path) {
+		if (path.startsWith("/v3/auth/")) {
+			return LOGIN;
+		}
+		if (path.startsWith("/v1/printable")) {
+			return PRINTABLE;
+		}
+		return ORDERS;
+	}
+	
+	/**
+	 * Method that gets the appkey of API Dellin the request is sent with
+	 *
+	 * @param request the request to API Dellin
+	 *
+	 * @return the appkey tag of request or {@link #DEFAULT_ACCOUNT} if it has none
+	 */
+	public static String getAppkey(Request request) {
+		String appkey = request.tag(String.class);
+		return appkey != null ? appkey : DEFAULT_ACCOUNT;
+	}
+	
+	/**
+	 * Method that waits for a permit to send one request to the endpoint group by the
+	 * appkey
+	 *
+	 * @param endpoint the endpoint group of request
+	 * @param appkey   the appkey of API Dellin the request is sent with
+	 *
+	 * @throws InterruptedException if the current thread was interrupted while waiting
+	 */
+	public void acquire(String endpoint, String appkey) throws InterruptedException {
+		Lane lane = currentLane.get();
+		long waited = getBucket(appkey, endpoint).acquire(lane);
+		if (waited > 0) {
+			log.info("Request to [{}] by [{}] waited {} sec for a permit in [{}] lane",
+					endpoint, mask(appkey), waited / 1000., lane);
+		}
+	}
+	
+	/**
+	 * Method that builds the OkHttp interceptor which takes a permit before every
+	 * request
+	 * <p>
+	 * Interruption of waiting is reported as {@link InterruptedIOException}, the
+	 * interrupted state of thread is kept.
+	 *
+	 * @return the {@link Interceptor} object
+	 */
+	public Interceptor getInterceptor() {
+		return chain -> {
+			try {
+				acquire(getEndpoint(chain.request().url().encodedPath()),
+						getAppkey(chain.request()));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException(
+						"Waiting for API Dellin permit interrupted");
+			}
+			return chain.proceed(chain.request());
+		};
+	}
+	
+	/**
+	 * Method that gets the wait time metrics of all appkeys, endpoint groups and lanes
+	 * <p>
+	 * Appkeys are masked, only their first characters are shown.
+	 *
+	 * @return the {@link List}&lt;{@link WaitMetrics}&gt;
+	 */
+	public List<WaitMetrics> getMetrics() {
+		List<WaitMetrics> metrics = new ArrayList<>();
+		budgets.forEach((appkey, budget) -> budget.buckets.forEach(
+				(endpoint, bucket) -> metrics.addAll(bucket.getMetrics(mask(appkey),
+						endpoint))));
+		return metrics;
+	}
+	
+	private static String mask(String appkey) {
+		return appkey.equals(DEFAULT_ACCOUNT) ? appkey
+				: appkey.substring(0, Math.min(4, appkey.length())) + "***";
+	}
+	
+	/**
+	 * Gets the bucket of the appkey, the buckets of idle appkeys are dropped when a new
+	 * appkey comes
+	 */
+	private Bucket getBucket(String appkey, String endpoint) {
+		long now = System.nanoTime();
+		Budget budget = budgets.get(appkey);
+		if (budget == null) {
+			budgets.values().removeIf(b -> now - b.usedAt > idleNanos);
+			budget = budgets.computeIfAbsent(appkey, a -> new Budget(limits));
+		}
+		budget.usedAt = now;
+		return budget.buckets.get(endpoint);
+	}
+	
+	/**
+	 * The lanes of requests to API Dellin
+	 */
+	public enum Lane {
+		/**
+		 * Requests someone is waiting for: manual updates, user logins
+		 */
+		INTERACTIVE,
+		/**
+		 * Requests of scheduled jobs
+		 */
+		BACKGROUND
+	}
+	
+	/**
+	 * The wait time metrics of one endpoint group and lane
+	 */
+	@Getter
+	@AllArgsConstructor
+	@FieldDefaults(level = AccessLevel.PRIVATE)
+	public static class WaitMetrics {
+		
+		/**
+		 * The masked appkey of API Dellin
+		 */
+		String account;
+		String endpoint;
+		Lane lane;
+		long permits;
+		long totalWaitMs;
+		long maxWaitMs;
+		
+		public double getAverageWaitMs() {
+			return permits == 0 ? 0 : (double) totalWaitMs / permits;
+		}
+	}
+	
+	/**
+	 * The token buckets of one appkey by endpoint group
+	 */
+	private static final class Budget {
+		
+		private final Map<String, Bucket> buckets = new HashMap<>();
+		private volatile long usedAt = System.nanoTime();
+		
+		private Budget(Map<String, long[]> limits) {
+			limits.forEach((endpoint, limit) -> buckets.put(endpoint,
+					new Bucket(limit[0], (int) limit[1])));
+		}
+	}
+	
+	/**
+	 * The token bucket of one endpoint group
+	 */
+	private static final class Bucket {
+		
+		private final long intervalNanos;
+		private final int burst;
+		private final ReentrantLock lock = new ReentrantLock(true);
+		private final Condition changed = lock.newCondition();
+		private final long[] permits = new long[Lane.values().length];
+		private final long[] totalWait = new long[Lane.values().length];
+		private final long[] maxWait = new long[Lane.values().length];
+		private double tokens;
+		private long refilledAt = System.nanoTime();
+		private int interactiveWaiting;
+		
+		private Bucket(long intervalMs, int burst) {
+			this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+			this.burst = Math.max(1, burst);
+			this.tokens = this.burst;
+		}
+		
+		/**
+		 * Takes one token, waits for it if needed
+		 *
+		 * @return the time of waiting in ms
+		 */
+		private long acquire(Lane lane) throws InterruptedException {
+			long start = System.nanoTime();
+			boolean interactive = lane == Lane.INTERACTIVE;
+			lock.lockInterruptibly();
+			try {
+				if (interactive) {
+					interactiveWaiting++;
+				}
+				try {
+					while (true) {
+						refill();
+						boolean allowed = interactive || interactiveWaiting == 0;
+						if (allowed && tokens >= 1) {
+							tokens -= 1;
+							break;
+						}
+						long next = intervalNanos == 0 ? 0
+								: (long) ((1 - Math.min(tokens, 1)) * intervalNanos);
+						changed.awaitNanos(allowed ? Math.max(next, 1) : intervalNanos);
+					}
+				} finally {
+					if (interactive) {
+						interactiveWaiting--;
+					}
+					changed.signalAll();
+				}
+				
+				long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+				permits[lane.ordinal()]++;
+				totalWait[lane.ordinal()] += waited;
+				maxWait[lane.ordinal()] = Math.max(maxWait[lane.ordinal()], waited);
+				return waited;
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		private void refill() {
+			long now = System.nanoTime();
+			if (intervalNanos == 0) {
+				tokens = burst;
+			} else {
+				tokens = Math.min(burst,
+						tokens + (double) (now - refilledAt) / intervalNanos);
+			}
+			refilledAt = now;
+		}
+		
+		private List<WaitMetrics> getMetrics(String account, String endpoint) {
+			lock.lock();
+			try {
+				List<WaitMetrics> metrics = new ArrayList<>();
+				for (Lane lane : Lane.values()) {
+					int i = lane.ordinal();
+					metrics.add(new WaitMetrics(account, endpoint, lane, permits[i],
+							totalWait[i], maxWait[i]));
+				}
+				return metrics;
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+}
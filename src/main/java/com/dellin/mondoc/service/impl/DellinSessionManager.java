@@ -0,0 +1,312 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.exceptions.CustomException;
+import com.dellin.mondoc.model.entity.Session;
+import com.dellin.mondoc.model.enums.EntityStatus;
+import com.dellin.mondoc.model.repository.SessionRepository;
+import com.dellin.mondoc.utils.EncodingUtil;
+import java.io.*;
+import java.time.LocalDateTime;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+/**
+ * The cache of live sessions of API Dellin
+ * <p>
+ * Sessions of the accounts of {@link DellinCredentialPool} and of the users are kept
+ * for <i>api.session.ttl-minutes</i> after login, so the login requests don't take
+ * the rate budget of every job. A user session is taken from {@link Session} first if
+ * it is young enough, and a new user session is written back to it.
+ * <p>
+ * Sessions used within their TTL are logged in again in background
+ * <i>api.session.refresh-ahead-minutes</i> before they expire, the ones nobody used
+ * are dropped. A caller which gets an authorization failure with a session asks for
+ * {@link #renew} once: the account is logged in again, unless another caller has
+ * already replaced the same session.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DellinSessionManager {
+	
+	private static final String ACCOUNT = "account:";
+	private static final String SESSION = "session:";
+	
+	/**
+	 * The pool of API Dellin accounts which logs in
+	 */
+	private final DellinCredentialPool credentialPool;
+	
+	/**
+	 * Repository which contains sessions of users
+	 */
+	private final SessionRepository sessionRepository;
+	
+	/**
+	 * Cache of decrypted credentials of user sessions
+	 */
+	private final SessionCredentialCache credentialCache;
+	
+	/**
+	 * The live sessions by account of the pool or by {@link Session}
+	 */
+	private final Map<String, CachedSession> sessions = new ConcurrentHashMap<>();
+	
+	/**
+	 * The locks of login by the key of session
+	 */
+	private final Map<String, Object> locks = new ConcurrentHashMap<>();
+	
+	/**
+	 * The time a session of API Dellin is used after login
+	 */
+	@Value("${api.session.ttl-minutes:60}")
+	long ttlMinutes;
+	
+	/**
+	 * The time before expiry a used session is logged in again
+	 */
+	@Value("${api.session.refresh-ahead-minutes:10}")
+	long refreshAheadMinutes;
+	
+	/**
+	 * Method that gets the live session of the account of the pool
+	 * <p>
+	 * Throws {@link CustomException} with http <b>401</b> status if login failed
+	 *
+	 * @param account the {@link DellinCredentialPool.Account} of API Dellin
+	 *
+	 * @return the sessionID of API Dellin
+	 */
+	public String getSessionID(DellinCredentialPool.Account account) {
+		return getSessionID(ACCOUNT + account.getLogin(), () -> account, null,
+				() -> null);
+	}
+	
+	/**
+	 * Method that gets the live session of the user
+	 * <p>
+	 * The session stored by the last login of the user is used while it is younger than
+	 * the TTL, then the user is logged in again by the stored credentials.
+	 * <p>
+	 * Throws {@link CustomException} with http <b>401</b> status if the user has logged
+	 * out of API Dellin or login failed
+	 *
+	 * @param session the {@link Session} of user
+	 *
+	 * @return the sessionID of API Dellin
+	 */
+	public String getSessionID(Session session) {
+		checkOpen(session);
+		return getSessionID(SESSION + session.getId(), () -> getAccount(session),
+				session.getId(), () -> getStored(session));
+	}
+	
+	/**
+	 * Method that logs in the account of the pool again after an authorization failure
+	 * <p>
+	 * Throws {@link CustomException} with http <b>401</b> status if login failed
+	 *
+	 * @param account        the {@link DellinCredentialPool.Account} of API Dellin
+	 * @param staleSessionID the session which failed
+	 *
+	 * @return the new sessionID of API Dellin
+	 */
+	public String renew(DellinCredentialPool.Account account, String staleSessionID) {
+		return renew(ACCOUNT + account.getLogin(), account, null, staleSessionID);
+	}
+	
+	/**
+	 * Method that logs in the user again after an authorization failure
+	 * <p>
+	 * Throws {@link CustomException} with http <b>401</b> status if the user has logged
+	 * out of API Dellin or login failed
+	 *
+	 * @param session        the {@link Session} of user
+	 * @param staleSessionID the session which failed
+	 *
+	 * @return the new sessionID of API Dellin
+	 */
+	public String renew(Session session, String staleSessionID) {
+		checkOpen(session);
+		return renew(SESSION + session.getId(), getAccount(session), session.getId(),
+				staleSessionID);
+	}
+	
+	/**
+	 * Method that gets the account of API Dellin the user session belongs to
+	 * <p>
+	 * The credentials are decrypted by {@link SessionCredentialCache}
+	 *
+	 * @param session the {@link Session} of user
+	 *
+	 * @return the {@link DellinCredentialPool.Account} with decrypted credentials
+	 */
+	public DellinCredentialPool.Account getAccount(Session session) {
+		SessionCredentialCache.Credentials credentials = credentialCache.get(session);
+		return new DellinCredentialPool.Account(credentials.getAppkey(),
+				credentials.getLogin(), credentials.getPassword());
+	}
+	
+	/**
+	 * Method that forgets the cached session and credentials of the user after login or
+	 * logout
+	 *
+	 * @param session the {@link Session} of user
+	 */
+	public void invalidate(Session session) {
+		if (session != null && session.getId() != null) {
+			sessions.remove(SESSION + session.getId());
+			credentialCache.evict(session);
+		}
+	}
+	
+	/**
+	 * Method that logs in again the sessions which are going to expire
+	 * <p>
+	 * Only the sessions used within their TTL are refreshed, the others are dropped.
+	 */
+	@Scheduled(fixedDelayString = "${api.session.refresh-interval:60000}",
+			   initialDelayString = "${api.session.refresh-interval:60000}")
+	public void refreshExpiring() {
+		DellinRateGovernor.setLane(DellinRateGovernor.Lane.BACKGROUND);
+		try {
+			LocalDateTime now = LocalDateTime.now();
+			sessions.forEach((key, cached) -> {
+				if (cached.expiresAt.minusMinutes(refreshAheadMinutes).isAfter(now)) {
+					return;
+				}
+				if (cached.usedAt.plusMinutes(ttlMinutes).isBefore(now)) {
+					sessions.remove(key, cached);
+					return;
+				}
+				try {
+					renew(key, cached.account, cached.sessionId, cached.sessionID);
+				} catch (CustomException e) {
+					log.warn("Session of API Dellin account [{}] can't be refreshed: {}",
+							cached.account.getLogin(), e.getMessage());
+				}
+			});
+		} finally {
+			DellinRateGovernor.clearLane();
+		}
+	}
+	
+	private String getSessionID(String key,
+			Supplier<DellinCredentialPool.Account> account, Long sessionId,
+			Supplier<CachedSession> stored) {
+		LocalDateTime now = LocalDateTime.now();
+		CachedSession cached = sessions.get(key);
+		if (cached != null && cached.isAlive(now)) {
+			cached.usedAt = now;
+			return cached.sessionID;
+		}
+		
+		synchronized (locks.computeIfAbsent(key, k -> new Object())) {
+			cached = sessions.get(key);
+			if (cached == null || !cached.isAlive(now)) {
+				cached = stored.get();
+				if (cached == null || !cached.isAlive(now)) {
+					cached = login(account.get(), sessionId);
+				}
+				sessions.put(key, cached);
+			}
+			cached.usedAt = now;
+			return cached.sessionID;
+		}
+	}
+	
+	private String renew(String key, DellinCredentialPool.Account account,
+			Long sessionId, String staleSessionID) {
+		synchronized (locks.computeIfAbsent(key, k -> new Object())) {
+			CachedSession cached = sessions.get(key);
+			if (cached != null && !cached.sessionID.equals(staleSessionID)
+					&& cached.isAlive(LocalDateTime.now())) {
+				return cached.sessionID;
+			}
+			CachedSession renewed = login(account, sessionId);
+			if (cached != null) {
+				renewed.usedAt = cached.usedAt;
+			}
+			sessions.put(key, renewed);
+			return renewed.sessionID;
+		}
+	}
+	
+	private CachedSession login(DellinCredentialPool.Account account, Long sessionId) {
+		String sessionID;
+		try {
+			sessionID = credentialPool.login(account);
+		} catch (IOException e) {
+			throw new CustomException(String.format(
+					"Login to API Dellin by account %s failed: %s", account.getLogin(),
+					e.getMessage()), HttpStatus.UNAUTHORIZED);
+		}
+		
+		LocalDateTime now = LocalDateTime.now();
+		if (sessionId != null) {
+			sessionRepository.findById(sessionId).ifPresent(s -> {
+				s.setSessionDl(EncodingUtil.getEncrypted(sessionID));
+				s.setUpdatedAt(now);
+				sessionRepository.save(s);
+			});
+		}
+		log.info("Logged in to API Dellin by account [{}]", account.getLogin());
+		return new CachedSession(account, sessionId, sessionID,
+				now.plusMinutes(ttlMinutes));
+	}
+	
+	private CachedSession getStored(Session session) {
+		LocalDateTime issuedAt = session.getUpdatedAt() != null ? session.getUpdatedAt()
+				: session.getCreatedAt();
+		if (session.getSessionDl() == null || issuedAt == null) {
+			return null;
+		}
+		return new CachedSession(getAccount(session), session.getId(),
+				credentialCache.get(session).getSessionDl(),
+				issuedAt.plusMinutes(ttlMinutes));
+	}
+	
+	private static void checkOpen(Session session) {
+		if (session == null || session.getStatus() == EntityStatus.DELETED) {
+			throw new CustomException("Session of API Dellin is closed, log in to API "
+					+ "Dellin", HttpStatus.UNAUTHORIZED);
+		}
+	}
+	
+	/**
+	 * The live session of API Dellin
+	 */
+	private static final class CachedSession {
+		
+		private final DellinCredentialPool.Account account;
+		/**
+		 * The id of {@link Session} of user, or null for the account of the pool
+		 */
+		private final Long sessionId;
+		private final String sessionID;
+		private final LocalDateTime expiresAt;
+		private volatile LocalDateTime usedAt;
+		
+		private CachedSession(DellinCredentialPool.Account account, Long sessionId,
+				String sessionID, LocalDateTime expiresAt) {
+			this.account = account;
+			this.sessionId = sessionId;
+			this.sessionID = sessionID;
+			this.expiresAt = expiresAt;
+			this.usedAt = LocalDateTime.now();
+		}
+		
+		private boolean isAlive(LocalDateTime now) {
+			return expiresAt.isAfter(now);
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.model.repository.DocumentContentRepository;
+import java.io.*;
+import java.util.zip.*;
+import org.springframework.core.io.AbstractResource;
+
+/**
+ * The data of a document in {@link DocumentContentService} as a {@link
+ * org.springframework.core.io.Resource}
+ * <p>
+ * The data is read by chunks of fixed size only while the stream is read, so a
+ * response never holds the whole document in memory. Skipped bytes of uncompressed
+ * data are not read at all, which keeps HTTP range requests cheap. Compressed data is
+ * inflated on the fly.
+ */
+public class DocumentContentResource extends AbstractResource {
+	
+	static final int CHUNK_SIZE = 64 * 1024;
+	
+	private final DocumentContentRepository documentContentRepository;
+	private final Long contentId;
+	/**
+	 * The size of decoded data
+	 */
+	private final long size;
+	private final boolean compressed;
+	private final String filename;
+	
+	DocumentContentResource(DocumentContentRepository documentContentRepository,
+			Long contentId, long size, boolean compressed, String filename) {
+		this.documentContentRepository = documentContentRepository;
+		this.contentId = contentId;
+		this.size = size;
+		this.compressed = compressed;
+		this.filename = filename;
+	}
+	
+	@Override
+	public boolean exists() {
+		return true;
+	}
+	
+	@Override
+	public long contentLength() {
+		return size;
+	}
+	
+	@Override
+	public String getFilename() {
+		return filename;
+	}
+	
+	@Override
+	public String getDescription() {
+		return String.format("Document content [ID: %s]", contentId);
+	}
+	
+	@Override
+	public InputStream getInputStream() throws IOException {
+		if (compressed) {
+			return new GZIPInputStream(new ChunkedInputStream(Long.MAX_VALUE),
+					CHUNK_SIZE);
+		}
+		return new ChunkedInputStream(size);
+	}
+	
+	/**
+	 * The stream which reads the next chunk of stored data when the previous one is
+	 * consumed
+	 */
+	private class ChunkedInputStream extends InputStream {
+		
+		/**
+		 * The size of stored data if known
+		 */
+		private final long limit;
+		private long position;
+		private boolean ended;
+		private byte[] chunk = new byte[0];
+		private int chunkPosition;
+		
+		private ChunkedInputStream(long limit) {
+			this.limit = limit;
+		}
+		
+		@Override
+		public int read() {
+			if (!fill()) {
+				return -1;
+			}
+			position++;
+			return chunk[chunkPosition++] & 0xff;
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!fill()) {
+				return -1;
+			}
+			int count = Math.min(len, chunk.length - chunkPosition);
+			System.arraycopy(chunk, chunkPosition, b, off, count);
+			chunkPosition += count;
+			position += count;
+			return count;
+		}
+		
+		@Override
+		public long skip(long n) {
+			long skipped = Math.max(0, Math.min(n, limit - position));
+			int inChunk = chunk.length - chunkPosition;
+			if (skipped < inChunk) {
+				chunkPosition += (int) skipped;
+			} else {
+				chunk = new byte[0];
+				chunkPosition = 0;
+			}
+			position += skipped;
+			return skipped;
+		}
+		
+		@Override
+		public int available() {
+			return chunk.length - chunkPosition;
+		}
+		
+		private boolean fill() {
+			if (chunkPosition < chunk.length) {
+				return true;
+			}
+			if (ended || position >= limit) {
+				return false;
+			}
+			int length = (int) Math.min(CHUNK_SIZE, limit - position);
+			byte[] next = documentContentRepository.findChunk(contentId, position + 1,
+					length);
+			if (next == null || next.length == 0) {
+				ended = true;
+				return false;
+			}
+			ended = next.length < length;
+			chunk = next;
+			chunkPosition = 0;
+			return true;
+		}
+	}
+}
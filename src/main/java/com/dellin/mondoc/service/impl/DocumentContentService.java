@@ -0,0 +1,256 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.exceptions.CustomException;
+import com.dellin.mondoc.model.entity.Document;
+import com.dellin.mondoc.model.entity.DocumentContent;
+import com.dellin.mondoc.model.pojo.StorageReport;
+import com.dellin.mondoc.model.repository.DocumentContentRepository;
+import com.dellin.mondoc.model.repository.DocumentRepository;
+import java.io.*;
+import java.security.*;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.*;
+import java.util.zip.*;
+import javax.annotation.PostConstruct;
+
+/**
+ * The store of document data
+ * <p>
+ * API Dellin gives the printable documents as base64 strings. They are decoded and kept
+ * as bytes in {@link DocumentContent}, while {@link Document} holds only the reference,
+ * the size and the hash of its data.
+ * <p>
+ * Data is stored once per SHA-256 hash, so a document printed again refers to the data
+ * already stored. Every content counts its documents and is removed with the last of
+ * them. Data is compressed by gzip when that makes it smaller. Data is stored in the
+ * transaction of the document which refers to it, and reference counts are reconciled
+ * with documents on startup.
+ *
+ * @see DocumentContent
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DocumentContentService {
+	
+	private static final int MIGRATION_BATCH = 100;
+	
+	/**
+	 * Repository which contains document data
+	 */
+	private final DocumentContentRepository documentContentRepository;
+	/**
+	 * Repository which contains documents
+	 */
+	private final DocumentRepository documentRepository;
+	/**
+	 * The transactions of moving legacy data
+	 */
+	private final TransactionOperations transactionOperations;
+	
+	/**
+	 * Method that stores the data of document given by API Dellin
+	 * <p>
+	 * The document refers to the stored data with the same hash, if there is one. The
+	 * reference to the previous data of the document is released. The document itself
+	 * isn't saved, so the caller saves it in the same transaction.
+	 *
+	 * @param document the {@link Document} object
+	 * @param base64   the data in base64
+	 */
+	@Transactional
+	public void store(Document document, String base64) {
+		byte[] data = Base64.getMimeDecoder().decode(base64);
+		String hash = getHash(data);
+		Long previous = document.getContentId();
+		if (previous != null && hash.equals(document.getContentHash())) {
+			return;
+		}
+		
+		Long id;
+		if (documentContentRepository.incrementRefCount(hash) > 0) {
+			id = documentContentRepository.findIdByHash(hash).orElseThrow();
+		} else {
+			byte[] compressed = compress(data);
+			boolean smaller = compressed.length < data.length;
+			byte[] stored = smaller ? compressed : data;
+			id = documentContentRepository.insertOrReference(stored, data.length,
+					stored.length, smaller, hash);
+		}
+		
+		document.setContentId(id);
+		document.setContentSize((long) data.length);
+		document.setContentHash(hash);
+		if (previous != null) {
+			release(previous);
+		}
+	}
+	
+	private void release(Long id) {
+		documentContentRepository.decrementRefCount(id);
+		documentContentRepository.deleteUnreferenced(id);
+	}
+	
+	/**
+	 * Method that gets the data of document
+	 * <p>
+	 * Returns the data if stored or else a {@link CustomException} with http <b>404</b>
+	 * status
+	 *
+	 * @param document the {@link Document} object
+	 *
+	 * @return the {@link DocumentContent} object
+	 */
+	public DocumentContent getContent(Document document) {
+		return Optional.ofNullable(document.getContentId())
+				.flatMap(documentContentRepository::findById)
+				.orElseThrow(() -> getNotFound(document));
+	}
+	
+	/**
+	 * Method that gets the data of document as a resource read by chunks
+	 * <p>
+	 * Returns the resource if the data is stored or else a {@link CustomException} with
+	 * http <b>404</b> status
+	 *
+	 * @param document the {@link Document} object
+	 *
+	 * @return the {@link DocumentContentResource} of data
+	 */
+	public DocumentContentResource getResource(Document document) {
+		if (document.getContentId() == null || document.getContentSize() == null) {
+			throw getNotFound(document);
+		}
+		boolean compressed = documentContentRepository.findCompressedById(
+				document.getContentId()).orElseThrow(() -> getNotFound(document));
+		return new DocumentContentResource(documentContentRepository,
+				document.getContentId(), document.getContentSize(), compressed,
+				String.format("%s_%s.pdf", document.getType().name().toLowerCase(),
+						document.getUid()));
+	}
+	
+	private static CustomException getNotFound(Document document) {
+		return new CustomException(String.format(
+				"Data of document [TYPE: %s, UID: %s] not found", document.getType(),
+				document.getUid()), HttpStatus.NOT_FOUND);
+	}
+	
+	/**
+	 * Method that reports the disk usage of document data
+	 *
+	 * @return the {@link StorageReport} object
+	 */
+	public StorageReport getReport() {
+		long rawBytes = documentRepository.sumContentSize();
+		long storedBytes = documentContentRepository.sumStoredSize();
+		return new StorageReport(documentRepository.countByContentIdNotNull(),
+				documentContentRepository.count(), rawBytes,
+				documentContentRepository.sumSize(), storedBytes,
+				rawBytes > 0 ? 1 - (double) storedBytes / rawBytes : 0);
+	}
+	
+	/**
+	 * Method that reconciles the reference counts of contents with documents
+	 * <p>
+	 * Equal contents stored before deduplication are merged, contents no document
+	 * refers to are removed, and then the unique index of hash is created. The steps run
+	 * in this order when the bean is created, so data is never stored before the index
+	 * exists.
+	 */
+	@PostConstruct
+	public void reconcile() {
+		int merged = documentContentRepository.mergeDuplicates();
+		int recounted = documentContentRepository.recountReferences();
+		int removed = documentContentRepository.deleteAllUnreferenced();
+		documentContentRepository.createHashIndex();
+		if (merged > 0 || recounted > 0 || removed > 0) {
+			log.info("Document contents reconciled: [{}] documents merged, [{}] counts "
+					+ "fixed, [{}] contents removed", merged, recounted, removed);
+		}
+	}
+	
+	/**
+	 * Method that moves the base64 data of documents fetched before the store into it
+	 * <p>
+	 * Documents are moved one by one, each in its own transaction, so the migration
+	 * interrupted by shutdown continues after the next start. Data that isn't valid
+	 * base64 is dropped, so the document is fetched again. The legacy column is dropped
+	 * when it is empty.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void migrateLegacyPayloads() {
+		if (!documentRepository.hasLegacyPayloadColumn()) {
+			return;
+		}
+		
+		int count = 0;
+		List<Long> ids = documentRepository.findLegacyPayloadIds(MIGRATION_BATCH);
+		while (!ids.isEmpty()) {
+			for (Long id : ids) {
+				transactionOperations.executeWithoutResult(
+						status -> migrateLegacyPayload(id));
+				count++;
+			}
+			log.info("Data of [{}] documents moved to the store", count);
+			ids = documentRepository.findLegacyPayloadIds(MIGRATION_BATCH);
+		}
+		documentRepository.dropLegacyPayloadColumn();
+		log.info("Legacy column of document data dropped");
+	}
+	
+	private void migrateLegacyPayload(Long id) {
+		Document document = documentRepository.findById(id).orElseThrow();
+		try {
+			store(document, documentRepository.findLegacyPayload(id));
+			documentRepository.save(document);
+		} catch (IllegalArgumentException e) {
+			log.error("Data of document [ID: {}] is not base64, it will be fetched "
+					+ "again: {}", id, e.getMessage());
+		}
+		documentRepository.clearLegacyPayload(id);
+	}
+	
+	/**
+	 * Method that compresses data by gzip
+	 *
+	 * @param data the bytes to compress
+	 *
+	 * @return the compressed bytes
+	 */
+	public static byte[] compress(byte[] data) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 32);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(data);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return out.toByteArray();
+	}
+	
+	/**
+	 * Method that calculates the SHA-256 hash of data
+	 *
+	 * @param data the bytes to hash
+	 *
+	 * @return the hash in hex
+	 */
+	public static String getHash(byte[] data) {
+		try {
+			StringBuilder hash = new StringBuilder();
+			for (byte b : MessageDigest.getInstance("SHA-256").digest(data)) {
+				hash.append(String.format("%02x", b));
+			}
+			return hash.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,326 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.exceptions.CustomException;
+import com.dellin.mondoc.model.entity.Company;
+import com.dellin.mondoc.model.entity.Document;
+import com.dellin.mondoc.model.entity.DocumentFetchTask;
+import com.dellin.mondoc.model.enums.DocumentFetchFailure;
+import com.dellin.mondoc.model.enums.DocumentFetchPriority;
+import com.dellin.mondoc.model.pojo.DeadLetter;
+import com.dellin.mondoc.model.repository.DocumentFetchTaskRepository;
+import java.io.*;
+import java.net.SocketTimeoutException;
+import java.time.LocalDateTime;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.stream.*;
+
+/**
+ * The durable queue of documents to fetch from API Dellin
+ * <p>
+ * Documents are fetched in order of {@link DocumentFetchPriority}: the documents users
+ * are waiting for first, then documents of the recently synchronized orders, then all
+ * others. Enqueue is idempotent: a document queued again keeps its place and only takes
+ * the higher priority.
+ * <p>
+ * Workers take documents by leases. The entries of a lease are locked with
+ * <i>skip locked</i>, so parallel workers never get the same document. The entry is
+ * removed when the document data is saved, and is given to a worker again when the
+ * lease expires, whatever the reason the worker failed.
+ * <p>
+ * The failures reported by workers are classified by {@link DocumentFetchFailure}. A
+ * document failed transiently is retried after a backoff, doubled by every failure in
+ * a row up to the max. A document failed permanently, or transiently too many times,
+ * becomes a dead letter: it isn't leased anymore and isn't queued again by the nightly
+ * backlog, until an admin retries it.
+ *
+ * @see DocumentFetchTask
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DocumentFetchQueue {
+	
+	/**
+	 * Repository which contains the queue
+	 */
+	private final DocumentFetchTaskRepository documentFetchTaskRepository;
+	
+	/**
+	 * The time a worker owns the leased documents
+	 */
+	@Value("${api.documents.lease-minutes:10}")
+	long leaseMinutes;
+	
+	/**
+	 * The backoff after the first transient failure
+	 */
+	@Value("${api.documents.retry-base-minutes:15}")
+	long retryBaseMinutes;
+	
+	/**
+	 * The max backoff after transient failures
+	 */
+	@Value("${api.documents.retry-max-minutes:1440}")
+	long retryMaxMinutes;
+	
+	/**
+	 * The count of transient failures in a row the document becomes a dead letter after
+	 */
+	@Value("${api.documents.max-failures:6}")
+	int maxFailures;
+	
+	/**
+	 * Method that queues the documents without data by their UIDs
+	 *
+	 * @param uids     the {@link Collection}&lt;{@link String}&gt; of document UIDs
+	 * @param priority the {@link DocumentFetchPriority} of documents
+	 *
+	 * @return the count of queued or raised entries
+	 */
+	@Transactional
+	public int enqueue(Collection<String> uids, DocumentFetchPriority priority) {
+		if (uids.isEmpty()) {
+			return 0;
+		}
+		return documentFetchTaskRepository.enqueueByUids(uids, priority.ordinal(),
+				LocalDateTime.now());
+	}
+	
+	/**
+	 * Method that queues all documents without data of the companies
+	 *
+	 * @param companies the {@link Collection}&lt;{@link Company}&gt;
+	 * @param priority  the {@link DocumentFetchPriority} of documents
+	 *
+	 * @return the count of queued or raised entries
+	 */
+	@Transactional
+	public int enqueueByCompanies(Collection<Company> companies,
+			DocumentFetchPriority priority) {
+		if (companies.isEmpty()) {
+			return 0;
+		}
+		int count = documentFetchTaskRepository.enqueueByCompanies(getIds(companies),
+				priority.ordinal(), LocalDateTime.now());
+		log.info("[{}] documents of [{}] companies queued with priority [{}]", count,
+				companies.size(), priority);
+		return count;
+	}
+	
+	/**
+	 * Method that queues all documents without data not queued yet with the
+	 * {@link DocumentFetchPriority#BACKLOG} priority
+	 * <p>
+	 * Entries of documents which got data or were deleted meanwhile are removed.
+	 *
+	 * @return the count of queued entries
+	 */
+	@Transactional
+	public int enqueueBacklog() {
+		int stale = documentFetchTaskRepository.deleteStale();
+		int count = documentFetchTaskRepository.enqueueAll(
+				DocumentFetchPriority.BACKLOG.ordinal(), LocalDateTime.now());
+		log.info("Backlog of documents queued: [{}] added, [{}] stale removed", count,
+				stale);
+		return count;
+	}
+	
+	/**
+	 * Method that leases the next documents of the queue
+	 *
+	 * @param owner the name of sync job which leases documents
+	 * @param limit the max count of documents
+	 *
+	 * @return the {@link List}&lt;{@link Document}&gt; in order of priority
+	 */
+	@Transactional
+	public List<Document> lease(String owner, int limit) {
+		LocalDateTime now = LocalDateTime.now();
+		return lease(owner, documentFetchTaskRepository.findAvailable(now, limit), now);
+	}
+	
+	/**
+	 * Method that leases the next documents of the companies
+	 *
+	 * @param owner     the name of sync job which leases documents
+	 * @param companies the {@link Collection}&lt;{@link Company}&gt; of documents
+	 * @param limit     the max count of documents
+	 *
+	 * @return the {@link List}&lt;{@link Document}&gt; in order of priority
+	 */
+	@Transactional
+	public List<Document> lease(String owner, Collection<Company> companies, int limit) {
+		if (companies.isEmpty()) {
+			return new ArrayList<>();
+		}
+		LocalDateTime now = LocalDateTime.now();
+		return lease(owner, documentFetchTaskRepository.findAvailableByCompanies(
+				getIds(companies), now, limit), now);
+	}
+	
+	private List<Document> lease(String owner, List<DocumentFetchTask> tasks,
+			LocalDateTime now) {
+		tasks.forEach(t -> {
+			t.setLeaseOwner(owner);
+			t.setLeasedUntil(now.plusMinutes(leaseMinutes));
+			t.setAttempts(t.getAttempts() + 1);
+		});
+		documentFetchTaskRepository.saveAll(tasks);
+		return tasks.stream().map(DocumentFetchTask::getDocument).collect(
+				Collectors.toList());
+	}
+	
+	/**
+	 * Method that checks whether the queue has documents to lease
+	 *
+	 * @return true if any entry isn't leased
+	 */
+	public boolean hasAvailable() {
+		return documentFetchTaskRepository.existsAvailable(LocalDateTime.now());
+	}
+	
+	/**
+	 * Method that removes the document from the queue after its data is saved
+	 *
+	 * @param document the {@link Document} object
+	 */
+	@Transactional
+	public void complete(Document document) {
+		documentFetchTaskRepository.deleteByDocument(document);
+	}
+	
+	/**
+	 * Method that records the failed fetch of the leased document
+	 * <p>
+	 * The lease of document is returned. A transient failure postpones the next attempt
+	 * by the backoff, a permanent failure or the <i>api.documents.max-failures</i>
+	 * transient failure in a row make the document a dead letter. A failure of session
+	 * isn't counted.
+	 *
+	 * @param document the {@link Document} object
+	 * @param status   the http status of API Dellin response, or 0 if there was none
+	 * @param error    the message of failure
+	 *
+	 * @return the {@link DocumentFetchFailure} kind of failure
+	 */
+	@Transactional
+	public DocumentFetchFailure fail(Document document, int status, String error) {
+		DocumentFetchFailure failure = DocumentFetchFailure.of(status);
+		Optional<DocumentFetchTask> entry =
+				documentFetchTaskRepository.findByDocument(document);
+		if (entry.isEmpty()) {
+			return failure;
+		}
+		
+		DocumentFetchTask task = entry.get();
+		task.setLeaseOwner(null);
+		task.setLeasedUntil(null);
+		if (failure != DocumentFetchFailure.SESSION) {
+			LocalDateTime now = LocalDateTime.now();
+			task.setFailures(task.getFailures() + 1);
+			task.setLastStatus(status);
+			task.setLastError(error != null && error.length() > 1000
+					? error.substring(0, 1000) : error);
+			if (failure == DocumentFetchFailure.PERMANENT
+					|| task.getFailures() >= maxFailures) {
+				task.setDeadAt(now);
+				log.warn("Document [TYPE: {}, UID: {}] is a dead letter after [{}] "
+								+ "failures, the last with status [{}]",
+						document.getType(), document.getUid(), task.getFailures(),
+						status);
+			} else {
+				task.setRetryAt(now.plusMinutes(getBackoff(task.getFailures())));
+			}
+		}
+		documentFetchTaskRepository.save(task);
+		return failure;
+	}
+	
+	/**
+	 * Method that checks whether the fetch of document was cut by the stop of its job
+	 * <p>
+	 * OkHttp and {@link DellinRateGovernor} report the interruption of thread as
+	 * {@link InterruptedIOException}, which isn't a failure of document. A timeout of
+	 * socket is a failure, though it is an {@link InterruptedIOException} too.
+	 *
+	 * @param thread the thread of sync job
+	 * @param e      the exception of fetch
+	 *
+	 * @return true if the fetch was stopped, not failed
+	 */
+	public static boolean isStopped(Thread thread, IOException e) {
+		return thread.isInterrupted() || e instanceof InterruptedIOException
+				&& !(e instanceof SocketTimeoutException);
+	}
+	
+	/**
+	 * Method that gets the documents taken out of the queue, the latest first
+	 *
+	 * @return the {@link List}&lt;{@link DeadLetter}&gt;
+	 */
+	public List<DeadLetter> getDeadLetters() {
+		return documentFetchTaskRepository.findByDeadAtNotNullOrderByDeadAtDesc()
+				.stream()
+				.map(t -> new DeadLetter(t.getId(), t.getDocument().getUid(),
+						t.getDocument().getType(), t.getFailures(), t.getLastStatus(),
+						t.getLastError(), t.getDeadAt()))
+				.collect(Collectors.toList());
+	}
+	
+	/**
+	 * Method that returns the dead letter to the queue with its failures forgotten
+	 * <p>
+	 * Throws {@link CustomException} with http <b>404</b> status if the dead letter
+	 * isn't found
+	 *
+	 * @param id the id of queue entry
+	 */
+	@Transactional
+	public void retry(Long id) {
+		DocumentFetchTask task = documentFetchTaskRepository.findById(id)
+				.filter(t -> t.getDeadAt() != null)
+				.orElseThrow(() -> new CustomException(String.format(
+						"Dead letter with ID: %s not found", id), HttpStatus.NOT_FOUND));
+		task.setDeadAt(null);
+		task.setRetryAt(null);
+		task.setFailures(0);
+		task.setPriority(DocumentFetchPriority.REQUESTED);
+		documentFetchTaskRepository.save(task);
+	}
+	
+	/**
+	 * Method that calculates the backoff after the transient failures in a row
+	 *
+	 * @param failures the count of failures, at least 1
+	 *
+	 * @return the backoff in minutes
+	 */
+	long getBackoff(int failures) {
+		long backoff = retryBaseMinutes << Math.min(failures - 1, 30);
+		return backoff > 0 ? Math.min(backoff, retryMaxMinutes) : retryMaxMinutes;
+	}
+	
+	/**
+	 * Method that returns the documents still leased by the stopped job to the queue
+	 *
+	 * @param owner the name of sync job
+	 */
+	@Transactional
+	public void release(String owner) {
+		int count = documentFetchTaskRepository.releaseByOwner(owner);
+		if (count > 0) {
+			log.info("[{}] documents leased by [{}] returned to the queue", count, owner);
+		}
+	}
+	
+	private static List<Long> getIds(Collection<Company> companies) {
+		return companies.stream().map(Company::getId).collect(Collectors.toList());
+	}
+}
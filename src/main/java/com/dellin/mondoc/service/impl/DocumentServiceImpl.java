@@ -1,27 +1,35 @@
 package com.dellin.mondoc.service.impl;
 
+import com.dellin.mondoc.exceptions.CustomException;
 import com.dellin.mondoc.model.dto.SessionDTO;
 import com.dellin.mondoc.model.entity.Company;
 import com.dellin.mondoc.model.entity.Document;
 import com.dellin.mondoc.model.entity.Order;
 import com.dellin.mondoc.model.entity.User;
+import com.dellin.mondoc.model.enums.DocumentFetchFailure;
+import com.dellin.mondoc.model.enums.DocumentFetchPriority;
 import com.dellin.mondoc.model.enums.EntityStatus;
 import com.dellin.mondoc.model.enums.OrderDocType;
+import com.dellin.mondoc.model.pojo.DeadLetter;
 import com.dellin.mondoc.model.pojo.DocumentRequest;
 import com.dellin.mondoc.model.pojo.DocumentRequestBuilder;
 import com.dellin.mondoc.model.pojo.DocumentResponse;
 import com.dellin.mondoc.model.pojo.OrderRequest;
+import com.dellin.mondoc.model.pojo.StorageReport;
+import com.dellin.mondoc.model.pojo.UserPrincipal;
 import com.dellin.mondoc.model.repository.DocumentRepository;
 import com.dellin.mondoc.service.DocumentService;
 import com.dellin.mondoc.service.UserService;
-import com.dellin.mondoc.utils.EncodingUtil;
 import java.io.*;
 import java.time.LocalDateTime;
 import lombok.RequiredArgsConstructor;
-import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
 import retrofit2.Call;
 import retrofit2.Response;
 
@@ -55,16 +63,42 @@ public class DocumentServiceImpl implements DocumentService {
 	private final SyncService syncService;
 	
 	/**
-	 * Service thread is used for updating documents
+	 * Registry of running sync jobs
 	 */
-	@Setter
-	private Thread taskThread;
+	private final SyncJobRegistry syncJobRegistry;
 	
 	/**
-	 * Switcher of thread state
+	 * Queue of documents to fetch from API Dellin
 	 */
-	@Setter
-	private boolean initializedThread = false;
+	private final DocumentFetchQueue documentFetchQueue;
+	
+	/**
+	 * Store of document data
+	 */
+	private final DocumentContentService documentContentService;
+	
+	/**
+	 * Cache of live sessions of API Dellin
+	 */
+	private final DellinSessionManager sessionManager;
+	/**
+	 * Cache of the authenticated users
+	 */
+	private final UserPrincipalCache userPrincipalCache;
+	/**
+	 * Read model of the listing of orders
+	 */
+	private final OrderViewService orderViewService;
+	/**
+	 * The transactions of updating documents by the manual update
+	 */
+	private final TransactionOperations transactionOperations;
+	
+	/**
+	 * The count of documents leased from the queue at once
+	 */
+	@Value("${api.documents.batch-size:50}")
+	int batchSize;
 	
 	/**
 	 * Method that updates document database by connecting to Dellin API
@@ -82,9 +116,14 @@ public class DocumentServiceImpl implements DocumentService {
 	 *  another method {@link OrderServiceImpl#update(OrderRequest)}</pre>
 	 * <p>
 	 * Using multithreading, the method checks all available documents that require
-	 * updating. The timeout between requests set up as the recommended Dellin interval of
-	 * 10 seconds. That`s why method checks the time of receipt of the response and send
-	 * the request for the next document after the remaining time.
+	 * updating. The documents of the user companies are queued in
+	 * {@link DocumentFetchQueue} with the {@link DocumentFetchPriority#REQUESTED}
+	 * priority and are leased from it by batches, so they are fetched before the
+	 * documents of scheduled updates and never twice at the same time. The interval
+	 * between requests is kept by {@link DellinRateGovernor} together with all other
+	 * requests to API Dellin. The update is executed as the
+	 * {@link SyncJobRegistry#DOCUMENTS} job, the progress of which is available while it
+	 * works. Only one update runs at the same time.
 	 * <p>
 	 * One necessary check concerns the document type, since only GIVEOUT have a direct
 	 * link.
@@ -92,7 +131,7 @@ public class DocumentServiceImpl implements DocumentService {
 	 * Updating data is possible only for authorized users, since any change is recorded
 	 * in the history.
 	 *
-	 * @see #extracted(Thread, int, List, User)
+	 * @see #extracted(SyncJob, int, List, User)
 	 * @see #updateDocData(Document, Collection)
 	 * @see #stopUpdate()
 	 */
@@ -104,45 +143,40 @@ public class DocumentServiceImpl implements DocumentService {
 		String email = SecurityContextHolder.getContext().getAuthentication().getName();
 		User user = userService.getUser(email);
 		
-		Runnable task = new Runnable() {
-			
-			final List<Document> documentList =
-					getDocsByBase64NullAndCompanies(user.getCompanies());
-			
-			int count = 0;
-			
-			@Override
-			public void run() {
-				Thread thread = Thread.currentThread();
-				
-				extracted(thread, count, documentList, user);
-				Date programEnd = new Date();
-				long ms = programEnd.getTime() - programStart.getTime();
-				log.info("Method [update() documents] finished after {} seconds of "
-						+ "working", (ms / 1000L));
-			}
-		};
+		documentFetchQueue.enqueueByCompanies(user.getCompanies(),
+				DocumentFetchPriority.REQUESTED);
 		
-		if (!initializedThread) {
-			initializedThread = true;
-			taskThread = new Thread(task);
-			taskThread.start();
-		}
+		syncJobRegistry.start(SyncJobRegistry.DOCUMENTS, email, "documents", job -> {
+			try {
+				while (!job.getThread().isInterrupted()) {
+					List<Document> documentList = documentFetchQueue.lease(job.getName(),
+							user.getCompanies(), batchSize);
+					if (documentList.isEmpty()) {
+						break;
+					}
+					extracted(job, 0, documentList, user);
+				}
+			} finally {
+				documentFetchQueue.release(job.getName());
+			}
+			Date programEnd = new Date();
+			long ms = programEnd.getTime() - programStart.getTime();
+			log.info("Method [update() documents] finished after {} seconds of "
+					+ "working", (ms / 1000L));
+		});
 	}
 	
 	/**
 	 * Method that interrupt process of updating document database
 	 * <p>
-	 * Method interrupts earlier started thread of updating documents
+	 * Method interrupts earlier started job of updating documents
 	 *
 	 * @see DocumentServiceImpl#update()
 	 */
 	@Override
 	public void stopUpdate() {
 		
-		if (initializedThread) {
-			initializedThread = false;
-			taskThread.interrupt();
+		if (syncJobRegistry.stop(SyncJobRegistry.DOCUMENTS)) {
 			log.warn("Update was manually stopped");
 		}
 	}
@@ -151,13 +185,16 @@ public class DocumentServiceImpl implements DocumentService {
 	 * Method that update current Document by API data values
 	 * <p>
 	 * Method iterates each document of received Response in order to fill in empty
-	 * Document fields and save them to database
+	 * Document fields and save them to database. The data of document is decoded and
+	 * kept by {@link DocumentContentService}. The document is marked ready in
+	 * {@link OrderViewService} with the order, and the updated document is removed from
+	 * {@link DocumentFetchQueue}
 	 *
 	 * @param document the {@link Document} object to update
 	 * @param data     the collection of {@link DocumentResponse.Data}
 	 *
 	 * @see #update()
-	 * @see #extracted(Thread, int, List, User)
+	 * @see #extracted(SyncJob, int, List, User)
 	 * @see #stopUpdate()
 	 */
 	@Override
@@ -165,7 +202,7 @@ public class DocumentServiceImpl implements DocumentService {
 		data.forEach(d -> {
 			
 			if (d.getBase64() != null && !d.getBase64().isEmpty()) {
-				document.setBase64(d.getBase64());
+				documentContentService.store(document, d.getBase64());
 			}
 			if (document.getType() == OrderDocType.GIVEOUT) {
 				if (!d.getUrls().isEmpty()) {
@@ -182,28 +219,139 @@ public class DocumentServiceImpl implements DocumentService {
 			document.setStatus(EntityStatus.UPDATED);
 			document.setUpdatedAt(LocalDateTime.now());
 			documentRepository.save(document);
+			if (document.getContentId() != null || document.getUrl() != null) {
+				orderViewService.markDocumentReady(document);
+			}
 			log.info("Document: [TYPE: {}, UID: {}] updated", document.getType().name(),
 					document.getUid());
 		});
+		if (!data.isEmpty()) {
+			documentFetchQueue.complete(document);
+		}
 	}
 	
 	/**
-	 * Method that searches the database for all documents whose base64 field is equal to
-	 * Null
+	 * Method that searches the database for all documents whose data isn't stored yet
 	 * <p>
-	 * Returns the List of Documents with base64 null
+	 * Returns the List of Documents without content. Documents of deleted orders are
+	 * skipped, since API Dellin has nothing to give for them
 	 *
 	 * @return the {@link List}&lt;{@link Document}&gt;
 	 */
 	@Override
-	public List<Document> getDocsByBase64Null() {
-		return documentRepository.findByBase64Null();
+	public List<Document> getDocsWithoutContent() {
+		return documentRepository.findActiveWithoutContent();
+	}
+	
+	/**
+	 * Method that finds the document the current user has rights to
+	 * <p>
+	 * The rights are checked the same way as for the list of orders: the order of
+	 * document must belong to a company of the user, and a user without the admin role
+	 * gets only the documents of orders with comments.
+	 * <p>
+	 * Returns the Document object if found or else a {@link CustomException} with http
+	 * <b>404</b> status, and with http <b>403</b> status if the user has no rights to it
+	 *
+	 * @param uid  the UID of document
+	 * @param type the {@link OrderDocType} name in any case
+	 *
+	 * @return the {@link Document} object
+	 */
+	@Override
+	public Document getDocument(String uid, String type) {
+		OrderDocType docType;
+		try {
+			docType = OrderDocType.valueOf(type.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new CustomException(String.format("Unknown document type: %s", type),
+					HttpStatus.BAD_REQUEST);
+		}
+		
+		Document document = documentRepository.findByUidAndType(uid, docType)
+				.filter(d -> d.getStatus() != EntityStatus.DELETED)
+				.orElseThrow(() -> new CustomException(String.format(
+						"Document [TYPE: %s, UID: %s] not found", docType, uid),
+						HttpStatus.NOT_FOUND));
+		
+		UserPrincipal user = userPrincipalCache.getCurrent();
+		boolean role_admin = user.hasRole("ROLE_ADMIN");
+		
+		Order order = document.getOrder();
+		boolean ownCompany = user.getCompanyIds().contains(order.getCompany().getId());
+		boolean commented = order.getComments() != null && !order.getComments().isEmpty();
+		if (!ownCompany || !(role_admin || commented)) {
+			throw new CustomException(String.format(
+					"No rights to document [TYPE: %s, UID: %s]", docType, uid),
+					HttpStatus.FORBIDDEN);
+		}
+		return document;
+	}
+	
+	/**
+	 * Method that gets the data of document to stream it
+	 *
+	 * @param document the {@link Document} object
+	 *
+	 * @return the {@link Resource} with the decoded data, read by chunks
+	 *
+	 * @see DocumentContentService#getResource(Document)
+	 */
+	@Override
+	public Resource getContent(Document document) {
+		return documentContentService.getResource(document);
+	}
+	
+	/**
+	 * Method that reports the disk usage of document data
+	 *
+	 * @return the {@link StorageReport} with raw and stored bytes
+	 *
+	 * @see DocumentContentService#getReport()
+	 */
+	@Override
+	public StorageReport getStorageReport() {
+		return documentContentService.getReport();
+	}
+	
+	/**
+	 * Method that gets the documents taken out of the fetch queue after their failures
+	 *
+	 * @return the {@link List}&lt;{@link DeadLetter}&gt;, the latest first
+	 *
+	 * @see DocumentFetchQueue#getDeadLetters()
+	 */
+	@Override
+	public List<DeadLetter> getDeadLetters() {
+		return documentFetchQueue.getDeadLetters();
+	}
+	
+	/**
+	 * Method that returns the dead letter to the fetch queue with the
+	 * {@link DocumentFetchPriority#REQUESTED} priority
+	 *
+	 * @param id the id of queue entry
+	 *
+	 * @see DocumentFetchQueue#retry(Long)
+	 */
+	@Override
+	public void retryDeadLetter(Long id) {
+		documentFetchQueue.retry(id);
 	}
 	
 	/**
 	 * Extracted method that continue logic of update method. Separated for better view
+	 * <p>
+	 * A document which failed to fetch is reported to {@link DocumentFetchQueue}, which
+	 * retries it later or takes it out of the queue, and the update goes on with the
+	 * next one. The session of user is taken from {@link DellinSessionManager}. If API
+	 * Dellin rejects it, the user is logged in again once and the document is requested
+	 * again, the second failure of session stops the update. Every fetched document is
+	 * updated in its own transaction, so its data and the document are written together.
+	 * A fetch cut by the stop of update isn't a failure, the document stays leased until
+	 * the job returns its lease.
 	 *
-	 * @param thread       current {@link Thread} of updating documents
+	 * @param job          current {@link SyncJob} of updating documents
 	 * @param count        the value of start position of iterating
 	 * @param documentList the {@link List}&lt;{@link Document}&gt; to update
 	 * @param user         the user that send the request to API
@@ -212,79 +360,103 @@ public class DocumentServiceImpl implements DocumentService {
 	 * @see #updateDocData(Document, Collection)
 	 * @see #stopUpdate()
 	 */
-	public void extracted(Thread thread, int count, List<Document> documentList,
+	public void extracted(SyncJob job, int count, List<Document> documentList,
 			User user) {
+		Thread thread = job.getThread();
+		job.addTotal(documentList.size() - count);
+		String appkey = sessionManager.getAccount(user.getSession()).getAppkey();
+		String sessionID = sessionManager.getSessionID(user.getSession());
+		boolean renewed = false;
 		while (count < documentList.size() && !thread.isInterrupted()) {
+			log.info("Starting cycle of updating documents at [{}] of [{}]",
+					count + 1, documentList.size());
+			Document document = documentList.get(count);
 			try {
-				log.info("Starting cycle of updating documents at [{}] of [{}]",
-						count + 1, documentList.size());
-				Document document = documentList.get(count);
-				
 				log.info("Current document to update: [ID: {}, TYPE:{}, UID: "
 								+ "{}, OrdID: {}]", document.getId(), document.getType().name(),
 						document.getUid(), document.getOrder().getDocId());
 				
 				DocumentRequestBuilder requestBuilder = DocumentRequest.builder()
-						.setAppkey(
-								EncodingUtil.getDecrypted(user.getSession().getAppkey()))
-						.setSessionID(EncodingUtil.getDecrypted(
-								user.getSession().getSessionDl()))
+						.setAppkey(appkey)
+						.setSessionID(sessionID)
 						.setMode(document.getType().name().toLowerCase())
 						.setDocUID(document.getUid());
 				DocumentRequest build = requestBuilder.build();
 				Date start = new Date();
+				long fetchStart = System.nanoTime();
 				log.info("Sending request to API");
 				Call<DocumentResponse> availableDoc =
-						syncService.getRemoteData().getPrintableDoc(build);
+						syncService.getRemoteData().getPrintableDoc(build, appkey);
 				
 				Response<DocumentResponse> docResponse = availableDoc.execute();
-				long responseTime = new Date().getTime() - start.getTime();
-				log.info("Got the response in {} ms", responseTime / 1000.);
+				log.info("Got the response in {} sec",
+						(new Date().getTime() - start.getTime()) / 1000.);
+				job.record("fetch", System.nanoTime() - fetchStart);
 				
-				if (!docResponse.isSuccessful()) {
-					
-					log.error(docResponse.errorBody() != null ? docResponse.errorBody()
-																		   .string()
-							: "Unknown error");
-					count++;
-					long timeout = 10000L - responseTime;
-					log.info("Timeout before next request {} sec", timeout / 1000.);
-					Thread.sleep(timeout);
+				if (docResponse.code() == 401 && !renewed) {
+					log.warn("Session of API Dellin is rejected, document [UID: {}] is "
+							+ "requested again with a new one", document.getUid());
+					sessionID = sessionManager.renew(user.getSession(), sessionID);
+					renewed = true;
 					continue;
 				}
+				renewed = false;
 				
-				assert docResponse.body() != null;
-				Collection<DocumentResponse.Data> data = docResponse.body().getData();
-				updateDocData(document, data);
-				
-				count++;
-				log.info("Method [update() documents] ended process on doc [{}] "
-						+ "of [{}]", count, documentList.size());
-				
-				long timeout = 10000L - responseTime;
-				log.info("Timeout before next request {} sec", timeout / 1000.);
-				Thread.sleep(timeout);
-			} catch (InterruptedException | IOException e) {
+				if (!docResponse.isSuccessful()) {
+					
+					String error = docResponse.errorBody() != null
+							? docResponse.errorBody().string() : "Unknown error";
+					log.error(error);
+					if (documentFetchQueue.fail(document, docResponse.code(), error)
+							== DocumentFetchFailure.SESSION) {
+						thread.interrupt();
+					}
+				} else if (docResponse.body() == null
+						|| docResponse.body().getData() == null
+						|| docResponse.body().getData().isEmpty()) {
+					documentFetchQueue.fail(document, docResponse.code(),
+							"Empty document data");
+				} else {
+					Collection<DocumentResponse.Data> data =
+							docResponse.body().getData();
+					long persistStart = System.nanoTime();
+					transactionOperations.executeWithoutResult(
+							status -> updateDocData(document, data));
+					job.record("persist", System.nanoTime() - persistStart);
+				}
+			} catch (IOException e) {
+				if (DocumentFetchQueue.isStopped(thread, e)) {
+					log.warn("Update of document [UID: {}] stopped: {}",
+							document.getUid(), e.getMessage());
+					thread.interrupt();
+					break;
+				}
 				log.error(e.getMessage());
-				thread.interrupt();
+				documentFetchQueue.fail(document, 0, e.getMessage());
 			}
+			count++;
+			job.advance();
+			log.info("Method [update() documents] ended process on doc [{}] "
+					+ "of [{}]", count, documentList.size());
 		}
 	}
 	
 	/**
-	 * Method that searches the database for all documents whose base64 field is equal to
-	 * Null and who belongs to any Company in the given List
+	 * Method that searches the database for all documents whose data isn't stored yet
+	 * and who belongs to any Company in the given List
 	 * <p>
-	 * Returns the List of Documents with base64 null and Company from List
+	 * Returns the List of Documents without content and Company from List. Documents of
+	 * deleted orders are skipped
 	 *
 	 * @param companies the {@link List}&lt;{@link Company}&gt; to search in database
 	 *
 	 * @return the {@link List}&lt;{@link Document}&gt;
 	 */
-	public List<Document> getDocsByBase64NullAndCompanies(Collection<Company> companies) {
+	public List<Document> getDocsWithoutContentAndCompanies(
+			Collection<Company> companies) {
 		
 		return companies.stream()
-				.flatMap(c -> documentRepository.findByBase64NullAndOrder_Company(c)
+				.flatMap(c -> documentRepository.findActiveWithoutContentByCompany(c)
 						.stream())
 				.collect(Collectors.toList());
 	}
@@ -9,10 +9,14 @@ import com.dellin.mondoc.model.pojo.OrderResponse;
 import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.POST;
+import retrofit2.http.Tag;
 
 /**
  * Interface of Retrofit methods that allows to send requests to and get responses from
  * API Dellin
+ * <p>
+ * Every request is tagged with the appkey it is sent with, so {@link DellinRateGovernor}
+ * takes its permit from the rate budget of the appkey.
  */
 public interface IInterfaceManualLoad {
 	
@@ -23,11 +27,12 @@ public interface IInterfaceManualLoad {
 	 * Method allows user to login in API Dellin
 	 *
 	 * @param sessionDTO the {@link SessionDTO} object for sending to API
+	 * @param appkey     the appkey of API Dellin the request is sent with
 	 *
 	 * @return the {@link AuthDellin} response
 	 */
 	@POST("/v3/auth/login.json")
-	Call<AuthDellin> login(@Body SessionDTO sessionDTO);
+	Call<AuthDellin> login(@Body SessionDTO sessionDTO, @Tag String appkey);
 	
 	/**
 	 * An invocation of a Retrofit method that sends a request with {@link SessionDTO}
@@ -36,11 +41,12 @@ public interface IInterfaceManualLoad {
 	 * Method allows user to logout from API Dellin
 	 *
 	 * @param sessionDTO the {@link SessionDTO} object for sending to API
+	 * @param appkey     the appkey of API Dellin the request is sent with
 	 *
 	 * @return the {@link AuthDellin} response
 	 */
 	@POST("/v3/auth/logout.json")
-	Call<AuthDellin> logout(@Body SessionDTO sessionDTO);
+	Call<AuthDellin> logout(@Body SessionDTO sessionDTO, @Tag String appkey);
 	
 	/**
 	 * An invocation of a Retrofit method that sends a request with {@link OrderRequest}
@@ -49,11 +55,12 @@ public interface IInterfaceManualLoad {
 	 * Method allows user to request orders in API Dellin
 	 *
 	 * @param orderRequest the {@link OrderRequest} object for sending to API
+	 * @param appkey       the appkey of API Dellin the request is sent with
 	 *
 	 * @return the {@link OrderResponse} response
 	 */
 	@POST("/v3/orders.json")
-	Call<OrderResponse> update(@Body OrderRequest orderRequest);
+	Call<OrderResponse> update(@Body OrderRequest orderRequest, @Tag String appkey);
 	
 	/**
 	 * An invocation of a Retrofit method that sends a request with
@@ -63,9 +70,11 @@ public interface IInterfaceManualLoad {
 	 * Method allows user to request available printable documents in API Dellin
 	 *
 	 * @param documentRequest the {@link DocumentRequest} object for sending to API
+	 * @param appkey          the appkey of API Dellin the request is sent with
 	 *
 	 * @return the {@link DocumentResponse} response
 	 */
 	@POST("/v1/printable.json")
-	Call<DocumentResponse> getPrintableDoc(@Body DocumentRequest documentRequest);
+	Call<DocumentResponse> getPrintableDoc(@Body DocumentRequest documentRequest,
+			@Tag String appkey);
 }
@@ -0,0 +1,244 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.model.pojo.OrderResponse;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.*;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+import java.util.*;
+
+/**
+ * The Retrofit converter factory of order pages received from API Dellin
+ * <p>
+ * The converter reads {@link OrderResponse} with a {@link JsonReader} token by token
+ * and keeps only the fields synchronization of orders works with: metadata, the
+ * deleted list, and for every order its id, state and documents with their id, UID,
+ * type, payer INN and name and available docs. All other values (terminals, cargo
+ * places, tracing, acceptance acts and so on) are skipped without building objects
+ * for them.
+ * <p>
+ * Responses of other types are left to the next converter factory.
+ *
+ * @see SyncService#getRemoteData()
+ */
+public class OrderPageConverterFactory extends Converter.Factory {
+	
+	@Override
+	public Converter<ResponseBody, ?> responseBodyConverter(Type type,
+			Annotation[] annotations, Retrofit retrofit) {
+		if (type != OrderResponse.class) {
+			return null;
+		}
+		return body -> {
+			try (JsonReader reader = new JsonReader(body.charStream())) {
+				reader.setLenient(true);
+				return readResponse(reader);
+			}
+		};
+	}
+	
+	/**
+	 * Method that reads the page of orders
+	 *
+	 * @param reader the {@link JsonReader} of response body
+	 *
+	 * @return the {@link OrderResponse} object with the selected fields only
+	 *
+	 * @throws IOException if the body can't be read or isn't valid JSON
+	 */
+	static OrderResponse readResponse(JsonReader reader) throws IOException {
+		if (skipNull(reader)) {
+			return null;
+		}
+		OrderResponse response = new OrderResponse();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+				case "metadata":
+					response.setMetadata(readMetadata(reader));
+					break;
+				case "orders":
+					response.setOrders(readArray(reader,
+							OrderPageConverterFactory::readOrder));
+					break;
+				case "deleted":
+					response.setDeleted(readArray(reader,
+							OrderPageConverterFactory::readString));
+					break;
+				default:
+					reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return response;
+	}
+	
+	private static OrderResponse.Metadata readMetadata(JsonReader reader)
+			throws IOException {
+		if (skipNull(reader)) {
+			return null;
+		}
+		OrderResponse.Metadata metadata = new OrderResponse.Metadata();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+				case "status":
+					metadata.setStatus(readInteger(reader));
+					break;
+				case "currentPage":
+					metadata.setCurrentPage(readInteger(reader));
+					break;
+				case "nextPage":
+					metadata.setNextPage(readInteger(reader));
+					break;
+				case "prevPage":
+					metadata.setPrevPage(readInteger(reader));
+					break;
+				case "totalPages":
+					metadata.setTotalPages(readInteger(reader));
+					break;
+				case "generatedAt":
+					metadata.setGeneratedAt(readString(reader));
+					break;
+				default:
+					reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return metadata;
+	}
+	
+	private static OrderResponse.Order readOrder(JsonReader reader) throws IOException {
+		if (skipNull(reader)) {
+			return null;
+		}
+		OrderResponse.Order order = new OrderResponse.Order();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+				case "orderId":
+					order.setOrderId(readString(reader));
+					break;
+				case "state":
+					order.setState(readString(reader));
+					break;
+				case "stateDate":
+					order.setStateDate(readString(reader));
+					break;
+				case "documents":
+					order.setDocuments(readArray(reader,
+							OrderPageConverterFactory::readDocument));
+					break;
+				default:
+					reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return order;
+	}
+	
+	private static OrderResponse.Order.Document readDocument(JsonReader reader)
+			throws IOException {
+		if (skipNull(reader)) {
+			return null;
+		}
+		OrderResponse.Order.Document document = new OrderResponse.Order.Document();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+				case "id":
+					document.setId(readString(reader));
+					break;
+				case "uid":
+					document.setUid(readString(reader));
+					break;
+				case "type":
+					document.setType(readString(reader));
+					break;
+				case "payer":
+					document.setPayer(readPayer(reader));
+					break;
+				case "availableDocs":
+					document.setAvailableDocs(readArray(reader,
+							OrderPageConverterFactory::readString));
+					break;
+				default:
+					reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return document;
+	}
+	
+	private static OrderResponse.Order.Member readPayer(JsonReader reader)
+			throws IOException {
+		if (skipNull(reader)) {
+			return null;
+		}
+		OrderResponse.Order.Member payer = new OrderResponse.Order.Member();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+				case "inn":
+					payer.setInn(readString(reader));
+					break;
+				case "name":
+					payer.setName(readString(reader));
+					break;
+				default:
+					reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return payer;
+	}
+	
+	private static <T> Collection<T> readArray(JsonReader reader,
+			ElementReader<T> element) throws IOException {
+		if (skipNull(reader)) {
+			return null;
+		}
+		List<T> list = new ArrayList<>();
+		reader.beginArray();
+		while (reader.hasNext()) {
+			list.add(element.read(reader));
+		}
+		reader.endArray();
+		return list;
+	}
+	
+	private static String readString(JsonReader reader) throws IOException {
+		return skipNull(reader) ? null : reader.nextString();
+	}
+	
+	private static Integer readInteger(JsonReader reader) throws IOException {
+		return skipNull(reader) ? null : reader.nextInt();
+	}
+	
+	/**
+	 * Consumes the next value if it is JSON null
+	 *
+	 * @return true if the value was null
+	 */
+	private static boolean skipNull(JsonReader reader) throws IOException {
+		if (reader.peek() == JsonToken.NULL) {
+			reader.nextNull();
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * The reader of one array element
+	 */
+	@FunctionalInterface
+	private interface ElementReader<T> {
+		
+		T read(JsonReader reader) throws IOException;
+	}
+}
@@ -0,0 +1,95 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.model.entity.Comment;
+import com.dellin.mondoc.model.entity.Order;
+import com.dellin.mondoc.model.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * The search index of orders
+ * <p>
+ * Every order keeps its docId, UID and the texts of its comments in lower case as
+ * <i>search_text</i>. The text is written by the services in the same transaction as
+ * the order or comment it is made of, and the names of companies are searched as they
+ * are. Both are matched by substring, which PostgreSQL serves by the trigram indexes of
+ * <i>pg_trgm</i>. The indexes are created and the text of orders written before the
+ * index is filled on startup.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderSearchIndex {
+	
+	private static final int FILL_BATCH = 1000;
+	
+	/**
+	 * Repository which contains orders
+	 */
+	private final OrderRepository orderRepository;
+	
+	/**
+	 * Method that gets the text of order matched by search
+	 *
+	 * @param order the {@link Order} with its comments
+	 *
+	 * @return the lower-case text
+	 */
+	public static String getSearchText(Order order) {
+		StringJoiner text = new StringJoiner(" ");
+		text.add(order.getDocId());
+		if (order.getUid() != null) {
+			text.add(order.getUid());
+		}
+		if (order.getComments() != null) {
+			for (Comment comment : order.getComments()) {
+				if (comment.getText() != null) {
+					text.add(comment.getText());
+				}
+			}
+		}
+		return text.toString().toLowerCase(Locale.ROOT);
+	}
+	
+	/**
+	 * Method that creates the trigram indexes of search
+	 * <p>
+	 * Search works without them, but reads all orders of the user. The failure is only
+	 * logged, since the extension may need the rights the application has not.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void createIndexes() {
+		try {
+			orderRepository.createTrigramExtension();
+			orderRepository.createSearchIndex();
+			orderRepository.createCompanyNameSearchIndex();
+		} catch (DataAccessException e) {
+			log.warn("Trigram indexes of search are not created: {}", e.getMessage());
+		}
+	}
+	
+	/**
+	 * Method that writes the search text of orders written before the index
+	 * <p>
+	 * Orders are filled by batches, so the filling interrupted by shutdown continues
+	 * after the next start.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void fill() {
+		int count = 0;
+		int filled = orderRepository.fillSearchText(FILL_BATCH);
+		while (filled > 0) {
+			count += filled;
+			filled = orderRepository.fillSearchText(FILL_BATCH);
+		}
+		if (count > 0) {
+			log.info("Search text of [{}] orders written", count);
+		}
+	}
+}
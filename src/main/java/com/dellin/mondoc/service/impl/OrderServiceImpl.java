@@ -5,28 +5,31 @@ import com.dellin.mondoc.model.dto.SessionDTO;
 import com.dellin.mondoc.model.entity.Company;
 import com.dellin.mondoc.model.entity.Document;
 import com.dellin.mondoc.model.entity.Order;
-import com.dellin.mondoc.model.entity.Role;
+import com.dellin.mondoc.model.entity.SyncRun;
 import com.dellin.mondoc.model.entity.User;
+import com.dellin.mondoc.model.enums.DocumentFetchPriority;
 import com.dellin.mondoc.model.enums.EntityStatus;
 import com.dellin.mondoc.model.enums.OrderDocType;
-import com.dellin.mondoc.model.pojo.CommentHistory;
+import com.dellin.mondoc.model.enums.SyncRunKind;
+import com.dellin.mondoc.model.pojo.CursorPage;
+import com.dellin.mondoc.model.pojo.OrderFilter;
 import com.dellin.mondoc.model.pojo.OrderModel;
 import com.dellin.mondoc.model.pojo.OrderRequest;
 import com.dellin.mondoc.model.pojo.OrderRequestBuilder;
 import com.dellin.mondoc.model.pojo.OrderResponse;
+import com.dellin.mondoc.model.pojo.PageCursor;
+import com.dellin.mondoc.model.pojo.UserPrincipal;
 import com.dellin.mondoc.model.repository.CompanyRepository;
 import com.dellin.mondoc.model.repository.DocumentRepository;
 import com.dellin.mondoc.model.repository.OrderRepository;
 import com.dellin.mondoc.service.OrderService;
 import com.dellin.mondoc.service.UserService;
-import com.dellin.mondoc.utils.EncodingUtil;
 import com.dellin.mondoc.utils.OrderUtil;
 import com.dellin.mondoc.utils.PaginationUtil;
 import java.io.*;
 import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
 import lombok.RequiredArgsConstructor;
-import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -35,9 +38,9 @@ import org.springframework.http.HttpStatus;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.ui.ModelMap;
 import retrofit2.Call;
-import retrofit2.Response;
 
 import java.util.*;
 import java.util.stream.*;
@@ -53,7 +56,6 @@ import java.util.stream.*;
 @RequiredArgsConstructor
 public class OrderServiceImpl implements OrderService {
 	
-	private static final String DATE_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX";
 	/**
 	 * user service class
 	 */
@@ -75,15 +77,33 @@ public class OrderServiceImpl implements OrderService {
 	 */
 	private final SyncService syncService;
 	/**
-	 * Service thread is used for updating orders
+	 * Service of persisted sync runs
 	 */
-	@Setter
-	private Thread taskThread;
+	private final SyncRunService syncRunService;
 	/**
-	 * Switcher of thread state
+	 * Registry of running sync jobs
 	 */
-	@Setter
-	private boolean initializedThread = false;
+	private final SyncJobRegistry syncJobRegistry;
+	/**
+	 * Queue of documents to fetch from API Dellin
+	 */
+	private final DocumentFetchQueue documentFetchQueue;
+	/**
+	 * Cache of live sessions of API Dellin
+	 */
+	private final DellinSessionManager sessionManager;
+	/**
+	 * Cache of the authenticated users
+	 */
+	private final UserPrincipalCache userPrincipalCache;
+	/**
+	 * Read model of the listing of orders
+	 */
+	private final OrderViewService orderViewService;
+	/**
+	 * The transactions of persisting pages of the manual update
+	 */
+	private final TransactionOperations transactionOperations;
 	
 	/**
 	 * Method that updates order database by connecting to Dellin API
@@ -107,9 +127,13 @@ public class OrderServiceImpl implements OrderService {
 	 * request.
 	 * <p>
 	 * Using multithreading, the method checks all available orders that require updating.
-	 * The timeout between requests set up as the recommended Dellin interval of 10
-	 * seconds. That`s why method checks the time of receipt of the response and send the
-	 * request for the next order after the remaining time.
+	 * The interval between requests is kept by {@link DellinRateGovernor} together with
+	 * all other requests to API Dellin. Received pages are persisted by a separate stage
+	 * of {@link OrderSyncPipeline}, so database writes don't delay the next request.
+	 * The update is saved as a {@link SyncRun} with the checkpoint of the last persisted
+	 * page, so a stopped update can be resumed by {@link #resume(SyncRun)}. The update
+	 * is executed as the {@link SyncJobRegistry#ORDERS} job, the progress of which is
+	 * available while it works. Only one update runs at the same time.
 	 *
 	 * <p>
 	 * Updating data is possible only for authorized users, since any change is recorded
@@ -119,7 +143,7 @@ public class OrderServiceImpl implements OrderService {
 	 *
 	 * @throws IOException by Retrofit method with synchronized {@link Call#execute()} if
 	 *                     a problem occurred talking to the server
-	 * @see #extracted(Thread, OrderRequest, User, int, int, OrderRequestBuilder, Date)
+	 * @see #extracted(SyncJob, SyncRun, User, OrderRequestBuilder, Date)
 	 * @see #createAndUpdateOrders(Collection)
 	 * @see #stopUpdate()
 	 */
@@ -134,9 +158,8 @@ public class OrderServiceImpl implements OrderService {
 		User user = userService.getUser(email);
 		
 		OrderRequestBuilder requestBuilder = OrderRequest.builder()
-				.setAppKey(EncodingUtil.getDecrypted(user.getSession().getAppkey()))
-				.setSessionID(
-						EncodingUtil.getDecrypted(user.getSession().getSessionDl()));
+				.setAppKey(sessionManager.getAccount(user.getSession()).getAppkey())
+				.setSessionID(sessionManager.getSessionID(user.getSession()));
 		
 		if (orderRequest.getDocIds() != null && !orderRequest.getDocIds().isEmpty()) {
 			requestBuilder.setDocIds(orderRequest.getDocIds());
@@ -146,150 +169,252 @@ public class OrderServiceImpl implements OrderService {
 			Date dateStart = OrderUtil.getParsedDate(orderRequest.getDateStart());
 			Date dateEnd = OrderUtil.getParsedDate(orderRequest.getDateEnd());
 			
-			SimpleDateFormat formatter = new SimpleDateFormat(DATE_PATTERN);
+			SimpleDateFormat formatter = new SimpleDateFormat(OrderUtil.DATE_PATTERN);
 			requestBuilder.setDateStart(formatter.format(dateStart))
 					.setDateEnd(formatter.format(dateEnd));
 			log.info("User: [name: {}] set startDate: [{}], endDate: [{}]",
 					user.getUsername(), dateStart, dateEnd);
 		}
 		
-		Runnable task = new Runnable() {
-			
-			int currentPage = 1;
-			int totalPages = Integer.MAX_VALUE;
-			
-			@Override
-			public void run() {
-				Thread thread = Thread.currentThread();
-				
-				extracted(thread, orderRequest, user, currentPage, totalPages,
-						requestBuilder, programStart);
-			}
-		};
+		OrderRequest request = requestBuilder.setPage(orderRequest.getPage()).build();
+		syncJobRegistry.start(SyncJobRegistry.ORDERS, email, "pages", job -> {
+			SyncRun run = syncRunService.create(SyncRunKind.MANUAL, email, request,
+					false);
+			extracted(job, run, user, requestBuilder, programStart);
+		});
+	}
+	
+	/**
+	 * Method that resumes the stopped manual run of updating orders from its checkpoint
+	 * <p>
+	 * The run continues with the current API Dellin session of the user who started
+	 * it.
+	 *
+	 * @param run the interrupted or failed {@link SyncRun}
+	 *
+	 * @see SyncRunService#getResumable(Long)
+	 */
+	@Override
+	public void resume(SyncRun run) {
+		User user = userService.getUser(run.getOwner());
+		OrderRequestBuilder requestBuilder = syncRunService.getRequestBuilder(run)
+				.setAppKey(sessionManager.getAccount(user.getSession()).getAppkey())
+				.setSessionID(sessionManager.getSessionID(user.getSession()));
 		
-		if (!initializedThread) {
-			initializedThread = true;
-			taskThread = new Thread(task);
-			taskThread.start();
+		Date programStart = new Date();
+		syncJobRegistry.start(SyncJobRegistry.ORDERS, run.getOwner(), "pages",
+				job -> extracted(job, run, user, requestBuilder, programStart));
+		log.info("Sync run [ID: {}] of user [EMAIL: {}] is resumed", run.getId(),
+				run.getOwner());
+	}
+	
+	/**
+	 * Method that persists one page of API order response
+	 * <p>
+	 * Received orders are created or updated, and orders listed by API Dellin as deleted
+	 * are marked as tombstones, both in one transaction.
+	 *
+	 * @param page the {@link OrderResponse} page
+	 *
+	 * @see #createAndUpdateOrders(Collection)
+	 * @see #deleteOrders(Collection)
+	 */
+	@Override
+	@Transactional
+	public void persistPage(OrderResponse page) {
+		if (page.getOrders() != null) {
+			createAndUpdateOrders(page.getOrders());
 		}
+		deleteOrders(page.getDeleted());
 	}
 	
 	/**
 	 * Method that update current Orders by API order response values
 	 * <p>
-	 * Method iterates each order of received Response to fill in empty {@link Order}
-	 * fields or update them and finally save to database
+	 * Method works with the whole page of received Response at once. All payer INNs,
+	 * order docIds and document UIDs of the page are collected first and resolved with
+	 * one query per entity type. Then the page is compared with the loaded entities in
+	 * memory, and only new or changed companies and orders are written to database in
+	 * one transaction. New documents are queued in {@link DocumentFetchQueue} with the
+	 * {@link DocumentFetchPriority#RECENT} priority, and the listing rows of the written
+	 * orders and renamed companies are written by {@link OrderViewService} in the same
+	 * transaction.
 	 *
 	 * @param orders the {@link Collection}&lt;{@link OrderResponse.Order}&gt;
 	 *
 	 * @see #update(OrderRequest)
-	 * @see #extracted(Thread, OrderRequest, User, int, int, OrderRequestBuilder, Date)
+	 * @see #extracted(SyncJob, SyncRun, User, OrderRequestBuilder, Date)
 	 * @see #stopUpdate()
 	 */
 	@Override
+	@Transactional
 	public void createAndUpdateOrders(Collection<OrderResponse.Order> orders) {
-		orders.forEach(o -> {
-			Collection<OrderResponse.Order.Document> docs = o.getDocuments();
-			docs.stream()
-					.filter(d -> d.getType().equalsIgnoreCase("shipping"))
-					.forEach(d -> {
-						String orderId = d.getId();
-						String orderUID = d.getUid();
-						String innPayer = d.getPayer().getInn();
-						
-						Optional<Company> optionalCompany =
-								companyRepository.findByInn(innPayer);
-						Optional<Order> optionalOrder =
-								orderRepository.findByDocId(orderId);
-						
-						//WORKING WITH COMPANY
-						Company company;
-						if (optionalCompany.isEmpty()) {
-							//CREATE
-							company = new Company();
-							company.setStatus(EntityStatus.CREATED);
-							company.setInn(innPayer);
-							company.setName(d.getPayer().getName());
-							log.info("Company's database updated. New "
-											+ "company: [NAME: {}, INN: {}] added",
-									company.getName(), company.getInn());
-							//NOW WE HAVE COMPANY
-						} else {
-							//USE EX FROM DB
-							company = optionalCompany.get();
-							if (company.getName().length() == 0 || !company.getName()
-																		   .equals(d.getPayer()
-																					.getName())) {
-								company.setName(d.getPayer().getName());
-								company.setStatus(EntityStatus.UPDATED);
-								company.setUpdatedAt(LocalDateTime.now());
-							}
-							log.info("Loaded company from DB: [NAME: {}, " + "INN: {}]",
-									company.getName(), company.getInn());
-							//NOW WE HAVE COMPANY
-						}
-						
-						//WORKING WITH ORDER
-						Order order;
-						if (optionalOrder.isEmpty()) {
-							order = new Order();
-							order.setUid(orderUID);
-							order.setStatus(EntityStatus.CREATED);
-							order.setState(o.getState());
-							order.setDocId(orderId);
-							order.setCompany(company);
-							Collection<Order> companyOrders = company.getOrders();
-							companyOrders.add(order);
-							company.setOrders(companyOrders);
-							company.setStatus(EntityStatus.UPDATED);
-							company.setUpdatedAt(LocalDateTime.now());
-							log.info("Orders database updated. New "
-											+ "order: [UID: {}, DOC_ID: {}] " + "added",
-									order.getUid(), order.getDocId());
-							//NOW WE HAVE ORDER
-						} else {
-							//USE EX FROM DB
-							order = optionalOrder.get();
-							//order checks:
-							if (!o.getState().equals(order.getState())) {
-								order.setState(o.getState());
-								order.setStatus(EntityStatus.UPDATED);
-								order.setUpdatedAt(LocalDateTime.now());
-							}
-							
-							log.info("Loaded order from DB: [UID: {}, " + "DOC_ID: {}]",
-									order.getUid(), order.getDocId());
-							//NOW WE HAVE ORDER
-						}
-						
-						//WORKING WITH ORDER DOCS
-						Collection<String> avDocs = d.getAvailableDocs();
-						
-						//COLLECTION OF UPDATES
-						avDocs.stream()
-								.filter(doc -> documentRepository.findByUidAndType(
-																		 orderUID, OrderDocType.valueOf(doc.toUpperCase()))
-																 .isEmpty())
-								.forEach(doc -> {
-									Document document = new Document();
-									document.setType(
-											OrderDocType.valueOf(doc.toUpperCase()));
-									document.setOrder(order);
-									document.setUid(orderUID);
-									document.setStatus(EntityStatus.CREATED);
-									log.info("Document's database updated. "
-													+ "New document: [TYPE:"
-													+ " {}, UID: {}] added",
-											document.getType().name(), document.getUid());
-									
-									order.getDocuments().add(document);
-								});
-						
-						order.setStatus(EntityStatus.UPDATED);
-						order.setUpdatedAt(LocalDateTime.now());
-						companyRepository.save(company);
-					});
+		
+		List<ShippingDoc> shippingDocs = orders.stream()
+				.flatMap(o -> o.getDocuments()
+						.stream()
+						.filter(d -> d.getType().equalsIgnoreCase("shipping"))
+						.map(d -> new ShippingDoc(o.getState(), d)))
+				.collect(Collectors.toList());
+		
+		if (shippingDocs.isEmpty()) {
+			return;
+		}
+		
+		Set<String> inns = new HashSet<>();
+		Set<String> docIds = new HashSet<>();
+		Set<String> uids = new HashSet<>();
+		shippingDocs.forEach(s -> {
+			inns.add(s.doc.getPayer().getInn());
+			docIds.add(s.doc.getId());
+			uids.add(s.doc.getUid());
+		});
+		
+		Map<String, Company> companies = companyRepository.findByInnIn(inns)
+				.stream()
+				.collect(Collectors.toMap(Company::getInn, c -> c, (a, b) -> a));
+		Map<String, Order> existingOrders = orderRepository.findByDocIdIn(docIds)
+				.stream()
+				.collect(Collectors.toMap(Order::getDocId, o -> o, (a, b) -> a));
+		Set<String> existingDocs = documentRepository.findByUidIn(uids)
+				.stream()
+				.map(d -> getDocKey(d.getUid(), d.getType()))
+				.collect(Collectors.toSet());
+		
+		Set<Company> changedCompanies = new LinkedHashSet<>();
+		Set<Company> renamedCompanies = new HashSet<>();
+		Set<Order> changedOrders = new LinkedHashSet<>();
+		Set<Order> createdOrders = new HashSet<>();
+		Set<String> createdDocs = new HashSet<>();
+		
+		shippingDocs.forEach(s -> {
+			OrderResponse.Order.Document d = s.doc;
+			String orderId = d.getId();
+			String orderUID = d.getUid();
+			String innPayer = d.getPayer().getInn();
+			String namePayer = d.getPayer().getName();
+			
+			//WORKING WITH COMPANY
+			Company company = companies.get(innPayer);
+			if (company == null) {
+				//CREATE
+				company = new Company();
+				company.setStatus(EntityStatus.CREATED);
+				company.setInn(innPayer);
+				company.setName(namePayer);
+				companies.put(innPayer, company);
+				changedCompanies.add(company);
+				log.info("Company's database updated. New company: [NAME: {}, INN: {}] "
+						+ "added", company.getName(), company.getInn());
+			} else if (!Objects.equals(company.getName(), namePayer)) {
+				company.setName(namePayer);
+				company.setStatus(EntityStatus.UPDATED);
+				company.setUpdatedAt(LocalDateTime.now());
+				changedCompanies.add(company);
+				renamedCompanies.add(company);
+			}
+			
+			//WORKING WITH ORDER
+			Order order = existingOrders.get(orderId);
+			if (order == null) {
+				order = new Order();
+				order.setUid(orderUID);
+				order.setStatus(EntityStatus.CREATED);
+				order.setState(s.state);
+				order.setDocId(orderId);
+				order.setSearchText(OrderSearchIndex.getSearchText(order));
+				order.setCompany(company);
+				company.getOrders().add(order);
+				company.setStatus(EntityStatus.UPDATED);
+				company.setUpdatedAt(LocalDateTime.now());
+				existingOrders.put(orderId, order);
+				createdOrders.add(order);
+				changedCompanies.add(company);
+				log.info("Orders database updated. New order: [UID: {}, DOC_ID: {}] "
+						+ "added", order.getUid(), order.getDocId());
+			} else if (!Objects.equals(s.state, order.getState())) {
+				order.setState(s.state);
+				order.setStatus(EntityStatus.UPDATED);
+				order.setUpdatedAt(LocalDateTime.now());
+				changedOrders.add(order);
+			}
+			
+			//WORKING WITH ORDER DOCS
+			Collection<String> avDocs = d.getAvailableDocs();
+			if (avDocs == null) {
+				return;
+			}
+			for (String doc : avDocs) {
+				OrderDocType type = OrderDocType.valueOf(doc.toUpperCase());
+				if (!existingDocs.add(getDocKey(orderUID, type))) {
+					continue;
+				}
+				Document document = new Document();
+				document.setType(type);
+				document.setOrder(order);
+				document.setUid(orderUID);
+				document.setStatus(EntityStatus.CREATED);
+				order.getDocuments().add(document);
+				createdDocs.add(orderUID);
+				log.info("Document's database updated. New document: [TYPE: {}, UID: {}] "
+						+ "added", document.getType().name(), document.getUid());
+				
+				if (!createdOrders.contains(order)) {
+					order.setStatus(EntityStatus.UPDATED);
+					order.setUpdatedAt(LocalDateTime.now());
+					changedOrders.add(order);
+				}
+			}
 		});
+		
+		if (!changedCompanies.isEmpty()) {
+			companyRepository.saveAll(changedCompanies);
+		}
+		if (!changedOrders.isEmpty()) {
+			orderRepository.saveAll(changedOrders);
+		}
+		renamedCompanies.forEach(orderViewService::renameCompany);
+		// new orders of existing companies are persisted as copies by the merge of
+		// company, so the written orders are read again with their ids
+		Set<String> writtenDocIds = Stream.concat(createdOrders.stream(),
+				changedOrders.stream()).map(Order::getDocId).collect(Collectors.toSet());
+		if (!writtenDocIds.isEmpty()) {
+			orderViewService.refresh(orderRepository.findByDocIdIn(writtenDocIds));
+		}
+		documentFetchQueue.enqueue(createdDocs, DocumentFetchPriority.RECENT);
+		log.info("Page of [{}] orders processed: [{}] companies and [{}] orders written",
+				shippingDocs.size(), changedCompanies.size(),
+				changedOrders.size() + createdOrders.size());
+	}
+	
+	/**
+	 * Method that marks Orders deleted on the API Dellin side and their Documents as
+	 * {@link EntityStatus#DELETED}
+	 * <p>
+	 * Ids from the {@code deleted} list of API order response are matched with both docId
+	 * and UID of orders. Orders and documents are updated by two bulk queries, rows
+	 * already marked are left as they are. Documents of deleted orders are no longer
+	 * fetched from API Dellin, and deleted orders are not listed.
+	 *
+	 * @param ids the {@link Collection}&lt;{@link String}&gt; of deleted orders ids
+	 *
+	 * @see #persistPage(OrderResponse)
+	 */
+	@Override
+	@Transactional
+	public void deleteOrders(Collection<String> ids) {
+		if (ids == null || ids.isEmpty()) {
+			return;
+		}
+		
+		LocalDateTime now = LocalDateTime.now();
+		int documents = documentRepository.markDeletedByOrders(ids, now);
+		int orders = orderRepository.markDeleted(ids, now);
+		orderViewService.markDeleted(ids, now);
+		if (orders > 0 || documents > 0) {
+			log.info("Tombstones of [{}] deleted orders: [{}] orders and [{}] documents "
+					+ "marked as deleted", ids.size(), orders, documents);
+		}
 	}
 	
 	/**
@@ -321,12 +446,21 @@ public class OrderServiceImpl implements OrderService {
 	 * <p>
 	 * Working with data is possible only for authorized users, since any change is
 	 * recorded in the history.
+	 * <p>
+	 * The page is read by one query of the listing rows of {@link OrderViewService} and
+	 * the comments of all its orders by another one, so the number of queries doesn't
+	 * depend on the page size. Both rules
+	 * of visibility are applied by the query, so every page is full and the counts of
+	 * pages are accurate. The filters which are set narrow the listing in the same query.
+	 * <p>
+	 * Throws {@link CustomException} with http <b>400</b> status if the sorting is not
+	 * one of {@link OrderRepository#SORT_PATHS}, which are served by indexes
 	 *
 	 * @param page    the serial number of page
 	 * @param perPage the number of elements on page
-	 * @param sort    the main parameter of sorting (see available before
-	 *                {@link OrderModel})
+	 * @param sort    the key of sorting: docId, state, uid, createdAt, updatedAt or id
 	 * @param order   ASC or DESC
+	 * @param filter  the {@link OrderFilter} of listing
 	 *
 	 * @return the ModelMap of sorted {@link OrderModel}
 	 *
@@ -336,58 +470,24 @@ public class OrderServiceImpl implements OrderService {
 	 */
 	@Override
 	public ModelMap getOrders(Integer page, Integer perPage, String sort,
-			Sort.Direction order) {
+			Sort.Direction order, OrderFilter filter) {
 		if (perPage == 0) {
 			throw new CustomException("Page size must not be less than one",
 					HttpStatus.BAD_REQUEST);
 		}
 		
-		Pageable pageRequest = PaginationUtil.getPageRequest(page, perPage, sort, order);
+		Pageable pageRequest = PaginationUtil.getPageRequest(page, perPage, sort, order,
+				OrderRepository.SORT_PATHS.keySet());
 		
-		String email = SecurityContextHolder.getContext().getAuthentication().getName();
-		User user = userService.getUser(email);
-		Collection<Company> companies = user.getCompanies();
-		boolean role_admin = user.getRoles()
-				.stream()
-				.map(Role::getRoleName)
-				.collect(Collectors.toList()).contains("ROLE_ADMIN");
-		
-		Page<Order> pageResult = orderRepository.findByCompanyIn(companies, pageRequest);
+		UserPrincipal user = userPrincipalCache.getCurrent();
+		boolean role_admin = user.hasRole("ROLE_ADMIN");
 		
-		List<Order> collect;
-		if (role_admin) {
-			collect = pageResult.getContent();
-		} else {
-			collect = pageResult.getContent()
-					.stream()
-					.filter(o -> !o.getComments().isEmpty())
-					.collect(Collectors.toList());
-		}
+		Page<OrderModel> pageResult = user.getCompanyIds().isEmpty()
+				? Page.empty(pageRequest)
+				: orderRepository.findModels(user.getCompanyIds(), !role_admin, filter,
+						pageRequest);
 		
-		List<OrderModel> content = collect.stream()
-				.map(o -> {
-					OrderModel orderModel = new OrderModel();
-					
-					List<CommentHistory> history = o.getComments()
-							.stream()
-							.map(c -> {
-								
-								CommentHistory commentHistory = new CommentHistory();
-								commentHistory.setUserName(c.getUser().getUsername());
-								commentHistory.setUpdatedAt(c.getUpdatedAt());
-								commentHistory.setText(c.getText());
-								return commentHistory;
-							})
-							.collect(Collectors.toList());
-					orderModel.setComments(history);
-					
-					orderModel.setCompanyName(o.getCompany().getName());
-					orderModel.setState(o.getState());
-					orderModel.setDocId(o.getDocId());
-					orderModel.setUid(o.getUid());
-					return orderModel;
-				})
-				.collect(Collectors.toList());
+		List<OrderModel> content = withComments(pageResult.getContent());
 		
 		ModelMap map = new ModelMap();
 		map.addAttribute("content", content);
@@ -398,91 +498,165 @@ public class OrderServiceImpl implements OrderService {
 		return map;
 	}
 	
+	/**
+	 * Method that gets the page of orders after the cursor
+	 * <p>
+	 * The orders visible to the user and filtered as by {@link #getOrders} are read by
+	 * keyset after the last order of the previous page, so every page takes the same time
+	 * at any depth and no count is made. The cursor of the next page is returned as
+	 * <i>next</i>, which is null on the last page.
+	 * <p>
+	 * Throws {@link CustomException} with http <b>400</b> status if the cursor is not
+	 * valid or the sorting is not available with cursor
+	 *
+	 * @param cursor  the token of the previous page, or an empty string for the first one
+	 * @param perPage the number of elements on page
+	 * @param sort    the key of sorting of the first page as by {@link #getOrders}
+	 * @param order   ASC or DESC
+	 * @param filter  the {@link OrderFilter} of listing
+	 *
+	 * @return the ModelMap of sorted {@link OrderModel}
+	 *
+	 * @see PageCursor
+	 */
+	@Override
+	public ModelMap getOrdersAfter(String cursor, Integer perPage, String sort,
+			Sort.Direction order, OrderFilter filter) {
+		if (perPage != null && perPage < 1) {
+			throw new CustomException("Page size must not be less than one",
+					HttpStatus.BAD_REQUEST);
+		}
+		
+		PageCursor after = PageCursor.of(cursor, sort, order,
+				OrderRepository.SORT_PATHS.keySet());
+		
+		UserPrincipal user = userPrincipalCache.getCurrent();
+		boolean role_admin = user.hasRole("ROLE_ADMIN");
+		
+		CursorPage<OrderModel> pageResult = user.getCompanyIds().isEmpty()
+				? new CursorPage<>(Collections.emptyList(), null)
+				: orderRepository.findModelsAfter(user.getCompanyIds(), !role_admin,
+						filter, after, perPage != null ? perPage : 10);
+		List<OrderModel> content = withComments(pageResult.getContent());
+		
+		ModelMap map = new ModelMap();
+		map.addAttribute("content", content);
+		map.addAttribute("PageSize", content.size());
+		map.addAttribute("next",
+				pageResult.getNext() != null ? pageResult.getNext().encode() : null);
+		
+		return map;
+	}
+	
+	/**
+	 * Method that searches the orders visible to the user by words
+	 * <p>
+	 * Every word is matched as a part of docId, UID, payer-company name or comments of
+	 * order. The newest orders go first, the next page is read by cursor as by
+	 * {@link #getOrdersAfter}.
+	 * <p>
+	 * Throws {@link CustomException} with http <b>400</b> status if there are no words
+	 *
+	 * @param text    the words to search
+	 * @param cursor  the token of the previous page, or null for the first one
+	 * @param perPage the number of elements on page
+	 *
+	 * @return the ModelMap of found {@link OrderModel}
+	 *
+	 * @see OrderSearchIndex
+	 */
+	@Override
+	public ModelMap search(String text, String cursor, Integer perPage) {
+		if (text == null || text.isBlank()) {
+			throw new CustomException("Search text can`t be empty",
+					HttpStatus.BAD_REQUEST);
+		}
+		
+		OrderFilter filter = new OrderFilter();
+		filter.setText(text);
+		return getOrdersAfter(cursor != null ? cursor : "", perPage, "id",
+				Sort.Direction.DESC, filter);
+	}
+	
+	private List<OrderModel> withComments(List<OrderModel> page) {
+		Map<String, OrderModel> models = page.stream()
+				.collect(Collectors.toMap(OrderModel::getDocId, m -> m, (a, b) -> a,
+						LinkedHashMap::new));
+		if (!models.isEmpty()) {
+			orderRepository.findComments(models.keySet())
+					.forEach(c -> models.get(c.getDocId())
+							.getComments()
+							.add(c.toHistory()));
+		}
+		return new ArrayList<>(models.values());
+	}
+	
 	/**
 	 * Method that interrupt process of updating order database
 	 * <p>
-	 * Method interrupts earlier started thread of updating orders
+	 * Method interrupts earlier started job of updating orders
 	 *
 	 * @see OrderServiceImpl#update(OrderRequest)
 	 */
 	@Override
 	public void stopUpdate() {
 		
-		if (initializedThread) {
-			initializedThread = false;
-			taskThread.interrupt();
+		if (syncJobRegistry.stop(SyncJobRegistry.ORDERS)) {
 			log.warn("Update was manually stopped");
 		}
 	}
 	
 	/**
 	 * Extracted method that continue logic of update method. Separated for better view
+	 * <p>
+	 * Pages are requested and persisted by the two stages of {@link OrderSyncPipeline}.
+	 * Every page is persisted in its own transaction. The session of user is taken from
+	 * {@link DellinSessionManager}, which logs the user in again once if API Dellin
+	 * rejects it
 	 *
-	 * @param thread         current {@link Thread} of updating orders
-	 * @param orderRequest   the {@link OrderRequest} object for sending to API
+	 * @param job            current {@link SyncJob} of updating orders
+	 * @param run            the {@link SyncRun} to execute
 	 * @param user           the user that send the request to API
-	 * @param currentPage    the value of start position of iterating
-	 * @param totalPages     the value of all available pages
 	 * @param requestBuilder the API request builder before call
 	 * @param programStart   the time when program started
 	 *
 	 * @see #update(OrderRequest)
-	 * @see #createAndUpdateOrders(Collection)
+	 * @see #persistPage(OrderResponse)
 	 * @see #stopUpdate()
 	 */
-	public void extracted(Thread thread, OrderRequest orderRequest, User user,
-			int currentPage, int totalPages, OrderRequestBuilder requestBuilder,
-			Date programStart) {
-		Integer page = orderRequest.getPage();
-		if (page != null) {
+	public void extracted(SyncJob job, SyncRun run, User user,
+			OrderRequestBuilder requestBuilder, Date programStart) {
+		if (run.getLastPage() != null) {
 			log.info("User [EMAIL: {}] chose page [{}] for update", user.getUsername(),
-					page);
-			currentPage = page;
-			totalPages = page;
+					run.getLastPage());
 		}
 		
+		int currentPage = SyncRunService.getStartPage(run);
 		log.info("Starting cycle of updating orders at [{}] page", currentPage);
 		
-		while (currentPage <= totalPages && !thread.isInterrupted()) {
-			try {
-				requestBuilder.setPage(currentPage);
-					
-					/*
-					User can update database by two different ways:
-					1. Including the list of interested in doc uid to the request
-					2. Including dates from-to, setting the range by it
-					These ways exclude each other from the request
-					* */
-				
-				OrderRequest build = requestBuilder.build();
-				
-				Call<OrderResponse> orders = syncService.getRemoteData().update(build);
-				
-				Date start = new Date();
-				log.info("Sending request to API");
-				Response<OrderResponse> response = orders.execute();
-				long responseTime = new Date().getTime() - start.getTime();
-				log.info("Got the response in {} sec", responseTime / 1000.);
-				
-				if (response.body() == null) {
-					throw new CustomException("Response body is empty",
-							HttpStatus.BAD_REQUEST);
-				}
-				Collection<OrderResponse.Order> ord = response.body().getOrders();
-				createAndUpdateOrders(ord);
-				if (page == null) {
-					totalPages = response.body().getMetadata().getTotalPages();
-				}
-				log.info("End of page: [{}]. Total pages: [{}]", currentPage,
-						response.body().getMetadata().getTotalPages());
-				currentPage++;
-				long timeout = 10000L - responseTime;
-				log.info("Timeout before next request {} sec", timeout / 1000.);
-				Thread.sleep(timeout);
-			} catch (InterruptedException | IOException e) {
-				log.error(e.getMessage());
-				thread.interrupt();
-			}
+		/*
+		User can update database by two different ways:
+		1. Including the list of interested in doc uid to the request
+		2. Including dates from-to, setting the range by it
+		These ways exclude each other from the request.
+		Every persisted page is saved as the checkpoint of run
+		* */
+		syncRunService.begin(run);
+		try {
+			boolean completed = new OrderSyncPipeline(syncService,
+					page -> transactionOperations.executeWithoutResult(
+							status -> persistPage(page)))
+					.withCheckpoint((page, number) -> syncRunService.checkpoint(run, page,
+							number))
+					.withJob(job)
+					.withSession(sessionManager.getSessionID(user.getSession()),
+							stale -> sessionManager.renew(user.getSession(), stale))
+					.run(job.getThread(), requestBuilder, currentPage,
+							SyncRunService.getEndPage(run), run.getLastPage() == null);
+			syncRunService.finish(run, completed);
+		} catch (RuntimeException e) {
+			syncRunService.fail(run, e.getMessage());
+			throw e;
 		}
 		
 		Date programEnd = new Date();
@@ -490,4 +664,26 @@ public class OrderServiceImpl implements OrderService {
 		log.info("Method [update() orders] finished after {} seconds of working",
 				(ms / 1000L));
 	}
+	
+	/**
+	 * Method that builds the in-memory key of a document by its UID and type
+	 *
+	 * @param uid  the document UID
+	 * @param type the {@link OrderDocType} of document
+	 *
+	 * @return the key of document
+	 */
+	private static String getDocKey(String uid, OrderDocType type) {
+		return uid + ":" + type.name();
+	}
+	
+	/**
+	 * The shipping document of received order paired with the order state
+	 */
+	@RequiredArgsConstructor
+	private static final class ShippingDoc {
+		
+		private final String state;
+		private final OrderResponse.Order.Document doc;
+	}
 }
@@ -0,0 +1,331 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.exceptions.CustomException;
+import com.dellin.mondoc.model.pojo.OrderRequest;
+import com.dellin.mondoc.model.pojo.OrderRequestBuilder;
+import com.dellin.mondoc.model.pojo.OrderResponse;
+import java.io.*;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import retrofit2.Call;
+import retrofit2.Response;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
+
+/**
+ * Two-stage pipeline of synchronizing orders with API Dellin
+ * <p>
+ * The fetch stage runs on the calling thread and sends the page requests to API Dellin
+ * as often as {@link DellinRateGovernor} permits. Every received page is handed over
+ * to the persist stage through a bounded queue, and the persist stage writes it to
+ * database on its own thread. So the time of writing a page doesn't count against the
+ * API interval, and a slow page persist doesn't delay the next API call. If the queue
+ * is full, the fetch stage waits for the persist stage.
+ * <p>
+ * Pipelines of different accounts fetch and persist in parallel. A persist stage locks
+ * the payer INNs of its page while writing it, so the same order or company received
+ * by two accounts is found by the second writer instead of being inserted twice, and
+ * the pages of different companies don't wait for each other.
+ * <p>
+ * If API Dellin rejects the session of pipeline, the session is renewed once and the
+ * same page is requested again.
+ *
+ * @see OrderServiceImpl#extracted
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class OrderSyncPipeline {
+	
+	/**
+	 * The max count of received pages waiting for the persist stage
+	 */
+	static final int QUEUE_CAPACITY = 4;
+	/**
+	 * The locks of writing orders by payer INN, shared by all pipelines
+	 */
+	private static final Map<String, Lock> PERSIST_LOCKS = new ConcurrentHashMap<>();
+	/**
+	 * Injection of Retrofit service requests
+	 */
+	private final SyncService syncService;
+	/**
+	 * The persist stage action which writes one page of response to database
+	 */
+	private final Consumer<OrderResponse> persister;
+	/**
+	 * The marker of the last page put into the queue by the fetch stage
+	 */
+	private final FetchedPage endOfPages = new FetchedPage(0, new OrderResponse());
+	/**
+	 * The action called by the persist stage with every persisted page and its number
+	 */
+	private ObjIntConsumer<OrderResponse> checkpoint = (page, number) -> {};
+	/**
+	 * The job which counts persisted pages and the latency of both stages
+	 */
+	private SyncJob job;
+	/**
+	 * The session of API Dellin the pages are requested with
+	 */
+	private String sessionID;
+	/**
+	 * The action which takes the rejected session and returns a new one
+	 */
+	private UnaryOperator<String> renewal;
+	
+	/**
+	 * Method that sets the action called after every persisted page
+	 *
+	 * @param checkpoint the action which takes the persisted page and its number
+	 *
+	 * @return this pipeline
+	 */
+	public OrderSyncPipeline withCheckpoint(ObjIntConsumer<OrderResponse> checkpoint) {
+		this.checkpoint = checkpoint;
+		return this;
+	}
+	
+	/**
+	 * Method that sets the job which reports the progress of pipeline
+	 *
+	 * @param job the {@link SyncJob} executing the pipeline
+	 *
+	 * @return this pipeline
+	 */
+	public OrderSyncPipeline withJob(SyncJob job) {
+		this.job = job;
+		return this;
+	}
+	
+	/**
+	 * Method that sets the session of requests and the way to renew it
+	 *
+	 * @param sessionID the session of API Dellin
+	 * @param renewal   the action which takes the rejected session and returns a new
+	 *                  one, for example {@link DellinSessionManager#renew}
+	 *
+	 * @return this pipeline
+	 */
+	public OrderSyncPipeline withSession(String sessionID,
+			UnaryOperator<String> renewal) {
+		this.sessionID = sessionID;
+		this.renewal = renewal;
+		return this;
+	}
+	
+	/**
+	 * Method that requests pages of orders from API Dellin and persists them
+	 * <p>
+	 * Method works until the last page is fetched and persisted, the thread is
+	 * interrupted or the persist stage fails. Pages already received before
+	 * interruption are still written to database.
+	 *
+	 * @param thread           current {@link Thread} of the fetch stage
+	 * @param requestBuilder   the API request builder before call
+	 * @param currentPage      the value of start position of iterating
+	 * @param totalPages       the value of all available pages
+	 * @param followTotalPages whether total pages should be taken from API responses
+	 *
+	 * @return true if all pages were fetched and persisted
+	 */
+	public boolean run(Thread thread, OrderRequestBuilder requestBuilder, int currentPage,
+			int totalPages, boolean followTotalPages) {
+		
+		BlockingQueue<FetchedPage> queue =
+				new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+		int startPage = currentPage;
+		int planned = 0;
+		if (job != null && totalPages != Integer.MAX_VALUE) {
+			planned = totalPages - startPage + 1;
+			job.addTotal(planned);
+		}
+		AtomicReference<RuntimeException> failure = new AtomicReference<>();
+		boolean renewed = false;
+		
+		Thread persistStage = new Thread(() -> persist(queue, failure),
+				thread.getName() + "-persist");
+		persistStage.start();
+		
+		try {
+			while (currentPage <= totalPages && !thread.isInterrupted()
+					&& failure.get() == null) {
+				try {
+					requestBuilder.setPage(currentPage);
+					if (sessionID != null) {
+						requestBuilder.setSessionID(sessionID);
+					}
+					OrderRequest request = requestBuilder.build();
+					Call<OrderResponse> orders = syncService.getRemoteData()
+							.update(request, request.getAppKey());
+					
+					Date start = new Date();
+					long fetchStart = System.nanoTime();
+					log.info("Sending request to API");
+					Response<OrderResponse> response = orders.execute();
+					log.info("Got the response in {} sec",
+							(new Date().getTime() - start.getTime()) / 1000.);
+					if (job != null) {
+						job.record("fetch", System.nanoTime() - fetchStart);
+					}
+					
+					if (response.code() == 401 && renewal != null && !renewed) {
+						log.warn("Session of API Dellin is rejected, page [{}] is "
+								+ "requested again with a new one", currentPage);
+						sessionID = renewal.apply(sessionID);
+						renewed = true;
+						continue;
+					}
+					if (response.body() == null) {
+						throw new CustomException("Response body is empty",
+								HttpStatus.BAD_REQUEST);
+					}
+					queue.put(new FetchedPage(currentPage, response.body()));
+					renewed = false;
+					if (followTotalPages) {
+						totalPages = response.body().getMetadata().getTotalPages();
+						if (job != null) {
+							int pages = Math.max(0, totalPages - startPage + 1);
+							job.addTotal(pages - planned);
+							planned = pages;
+						}
+					}
+					log.info("End of page: [{}]. Total pages: [{}]", currentPage,
+							response.body().getMetadata().getTotalPages());
+					currentPage++;
+				} catch (InterruptedException | IOException e) {
+					log.error(e.getMessage());
+					thread.interrupt();
+				}
+			}
+		} finally {
+			finishPersistStage(queue, persistStage);
+		}
+		
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+		return currentPage > totalPages;
+	}
+	
+	/**
+	 * The persist stage loop. Takes pages from the queue until the end marker
+	 * <p>
+	 * After the first failure the remaining pages are only drained, so the fetch stage
+	 * never stays blocked on the full queue.
+	 *
+	 * @param queue   the queue of received pages
+	 * @param failure the holder of the first persist stage failure
+	 */
+	private void persist(BlockingQueue<FetchedPage> queue,
+			AtomicReference<RuntimeException> failure) {
+		while (true) {
+			FetchedPage page;
+			try {
+				page = queue.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			
+			if (page == endOfPages) {
+				return;
+			}
+			if (failure.get() != null) {
+				continue;
+			}
+			
+			try {
+				Date start = new Date();
+				long persistStart = System.nanoTime();
+				List<Lock> locks = getPersistLocks(page.response);
+				locks.forEach(Lock::lock);
+				try {
+					persister.accept(page.response);
+				} finally {
+					for (int i = locks.size() - 1; i >= 0; i--) {
+						locks.get(i).unlock();
+					}
+				}
+				checkpoint.accept(page.response, page.number);
+				if (job != null) {
+					job.record("persist", System.nanoTime() - persistStart);
+					job.advance();
+				}
+				log.info("Page [{}] of [{}] orders persisted in {} sec", page.number,
+						page.response.getOrders() == null ? 0
+								: page.response.getOrders().size(),
+						(new Date().getTime() - start.getTime()) / 1000.);
+			} catch (RuntimeException e) {
+				log.error("Persisting of orders page failed: {}", e.getMessage());
+				failure.set(e);
+			}
+		}
+	}
+	
+	/**
+	 * Method that gets the locks of the payer INNs of the page
+	 * <p>
+	 * The locks are ordered by INN, so two pages with the same companies never lock
+	 * them in opposite order.
+	 *
+	 * @param page the received page of orders
+	 *
+	 * @return the {@link List}&lt;{@link Lock}&gt; in locking order
+	 */
+	static List<Lock> getPersistLocks(OrderResponse page) {
+		Set<String> inns = new TreeSet<>();
+		if (page.getOrders() != null) {
+			page.getOrders().forEach(o -> o.getDocuments().forEach(d -> inns.add(
+					d.getPayer() != null ? Objects.toString(d.getPayer().getInn(), "")
+							: "")));
+		}
+		List<Lock> locks = new ArrayList<>();
+		inns.forEach(inn -> locks.add(
+				PERSIST_LOCKS.computeIfAbsent(inn, i -> new ReentrantLock())));
+		return locks;
+	}
+	
+	/**
+	 * Method that puts the end marker to the queue and waits for the persist stage
+	 * <p>
+	 * Waiting is not interruptible, the interrupted state of the calling thread is
+	 * restored afterwards.
+	 *
+	 * @param queue        the queue of received pages
+	 * @param persistStage the thread of the persist stage
+	 */
+	private void finishPersistStage(BlockingQueue<FetchedPage> queue,
+			Thread persistStage) {
+		boolean interrupted = Thread.interrupted();
+		boolean marked = false;
+		while (persistStage.isAlive()) {
+			try {
+				if (!marked) {
+					queue.put(endOfPages);
+					marked = true;
+				}
+				persistStage.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * The received page of orders with its number
+	 */
+	@RequiredArgsConstructor
+	private static final class FetchedPage {
+		
+		private final int number;
+		private final OrderResponse response;
+	}
+}
@@ -0,0 +1,206 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.model.entity.Comment;
+import com.dellin.mondoc.model.entity.Company;
+import com.dellin.mondoc.model.entity.Document;
+import com.dellin.mondoc.model.entity.Order;
+import com.dellin.mondoc.model.entity.OrderView;
+import com.dellin.mondoc.model.repository.OrderViewRepository;
+import java.time.LocalDateTime;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/**
+ * The read model of the listing of orders
+ * <p>
+ * Every order has the {@link OrderView} row with the name and INN of its company, the
+ * count and the last of its comments and the masks of its documents, so the listing
+ * reads one table without joins. The row is written by the services in the same
+ * transaction as the order, document or comment it is made of, the renamed companies
+ * and the deleted orders are written by bulk queries. Every write method joins the
+ * transaction of its caller or opens its own. The rows of orders written before
+ * the read model are filled on startup.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderViewService {
+	
+	private static final int FILL_BATCH = 1000;
+	/**
+	 * The indexes of orders the listing was read by before the read model
+	 */
+	private static final List<String> LEGACY_INDEXES = List.of("idx_orders_state",
+			"idx_orders_company_state", "idx_orders_company_created",
+			"idx_orders_company_updated");
+	
+	/**
+	 * Repository which contains the rows of listing of orders
+	 */
+	private final OrderViewRepository orderViewRepository;
+	
+	/**
+	 * Method that writes the rows of the orders written by the update
+	 * <p>
+	 * The rows are read by one query. The order, its company and documents are written
+	 * to the row, the comments only to a new one, since the update doesn't change them.
+	 *
+	 * @param orders the persisted {@link Order} objects with their documents
+	 */
+	@Transactional
+	public void refresh(Collection<Order> orders) {
+		if (orders.isEmpty()) {
+			return;
+		}
+		
+		Map<Long, OrderView> views = orderViewRepository.findAllById(orders.stream()
+						.map(Order::getId)
+						.collect(Collectors.toList()))
+				.stream()
+				.collect(Collectors.toMap(OrderView::getId, Function.identity()));
+		List<OrderView> written = new ArrayList<>();
+		for (Order order : orders) {
+			OrderView view = views.get(order.getId());
+			if (view == null) {
+				view = new OrderView();
+				view.setId(order.getId());
+				setComments(view, order);
+			}
+			setOrder(view, order);
+			written.add(view);
+		}
+		orderViewRepository.saveAll(written);
+	}
+	
+	/**
+	 * Method that writes the row of the order with changed comments
+	 *
+	 * @param order the persisted {@link Order} with its comments
+	 */
+	@Transactional
+	public void refreshComments(Order order) {
+		OrderView view = orderViewRepository.findById(order.getId()).orElseGet(() -> {
+			OrderView created = new OrderView();
+			created.setId(order.getId());
+			return created;
+		});
+		setOrder(view, order);
+		setComments(view, order);
+		orderViewRepository.save(view);
+	}
+	
+	/**
+	 * Method that marks the document ready in the row of its order
+	 * <p>
+	 * The row is written by one query, so the documents of the same order fetched at
+	 * the same time don't overwrite each other's bits.
+	 *
+	 * @param document the {@link Document} with data or link
+	 */
+	@Transactional
+	public void markDocumentReady(Document document) {
+		orderViewRepository.markDocumentReady(document.getOrder().getId(),
+				document.getType().getBit(), LocalDateTime.now());
+	}
+	
+	/**
+	 * Method that writes the new name of company to the rows of all its orders
+	 *
+	 * @param company the renamed {@link Company}
+	 */
+	@Transactional
+	public void renameCompany(Company company) {
+		orderViewRepository.renameCompany(company.getId(), company.getName());
+	}
+	
+	/**
+	 * Method that marks the rows of deleted orders as deleted
+	 *
+	 * @param ids the docIds or UIDs of deleted orders
+	 * @param now the time of deletion
+	 *
+	 * @return the number of marked rows
+	 */
+	@Transactional
+	public int markDeleted(Collection<String> ids, LocalDateTime now) {
+		return orderViewRepository.markDeleted(ids, now);
+	}
+	
+	/**
+	 * Method that writes the rows of orders written before the read model
+	 * <p>
+	 * Orders are filled by batches, so the filling interrupted by shutdown continues
+	 * after the next start.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void fill() {
+		int count = 0;
+		int filled = orderViewRepository.fill(FILL_BATCH);
+		while (filled > 0) {
+			count += filled;
+			filled = orderViewRepository.fill(FILL_BATCH);
+		}
+		if (count > 0) {
+			log.info("Listing rows of [{}] orders written", count);
+		}
+	}
+	
+	/**
+	 * Method that drops the indexes of orders the listing was read by before the read
+	 * model
+	 * <p>
+	 * The same indexes of {@link OrderView} serve the listing now, and the indexes of
+	 * orders only slow down writing them.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void dropLegacyIndexes() {
+		LEGACY_INDEXES.forEach(orderViewRepository::dropIndex);
+	}
+	
+	private static void setOrder(OrderView view, Order order) {
+		view.setDocId(order.getDocId());
+		view.setUid(order.getUid());
+		view.setState(order.getState());
+		view.setStatus(order.getStatus());
+		view.setCreatedAt(order.getCreatedAt());
+		view.setUpdatedAt(order.getUpdatedAt());
+		
+		Company company = order.getCompany();
+		view.setCompanyId(company != null ? company.getId() : null);
+		view.setCompanyName(company != null ? company.getName() : null);
+		view.setCompanyInn(company != null ? company.getInn() : null);
+		
+		int documents = 0;
+		int ready = 0;
+		for (Document document : order.getDocuments()) {
+			documents |= document.getType().getBit();
+			if (document.getContentId() != null || document.getUrl() != null) {
+				ready |= document.getType().getBit();
+			}
+		}
+		view.setDocuments(documents);
+		view.setDocumentsReady(ready);
+	}
+	
+	private static void setComments(OrderView view, Order order) {
+		Collection<Comment> comments = order.getComments() != null ? order.getComments()
+				: Collections.emptyList();
+		Comment last = comments.stream()
+				.filter(c -> c.getId() != null)
+				.max(Comparator.comparing(Comment::getId))
+				.orElse(null);
+		view.setCommentCount(comments.size());
+		view.setLastCommentText(last != null ? last.getText() : null);
+		view.setLastCommentUser(last != null && last.getUser() != null
+				? last.getUser().getEmail() : null);
+		view.setLastCommentAt(last != null ? last.getUpdatedAt() : null);
+	}
+}
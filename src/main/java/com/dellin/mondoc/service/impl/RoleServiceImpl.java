@@ -45,6 +45,11 @@ public class RoleServiceImpl implements RoleService {
 	 */
 	private final UserService userService;
 	
+	/**
+	 * Cache of the authenticated users
+	 */
+	private final UserPrincipalCache userPrincipalCache;
+	
 	/**
 	 * ObjectMapper for reading and writing JSON
 	 */
@@ -122,6 +127,7 @@ public class RoleServiceImpl implements RoleService {
 		user.getRoles().add(role);
 		userService.updateStatus(user, EntityStatus.UPDATED);
 		userRepository.save(user);
+		userPrincipalCache.evict(email);
 		log.info("Role [NAME: {}] was added to user [EMAIL: {}]", role.getRoleName(),
 				user.getEmail());
 	}
@@ -0,0 +1,118 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.model.entity.Session;
+import com.dellin.mondoc.utils.EncodingUtil;
+import java.time.LocalDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The short-lived cache of decrypted credentials of user sessions
+ * <p>
+ * Credentials are decrypted once per {@link Session} and kept for
+ * <i>api.session.credentials-ttl-seconds</i>. The entry is keyed by the id and
+ * <i>updatedAt</i> of session, so credentials changed by a new login are decrypted
+ * again at once. Expired entries are removed in background, so the decrypted
+ * credentials don't stay in memory after the TTL.
+ */
+@Service
+public class SessionCredentialCache {
+	
+	/**
+	 * The decrypted credentials by the id of session
+	 */
+	private final Map<Long, Entry> credentials = new ConcurrentHashMap<>();
+	
+	/**
+	 * The time decrypted credentials are kept
+	 */
+	@Value("${api.session.credentials-ttl-seconds:300}")
+	long ttlSeconds;
+	
+	/**
+	 * Method that gets the decrypted credentials of the session
+	 *
+	 * @param session the {@link Session} of user
+	 *
+	 * @return the {@link Credentials} of session
+	 */
+	public Credentials get(Session session) {
+		if (session.getId() == null) {
+			return decrypt(session);
+		}
+		
+		long now = System.nanoTime();
+		Entry entry = credentials.get(session.getId());
+		if (entry != null && entry.expiresAt - now > 0
+				&& Objects.equals(entry.updatedAt, session.getUpdatedAt())) {
+			return entry.credentials;
+		}
+		
+		Credentials decrypted = decrypt(session);
+		credentials.put(session.getId(), new Entry(session.getUpdatedAt(), decrypted,
+				now + TimeUnit.SECONDS.toNanos(ttlSeconds)));
+		return decrypted;
+	}
+	
+	/**
+	 * Method that forgets the decrypted credentials of the session
+	 *
+	 * @param session the {@link Session} of user
+	 */
+	public void evict(Session session) {
+		if (session.getId() != null) {
+			credentials.remove(session.getId());
+		}
+	}
+	
+	/**
+	 * Method that removes the expired credentials
+	 */
+	@Scheduled(fixedDelayString = "${api.session.refresh-interval:60000}")
+	public void evictExpired() {
+		long now = System.nanoTime();
+		credentials.values().removeIf(e -> e.expiresAt - now <= 0);
+	}
+	
+	private static Credentials decrypt(Session session) {
+		return new Credentials(decrypt(session.getAppkey()), decrypt(session.getLogin()),
+				decrypt(session.getPassword()), decrypt(session.getSessionDl()));
+	}
+	
+	private static String decrypt(String text) {
+		return text != null ? EncodingUtil.getDecrypted(text) : null;
+	}
+	
+	/**
+	 * The decrypted credentials of API Dellin stored in {@link Session}
+	 */
+	@Getter
+	@AllArgsConstructor
+	@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+	public static class Credentials {
+		
+		String appkey;
+		String login;
+		String password;
+		String sessionDl;
+	}
+	
+	/**
+	 * The cached credentials with the version of session they were decrypted from
+	 */
+	@AllArgsConstructor
+	private static final class Entry {
+		
+		private final LocalDateTime updatedAt;
+		private final Credentials credentials;
+		private final long expiresAt;
+	}
+}
@@ -47,6 +47,10 @@ public class SessionServiceImpl implements SessionService {
 	 * Injection of Retrofit service requests
 	 */
 	private final SyncService syncService;
+	/**
+	 * Cache of live sessions of API Dellin
+	 */
+	private final DellinSessionManager sessionManager;
 	/**
 	 * The field APPKEY set up by environment var
 	 */
@@ -66,7 +70,8 @@ public class SessionServiceImpl implements SessionService {
 	 * Login process is possible only for authorized users, since any change is recorded
 	 * in the history. Successful response changes the status of current Session to
 	 * {@link EntityStatus#CREATED} or {@link EntityStatus#UPDATED}, that depends on
-	 * previous state
+	 * previous state. The previous session cached by {@link DellinSessionManager} is
+	 * forgotten
 	 *
 	 * @param sessionDTO the {@link SessionDTO} object for creating API request
 	 *
@@ -74,7 +79,7 @@ public class SessionServiceImpl implements SessionService {
 	 *
 	 * @throws IOException by Retrofit method with synchronized {@link Call#execute()} if
 	 *                     a problem occurred talking to the server
-	 * @see IInterfaceManualLoad#login(SessionDTO)
+	 * @see IInterfaceManualLoad#login(SessionDTO, String)
 	 */
 	@Override
 	public AuthDellin getLoginResponse(SessionDTO sessionDTO) throws IOException {
@@ -87,7 +92,7 @@ public class SessionServiceImpl implements SessionService {
 		
 		sessionDTO.setAppkey(APPKEY);
 		
-		Call<AuthDellin> login = syncService.getRemoteData().login(sessionDTO);
+		Call<AuthDellin> login = syncService.getRemoteData().login(sessionDTO, APPKEY);
 		Response<AuthDellin> response = login.execute();
 		
 		if (!response.isSuccessful()) {
@@ -118,6 +123,7 @@ public class SessionServiceImpl implements SessionService {
 		}
 		
 		userRepository.save(user);
+		sessionManager.invalidate(user.getSession());
 		
 		return response.body();
 	}
@@ -154,7 +160,8 @@ public class SessionServiceImpl implements SessionService {
 		sessionDTO.setAppkey(EncodingUtil.getDecrypted(sessionDTO.getAppkey()));
 		sessionDTO.setSessionDl(EncodingUtil.getDecrypted(sessionDTO.getSessionDl()));
 		
-		Call<AuthDellin> logout = syncService.getRemoteData().logout(sessionDTO);
+		Call<AuthDellin> logout = syncService.getRemoteData().logout(sessionDTO,
+				sessionDTO.getAppkey());
 		Response<AuthDellin> response = logout.execute();
 		
 		if (!response.isSuccessful()) {
@@ -167,6 +174,7 @@ public class SessionServiceImpl implements SessionService {
 		session.setUser(user);
 		user.setSession(session);
 		userRepository.save(user);
+		sessionManager.invalidate(session);
 		
 		log.info("User with email: {} successfully logout", email);
 		
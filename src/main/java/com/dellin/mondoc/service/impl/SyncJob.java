@@ -0,0 +1,215 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.model.enums.SyncJobState;
+import java.time.LocalDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.stream.*;
+
+/**
+ * One execution of synchronizing with API Dellin started by {@link SyncJobRegistry}
+ * <p>
+ * The job counts the items (pages of orders or documents) it has done and the total
+ * count when it is known, and keeps the latency of every stage of work. The
+ * {@link Progress} snapshot of job is calculated from them on request.
+ */
+@RequiredArgsConstructor
+public class SyncJob {
+	
+	/**
+	 * The name of job in the registry
+	 */
+	@Getter
+	private final String name;
+	/**
+	 * The API Dellin login or the user email who started the job
+	 */
+	@Getter
+	private final String owner;
+	/**
+	 * The name of items the job is done by
+	 */
+	private final String unit;
+	private final LocalDateTime startedAt = LocalDateTime.now();
+	private final long startedNanos = System.nanoTime();
+	private final AtomicLong done = new AtomicLong();
+	private final AtomicLong total = new AtomicLong(-1);
+	private final Map<String, Stage> stages = new ConcurrentSkipListMap<>();
+	/**
+	 * The thread the job is executed by
+	 */
+	@Getter
+	@Setter(AccessLevel.PACKAGE)
+	private Thread thread;
+	private volatile SyncJobState state = SyncJobState.RUNNING;
+	private volatile LocalDateTime finishedAt;
+	private volatile long finishedNanos;
+	private volatile String error;
+	
+	/**
+	 * Method that sets the count of all items of the job, if it is known
+	 *
+	 * @param total the count of items
+	 */
+	public void setTotal(long total) {
+		this.total.set(total);
+	}
+	
+	/**
+	 * Method that adds items to the count of all items of the job
+	 * <p>
+	 * Used by jobs which learn the count of their items part by part, like the pages of
+	 * every shard of window.
+	 *
+	 * @param items the count of items to add, negative if fewer items are left
+	 */
+	public void addTotal(long items) {
+		total.updateAndGet(t -> Math.max(t, 0) + items);
+	}
+	
+	/**
+	 * Method that counts one more item done
+	 */
+	public void advance() {
+		done.incrementAndGet();
+	}
+	
+	/**
+	 * Method that records the time one item spent at the stage of work
+	 *
+	 * @param stage the name of stage, for example <i>fetch</i> or <i>persist</i>
+	 * @param nanos the time in ns
+	 */
+	public void record(String stage, long nanos) {
+		stages.computeIfAbsent(stage, s -> new Stage()).record(nanos);
+	}
+	
+	/**
+	 * Method that checks whether the job is still running
+	 *
+	 * @return true if the job isn't finished
+	 */
+	public boolean isRunning() {
+		return state == SyncJobState.RUNNING;
+	}
+	
+	/**
+	 * Method that finishes the job
+	 * <p>
+	 * The job is failed if it was stopped by exception, interrupted if its thread was
+	 * interrupted, and completed otherwise.
+	 *
+	 * @param failure the exception that stopped the job or null
+	 */
+	void finish(RuntimeException failure) {
+		finishedNanos = System.nanoTime();
+		finishedAt = LocalDateTime.now();
+		if (failure != null) {
+			error = failure.getMessage();
+			state = SyncJobState.FAILED;
+		} else if (thread != null && thread.isInterrupted()) {
+			state = SyncJobState.INTERRUPTED;
+		} else {
+			state = SyncJobState.COMPLETED;
+		}
+	}
+	
+	/**
+	 * Method that calculates the current progress of the job
+	 * <p>
+	 * Throughput is the count of items done per second since start of the job. ETA is
+	 * known only for the running job with the known total count.
+	 *
+	 * @return the {@link Progress} snapshot
+	 */
+	public Progress getProgress() {
+		SyncJobState currentState = state;
+		long currentDone = done.get();
+		long currentTotal = total.get();
+		long elapsedNanos = (currentState == SyncJobState.RUNNING ? System.nanoTime()
+				: finishedNanos) - startedNanos;
+		double elapsedSec = elapsedNanos / 1e9;
+		double itemsPerSec = elapsedSec > 0 ? currentDone / elapsedSec : 0;
+		
+		Long etaSec = null;
+		if (currentState == SyncJobState.RUNNING && currentTotal >= 0
+				&& itemsPerSec > 0) {
+			etaSec = Math.round(Math.max(0, currentTotal - currentDone) / itemsPerSec);
+		}
+		
+		List<StageMetrics> stageMetrics = stages.entrySet()
+				.stream()
+				.map(e -> e.getValue().getMetrics(e.getKey()))
+				.collect(Collectors.toList());
+		
+		return new Progress(name, owner, currentState, unit, currentDone,
+				currentTotal >= 0 ? currentTotal : null, startedAt, finishedAt,
+				Math.round(elapsedSec), itemsPerSec, etaSec, error, stageMetrics);
+	}
+	
+	/**
+	 * The progress snapshot of one job
+	 */
+	@Getter
+	@AllArgsConstructor
+	@FieldDefaults(level = AccessLevel.PRIVATE)
+	public static class Progress {
+		
+		String name;
+		String owner;
+		SyncJobState state;
+		String unit;
+		long done;
+		Long total;
+		LocalDateTime startedAt;
+		LocalDateTime finishedAt;
+		long elapsedSec;
+		double itemsPerSec;
+		Long etaSec;
+		String error;
+		List<StageMetrics> stages;
+	}
+	
+	/**
+	 * The latency metrics of one stage of work
+	 */
+	@Getter
+	@AllArgsConstructor
+	@FieldDefaults(level = AccessLevel.PRIVATE)
+	public static class StageMetrics {
+		
+		String stage;
+		long count;
+		double averageMs;
+		double maxMs;
+	}
+	
+	/**
+	 * The latency counters of one stage of work
+	 */
+	private static final class Stage {
+		
+		private long count;
+		private long totalNanos;
+		private long maxNanos;
+		
+		private synchronized void record(long nanos) {
+			count++;
+			totalNanos += nanos;
+			maxNanos = Math.max(maxNanos, nanos);
+		}
+		
+		private synchronized StageMetrics getMetrics(String stage) {
+			return new StageMetrics(stage, count,
+					count == 0 ? 0 : totalNanos / 1e6 / count, maxNanos / 1e6);
+		}
+	}
+}
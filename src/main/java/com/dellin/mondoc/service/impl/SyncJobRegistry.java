@@ -0,0 +1,175 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.exceptions.CustomException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+/**
+ * The registry of sync jobs executed by this application
+ * <p>
+ * Every kind of synchronizing (manual and scheduled updates of orders and documents) is
+ * a job with its own name. Only one job with the name runs at the same time: start and
+ * stop are atomic, and the name is free again as soon as the previous job is finished,
+ * whatever the way it was finished. The last job with every name is kept with its
+ * progress.
+ *
+ * @see SyncJob
+ */
+@Slf4j
+@Service
+public class SyncJobRegistry {
+	
+	public static final String ORDERS = "orders";
+	public static final String DOCUMENTS = "documents";
+	/**
+	 * The prefix of scheduled jobs of orders, which are named by it and the login of
+	 * account like <i>scheduled-orders:login</i>
+	 */
+	public static final String SCHEDULED_ORDERS = "scheduled-orders";
+	public static final String SCHEDULED_DOCUMENTS = "scheduled-documents";
+	
+	/**
+	 * The last job by name
+	 */
+	private final Map<String, SyncJob> jobs = new ConcurrentHashMap<>();
+	
+	/**
+	 * Method that starts the job in a new thread
+	 * <p>
+	 * Throws {@link CustomException} with http <b>409</b> status if the job with the
+	 * same name is running.
+	 *
+	 * @param name  the name of job
+	 * @param owner the API Dellin login or the user email
+	 * @param unit  the name of items the job is done by
+	 * @param task  the work of job, which takes the started {@link SyncJob}
+	 *
+	 * @return the started {@link SyncJob}
+	 */
+	public synchronized SyncJob start(String name, String owner, String unit,
+			Consumer<SyncJob> task) {
+		if (isRunning(name)) {
+			throw new CustomException(String.format("Sync job [%s] is already running",
+					name), HttpStatus.CONFLICT);
+		}
+		return launch(name, owner, unit, task);
+	}
+	
+	/**
+	 * Method that starts the job in a new thread unless the job with the same name is
+	 * running
+	 * <p>
+	 * The check and the start are atomic, so the callers which skip a running job, like
+	 * the scheduled ones, don't fail if another caller starts it at the same time.
+	 *
+	 * @param name  the name of job
+	 * @param owner the API Dellin login or the user email
+	 * @param unit  the name of items the job is done by
+	 * @param task  the work of job, which takes the started {@link SyncJob}
+	 *
+	 * @return false if the job with the name is running
+	 */
+	public synchronized boolean tryStart(String name, String owner, String unit,
+			Consumer<SyncJob> task) {
+		if (isRunning(name)) {
+			return false;
+		}
+		launch(name, owner, unit, task);
+		return true;
+	}
+	
+	private SyncJob launch(String name, String owner, String unit,
+			Consumer<SyncJob> task) {
+		SyncJob job = new SyncJob(name, owner, unit);
+		job.setThread(new Thread(() -> execute(job, task), "sync-" + name));
+		jobs.put(name, job);
+		job.getThread().start();
+		log.info("Sync job [{}] of [{}] started", name, owner);
+		return job;
+	}
+	
+	/**
+	 * Method that interrupts the running job
+	 * <p>
+	 * The job stays running until its thread really ends, so a new job with the same
+	 * name can't overlap the stopping one.
+	 *
+	 * @param name the name of job
+	 *
+	 * @return true if the running job was found and interrupted
+	 */
+	public synchronized boolean stop(String name) {
+		SyncJob job = jobs.get(name);
+		if (job == null || !job.isRunning()) {
+			return false;
+		}
+		job.getThread().interrupt();
+		return true;
+	}
+	
+	/**
+	 * Method that checks whether the job with the name is running
+	 *
+	 * @param name the name of job
+	 *
+	 * @return true if the last job with the name isn't finished
+	 */
+	public boolean isRunning(String name) {
+		SyncJob job = jobs.get(name);
+		return job != null && job.isRunning();
+	}
+	
+	/**
+	 * Method that gets the progress of the last jobs, the latest first
+	 *
+	 * @return the {@link List}&lt;{@link SyncJob.Progress}&gt;
+	 */
+	public List<SyncJob.Progress> getJobs() {
+		return jobs.values()
+				.stream()
+				.map(SyncJob::getProgress)
+				.sorted(Comparator.comparing(SyncJob.Progress::getStartedAt).reversed())
+				.collect(Collectors.toList());
+	}
+	
+	/**
+	 * Method that gets the progress of the last job with the name
+	 * <p>
+	 * Returns the progress if found or else a {@link CustomException} with http
+	 * <b>404</b> status
+	 *
+	 * @param name the name of job
+	 *
+	 * @return the {@link SyncJob.Progress} snapshot
+	 */
+	public SyncJob.Progress getJob(String name) {
+		SyncJob job = jobs.get(name);
+		if (job == null) {
+			throw new CustomException(String.format("Sync job [%s] not found", name),
+					HttpStatus.NOT_FOUND);
+		}
+		return job.getProgress();
+	}
+	
+	private void execute(SyncJob job, Consumer<SyncJob> task) {
+		RuntimeException failure = null;
+		try {
+			task.accept(job);
+		} catch (RuntimeException e) {
+			failure = e;
+			log.error("Sync job [{}] failed: {}", job.getName(), e.getMessage());
+		} finally {
+			job.finish(failure);
+			SyncJob.Progress progress = job.getProgress();
+			log.info("Sync job [{}] {} after [{}] sec: [{}] {} done",
+					job.getName(), progress.getState().name().toLowerCase(),
+					progress.getElapsedSec(), progress.getDone(), progress.getUnit());
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.model.pojo.OrderRequest;
+import com.dellin.mondoc.model.pojo.OrderRequestBuilder;
+import com.dellin.mondoc.utils.OrderUtil;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * The planner of scheduled synchronizing orders
+ * <p>
+ * The window of the full reconciliation is split into shards of the configured number
+ * of days. Every shard is a separate {@link com.dellin.mondoc.model.entity.SyncRun}
+ * with its own pages and checkpoint, so a failed shard is retried or resumed alone,
+ * while all other shards of the window stay completed. The incremental sync asks only
+ * for the orders changed since the watermark, so its window is not split.
+ */
+@Service
+public class SyncPlanner {
+	
+	/**
+	 * The count of days in one shard of window
+	 */
+	@Value("${api.sync.shard-days:7}")
+	long shardDays;
+	
+	/**
+	 * Method that plans the requests of orders of the window
+	 *
+	 * @param dateStart  the first day of window
+	 * @param dateEnd    the end of window
+	 * @param lastUpdate the time orders changed since are requested, or null for the
+	 *                   full reconciliation
+	 *
+	 * @return the {@link List}&lt;{@link OrderRequest}&gt; without credentials, one per
+	 * shard in order of dates
+	 */
+	public List<OrderRequest> plan(LocalDate dateStart, LocalDate dateEnd,
+			LocalDateTime lastUpdate) {
+		List<OrderRequest> shards = new ArrayList<>();
+		if (lastUpdate != null) {
+			shards.add(getRequestBuilder(dateStart, dateEnd)
+					.setLastUpdate(OrderUtil.getFormattedDate(lastUpdate,
+							OrderUtil.DATE_PATTERN))
+					.build());
+			return shards;
+		}
+		
+		LocalDate shardStart = dateStart;
+		do {
+			LocalDate shardEnd = shardStart.plusDays(Math.max(1, shardDays));
+			if (shardEnd.isAfter(dateEnd)) {
+				shardEnd = dateEnd;
+			}
+			shards.add(getRequestBuilder(shardStart, shardEnd).build());
+			shardStart = shardEnd;
+		} while (shardStart.isBefore(dateEnd));
+		return shards;
+	}
+	
+	private static OrderRequestBuilder getRequestBuilder(LocalDate dateStart,
+			LocalDate dateEnd) {
+		return OrderRequest.builder()
+				.setDateStart(OrderUtil.getFormattedDate(dateStart,
+						OrderUtil.DATE_PATTERN))
+				.setDateEnd(OrderUtil.getFormattedDate(dateEnd, OrderUtil.DATE_PATTERN));
+	}
+}
@@ -0,0 +1,378 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.exceptions.CustomException;
+import com.dellin.mondoc.model.entity.SyncRun;
+import com.dellin.mondoc.model.enums.SyncRunKind;
+import com.dellin.mondoc.model.enums.SyncRunStatus;
+import com.dellin.mondoc.model.pojo.OrderRequest;
+import com.dellin.mondoc.model.pojo.OrderRequestBuilder;
+import com.dellin.mondoc.model.pojo.OrderResponse;
+import com.dellin.mondoc.model.repository.SyncRunRepository;
+import java.time.LocalDateTime;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Service class to work with the persisted runs of synchronizing orders
+ * <p>
+ * Every run keeps its request parameters and the checkpoint of the last page persisted
+ * to database. A run stopped on purpose, failed or cut by restart of the application
+ * continues from the page after its checkpoint when resumed. Only the runs cut by
+ * restart are resumed automatically, the stopped and failed ones are resumed by
+ * request. Pages are written by an
+ * idempotent upsert, so a page persisted again after a crash between the page and its
+ * checkpoint does no harm.
+ * <p>
+ * The shards of one window planned by {@link SyncPlanner} are runs of the same batch.
+ * They are completed one by one, and the watermark of the account is moved only when
+ * all shards of the batch are completed.
+ *
+ * @see SyncRun
+ * @see OrderSyncPipeline
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SyncRunService {
+	
+	/**
+	 * Repository which contains sync runs
+	 */
+	private final SyncRunRepository syncRunRepository;
+	/**
+	 * Service of watermarks, moved by completed scheduled runs
+	 */
+	private final SyncWatermarkService syncWatermarkService;
+	/**
+	 * Ids of runs executed by this application right now
+	 */
+	private final Set<Long> activeRuns = ConcurrentHashMap.newKeySet();
+	
+	/**
+	 * Method that creates a new run by the request to API Dellin
+	 * <p>
+	 * If the request has a page, only that page is synchronized, otherwise all pages
+	 * from the first one.
+	 *
+	 * @param kind               the {@link SyncRunKind} of run
+	 * @param owner              the API Dellin login or the user email
+	 * @param request            the {@link OrderRequest} without credentials
+	 * @param fullReconciliation whether a scheduled run is the full reconciliation
+	 *
+	 * @return the saved {@link SyncRun} object
+	 */
+	public SyncRun create(SyncRunKind kind, String owner, OrderRequest request,
+			boolean fullReconciliation) {
+		SyncRun run = getRun(kind, owner, request, fullReconciliation);
+		run.setStatus(SyncRunStatus.RUNNING);
+		return syncRunRepository.save(run);
+	}
+	
+	/**
+	 * Method that creates the batch of pending runs, one per shard of window
+	 *
+	 * @param kind               the {@link SyncRunKind} of runs
+	 * @param owner              the API Dellin login or the user email
+	 * @param shards             the {@link OrderRequest} of every shard without
+	 *                           credentials
+	 * @param fullReconciliation whether the batch is the full reconciliation
+	 *
+	 * @return the {@link List}&lt;{@link SyncRun}&gt; of saved runs in order of shards
+	 */
+	public List<SyncRun> createBatch(SyncRunKind kind, String owner,
+			List<OrderRequest> shards, boolean fullReconciliation) {
+		String batch = UUID.randomUUID().toString();
+		List<SyncRun> runs = new ArrayList<>();
+		for (OrderRequest shard : shards) {
+			SyncRun run = getRun(kind, owner, shard, fullReconciliation);
+			run.setStatus(SyncRunStatus.PENDING);
+			run.setBatch(batch);
+			runs.add(syncRunRepository.save(run));
+		}
+		log.info("Batch [{}] of [{}] sync runs planned for [{}]", batch, runs.size(),
+				owner);
+		return runs;
+	}
+	
+	private static SyncRun getRun(SyncRunKind kind, String owner, OrderRequest request,
+			boolean fullReconciliation) {
+		SyncRun run = new SyncRun();
+		run.setKind(kind);
+		run.setOwner(owner);
+		if (request.getDocIds() != null && !request.getDocIds().isEmpty()) {
+			run.setDocIds(String.join(",", request.getDocIds()));
+		}
+		run.setDateStart(request.getDateStart());
+		run.setDateEnd(request.getDateEnd());
+		run.setLastUpdate(request.getLastUpdate());
+		run.setFirstPage(request.getPage() != null ? request.getPage() : 1);
+		run.setLastPage(request.getPage());
+		run.setFullReconciliation(fullReconciliation);
+		run.setStartedAt(LocalDateTime.now());
+		return run;
+	}
+	
+	/**
+	 * Method that builds the request to API Dellin by parameters of the run
+	 *
+	 * @param run the {@link SyncRun} object
+	 *
+	 * @return the {@link OrderRequestBuilder} without credentials
+	 */
+	public OrderRequestBuilder getRequestBuilder(SyncRun run) {
+		OrderRequestBuilder requestBuilder = OrderRequest.builder();
+		if (run.getDocIds() != null) {
+			requestBuilder.setDocIds(Arrays.asList(run.getDocIds().split(",")));
+		}
+		return requestBuilder.setDateStart(run.getDateStart())
+				.setDateEnd(run.getDateEnd())
+				.setLastUpdate(run.getLastUpdate());
+	}
+	
+	/**
+	 * Method that gets the page the run starts or continues at
+	 *
+	 * @param run the {@link SyncRun} object
+	 *
+	 * @return the page after the checkpoint, or the first page of run
+	 */
+	public static int getStartPage(SyncRun run) {
+		return run.getCompletedPage() != null ? run.getCompletedPage() + 1
+				: run.getFirstPage();
+	}
+	
+	/**
+	 * Method that gets the last page of the run
+	 *
+	 * @param run the {@link SyncRun} object
+	 *
+	 * @return the last page, or {@link Integer#MAX_VALUE} if it is taken from API
+	 * responses
+	 */
+	public static int getEndPage(SyncRun run) {
+		if (run.getLastPage() != null) {
+			return run.getLastPage();
+		}
+		return run.getTotalPages() != null ? run.getTotalPages() : Integer.MAX_VALUE;
+	}
+	
+	/**
+	 * Method that marks the run as executed by this application
+	 *
+	 * @param run the {@link SyncRun} object
+	 */
+	public void begin(SyncRun run) {
+		if (!activeRuns.add(run.getId())) {
+			throw new CustomException(
+					String.format("Sync run with ID: %s is already running", run.getId()),
+					HttpStatus.CONFLICT);
+		}
+		run.setStatus(SyncRunStatus.RUNNING);
+		run.setError(null);
+		run.setUpdatedAt(LocalDateTime.now());
+		syncRunRepository.save(run);
+		log.info("Sync run [ID: {}] started at page [{}]", run.getId(),
+				getStartPage(run));
+	}
+	
+	/**
+	 * Method that saves the checkpoint of the run after the page was persisted
+	 *
+	 * @param run    the {@link SyncRun} object
+	 * @param page   the {@link OrderResponse} page
+	 * @param number the number of the page
+	 */
+	public void checkpoint(SyncRun run, OrderResponse page, int number) {
+		run.setCompletedPage(number);
+		if (page.getMetadata() != null) {
+			run.setTotalPages(page.getMetadata().getTotalPages());
+			if (run.getGeneratedAt() == null) {
+				run.setGeneratedAt(page.getMetadata().getGeneratedAt());
+			}
+		}
+		run.setUpdatedAt(LocalDateTime.now());
+		syncRunRepository.save(run);
+	}
+	
+	/**
+	 * Method that finishes the execution of the run
+	 * <p>
+	 * A run not completed was stopped by the interruption of its job, so it is marked
+	 * as {@link SyncRunStatus#STOPPED} and isn't resumed after restart. A completed
+	 * scheduled run moves the watermark of its account, if it is the last completed run
+	 * of its batch.
+	 *
+	 * @param run       the {@link SyncRun} object
+	 * @param completed whether all pages were persisted
+	 */
+	public void finish(SyncRun run, boolean completed) {
+		run.setStatus(completed ? SyncRunStatus.COMPLETED : SyncRunStatus.STOPPED);
+		run.setUpdatedAt(LocalDateTime.now());
+		syncRunRepository.save(run);
+		activeRuns.remove(run.getId());
+		log.info("Sync run [ID: {}] {} at page [{}]", run.getId(),
+				completed ? "completed" : "stopped", run.getCompletedPage());
+		
+		if (completed && run.getKind() == SyncRunKind.SCHEDULED) {
+			completeWatermark(run);
+		}
+	}
+	
+	/**
+	 * Method that moves the watermark of account after the completed scheduled run
+	 * <p>
+	 * The watermark of batch is moved to the earliest time of its shards, so none of
+	 * the orders changed while the batch was running are skipped by the next
+	 * incremental sync.
+	 *
+	 * @param run the completed {@link SyncRun}
+	 */
+	private void completeWatermark(SyncRun run) {
+		if (run.getBatch() == null) {
+			syncWatermarkService.complete(run.getOwner(), run.getGeneratedAt(),
+					run.getStartedAt(), run.isFullReconciliation());
+			return;
+		}
+		
+		List<SyncRun> shards = syncRunRepository.findByBatch(run.getBatch());
+		long left = shards.stream()
+				.filter(s -> s.getStatus() != SyncRunStatus.COMPLETED)
+				.count();
+		if (left > 0) {
+			log.info("Batch [{}] has [{}] of [{}] shards left", run.getBatch(), left,
+					shards.size());
+			return;
+		}
+		
+		SyncRun earliest = shards.stream()
+				.min(Comparator.comparing(SyncRunService::getSyncedAt))
+				.orElse(run);
+		LocalDateTime startedAt = shards.stream()
+				.map(SyncRun::getStartedAt)
+				.min(Comparator.naturalOrder())
+				.orElse(run.getStartedAt());
+		syncWatermarkService.complete(run.getOwner(), earliest.getGeneratedAt(),
+				startedAt, run.isFullReconciliation());
+	}
+	
+	private static LocalDateTime getSyncedAt(SyncRun run) {
+		LocalDateTime generatedAt =
+				SyncWatermarkService.getParsedGeneratedAt(run.getGeneratedAt());
+		return generatedAt != null ? generatedAt : run.getStartedAt();
+	}
+	
+	/**
+	 * Method that finishes the execution of the run by failure
+	 *
+	 * @param run   the {@link SyncRun} object
+	 * @param error the message of failure
+	 */
+	public void fail(SyncRun run, String error) {
+		run.setStatus(SyncRunStatus.FAILED);
+		run.setError(error);
+		run.setUpdatedAt(LocalDateTime.now());
+		syncRunRepository.save(run);
+		activeRuns.remove(run.getId());
+		log.error("Sync run [ID: {}] failed at page [{}]: {}", run.getId(),
+				run.getCompletedPage(), error);
+	}
+	
+	/**
+	 * Method that gets all runs, the latest first
+	 *
+	 * @return the {@link List}&lt;{@link SyncRun}&gt;
+	 */
+	public List<SyncRun> getRuns() {
+		return syncRunRepository.findAllByOrderByIdDesc();
+	}
+	
+	/**
+	 * Method that finds a run by id
+	 * <p>
+	 * Returns the SyncRun object if found or else a {@link CustomException} with http
+	 * <b>404</b> status
+	 *
+	 * @param id the id of run
+	 *
+	 * @return the {@link SyncRun} object
+	 */
+	public SyncRun getRun(Long id) {
+		return syncRunRepository.findById(id).orElseThrow(() -> new CustomException(
+				String.format("Sync run with ID: %s not found", id),
+				HttpStatus.NOT_FOUND));
+	}
+	
+	/**
+	 * Method that finds a run that can be resumed
+	 *
+	 * @param id the id of run
+	 *
+	 * @return the pending, interrupted, stopped or failed {@link SyncRun}
+	 */
+	public SyncRun getResumable(Long id) {
+		SyncRun run = getRun(id);
+		checkStopped(run);
+		return run;
+	}
+	
+	/**
+	 * Method that abandons the stopped run, so it is never resumed
+	 *
+	 * @param id the id of run
+	 *
+	 * @return the abandoned {@link SyncRun}
+	 */
+	public SyncRun abandon(Long id) {
+		SyncRun run = getRun(id);
+		checkStopped(run);
+		run.setStatus(SyncRunStatus.ABANDONED);
+		run.setUpdatedAt(LocalDateTime.now());
+		log.info("Sync run [ID: {}] abandoned at page [{}]", id, run.getCompletedPage());
+		return syncRunRepository.save(run);
+	}
+	
+	/**
+	 * Method that finds the runs to resume after start of the application
+	 * <p>
+	 * Runs still marked as running were stopped by the restart, so they are marked as
+	 * interrupted first. Pending shards of batches are resumed as well. Runs stopped on
+	 * purpose are left to be resumed by request.
+	 *
+	 * @return the {@link List}&lt;{@link SyncRun}&gt; of interrupted and pending runs
+	 * in order of creation
+	 */
+	public List<SyncRun> recoverInterrupted() {
+		List<SyncRun> runs = syncRunRepository.findByStatusIn(Arrays.asList(
+				SyncRunStatus.PENDING, SyncRunStatus.RUNNING));
+		runs.stream()
+				.filter(r -> r.getStatus() == SyncRunStatus.RUNNING)
+				.filter(r -> !activeRuns.contains(r.getId()))
+				.forEach(r -> {
+					r.setStatus(SyncRunStatus.INTERRUPTED);
+					r.setUpdatedAt(LocalDateTime.now());
+					syncRunRepository.save(r);
+				});
+		runs.removeIf(r -> r.getStatus() == SyncRunStatus.RUNNING);
+		runs.sort(Comparator.comparing(SyncRun::getId));
+		return runs;
+	}
+	
+	private void checkStopped(SyncRun run) {
+		if (activeRuns.contains(run.getId())) {
+			throw new CustomException(
+					String.format("Sync run with ID: %s is running", run.getId()),
+					HttpStatus.CONFLICT);
+		}
+		if (run.getStatus() == SyncRunStatus.COMPLETED
+				|| run.getStatus() == SyncRunStatus.ABANDONED) {
+			throw new CustomException(String.format("Sync run with ID: %s is %s",
+					run.getId(), run.getStatus().name().toLowerCase()),
+					HttpStatus.BAD_REQUEST);
+		}
+	}
+}
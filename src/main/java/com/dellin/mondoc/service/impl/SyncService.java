@@ -35,6 +35,11 @@ public class SyncService {
 	@Value("${api.address}")
 	String baseUrlFid = "";
 	
+	/**
+	 * The shared rate governor of requests to API Dellin
+	 */
+	private final DellinRateGovernor rateGovernor;
+	
 	/**
 	 * Injection of Retrofit interface of API Dellin requests
 	 */
@@ -43,7 +48,10 @@ public class SyncService {
 	/**
 	 * Method that initialize the Retrofit interface with base url of API Dellin
 	 * <p>
-	 * Returns the Retrofit interface with basic url and GsonConverter
+	 * Returns the Retrofit interface with basic url and GsonConverter. Order pages are
+	 * read by {@link OrderPageConverterFactory}, which keeps only the fields the sync
+	 * uses. Every request of the interface waits for a permit of
+	 * {@link DellinRateGovernor} before sending
 	 *
 	 * @return the {@link IInterfaceManualLoad} Retrofit interface
 	 */
@@ -54,6 +62,7 @@ public class SyncService {
 		if (iInterfaceManualLoad == null) {
 			Retrofit retrofit = new Retrofit.Builder().baseUrl(baseUrlFid)
 					.addCallAdapterFactory(RxJava2CallAdapterFactory.create())
+					.addConverterFactory(new OrderPageConverterFactory())
 					.addConverterFactory(GsonConverterFactory.create(gson))
 					.client(getUnsafeOkHttpClient()).build();
 			iInterfaceManualLoad = retrofit.create(IInterfaceManualLoad.class);
@@ -98,6 +107,7 @@ public class SyncService {
 			builder.readTimeout(240, TimeUnit.SECONDS);
 			builder.connectTimeout(240, TimeUnit.SECONDS);
 			builder.writeTimeout(240, TimeUnit.SECONDS);
+			builder.addInterceptor(rateGovernor.getInterceptor());
 			
 			//   builder.sslSocketFactory(sslSocketFactory);
 			builder.hostnameVerifier(new HostnameVerifier() {
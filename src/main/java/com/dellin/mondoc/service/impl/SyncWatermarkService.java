@@ -0,0 +1,130 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.model.entity.SyncWatermark;
+import com.dellin.mondoc.model.repository.SyncWatermarkRepository;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Service class to work with the synchronization watermarks of orders
+ * <p>
+ * A watermark keeps the time of API Dellin all orders changed before were synchronized
+ * at, one per credential. The next scheduled sync asks API Dellin only for orders
+ * changed since then. Once in the configured number of days the watermark is ignored
+ * and the full reconciliation of the whole period runs instead.
+ *
+ * @see SyncWatermark
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SyncWatermarkService {
+	
+	private static final DateTimeFormatter GENERATED_AT_PATTERN =
+			DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+	/**
+	 * Repository which contains watermarks
+	 */
+	private final SyncWatermarkRepository syncWatermarkRepository;
+	/**
+	 * The count of days between two full reconciliations
+	 */
+	@Value("${api.sync.full-interval-days:7}")
+	long fullIntervalDays;
+	/**
+	 * The count of minutes the incremental sync goes back before the watermark, so the
+	 * orders changed while the previous sync was running are not missed
+	 */
+	@Value("${api.sync.overlap-minutes:10}")
+	long overlapMinutes;
+	
+	/**
+	 * Method that gets the start of incremental sync for the credential
+	 *
+	 * @param credential the login of API Dellin account
+	 *
+	 * @return the time orders changed since should be requested, or empty
+	 * {@link Optional} if the full reconciliation is due
+	 */
+	public Optional<LocalDateTime> getLastUpdate(String credential) {
+		Optional<SyncWatermark> watermark =
+				syncWatermarkRepository.findByCredential(credential);
+		
+		if (watermark.isEmpty() || watermark.get().getSyncedAt() == null
+				|| watermark.get().getFullSyncedAt() == null
+				|| watermark.get()
+				.getFullSyncedAt()
+				.plusDays(fullIntervalDays)
+				.isBefore(LocalDateTime.now())) {
+			log.info("Full reconciliation of orders is due for [{}]", credential);
+			return Optional.empty();
+		}
+		return Optional.of(watermark.get().getSyncedAt().minusMinutes(overlapMinutes));
+	}
+	
+	/**
+	 * Method that moves the watermark after the successful sync
+	 * <p>
+	 * The new watermark is the generation time of the first received page. If API
+	 * Dellin didn't give it or it can't be parsed, the local time the sync started at
+	 * is used.
+	 *
+	 * @param credential  the login of API Dellin account
+	 * @param generatedAt the generation time of the first page from API Dellin
+	 * @param startedAt   the local time the sync started at
+	 * @param full        whether the sync was the full reconciliation
+	 */
+	public void complete(String credential, String generatedAt, LocalDateTime startedAt,
+			boolean full) {
+		SyncWatermark watermark = syncWatermarkRepository.findByCredential(credential)
+				.orElseGet(() -> {
+					SyncWatermark w = new SyncWatermark();
+					w.setCredential(credential);
+					return w;
+				});
+		
+		LocalDateTime syncedAt = getParsedGeneratedAt(generatedAt);
+		watermark.setSyncedAt(syncedAt != null ? syncedAt : startedAt);
+		if (full) {
+			watermark.setFullSyncedAt(startedAt);
+		}
+		watermark.setUpdatedAt(LocalDateTime.now());
+		syncWatermarkRepository.save(watermark);
+		
+		log.info("Watermark of [{}] moved to [{}]", credential, watermark.getSyncedAt());
+	}
+	
+	/**
+	 * Method that parses the generation time of API Dellin response into local time
+	 *
+	 * @param generatedAt the value of {@code metadata.generatedAt}
+	 *
+	 * @return the {@link LocalDateTime} object or null if the value can't be parsed
+	 */
+	static LocalDateTime getParsedGeneratedAt(String generatedAt) {
+		if (generatedAt == null) {
+			return null;
+		}
+		try {
+			return OffsetDateTime.parse(generatedAt)
+					.atZoneSameInstant(ZoneId.systemDefault())
+					.toLocalDateTime();
+		} catch (DateTimeParseException e) {
+			try {
+				return LocalDateTime.parse(generatedAt, GENERATED_AT_PATTERN);
+			} catch (DateTimeParseException ex) {
+				log.warn("Unknown format of generatedAt: [{}]", generatedAt);
+				return null;
+			}
+		}
+	}
+}
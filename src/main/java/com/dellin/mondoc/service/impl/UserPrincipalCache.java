@@ -0,0 +1,170 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.exceptions.CustomException;
+import com.dellin.mondoc.model.pojo.UserPrincipal;
+import com.dellin.mondoc.model.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.stream.*;
+
+/**
+ * The cache of {@link UserPrincipal} of the authenticated user
+ * <p>
+ * The principal is built once per request and kept in its attributes. The id and the
+ * companies of user are shared between requests for
+ * <i>security.user-cache.ttl-seconds</i>, the roles are taken from the claims of access
+ * token every time. Services which change a user or its companies and roles
+ * {@link #evict} it after their transaction commits.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserPrincipalCache {
+	
+	private static final String ATTRIBUTE = UserPrincipalCache.class.getName();
+	
+	/**
+	 * Repository which contains users
+	 */
+	private final UserRepository userRepository;
+	
+	/**
+	 * The id and companies of users by email
+	 */
+	private final Map<String, CachedUser> users = new ConcurrentHashMap<>();
+	
+	/**
+	 * The count of evictions, so a user loaded before an eviction isn't cached after it
+	 */
+	private final AtomicLong evictions = new AtomicLong();
+	
+	/**
+	 * The time the id and companies of user are shared between requests
+	 */
+	@Value("${security.user-cache.ttl-seconds:30}")
+	long ttlSeconds;
+	
+	/**
+	 * Method that gets the principal of the user of current request
+	 * <p>
+	 * Throws {@link CustomException} with http <b>404</b> status if the user is not
+	 * found
+	 *
+	 * @return the {@link UserPrincipal} of authenticated user
+	 */
+	public UserPrincipal getCurrent() {
+		Authentication authentication =
+				SecurityContextHolder.getContext().getAuthentication();
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes != null) {
+			Object cached = attributes.getAttribute(ATTRIBUTE,
+					RequestAttributes.SCOPE_REQUEST);
+			if (cached instanceof UserPrincipal && ((UserPrincipal) cached).getEmail()
+					.equals(authentication.getName())) {
+				return (UserPrincipal) cached;
+			}
+		}
+		
+		CachedUser user = get(authentication.getName());
+		UserPrincipal principal = new UserPrincipal(user.id, authentication.getName(),
+				user.companyIds, authentication.getAuthorities()
+				.stream()
+				.map(GrantedAuthority::getAuthority)
+				.collect(Collectors.toUnmodifiableSet()));
+		if (attributes != null) {
+			attributes.setAttribute(ATTRIBUTE, principal,
+					RequestAttributes.SCOPE_REQUEST);
+		}
+		return principal;
+	}
+	
+	/**
+	 * Method that forgets the cached user
+	 * <p>
+	 * If a transaction is active, the user is forgotten again after commit, so a request
+	 * reading the user before commit doesn't keep the old state.
+	 *
+	 * @param email the email of user
+	 */
+	public void evict(String email) {
+		doEvict(email);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(
+					new TransactionSynchronization() {
+						@Override
+						public void afterCommit() {
+							doEvict(email);
+						}
+					});
+		}
+	}
+	
+	/**
+	 * Method that removes the expired users
+	 */
+	@Scheduled(fixedDelayString = "${api.session.refresh-interval:60000}")
+	public void evictExpired() {
+		long now = System.nanoTime();
+		users.values().removeIf(u -> u.expiresAt - now <= 0);
+	}
+	
+	private CachedUser get(String email) {
+		long now = System.nanoTime();
+		CachedUser user = users.get(email);
+		if (user != null && user.expiresAt - now > 0) {
+			return user;
+		}
+		
+		long generation = evictions.get();
+		Long id = userRepository.findIdByEmail(email).orElseThrow(
+				() -> new CustomException(
+						String.format("User [EMAIL: %s] not found", email),
+						HttpStatus.NOT_FOUND));
+		user = new CachedUser(id, Set.copyOf(userRepository.findCompanyIds(id)),
+				now + TimeUnit.SECONDS.toNanos(ttlSeconds));
+		if (evictions.get() == generation) {
+			users.put(email, user);
+		}
+		return user;
+	}
+	
+	private void doEvict(String email) {
+		evictions.incrementAndGet();
+		if (email != null) {
+			users.remove(email);
+		}
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes != null) {
+			attributes.removeAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+		}
+	}
+	
+	/**
+	 * The id and companies of user loaded from the database
+	 */
+	private static final class CachedUser {
+		
+		private final Long id;
+		private final Set<Long> companyIds;
+		private final long expiresAt;
+		
+		private CachedUser(Long id, Set<Long> companyIds, long expiresAt) {
+			this.id = id;
+			this.companyIds = companyIds;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
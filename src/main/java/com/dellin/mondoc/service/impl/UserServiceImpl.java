@@ -5,6 +5,8 @@ import com.dellin.mondoc.model.dto.UserDTO;
 import com.dellin.mondoc.model.entity.Role;
 import com.dellin.mondoc.model.entity.User;
 import com.dellin.mondoc.model.enums.EntityStatus;
+import com.dellin.mondoc.model.pojo.CursorPage;
+import com.dellin.mondoc.model.pojo.PageCursor;
 import com.dellin.mondoc.model.repository.RoleRepository;
 import com.dellin.mondoc.model.repository.UserRepository;
 import com.dellin.mondoc.service.UserService;
@@ -65,6 +67,10 @@ public class UserServiceImpl implements UserService, UserDetailsService {
 	 * The field of injected email validator
 	 */
 	private final EmailValidator validator = EmailValidator.getInstance();
+	/**
+	 * Cache of the authenticated users
+	 */
+	private final UserPrincipalCache userPrincipalCache;
 	
 	/**
 	 * Locates the user based on the email
@@ -162,6 +168,8 @@ public class UserServiceImpl implements UserService, UserDetailsService {
 			u.setPassword(passwordEncoder.encode(userDTO.getPassword()));
 			updateStatus(u, EntityStatus.UPDATED);
 			dto.set(mapper.convertValue(userRepository.save(u), UserDTO.class));
+			userPrincipalCache.evict(email);
+			userPrincipalCache.evict(u.getEmail());
 			log.info("User [EMAIL: {}] was updated", email);
 		}, () -> {
 			throw new CustomException(
@@ -185,6 +193,7 @@ public class UserServiceImpl implements UserService, UserDetailsService {
 		updateStatus(user, EntityStatus.DELETED);
 		log.info("Deleting user with email: {}", email);
 		userRepository.save(user);
+		userPrincipalCache.evict(email);
 	}
 	
 	/**
@@ -209,10 +218,13 @@ public class UserServiceImpl implements UserService, UserDetailsService {
 	 * <p>
 	 * Returns a model map of all objects users in a limited size list sorted by chosen
 	 * parameter.
+	 * <p>
+	 * Throws {@link CustomException} with http <b>400</b> status if the sorting is not
+	 * one of {@link UserRepository#SORT_PATHS}, which are served by indexes
 	 *
 	 * @param page    the serial number of page
 	 * @param perPage the number of elements on page
-	 * @param sort    the main parameter of sorting
+	 * @param sort    the key of sorting: email or id
 	 * @param order   ASC or DESC
 	 *
 	 * @return the ModelMap of sorted {@link User}
@@ -229,7 +241,8 @@ public class UserServiceImpl implements UserService, UserDetailsService {
 					HttpStatus.BAD_REQUEST);
 		}
 		
-		Pageable pageRequest = PaginationUtil.getPageRequest(page, perPage, sort, order);
+		Pageable pageRequest = PaginationUtil.getPageRequest(page, perPage, sort, order,
+				UserRepository.SORT_PATHS.keySet());
 		Page<User> pageResult = userRepository.findAll(pageRequest);
 		
 		List<UserDTO> content = pageResult.getContent()
@@ -246,6 +259,52 @@ public class UserServiceImpl implements UserService, UserDetailsService {
 		return map;
 	}
 	
+	/**
+	 * Method that gets the page of Users after the cursor
+	 * <p>
+	 * Users are read by keyset after the last user of the previous page, so every page
+	 * takes the same time and no count is made. The cursor of the next page is returned
+	 * as <i>next</i>, which is null on the last page.
+	 * <p>
+	 * Throws {@link CustomException} with http <b>400</b> status if the cursor is not
+	 * valid or the sorting is not available with cursor
+	 *
+	 * @param cursor  the token of the previous page, or an empty string for the first one
+	 * @param perPage the number of elements on page
+	 * @param sort    the key of sorting of the first page: email or id
+	 * @param order   ASC or DESC
+	 *
+	 * @return the ModelMap of sorted {@link User}
+	 *
+	 * @see PageCursor
+	 */
+	@Override
+	public ModelMap getUsersAfter(String cursor, Integer perPage, String sort,
+			Sort.Direction order) {
+		if (perPage != null && perPage < 1) {
+			throw new CustomException("Page size must not be less than one",
+					HttpStatus.BAD_REQUEST);
+		}
+		
+		PageCursor after = PageCursor.of(cursor, sort, order,
+				UserRepository.SORT_PATHS.keySet());
+		CursorPage<User> pageResult = userRepository.findAll(after,
+				perPage != null ? perPage : 10);
+		
+		List<UserDTO> content = pageResult.getContent()
+				.stream()
+				.map(u -> mapper.convertValue(u, UserDTO.class))
+				.collect(Collectors.toList());
+		
+		ModelMap map = new ModelMap();
+		map.addAttribute("content", content);
+		map.addAttribute("PageSize", content.size());
+		map.addAttribute("next",
+				pageResult.getNext() != null ? pageResult.getNext().encode() : null);
+		
+		return map;
+	}
+	
 	/**
 	 * Change the state of {@link User}-entity by chosen and set up the entity field
 	 * updatedAt new local date time
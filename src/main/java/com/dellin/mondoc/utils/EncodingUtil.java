@@ -4,15 +4,20 @@ import com.auth0.jwt.JWT;
 import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.interfaces.DecodedJWT;
-import org.jasypt.encryption.pbe.StandardPBEStringEncryptor;
+import org.jasypt.encryption.pbe.PooledPBEStringEncryptor;
 
 /**
  * This EncodingUtil class add an opportunity to work with the decoded and verified
  * username, received in refresh token
+ * <p>
+ * Credentials are encrypted and decrypted by one pool of encryptors initialized on the
+ * first use and shared by all threads, instead of a new encryptor for every call. The
+ * same goes for the verifier of tokens.
  */
 public final class EncodingUtil {
 	
 	private static final String secret = System.getenv("JASYPT_ENCRYPTOR_PASSWORD");
+	private static final String ALGORITHM = "PBEWithMD5AndTripleDES";
 	
 	private EncodingUtil() {
 		throw new UnsupportedOperationException();
@@ -22,27 +27,61 @@ public final class EncodingUtil {
 		return authorizationHeader.substring("Bearer ".length());
 	}
 	
-	public static String getDecodedUsername(String secret, String authorizationHeader) {
-		JWTVerifier jwtVerifier = JWT.require(getAlgorithm(secret)).build();
-		DecodedJWT decodedJWT = jwtVerifier.verify(getRefreshToken(authorizationHeader));
+	public static String getDecodedUsername(String authorizationHeader) {
+		DecodedJWT decodedJWT =
+				getVerifier().verify(getRefreshToken(authorizationHeader));
 		return decodedJWT.getSubject();
 	}
 	
+	/**
+	 * Method that gets the verifier of tokens signed by the <i>secret</i> of environment
+	 * <p>
+	 * The verifier is immutable and thread-safe, so one instance is built on the first
+	 * use and shared by all requests.
+	 *
+	 * @return the shared {@link JWTVerifier}
+	 */
+	public static JWTVerifier getVerifier() {
+		return VerifierHolder.VERIFIER;
+	}
+	
 	public static Algorithm getAlgorithm(String secret) {
 		return Algorithm.HMAC256(secret.getBytes());
 	}
 	
 	public static String getEncrypted(String text) {
-		StandardPBEStringEncryptor encryptor = new StandardPBEStringEncryptor();
-		encryptor.setPassword(secret);
-		encryptor.setAlgorithm("PBEWithMD5AndTripleDES");
-		return encryptor.encrypt(text);
+		return EncryptorHolder.ENCRYPTOR.encrypt(text);
 	}
 	
 	public static String getDecrypted(String text) {
-		StandardPBEStringEncryptor encryptor = new StandardPBEStringEncryptor();
-		encryptor.setPassword(secret);
-		encryptor.setAlgorithm("PBEWithMD5AndTripleDES");
-		return encryptor.decrypt(text);
+		return EncryptorHolder.ENCRYPTOR.decrypt(text);
+	}
+	
+	/**
+	 * The holder of the shared verifier of tokens, created on the first use
+	 */
+	private static final class VerifierHolder {
+		
+		private static final JWTVerifier VERIFIER =
+				JWT.require(getAlgorithm(System.getenv("secret"))).build();
+	}
+	
+	/**
+	 * The holder of the shared encryptors, created on the first use
+	 * <p>
+	 * Every encryptor of the pool is thread-safe, the pool of one encryptor per
+	 * processor only spreads the calls of parallel threads between them.
+	 */
+	private static final class EncryptorHolder {
+		
+		private static final PooledPBEStringEncryptor ENCRYPTOR = create();
+		
+		private static PooledPBEStringEncryptor create() {
+			PooledPBEStringEncryptor encryptor = new PooledPBEStringEncryptor();
+			encryptor.setPoolSize(Runtime.getRuntime().availableProcessors());
+			encryptor.setPassword(secret);
+			encryptor.setAlgorithm(ALGORITHM);
+			return encryptor;
+		}
 	}
 }
@@ -2,12 +2,18 @@ package com.dellin.mondoc.utils;
 
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.ZoneId;
 
 import java.util.*;
 
 public final class OrderUtil {
 	
+	/**
+	 * The format of dates and times in the order requests of API Dellin
+	 */
+	public static final String DATE_PATTERN = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX";
+	
 	private OrderUtil() {
 		throw new UnsupportedOperationException();
 	}
@@ -23,4 +29,11 @@ public final class OrderUtil {
 		
 		return formatter.format(from);
 	}
+	
+	public static String getFormattedDate(LocalDateTime date, String format) {
+		SimpleDateFormat formatter = new SimpleDateFormat(format);
+		Date from = Date.from(date.atZone(ZoneId.systemDefault()).toInstant());
+		
+		return formatter.format(from);
+	}
 }
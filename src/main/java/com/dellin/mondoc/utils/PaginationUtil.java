@@ -1,8 +1,12 @@
 package com.dellin.mondoc.utils;
 
+import com.dellin.mondoc.exceptions.CustomException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+
+import java.util.*;
 
 /**
  * This PaginationUtil class add an opportunity to return {@link Pageable} object with
@@ -30,4 +34,24 @@ public class PaginationUtil {
 			return PageRequest.of(page, perPage, Sort.by(Sort.Direction.ASC, sort));
 		}
 	}
+	
+	/**
+	 * Method that gets the {@link Pageable} sorted only by one of the keys available
+	 * <p>
+	 * Throws {@link CustomException} with http <b>400</b> status if the key of sorting is
+	 * not one of the keys available
+	 *
+	 * @param keys the keys of sorting available
+	 *
+	 * @return the {@link Pageable}
+	 */
+	public static Pageable getPageRequest(Integer page, Integer perPage, String sort,
+			Sort.Direction order, Collection<String> keys) {
+		if (sort != null && !keys.contains(sort)) {
+			throw new CustomException(String.format(
+					"Sorting by [%s] is not available, use one of %s", sort, keys),
+					HttpStatus.BAD_REQUEST);
+		}
+		return getPageRequest(page, perPage, sort, order);
+	}
 }
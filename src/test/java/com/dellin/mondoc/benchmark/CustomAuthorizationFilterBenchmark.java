@@ -0,0 +1,100 @@
+package com.dellin.mondoc.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.dellin.mondoc.filter.CustomAuthorizationFilter;
+import com.dellin.mondoc.filter.VerifiedTokenCache;
+import java.io.*;
+import java.time.Instant;
+import javax.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.springframework.http.HttpHeaders.AUTHORIZATION;
+
+/**
+ * The throughput of {@link CustomAuthorizationFilter} on requests with the same access
+ * token, as the polling of dashboard sends
+ * <p>
+ * Compares the filter which verifies every token, as a cache of no tokens does, with the
+ * filter which takes verified tokens from {@link VerifiedTokenCache}:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \\
+ *     com.dellin.mondoc.benchmark.CustomAuthorizationFilterBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class CustomAuthorizationFilterBenchmark {
+	
+	private CustomAuthorizationFilter verifyingFilter;
+	private CustomAuthorizationFilter cachingFilter;
+	private String authorizationHeader;
+	
+	@Setup
+	public void setUp() {
+		Algorithm algorithm = Algorithm.HMAC256("secret");
+		verifyingFilter = new CustomAuthorizationFilter(
+				new VerifiedTokenCache(JWT.require(algorithm).build(), 0));
+		cachingFilter = new CustomAuthorizationFilter(
+				new VerifiedTokenCache(JWT.require(algorithm).build(), 10000));
+		authorizationHeader = "Bearer " + JWT.create()
+				.withSubject("test@test.com")
+				.withIssuer("http://localhost:8080/api/login")
+				.withClaim("roles", List.of("ROLE_USER", "ROLE_ADMIN"))
+				.withExpiresAt(Instant.now().plusSeconds(3600))
+				.sign(algorithm);
+	}
+	
+	@Benchmark
+	public MockHttpServletResponse verifyingFilter() throws ServletException,
+			IOException {
+		return filter(verifyingFilter);
+	}
+	
+	@Benchmark
+	public MockHttpServletResponse cachingFilter() throws ServletException, IOException {
+		return filter(cachingFilter);
+	}
+	
+	private MockHttpServletResponse filter(CustomAuthorizationFilter filter) throws
+			ServletException, IOException {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders/all");
+		request.setServletPath("/orders/all");
+		request.addHeader(AUTHORIZATION, authorizationHeader);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, new MockFilterChain());
+		SecurityContextHolder.clearContext();
+		return response;
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(CustomAuthorizationFilterBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+}
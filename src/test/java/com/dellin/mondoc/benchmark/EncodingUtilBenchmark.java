@@ -0,0 +1,88 @@
+package com.dellin.mondoc.benchmark;
+
+import com.dellin.mondoc.model.entity.Session;
+import com.dellin.mondoc.service.impl.SessionCredentialCache;
+import com.dellin.mondoc.utils.EncodingUtil;
+import java.time.LocalDateTime;
+import org.jasypt.encryption.pbe.StandardPBEStringEncryptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.*;
+
+/**
+ * The throughput of decrypting credentials of a user session
+ * <p>
+ * Compares a new encryptor for every call, as {@link EncodingUtil} did before, with the
+ * shared pool of encryptors and with the credentials cached by
+ * {@link SessionCredentialCache}. Runs with the password of encryptor in
+ * <i>JASYPT_ENCRYPTOR_PASSWORD</i>:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \\
+ *     com.dellin.mondoc.benchmark.EncodingUtilBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class EncodingUtilBenchmark {
+	
+	private String encrypted;
+	private Session session;
+	private SessionCredentialCache credentialCache;
+	
+	@Setup
+	public void setUp() {
+		encrypted = EncodingUtil.getEncrypted("sessionDl");
+		session = new Session();
+		session.setId(1L);
+		session.setAppkey(EncodingUtil.getEncrypted("appkey"));
+		session.setLogin(EncodingUtil.getEncrypted("login"));
+		session.setPassword(EncodingUtil.getEncrypted("password"));
+		session.setSessionDl(encrypted);
+		session.setUpdatedAt(LocalDateTime.now());
+		credentialCache = new SessionCredentialCache();
+		ReflectionTestUtils.setField(credentialCache, "ttlSeconds", 300L);
+	}
+	
+	@Benchmark
+	public String newEncryptorPerCall() {
+		StandardPBEStringEncryptor encryptor = new StandardPBEStringEncryptor();
+		encryptor.setPassword(System.getenv("JASYPT_ENCRYPTOR_PASSWORD"));
+		encryptor.setAlgorithm("PBEWithMD5AndTripleDES");
+		return encryptor.decrypt(encrypted);
+	}
+	
+	@Benchmark
+	public String pooledEncryptor() {
+		return EncodingUtil.getDecrypted(encrypted);
+	}
+	
+	@Benchmark
+	public String cachedCredentials() {
+		return credentialCache.get(session).getSessionDl();
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(EncodingUtilBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+}
@@ -0,0 +1,116 @@
+package com.dellin.mondoc.benchmark;
+
+import com.dellin.mondoc.model.pojo.OrderResponse;
+import com.dellin.mondoc.service.impl.OrderPageConverterFactory;
+import com.google.gson.GsonBuilder;
+import java.io.*;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The cost of converting one page of orders of API Dellin
+ * <p>
+ * The page is built of <i>orders</i> copies of the recorded API Dellin order. Compares
+ * the Gson converter of the whole {@link OrderResponse} with the streaming converter of
+ * {@link OrderPageConverterFactory}, which reads only the fields in use. The allocation
+ * per conversion is reported by the GC profiler as <i>gc.alloc.rate.norm</i>:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \\
+ *     com.dellin.mondoc.benchmark.OrderPageConverterBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderPageConverterBenchmark {
+	
+	private static final MediaType JSON = MediaType.get("application/json");
+	
+	@Param({"20", "200"})
+	int orders;
+	
+	private byte[] page;
+	private Converter<ResponseBody, OrderResponse> pojo;
+	private Converter<ResponseBody, OrderResponse> streaming;
+	
+	@Setup(Level.Trial)
+	@SuppressWarnings("unchecked")
+	public void setUp() throws IOException {
+		page = getPage(orders).getBytes(StandardCharsets.UTF_8);
+		Retrofit retrofit =
+				new Retrofit.Builder().baseUrl("https://api.dellin.ru").build();
+		pojo = (Converter<ResponseBody, OrderResponse>) GsonConverterFactory.create(
+						new GsonBuilder().setLenient().create())
+				.responseBodyConverter(OrderResponse.class, new Annotation[0], retrofit);
+		streaming = (Converter<ResponseBody, OrderResponse>)
+				new OrderPageConverterFactory().responseBodyConverter(OrderResponse.class,
+						new Annotation[0], retrofit);
+	}
+	
+	@Benchmark
+	public OrderResponse pojo() throws IOException {
+		return pojo.convert(ResponseBody.create(page, JSON));
+	}
+	
+	@Benchmark
+	public OrderResponse streaming() throws IOException {
+		return streaming.convert(ResponseBody.create(page, JSON));
+	}
+	
+	/**
+	 * Builds the page of orders from the recorded API Dellin order
+	 */
+	private static String getPage(int orders) throws IOException {
+		String order;
+		try (InputStream in = OrderPageConverterBenchmark.class.getResourceAsStream(
+				"/dellin-order.json")) {
+			order = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		
+		StringJoiner page = new StringJoiner(",", "{\"metadata\":{\"status\":200,"
+				+ "\"currentPage\":1,\"nextPage\":2,\"prevPage\":null,\"totalPages\":7,"
+				+ "\"generatedAt\":\"2023-02-01 21:00:05\"},\"orders\":[",
+				"],\"deleted\":[\"100500\"]}");
+		for (int i = 0; i < orders; i++) {
+			page.add(order.replace("ORDER_ID", "order" + i)
+					.replace("DOC_ID", "id" + i)
+					.replace("DOC_UID", "0x" + i)
+					.replace("PAYER_INN", String.valueOf(7700000000L + i % 10)));
+		}
+		return page.toString();
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(OrderPageConverterBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+}
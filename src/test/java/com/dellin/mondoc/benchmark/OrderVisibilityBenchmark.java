@@ -0,0 +1,188 @@
+package com.dellin.mondoc.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The cost of one full page of orders visible to a user without the admin role
+ * <p>
+ * The tables and indexes of orders and their comments are built in an in-memory H2
+ * database, with the share of commented orders given by <i>commentedShare</i>. Compares
+ * the filter of commented orders in memory, where the pages of all orders are read
+ * until the page of visible ones is full, with the filter in the query:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \\
+ *     com.dellin.mondoc.benchmark.OrderVisibilityBenchmark</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderVisibilityBenchmark {
+	
+	private static final int ORDERS = 20000;
+	private static final int COMPANIES = 5;
+	private static final int PAGE_SIZE = 50;
+	
+	private static final String ACTIVE = "o.company_id in (1, 2) "
+			+ "and (o.status is null or o.status <> 'DELETED')";
+	private static final String COMMENTED = "exists (select 1 from orders_comments oc "
+			+ "where oc.order_id = o.id)";
+	
+	@Param({"0.05", "0.2"})
+	double commentedShare;
+	
+	private Connection connection;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException {
+		connection = DriverManager.getConnection("jdbc:h2:mem:orders");
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("create table orders (id bigint primary key, "
+					+ "doc_id varchar(255), company_id bigint, status varchar(255), "
+					+ "state varchar(255), uid varchar(255))");
+			statement.execute("create table comments (id bigint primary key, "
+					+ "text varchar(255))");
+			statement.execute("create table orders_comments (order_id bigint, "
+					+ "comments_id bigint)");
+			statement.execute("create index idx_orders_company "
+					+ "on orders (company_id, status)");
+			statement.execute("create index idx_orders_comments_order "
+					+ "on orders_comments (order_id)");
+		}
+		
+		Random random = new Random(42);
+		try (PreparedStatement order = connection.prepareStatement(
+				"insert into orders values (?, ?, ?, null, 'finished', ?)");
+			 PreparedStatement comment = connection.prepareStatement(
+					 "insert into comments values (?, 'text')");
+			 PreparedStatement link = connection.prepareStatement(
+					 "insert into orders_comments values (?, ?)")) {
+			for (long id = 1; id <= ORDERS; id++) {
+				order.setLong(1, id);
+				order.setString(2, String.valueOf(id));
+				order.setLong(3, id % COMPANIES + 1);
+				order.setString(4, "0x" + id);
+				order.addBatch();
+				if (random.nextDouble() < commentedShare) {
+					comment.setLong(1, id);
+					comment.addBatch();
+					link.setLong(1, id);
+					link.setLong(2, id);
+					link.addBatch();
+				}
+			}
+			order.executeBatch();
+			comment.executeBatch();
+			link.executeBatch();
+		}
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException {
+		connection.close();
+	}
+	
+	/**
+	 * Reads pages of all orders of the companies and drops the uncommented ones, until a
+	 * page of visible orders is collected
+	 */
+	@Benchmark
+	public List<String> filterInMemory() throws SQLException {
+		List<String> visible = new ArrayList<>();
+		count("select count(*) from orders o where " + ACTIVE);
+		for (int offset = 0; visible.size() < PAGE_SIZE; offset += PAGE_SIZE) {
+			Map<Long, String> page = new LinkedHashMap<>();
+			try (PreparedStatement statement = connection.prepareStatement(
+					"select o.id, o.doc_id from orders o where " + ACTIVE
+							+ " order by o.doc_id limit ? offset ?")) {
+				statement.setInt(1, PAGE_SIZE);
+				statement.setInt(2, offset);
+				try (ResultSet rs = statement.executeQuery()) {
+					while (rs.next()) {
+						page.put(rs.getLong(1), rs.getString(2));
+					}
+				}
+			}
+			if (page.isEmpty()) {
+				break;
+			}
+			for (Map.Entry<Long, String> entry : page.entrySet()) {
+				if (hasComments(entry.getKey()) && visible.size() < PAGE_SIZE) {
+					visible.add(entry.getValue());
+				}
+			}
+		}
+		return visible;
+	}
+	
+	/**
+	 * Reads the page of commented orders of the companies by one query
+	 */
+	@Benchmark
+	public List<String> filterInQuery() throws SQLException {
+		List<String> visible = new ArrayList<>();
+		count("select count(*) from orders o where " + ACTIVE + " and " + COMMENTED);
+		try (PreparedStatement statement = connection.prepareStatement(
+				"select o.doc_id from orders o where " + ACTIVE + " and " + COMMENTED
+						+ " order by o.doc_id limit ?")) {
+			statement.setInt(1, PAGE_SIZE);
+			try (ResultSet rs = statement.executeQuery()) {
+				while (rs.next()) {
+					visible.add(rs.getString(1));
+				}
+			}
+		}
+		return visible;
+	}
+	
+	private boolean hasComments(long orderId) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement(
+				"select count(*) from orders_comments where order_id = ?")) {
+			statement.setLong(1, orderId);
+			try (ResultSet rs = statement.executeQuery()) {
+				rs.next();
+				return rs.getLong(1) > 0;
+			}
+		}
+	}
+	
+	private void count(String sql) throws SQLException {
+		try (Statement statement = connection.createStatement();
+			 ResultSet rs = statement.executeQuery(sql)) {
+			rs.next();
+		}
+	}
+	
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(OrderVisibilityBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+}
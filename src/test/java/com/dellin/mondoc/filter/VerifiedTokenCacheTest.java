@@ -0,0 +1,127 @@
+package com.dellin.mondoc.filter;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.InvalidClaimException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.auth0.jwt.interfaces.JWTVerifier;
+import java.time.Instant;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class VerifiedTokenCacheTest {
+	
+	private final Algorithm algorithm = Algorithm.HMAC256("secret");
+	private JWTVerifier verifier;
+	private VerifiedTokenCache tokenCache;
+	
+	@Before
+	public void setUp() {
+		verifier = mock(JWTVerifier.class, delegatesTo(JWT.require(algorithm).build()));
+		tokenCache = new VerifiedTokenCache(verifier, 2);
+	}
+	
+	@Test
+	public void getAuthentication() {
+		
+		String token = getToken("test@test.com", Instant.now().plusSeconds(60));
+		
+		UsernamePasswordAuthenticationToken authentication =
+				tokenCache.getAuthentication(token);
+		tokenCache.getAuthentication(token);
+		
+		assertEquals("test@test.com", authentication.getPrincipal());
+		assertEquals(List.of(new SimpleGrantedAuthority("ROLE_USER")),
+				new ArrayList<>(authentication.getAuthorities()));
+		assertEquals(1, tokenCache.size());
+		verify(verifier, times(1)).verify(token);
+	}
+	
+	@Test
+	public void getAuthentication_expired() {
+		
+		String token = getToken("test@test.com", Instant.now().minusSeconds(60));
+		
+		assertThrows(TokenExpiredException.class,
+				() -> tokenCache.getAuthentication(token));
+		assertEquals(0, tokenCache.size());
+	}
+	
+	@Test
+	public void getAuthentication_invalid() {
+		
+		String token = JWT.create()
+				.withSubject("test@test.com")
+				.withClaim("roles", List.of("ROLE_ADMIN"))
+				.withExpiresAt(Instant.now().plusSeconds(60))
+				.sign(Algorithm.HMAC256("other"));
+		
+		assertThrows(Exception.class, () -> tokenCache.getAuthentication(token));
+		assertEquals(0, tokenCache.size());
+	}
+	
+	@Test
+	public void getAuthentication_noRoles() {
+		
+		String token = JWT.create()
+				.withSubject("test@test.com")
+				.withExpiresAt(Instant.now().plusSeconds(60))
+				.sign(algorithm);
+		
+		assertThrows(InvalidClaimException.class,
+				() -> tokenCache.getAuthentication(token));
+		assertEquals(0, tokenCache.size());
+	}
+	
+	@Test
+	public void getAuthentication_full() {
+		
+		tokenCache.getAuthentication(
+				getToken("a@test.com", Instant.now().plusSeconds(60)));
+		tokenCache.getAuthentication(
+				getToken("b@test.com", Instant.now().plusSeconds(60)));
+		String token = getToken("c@test.com", Instant.now().plusSeconds(60));
+		
+		tokenCache.getAuthentication(token);
+		tokenCache.getAuthentication(token);
+		
+		assertEquals(2, tokenCache.size());
+		verify(verifier, times(2)).verify(token);
+	}
+	
+	@Test
+	public void getAuthentication_fullOfExpired() throws InterruptedException {
+		
+		tokenCache.getAuthentication(
+				getToken("a@test.com", Instant.now().plusSeconds(2)));
+		tokenCache.getAuthentication(
+				getToken("b@test.com", Instant.now().plusSeconds(2)));
+		Thread.sleep(2100);
+		String token = getToken("c@test.com", Instant.now().plusSeconds(60));
+		
+		tokenCache.getAuthentication(token);
+		tokenCache.getAuthentication(token);
+		
+		assertEquals(1, tokenCache.size());
+		verify(verifier, times(1)).verify(token);
+	}
+	
+	private String getToken(String email, Instant expiresAt) {
+		return JWT.create()
+				.withSubject(email)
+				.withClaim("roles", List.of("ROLE_USER"))
+				.withExpiresAt(expiresAt)
+				.sign(algorithm);
+	}
+}
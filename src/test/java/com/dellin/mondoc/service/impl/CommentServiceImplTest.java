@@ -5,7 +5,9 @@ import com.dellin.mondoc.model.dto.CommentDTO;
 import com.dellin.mondoc.model.entity.Comment;
 import com.dellin.mondoc.model.entity.Order;
 import com.dellin.mondoc.model.entity.User;
+import com.dellin.mondoc.model.pojo.UserPrincipal;
 import com.dellin.mondoc.model.repository.CommentRepository;
+import com.dellin.mondoc.model.repository.UserRepository;
 import com.dellin.mondoc.service.OrderService;
 import com.dellin.mondoc.service.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -29,6 +31,7 @@ import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -42,6 +45,12 @@ public class CommentServiceImplTest {
 	private OrderService orderService;
 	@Mock
 	private CommentRepository commentRepository;
+	@Mock
+	private UserRepository userRepository;
+	@Mock
+	private UserPrincipalCache userPrincipalCache;
+	@Mock
+	private OrderViewService orderViewService;
 	@Spy
 	private ObjectMapper mapper;
 	
@@ -94,9 +103,11 @@ public class CommentServiceImplTest {
 	public void addCommentToOrder() {
 		
 		Comment comment = new Comment();
+		comment.setText("Some Text");
 		when(commentRepository.findById(anyLong())).thenReturn(Optional.of(comment));
 		
 		Order order = new Order();
+		order.setDocId("0x1");
 		order.setComments(new ArrayList<>());
 		when(orderService.getOrder(anyString())).thenReturn(order);
 		
@@ -104,6 +115,9 @@ public class CommentServiceImplTest {
 				i -> i.getArguments()[0]);
 		
 		commentService.addCommentToOrder("0x1", 1L);
+		
+		assertEquals("0x1 some text", order.getSearchText());
+		verify(orderViewService).refreshComments(order);
 	}
 	
 	@Test(expected = CustomException.class)
@@ -136,15 +150,10 @@ public class CommentServiceImplTest {
 		
 		comment.setText(commentDTO.getText());
 		
-		SecurityContext securityContext = mock(SecurityContext.class);
-		Authentication a = new UsernamePasswordAuthenticationToken("test@test.com", null);
-		
-		when(securityContext.getAuthentication()).thenReturn(a);
-		securityContext.setAuthentication(a);
-		SecurityContextHolder.setContext(securityContext);
-		
 		User user = new User();
-		when(userService.getUser(anyString())).thenReturn(user);
+		when(userPrincipalCache.getCurrent()).thenReturn(
+				new UserPrincipal(1L, "test@test.com", Set.of(), Set.of("ROLE_USER")));
+		when(userRepository.getReferenceById(1L)).thenReturn(user);
 		
 		when(commentRepository.save(any(Comment.class))).thenAnswer(
 				i -> i.getArguments()[0]);
@@ -152,6 +161,31 @@ public class CommentServiceImplTest {
 		ResponseEntity<CommentDTO> resultDTO = commentService.update(commentDTO);
 		
 		assertEquals(commentDTO.getText(), resultDTO.getBody().getText());
+		assertEquals(user, comment.getUser());
+	}
+	
+	@Test
+	public void update_orderSearchText() {
+		
+		CommentDTO commentDTO = new CommentDTO(1L, "New Text");
+		
+		Order order = new Order();
+		order.setDocId("0x1");
+		Comment comment = new Comment();
+		comment.setText("old text");
+		comment.setOrder(order);
+		order.setComments(new ArrayList<>(List.of(comment)));
+		
+		when(commentRepository.findById(1L)).thenReturn(Optional.of(comment));
+		when(userPrincipalCache.getCurrent()).thenReturn(
+				new UserPrincipal(1L, "test@test.com", Set.of(), Set.of("ROLE_USER")));
+		when(commentRepository.save(any(Comment.class))).thenAnswer(
+				i -> i.getArguments()[0]);
+		
+		commentService.update(commentDTO);
+		
+		assertEquals("0x1 new text", order.getSearchText());
+		verify(orderViewService).refreshComments(order);
 	}
 	
 	@Test(expected = CustomException.class)
@@ -33,6 +33,8 @@ public class CompanyServiceImplTest {
 	
 	@Mock
 	private CompanyRepository companyRepository;
+	@Mock
+	private UserPrincipalCache userPrincipalCache;
 	
 	@Spy
 	private ObjectMapper mapper;
@@ -92,6 +94,7 @@ public class CompanyServiceImplTest {
 		companyService.addCompanyToUser("test@test.com", "345");
 		
 		verify(companyRepository, times(1)).save(any(Company.class));
+		verify(userPrincipalCache).evict("test@test.com");
 	}
 	
 	@Test(expected = CustomException.class)
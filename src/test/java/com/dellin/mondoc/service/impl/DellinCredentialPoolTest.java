@@ -0,0 +1,87 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.exceptions.CustomException;
+import com.dellin.mondoc.model.dto.SessionDTO;
+import com.dellin.mondoc.model.pojo.AuthDellin;
+import java.io.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import retrofit2.Call;
+import retrofit2.Response;
+
+import java.util.*;
+import java.util.stream.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DellinCredentialPoolTest {
+	
+	@InjectMocks
+	private DellinCredentialPool credentialPool;
+	@Mock
+	private SyncService syncService;
+	
+	@Before
+	public void setUp() {
+		ReflectionTestUtils.setField(credentialPool, "APPKEY", "appkey");
+		ReflectionTestUtils.setField(credentialPool, "LOGIN", "login");
+		ReflectionTestUtils.setField(credentialPool, "PASS", "pass");
+		credentialPool.setAccounts(Arrays.asList(
+				new DellinCredentialPool.Account("appkey2", "login2", "pass2"),
+				new DellinCredentialPool.Account("appkey3", "login", "pass3")));
+	}
+	
+	@Test
+	public void getAccounts() {
+		
+		List<DellinCredentialPool.Account> accounts = credentialPool.getAccounts();
+		
+		assertEquals(Arrays.asList("login", "login2"), accounts.stream()
+				.map(DellinCredentialPool.Account::getLogin)
+				.collect(Collectors.toList()));
+		assertEquals("appkey", accounts.get(0).getAppkey());
+		assertEquals("appkey2", credentialPool.getAccount("login2").getAppkey());
+	}
+	
+	@Test(expected = CustomException.class)
+	public void getAccount_notConfigured() {
+		
+		credentialPool.getAccount("unknown");
+	}
+	
+	@Test
+	public void login() throws IOException {
+		
+		IInterfaceManualLoad remoteData = mock(IInterfaceManualLoad.class);
+		when(syncService.getRemoteData()).thenReturn(remoteData);
+		@SuppressWarnings("unchecked")
+		Call<AuthDellin> call = (Call<AuthDellin>) mock(Call.class);
+		ArgumentCaptor<SessionDTO> sessionDTO = ArgumentCaptor.forClass(SessionDTO.class);
+		when(remoteData.login(sessionDTO.capture(), eq("appkey2"))).thenReturn(call);
+		
+		AuthDellin expectedAuthResponse = new AuthDellin();
+		AuthDellin.Data data = new AuthDellin.Data();
+		data.setSessionID("sessionId_2");
+		expectedAuthResponse.setData(data);
+		when(call.execute()).thenReturn(Response.success(expectedAuthResponse));
+		
+		String sessionID = credentialPool.login(credentialPool.getAccount("login2"));
+		
+		assertEquals("sessionId_2", sessionID);
+		verify(call).execute();
+		assertEquals("login2", sessionDTO.getValue().getLogin());
+		assertEquals("appkey2", sessionDTO.getValue().getAppkey());
+		assertEquals("pass2", sessionDTO.getValue().getPassword());
+	}
+}
@@ -0,0 +1,138 @@
+package com.dellin.mondoc.service.impl;
+
+import okhttp3.Request;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DellinRateGovernorTest {
+	
+	private static final String APPKEY = "appkey";
+	
+	private final DellinRateGovernor rateGovernor =
+			new DellinRateGovernor(300L, 1, 300L, 2, 300L, 1, 60L);
+	
+	@Test
+	public void getEndpoint() {
+		
+		assertEquals(DellinRateGovernor.LOGIN,
+				DellinRateGovernor.getEndpoint("/v3/auth/login.json"));
+		assertEquals(DellinRateGovernor.ORDERS,
+				DellinRateGovernor.getEndpoint("/v3/orders.json"));
+		assertEquals(DellinRateGovernor.PRINTABLE,
+				DellinRateGovernor.getEndpoint("/v1/printable.json"));
+	}
+	
+	@Test
+	public void acquire_burstThenInterval() throws InterruptedException {
+		
+		long start = System.nanoTime();
+		rateGovernor.acquire(DellinRateGovernor.ORDERS, APPKEY);
+		rateGovernor.acquire(DellinRateGovernor.ORDERS, APPKEY);
+		long burst = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		rateGovernor.acquire(DellinRateGovernor.ORDERS, APPKEY);
+		long third = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		
+		assertTrue(burst < 250L);
+		assertTrue(third >= 250L);
+	}
+	
+	@Test
+	public void getAppkey() {
+		
+		Request tagged = new Request.Builder().url("https://api.dellin.ru/v3/orders.json")
+				.tag(String.class, "key1")
+				.build();
+		Request untagged = new Request.Builder().url("https://api.dellin.ru/v1/info.json")
+				.build();
+		
+		assertEquals("key1", DellinRateGovernor.getAppkey(tagged));
+		assertEquals(DellinRateGovernor.DEFAULT_ACCOUNT,
+				DellinRateGovernor.getAppkey(untagged));
+	}
+	
+	@Test
+	public void acquire_ownBudgetOfAppkey() throws InterruptedException {
+		
+		rateGovernor.acquire(DellinRateGovernor.LOGIN, APPKEY);
+		
+		long start = System.nanoTime();
+		rateGovernor.acquire(DellinRateGovernor.LOGIN, "other");
+		long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		
+		assertTrue(waited < 250L);
+		assertTrue(rateGovernor.getMetrics()
+				.stream()
+				.anyMatch(m -> m.getAccount().equals("othe***") && m.getPermits() == 1));
+	}
+	
+	@Test
+	public void acquire_idleAppkeyDropped() throws InterruptedException {
+		
+		DellinRateGovernor governor =
+				new DellinRateGovernor(300L, 1, 300L, 1, 300L, 1, 0L);
+		governor.acquire(DellinRateGovernor.ORDERS, "first");
+		Thread.sleep(1L);
+		governor.acquire(DellinRateGovernor.ORDERS, "second");
+		
+		assertFalse(governor.getMetrics()
+				.stream()
+				.anyMatch(m -> m.getAccount().equals("firs***")));
+		assertTrue(governor.getMetrics()
+				.stream()
+				.anyMatch(m -> m.getAccount().equals("seco***")));
+	}
+	
+	@Test
+	public void acquire_interactiveLaneFirst() throws Exception {
+		
+		rateGovernor.acquire(DellinRateGovernor.PRINTABLE, APPKEY);
+		
+		List<DellinRateGovernor.Lane> served =
+				Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch backgroundWaiting = new CountDownLatch(1);
+		
+		Thread background = new Thread(() -> {
+			DellinRateGovernor.setLane(DellinRateGovernor.Lane.BACKGROUND);
+			backgroundWaiting.countDown();
+			try {
+				rateGovernor.acquire(DellinRateGovernor.PRINTABLE, APPKEY);
+				served.add(DellinRateGovernor.Lane.BACKGROUND);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		Thread interactive = new Thread(() -> {
+			try {
+				rateGovernor.acquire(DellinRateGovernor.PRINTABLE, APPKEY);
+				served.add(DellinRateGovernor.Lane.INTERACTIVE);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		
+		background.start();
+		backgroundWaiting.await();
+		Thread.sleep(50L);
+		interactive.start();
+		background.join();
+		interactive.join();
+		
+		assertEquals(Arrays.asList(DellinRateGovernor.Lane.INTERACTIVE,
+				DellinRateGovernor.Lane.BACKGROUND), served);
+		
+		DellinRateGovernor.WaitMetrics metrics = rateGovernor.getMetrics()
+				.stream()
+				.filter(m -> m.getEndpoint().equals(DellinRateGovernor.PRINTABLE))
+				.filter(m -> m.getLane() == DellinRateGovernor.Lane.BACKGROUND)
+				.findFirst()
+				.orElseThrow();
+		assertEquals(1L, metrics.getPermits());
+		assertTrue(metrics.getMaxWaitMs() >= 250L);
+	}
+}
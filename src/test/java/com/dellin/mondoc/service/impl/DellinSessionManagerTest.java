@@ -0,0 +1,168 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.exceptions.CustomException;
+import com.dellin.mondoc.model.entity.Session;
+import com.dellin.mondoc.model.enums.EntityStatus;
+import com.dellin.mondoc.model.repository.SessionRepository;
+import com.dellin.mondoc.utils.EncodingUtil;
+import java.io.*;
+import java.time.LocalDateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpStatus;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DellinSessionManagerTest {
+	
+	private final DellinCredentialPool.Account account =
+			new DellinCredentialPool.Account("appkey", "login", "pass");
+	@InjectMocks
+	private DellinSessionManager sessionManager;
+	@Mock
+	private DellinCredentialPool credentialPool;
+	@Mock
+	private SessionRepository sessionRepository;
+	@Spy
+	private SessionCredentialCache credentialCache = new SessionCredentialCache();
+	
+	@Before
+	public void setUp() {
+		sessionManager.ttlMinutes = 60;
+		sessionManager.refreshAheadMinutes = 10;
+		credentialCache.ttlSeconds = 300;
+	}
+	
+	@Test
+	public void getSessionID_cached() throws IOException {
+		
+		when(credentialPool.login(account)).thenReturn("session_1");
+		
+		assertEquals("session_1", sessionManager.getSessionID(account));
+		assertEquals("session_1", sessionManager.getSessionID(account));
+		
+		verify(credentialPool, times(1)).login(account);
+	}
+	
+	@Test
+	public void getSessionID_expired() throws IOException {
+		
+		sessionManager.ttlMinutes = 0;
+		when(credentialPool.login(account)).thenReturn("session_1", "session_2");
+		
+		assertEquals("session_1", sessionManager.getSessionID(account));
+		assertEquals("session_2", sessionManager.getSessionID(account));
+	}
+	
+	@Test
+	public void getSessionID_loginFailed() throws IOException {
+		
+		when(credentialPool.login(account)).thenThrow(new IOException("wrong password"));
+		
+		try {
+			sessionManager.getSessionID(account);
+			fail();
+		} catch (CustomException e) {
+			assertEquals(HttpStatus.UNAUTHORIZED, e.getStatus());
+		}
+	}
+	
+	@Test
+	public void getSessionID_storedSession() throws IOException {
+		
+		Session session = getSession(LocalDateTime.now().minusMinutes(5));
+		
+		assertEquals("stored", sessionManager.getSessionID(session));
+		
+		verify(credentialPool, never()).login(any(DellinCredentialPool.Account.class));
+	}
+	
+	@Test
+	public void getSessionID_storedSessionExpired() throws IOException {
+		
+		Session session = getSession(LocalDateTime.now().minusHours(2));
+		when(credentialPool.login(any(DellinCredentialPool.Account.class))).thenReturn(
+				"fresh");
+		when(sessionRepository.findById(1L)).thenReturn(Optional.of(session));
+		
+		assertEquals("fresh", sessionManager.getSessionID(session));
+		
+		assertEquals("fresh", EncodingUtil.getDecrypted(session.getSessionDl()));
+		verify(sessionRepository).save(session);
+	}
+	
+	@Test(expected = CustomException.class)
+	public void getSessionID_closed() {
+		
+		Session session = getSession(LocalDateTime.now());
+		session.setStatus(EntityStatus.DELETED);
+		
+		sessionManager.getSessionID(session);
+	}
+	
+	@Test
+	public void renew() throws IOException {
+		
+		when(credentialPool.login(account)).thenReturn("session_1", "session_2");
+		sessionManager.getSessionID(account);
+		
+		assertEquals("session_2", sessionManager.renew(account, "session_1"));
+		assertEquals("session_2", sessionManager.renew(account, "session_1"));
+		assertEquals("session_2", sessionManager.getSessionID(account));
+		
+		verify(credentialPool, times(2)).login(account);
+	}
+	
+	@Test
+	public void refreshExpiring() throws IOException {
+		
+		sessionManager.refreshAheadMinutes = 61;
+		when(credentialPool.login(account)).thenReturn("session_1", "session_2");
+		sessionManager.getSessionID(account);
+		
+		sessionManager.refreshExpiring();
+		
+		assertEquals("session_2", sessionManager.getSessionID(account));
+	}
+	
+	@Test
+	public void invalidate() throws IOException {
+		
+		Session session = getSession(LocalDateTime.now().minusHours(2));
+		when(credentialPool.login(any(DellinCredentialPool.Account.class))).thenReturn(
+				"fresh");
+		sessionManager.getSessionID(session);
+		
+		sessionManager.invalidate(session);
+		session.setSessionDl(EncodingUtil.getEncrypted("relogged"));
+		session.setUpdatedAt(LocalDateTime.now());
+		
+		assertEquals("relogged", sessionManager.getSessionID(session));
+	}
+	
+	private Session getSession(LocalDateTime updatedAt) {
+		Session session = new Session();
+		session.setId(1L);
+		session.setAppkey(EncodingUtil.getEncrypted("appkey"));
+		session.setLogin(EncodingUtil.getEncrypted("user_login"));
+		session.setPassword(EncodingUtil.getEncrypted("user_pass"));
+		session.setSessionDl(EncodingUtil.getEncrypted("stored"));
+		session.setUpdatedAt(updatedAt);
+		session.setStatus(EntityStatus.UPDATED);
+		return session;
+	}
+}
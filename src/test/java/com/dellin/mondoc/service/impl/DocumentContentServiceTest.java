@@ -0,0 +1,242 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.exceptions.CustomException;
+import com.dellin.mondoc.model.entity.Document;
+import com.dellin.mondoc.model.enums.OrderDocType;
+import com.dellin.mondoc.model.pojo.StorageReport;
+import com.dellin.mondoc.model.repository.DocumentContentRepository;
+import com.dellin.mondoc.model.repository.DocumentRepository;
+import java.io.*;
+import java.nio.charset.*;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.core.io.Resource;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.util.StreamUtils;
+
+import java.util.*;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DocumentContentServiceTest {
+	
+	@InjectMocks
+	private DocumentContentService documentContentService;
+	@Mock
+	private DocumentContentRepository documentContentRepository;
+	@Mock
+	private DocumentRepository documentRepository;
+	@Spy
+	private TransactionOperations transactionOperations =
+			TransactionOperations.withoutTransaction();
+	
+	@Test
+	public void store() {
+		
+		byte[] data = new byte[1000];
+		Arrays.fill(data, (byte) '%');
+		String hash = DocumentContentService.getHash(data);
+		when(documentContentRepository.insertOrReference(any(byte[].class), eq(1000L),
+				anyLong(), eq(true), eq(hash))).thenReturn(2L);
+		
+		Document document = new Document();
+		document.setContentId(1L);
+		document.setContentHash("previous");
+		
+		documentContentService.store(document,
+				Base64.getEncoder().encodeToString(data));
+		
+		assertEquals(Long.valueOf(2L), document.getContentId());
+		assertEquals(Long.valueOf(data.length), document.getContentSize());
+		assertEquals(hash, document.getContentHash());
+		assertEquals(64, document.getContentHash().length());
+		verify(documentContentRepository).decrementRefCount(1L);
+		verify(documentContentRepository).deleteUnreferenced(1L);
+	}
+	
+	@Test
+	public void store_duplicate() {
+		
+		byte[] data = "%PDF-1.4".getBytes(StandardCharsets.US_ASCII);
+		String hash = DocumentContentService.getHash(data);
+		when(documentContentRepository.incrementRefCount(hash)).thenReturn(1);
+		when(documentContentRepository.findIdByHash(hash)).thenReturn(Optional.of(5L));
+		
+		Document document = new Document();
+		
+		documentContentService.store(document,
+				Base64.getEncoder().encodeToString(data));
+		
+		assertEquals(Long.valueOf(5L), document.getContentId());
+		verify(documentContentRepository, never()).insertOrReference(any(byte[].class),
+				anyLong(), anyLong(), anyBoolean(), anyString());
+	}
+	
+	@Test
+	public void store_sameData() {
+		
+		byte[] data = "%PDF-1.4".getBytes(StandardCharsets.US_ASCII);
+		Document document = new Document();
+		document.setContentId(5L);
+		document.setContentHash(DocumentContentService.getHash(data));
+		
+		documentContentService.store(document,
+				Base64.getEncoder().encodeToString(data));
+		
+		assertEquals(Long.valueOf(5L), document.getContentId());
+		verify(documentContentRepository, never()).incrementRefCount(anyString());
+		verify(documentContentRepository, never()).decrementRefCount(5L);
+	}
+	
+	@Test(expected = CustomException.class)
+	public void getContent_notFetched() {
+		
+		documentContentService.getContent(new Document());
+	}
+	
+	@Test
+	public void getResource() throws IOException {
+		
+		byte[] data = new byte[DocumentContentResource.CHUNK_SIZE * 2 + 100];
+		new Random(1).nextBytes(data);
+		Resource resource = getResource(data, data, false);
+		
+		assertEquals(data.length, resource.contentLength());
+		assertEquals("bill_0x1.pdf", resource.getFilename());
+		assertArrayEquals(data, StreamUtils.copyToByteArray(resource.getInputStream()));
+		
+		InputStream range = resource.getInputStream();
+		long start = DocumentContentResource.CHUNK_SIZE + 10;
+		assertEquals(start, range.skip(start));
+		assertEquals(data[(int) start] & 0xff, range.read());
+		verify(documentContentRepository).findChunk(1L, start + 1,
+				DocumentContentResource.CHUNK_SIZE);
+	}
+	
+	@Test
+	public void getResource_compressed() throws IOException {
+		
+		byte[] data = new byte[DocumentContentResource.CHUNK_SIZE * 3];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i % 7);
+		}
+		Resource resource = getResource(data, DocumentContentService.compress(data),
+				true);
+		
+		assertEquals(data.length, resource.contentLength());
+		assertArrayEquals(data, StreamUtils.copyToByteArray(resource.getInputStream()));
+		
+		InputStream range = resource.getInputStream();
+		assertEquals(100000, range.skip(100000));
+		assertEquals(data[100000], range.read());
+	}
+	
+	@Test(expected = CustomException.class)
+	public void getResource_notFetched() {
+		
+		documentContentService.getResource(new Document());
+	}
+	
+	@Test
+	public void getReport() {
+		
+		when(documentRepository.countByContentIdNotNull()).thenReturn(4L);
+		when(documentRepository.sumContentSize()).thenReturn(4000L);
+		when(documentContentRepository.count()).thenReturn(2L);
+		when(documentContentRepository.sumSize()).thenReturn(2000L);
+		when(documentContentRepository.sumStoredSize()).thenReturn(1000L);
+		
+		StorageReport report = documentContentService.getReport();
+		
+		assertEquals(4, report.getDocuments());
+		assertEquals(2, report.getContents());
+		assertEquals(4000, report.getRawBytes());
+		assertEquals(1000, report.getStoredBytes());
+		assertEquals(0.75, report.getSavedRatio(), 1e-9);
+	}
+	
+	@Test
+	public void reconcile() {
+		
+		documentContentService.reconcile();
+		
+		InOrder inOrder = inOrder(documentContentRepository);
+		inOrder.verify(documentContentRepository).mergeDuplicates();
+		inOrder.verify(documentContentRepository).recountReferences();
+		inOrder.verify(documentContentRepository).deleteAllUnreferenced();
+		inOrder.verify(documentContentRepository).createHashIndex();
+	}
+	
+	@Test
+	public void migrateLegacyPayloads() {
+		
+		byte[] data = "%PDF-1.4".getBytes(StandardCharsets.US_ASCII);
+		Document document = new Document();
+		document.setId(1L);
+		when(documentRepository.hasLegacyPayloadColumn()).thenReturn(true);
+		when(documentRepository.findLegacyPayloadIds(anyInt())).thenReturn(
+				Collections.singletonList(1L)).thenReturn(Collections.emptyList());
+		when(documentRepository.findById(1L)).thenReturn(Optional.of(document));
+		when(documentRepository.findLegacyPayload(1L)).thenReturn(
+				Base64.getEncoder().encodeToString(data));
+		
+		documentContentService.migrateLegacyPayloads();
+		
+		verify(transactionOperations).executeWithoutResult(any());
+		verify(documentRepository).save(document);
+		verify(documentRepository).clearLegacyPayload(1L);
+		verify(documentRepository).dropLegacyPayloadColumn();
+		assertEquals(Long.valueOf(data.length), document.getContentSize());
+	}
+	
+	@Test
+	public void migrateLegacyPayloads_noColumn() {
+		
+		documentContentService.migrateLegacyPayloads();
+		
+		verify(documentRepository, never()).dropLegacyPayloadColumn();
+	}
+	
+	@Test
+	public void getHash() {
+		
+		assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855",
+				DocumentContentService.getHash(new byte[0]));
+	}
+	
+	private Resource getResource(byte[] data, byte[] stored, boolean compressed) {
+		when(documentContentRepository.findCompressedById(1L)).thenReturn(
+				Optional.of(compressed));
+		when(documentContentRepository.findChunk(eq(1L), anyLong(), anyInt())).thenAnswer(
+				invocation -> {
+					int from = ((Long) invocation.getArgument(1)).intValue() - 1;
+					int length = invocation.getArgument(2);
+					return Arrays.copyOfRange(stored, Math.min(stored.length, from),
+							Math.min(stored.length, from + length));
+				});
+		
+		Document document = new Document();
+		document.setUid("0x1");
+		document.setType(OrderDocType.BILL);
+		document.setContentId(1L);
+		document.setContentSize((long) data.length);
+		return documentContentService.getResource(document);
+	}
+}
@@ -0,0 +1,236 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.exceptions.CustomException;
+import com.dellin.mondoc.model.entity.Company;
+import com.dellin.mondoc.model.entity.Document;
+import com.dellin.mondoc.model.entity.DocumentFetchTask;
+import com.dellin.mondoc.model.enums.DocumentFetchFailure;
+import com.dellin.mondoc.model.enums.DocumentFetchPriority;
+import com.dellin.mondoc.model.repository.DocumentFetchTaskRepository;
+import java.io.*;
+import java.net.SocketTimeoutException;
+import java.time.LocalDateTime;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DocumentFetchQueueTest {
+	
+	@InjectMocks
+	private DocumentFetchQueue documentFetchQueue;
+	@Mock
+	private DocumentFetchTaskRepository documentFetchTaskRepository;
+	
+	@Test
+	public void enqueue() {
+		
+		when(documentFetchTaskRepository.enqueueByUids(eq(Collections.singleton("0x1")),
+				eq(DocumentFetchPriority.RECENT.ordinal()), any(LocalDateTime.class)))
+				.thenReturn(1);
+		
+		assertEquals(1, documentFetchQueue.enqueue(Collections.singleton("0x1"),
+				DocumentFetchPriority.RECENT));
+	}
+	
+	@Test
+	public void enqueue_empty() {
+		
+		assertEquals(0, documentFetchQueue.enqueue(Collections.emptySet(),
+				DocumentFetchPriority.RECENT));
+		verify(documentFetchTaskRepository, never()).enqueueByUids(anyCollection(),
+				anyInt(), any(LocalDateTime.class));
+	}
+	
+	@Test
+	public void enqueueByCompanies() {
+		
+		Company company = new Company();
+		company.setId(7L);
+		
+		documentFetchQueue.enqueueByCompanies(Collections.singleton(company),
+				DocumentFetchPriority.REQUESTED);
+		
+		verify(documentFetchTaskRepository).enqueueByCompanies(
+				eq(Collections.singletonList(7L)), eq(0), any(LocalDateTime.class));
+	}
+	
+	@Test
+	public void lease() {
+		
+		documentFetchQueue.leaseMinutes = 10;
+		Document document = new Document();
+		document.setUid("0x1");
+		DocumentFetchTask task = new DocumentFetchTask();
+		task.setDocument(document);
+		task.setPriority(DocumentFetchPriority.BACKLOG);
+		when(documentFetchTaskRepository.findAvailable(any(LocalDateTime.class),
+				eq(50))).thenReturn(Collections.singletonList(task));
+		
+		List<Document> documents = documentFetchQueue.lease("scheduled-documents", 50);
+		
+		assertEquals(Collections.singletonList(document), documents);
+		assertEquals("scheduled-documents", task.getLeaseOwner());
+		assertEquals(1, task.getAttempts());
+		assertTrue(task.getLeasedUntil().isAfter(LocalDateTime.now().plusMinutes(9)));
+		verify(documentFetchTaskRepository).saveAll(Collections.singletonList(task));
+	}
+	
+	@Test
+	public void lease_noCompanies() {
+		
+		assertTrue(documentFetchQueue.lease("documents", Collections.emptySet(), 50)
+				.isEmpty());
+		verify(documentFetchTaskRepository, never()).findAvailableByCompanies(
+				anyCollection(), any(LocalDateTime.class), anyInt());
+	}
+	
+	@Test
+	public void fail_transient() {
+		
+		DocumentFetchTask task = getFailedTask(0);
+		
+		assertEquals(DocumentFetchFailure.TRANSIENT,
+				documentFetchQueue.fail(task.getDocument(), 503, "Service Unavailable"));
+		
+		assertEquals(1, task.getFailures());
+		assertNull(task.getLeaseOwner());
+		assertNull(task.getDeadAt());
+		assertTrue(task.getRetryAt().isAfter(LocalDateTime.now().plusMinutes(14)));
+		assertEquals(Integer.valueOf(503), task.getLastStatus());
+		verify(documentFetchTaskRepository).save(task);
+	}
+	
+	@Test
+	public void fail_permanent() {
+		
+		DocumentFetchTask task = getFailedTask(0);
+		
+		assertEquals(DocumentFetchFailure.PERMANENT,
+				documentFetchQueue.fail(task.getDocument(), 404, "Not Found"));
+		
+		assertNotNull(task.getDeadAt());
+		assertEquals("Not Found", task.getLastError());
+	}
+	
+	@Test
+	public void fail_maxFailures() {
+		
+		DocumentFetchTask task = getFailedTask(5);
+		
+		documentFetchQueue.fail(task.getDocument(), 0, "timeout");
+		
+		assertEquals(6, task.getFailures());
+		assertNotNull(task.getDeadAt());
+	}
+	
+	@Test
+	public void fail_session() {
+		
+		DocumentFetchTask task = getFailedTask(2);
+		
+		assertEquals(DocumentFetchFailure.SESSION,
+				documentFetchQueue.fail(task.getDocument(), 401, "Unauthorized"));
+		
+		assertEquals(2, task.getFailures());
+		assertNull(task.getRetryAt());
+		assertNull(task.getLeasedUntil());
+	}
+	
+	@Test
+	public void classify() {
+		
+		assertEquals(DocumentFetchFailure.TRANSIENT, DocumentFetchFailure.of(0));
+		assertEquals(DocumentFetchFailure.TRANSIENT, DocumentFetchFailure.of(200));
+		assertEquals(DocumentFetchFailure.TRANSIENT, DocumentFetchFailure.of(429));
+		assertEquals(DocumentFetchFailure.TRANSIENT, DocumentFetchFailure.of(502));
+		assertEquals(DocumentFetchFailure.PERMANENT, DocumentFetchFailure.of(400));
+		assertEquals(DocumentFetchFailure.PERMANENT, DocumentFetchFailure.of(403));
+	}
+	
+	@Test
+	public void isStopped() {
+		
+		Thread thread = new Thread(() -> {});
+		
+		assertTrue(DocumentFetchQueue.isStopped(thread,
+				new InterruptedIOException("interrupted")));
+		assertFalse(DocumentFetchQueue.isStopped(thread,
+				new SocketTimeoutException("timeout")));
+		assertFalse(DocumentFetchQueue.isStopped(thread, new IOException("reset")));
+		thread.interrupt();
+		assertTrue(DocumentFetchQueue.isStopped(thread, new IOException("reset")));
+	}
+	
+	@Test
+	public void getBackoff() {
+		
+		documentFetchQueue.retryBaseMinutes = 15;
+		documentFetchQueue.retryMaxMinutes = 1440;
+		
+		assertEquals(15, documentFetchQueue.getBackoff(1));
+		assertEquals(60, documentFetchQueue.getBackoff(3));
+		assertEquals(1440, documentFetchQueue.getBackoff(8));
+		assertEquals(1440, documentFetchQueue.getBackoff(100));
+	}
+	
+	@Test
+	public void retry() {
+		
+		DocumentFetchTask task = new DocumentFetchTask();
+		task.setFailures(6);
+		task.setDeadAt(LocalDateTime.now());
+		task.setPriority(DocumentFetchPriority.BACKLOG);
+		when(documentFetchTaskRepository.findById(1L)).thenReturn(Optional.of(task));
+		
+		documentFetchQueue.retry(1L);
+		
+		assertNull(task.getDeadAt());
+		assertEquals(0, task.getFailures());
+		assertEquals(DocumentFetchPriority.REQUESTED, task.getPriority());
+		verify(documentFetchTaskRepository).save(task);
+	}
+	
+	@Test(expected = CustomException.class)
+	public void retry_notDead() {
+		
+		when(documentFetchTaskRepository.findById(1L)).thenReturn(
+				Optional.of(new DocumentFetchTask()));
+		
+		documentFetchQueue.retry(1L);
+	}
+	
+	private DocumentFetchTask getFailedTask(int failures) {
+		documentFetchQueue.retryBaseMinutes = 15;
+		documentFetchQueue.retryMaxMinutes = 1440;
+		documentFetchQueue.maxFailures = 6;
+		
+		Document document = new Document();
+		document.setUid("0x1");
+		DocumentFetchTask task = new DocumentFetchTask();
+		task.setDocument(document);
+		task.setFailures(failures);
+		task.setLeaseOwner("scheduled-documents");
+		task.setLeasedUntil(LocalDateTime.now().plusMinutes(10));
+		when(documentFetchTaskRepository.findByDocument(document)).thenReturn(
+				Optional.of(task));
+		return task;
+	}
+}
@@ -0,0 +1,137 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.model.entity.Company;
+import com.dellin.mondoc.model.entity.Document;
+import com.dellin.mondoc.model.entity.Order;
+import com.dellin.mondoc.model.entity.OrderView;
+import com.dellin.mondoc.model.entity.Session;
+import com.dellin.mondoc.model.entity.User;
+import com.dellin.mondoc.model.enums.EntityStatus;
+import com.dellin.mondoc.model.enums.OrderDocType;
+import com.dellin.mondoc.model.pojo.DocumentRequest;
+import com.dellin.mondoc.model.pojo.DocumentResponse;
+import com.dellin.mondoc.model.repository.DocumentRepository;
+import com.dellin.mondoc.model.repository.OrderRepository;
+import com.dellin.mondoc.model.repository.OrderViewRepository;
+import com.dellin.mondoc.service.RoleService;
+import com.dellin.mondoc.service.UserService;
+import java.io.*;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import retrofit2.Call;
+import retrofit2.Response;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the manual update of documents against the database, without the transaction
+ * of test, so the documents are written only in the transactions the service opens
+ * itself
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties =
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({DocumentServiceImpl.class, OrderViewService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class DocumentServiceImplSyncTest {
+	
+	@Autowired
+	private DocumentServiceImpl documentService;
+	@Autowired
+	private OrderViewService orderViewService;
+	@Autowired
+	private OrderRepository orderRepository;
+	@Autowired
+	private DocumentRepository documentRepository;
+	@Autowired
+	private OrderViewRepository orderViewRepository;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@MockBean
+	private UserService userService;
+	@MockBean
+	private RoleService roleService;
+	@MockBean
+	private SyncService syncService;
+	@MockBean
+	private SyncJobRegistry syncJobRegistry;
+	@MockBean
+	private DocumentFetchQueue documentFetchQueue;
+	@MockBean
+	private DocumentContentService documentContentService;
+	@MockBean
+	private DellinSessionManager sessionManager;
+	@MockBean
+	private UserPrincipalCache userPrincipalCache;
+	
+	@After
+	public void tearDown() {
+		JdbcTestUtils.deleteFromTables(jdbcTemplate, "order_view", "orders_documents",
+				"companies_orders", "documents", "orders", "companies");
+	}
+	
+	@Test
+	public void extracted_documentReady() throws IOException {
+		
+		Company company = new Company();
+		company.setName("company");
+		company.setInn("123456789");
+		Order order = new Order();
+		order.setDocId("10");
+		order.setUid("uid-10");
+		order.setCompany(company);
+		Document giveout = new Document();
+		giveout.setUid("uid-giveout");
+		giveout.setType(OrderDocType.GIVEOUT);
+		giveout.setOrder(order);
+		order.getDocuments().add(giveout);
+		Long orderId = orderRepository.save(order).getId();
+		orderViewService.fill();
+		Document document = documentRepository.findAll().get(0);
+		
+		IInterfaceManualLoad remoteData = mock(IInterfaceManualLoad.class);
+		when(syncService.getRemoteData()).thenReturn(remoteData);
+		@SuppressWarnings("unchecked")
+		Call<DocumentResponse> call = (Call<DocumentResponse>) mock(Call.class);
+		when(remoteData.getPrintableDoc(any(DocumentRequest.class), anyString()))
+				.thenReturn(call);
+		DocumentResponse.Data data = new DocumentResponse.Data();
+		data.setUrls(List.of("url"));
+		DocumentResponse response = new DocumentResponse();
+		response.setData(List.of(data));
+		when(call.execute()).thenReturn(Response.success(response));
+		when(sessionManager.getAccount(any())).thenReturn(
+				new DellinCredentialPool.Account("appkey", "login", "pass"));
+		
+		User user = new User();
+		user.setSession(new Session());
+		SyncJob job = new SyncJob(SyncJobRegistry.DOCUMENTS, "test@test.com",
+				"documents");
+		job.setThread(Thread.currentThread());
+		
+		documentService.extracted(job, 0, List.of(document), user);
+		
+		assertEquals("url", documentRepository.findById(document.getId())
+				.orElseThrow()
+				.getUrl());
+		OrderView view = orderViewRepository.findById(orderId).orElseThrow();
+		assertEquals(OrderDocType.GIVEOUT.getBit(), view.getDocumentsReady());
+		assertEquals(EntityStatus.UPDATED, view.getStatus());
+	}
+}
@@ -1,13 +1,16 @@
 package com.dellin.mondoc.service.impl;
 
+import com.dellin.mondoc.exceptions.CustomException;
 import com.dellin.mondoc.model.entity.Company;
 import com.dellin.mondoc.model.entity.Document;
 import com.dellin.mondoc.model.entity.Order;
 import com.dellin.mondoc.model.entity.Session;
 import com.dellin.mondoc.model.entity.User;
+import com.dellin.mondoc.model.enums.DocumentFetchPriority;
 import com.dellin.mondoc.model.enums.OrderDocType;
 import com.dellin.mondoc.model.pojo.DocumentRequest;
 import com.dellin.mondoc.model.pojo.DocumentResponse;
+import com.dellin.mondoc.model.pojo.UserPrincipal;
 import com.dellin.mondoc.model.repository.DocumentRepository;
 import com.dellin.mondoc.service.UserService;
 import com.dellin.mondoc.utils.EncodingUtil;
@@ -16,28 +19,36 @@ import okhttp3.MediaType;
 import okhttp3.ResponseBody;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionOperations;
 import retrofit2.Call;
 import retrofit2.Response;
 
 import java.util.*;
+import java.util.function.*;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -57,6 +68,24 @@ public class DocumentServiceImplTest {
 	@Mock
 	private SyncService syncService;
 	
+	@Mock
+	private SyncJobRegistry syncJobRegistry;
+	
+	@Mock
+	private DocumentFetchQueue documentFetchQueue;
+	
+	@Mock
+	private DocumentContentService documentContentService;
+	@Mock
+	private DellinSessionManager sessionManager;
+	@Mock
+	private UserPrincipalCache userPrincipalCache;
+	@Mock
+	private OrderViewService orderViewService;
+	@Spy
+	private TransactionOperations transactionOperations =
+			TransactionOperations.withoutTransaction();
+	
 	@Test
 	public void update() throws IOException {
 		
@@ -81,6 +110,8 @@ public class DocumentServiceImplTest {
 		User user = new User();
 		user.setEmail(name);
 		user.setSession(session);
+		when(sessionManager.getAccount(session)).thenReturn(
+				new DellinCredentialPool.Account("appkey", "login", "pass"));
 		user.setCompanies(set);
 		
 		Order orderEnt = new Order();
@@ -96,8 +127,8 @@ public class DocumentServiceImplTest {
 		
 		when(userService.getUser(anyString())).thenReturn(user);
 		
-		when(documentRepository.findByBase64NullAndOrder_Company(
-				any(Company.class))).thenReturn(documentsEnt);
+		when(documentFetchQueue.lease(SyncJobRegistry.DOCUMENTS, set, 0)).thenReturn(
+				documentsEnt).thenReturn(Collections.emptyList());
 		
 		IInterfaceManualLoad remoteData = mock(IInterfaceManualLoad.class);
 		when(syncService.getRemoteData()).thenReturn(remoteData);
@@ -117,10 +148,66 @@ public class DocumentServiceImplTest {
 		expectedDocumentResponse.setMetadata(metadata);
 		expectedDocumentResponse.setData(responseDataCollection);
 		
-		when(remoteData.getPrintableDoc(any(DocumentRequest.class))).thenReturn(call);
+		when(remoteData.getPrintableDoc(any(DocumentRequest.class), anyString()))
+				.thenReturn(call);
 		when(call.execute()).thenReturn(expectedResponse);
 		
 		documentService.update();
+		
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<Consumer<SyncJob>> task =
+				ArgumentCaptor.forClass(Consumer.class);
+		verify(syncJobRegistry).start(eq(SyncJobRegistry.DOCUMENTS), eq(name),
+				eq("documents"), task.capture());
+		
+		SyncJob job = new SyncJob(SyncJobRegistry.DOCUMENTS, name, "documents");
+		job.setThread(Thread.currentThread());
+		task.getValue().accept(job);
+		assertEquals(1, job.getProgress().getDone());
+		assertEquals(Long.valueOf(1), job.getProgress().getTotal());
+		verify(documentFetchQueue).enqueueByCompanies(set,
+				DocumentFetchPriority.REQUESTED);
+		verify(documentFetchQueue).complete(documentEnt);
+		verify(documentFetchQueue).release(SyncJobRegistry.DOCUMENTS);
+	}
+	
+	@Test
+	public void update_failed() {
+		
+		String name = "test@test.com";
+		SecurityContext securityContext = mock(SecurityContext.class);
+		when(securityContext.getAuthentication()).thenReturn(
+				new UsernamePasswordAuthenticationToken(name, null));
+		SecurityContextHolder.setContext(securityContext);
+		
+		Session session = new Session();
+		User user = new User();
+		user.setEmail(name);
+		user.setSession(session);
+		user.setCompanies(Collections.emptySet());
+		when(userService.getUser(name)).thenReturn(user);
+		when(documentFetchQueue.lease(SyncJobRegistry.DOCUMENTS, user.getCompanies(),
+				0)).thenReturn(Collections.singletonList(new Document()));
+		when(sessionManager.getAccount(session)).thenThrow(
+				new IllegalStateException("Session not found"));
+		
+		documentService.update();
+		
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<Consumer<SyncJob>> task =
+				ArgumentCaptor.forClass(Consumer.class);
+		verify(syncJobRegistry).start(eq(SyncJobRegistry.DOCUMENTS), eq(name),
+				eq("documents"), task.capture());
+		
+		SyncJob job = new SyncJob(SyncJobRegistry.DOCUMENTS, name, "documents");
+		job.setThread(Thread.currentThread());
+		try {
+			task.getValue().accept(job);
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("Session not found", e.getMessage());
+		}
+		verify(documentFetchQueue).release(SyncJobRegistry.DOCUMENTS);
 	}
 	
 	@Test
@@ -149,6 +236,8 @@ public class DocumentServiceImplTest {
 		User user = new User();
 		user.setEmail(name);
 		user.setSession(session);
+		when(sessionManager.getAccount(session)).thenReturn(
+				new DellinCredentialPool.Account("appkey", "login", "pass"));
 		user.setCompanies(set);
 		
 		Order orderEnt = new Order();
@@ -165,8 +254,8 @@ public class DocumentServiceImplTest {
 		lenient().when(userService.getUser(anyString()))
 				.thenReturn(user);
 		
-		lenient().when(
-						documentRepository.findByBase64NullAndOrder_Company(any(Company.class)))
+		lenient().when(documentRepository.findActiveWithoutContentByCompany(
+						any(Company.class)))
 				.thenReturn(documentsEnt);
 		
 		IInterfaceManualLoad remoteData = mock(IInterfaceManualLoad.class);
@@ -187,12 +276,63 @@ public class DocumentServiceImplTest {
 		expectedDocumentResponse.setMetadata(metadata);
 		expectedDocumentResponse.setData(responseDataCollection);
 		
-		when(remoteData.getPrintableDoc(any(DocumentRequest.class))).thenReturn(call);
+		when(remoteData.getPrintableDoc(any(DocumentRequest.class), anyString()))
+				.thenReturn(call);
 		when(call.execute()).thenReturn(expectedResponse);
 		
-		documentService.extracted(currentThread, 0, documentsEnt, user);
+		SyncJob job = new SyncJob(SyncJobRegistry.DOCUMENTS, name, "documents");
+		job.setThread(currentThread);
 		
-		assertNotNull(documentEnt.getBase64());
+		documentService.extracted(job, 0, documentsEnt, user);
+		
+		verify(transactionOperations).executeWithoutResult(any());
+		verify(documentContentService).store(documentEnt, "base64");
+	}
+	
+	@Test
+	public void extracted_sessionRenewed() throws IOException {
+		
+		Session session = new Session();
+		session.setAppkey(EncodingUtil.getEncrypted("appkey"));
+		User user = new User();
+		user.setSession(session);
+		when(sessionManager.getAccount(session)).thenReturn(
+				new DellinCredentialPool.Account("appkey", "login", "pass"));
+		
+		Order orderEnt = new Order();
+		orderEnt.setDocId("orderDocId_1");
+		Document documentEnt = new Document();
+		documentEnt.setUid("0x1");
+		documentEnt.setOrder(orderEnt);
+		documentEnt.setType(OrderDocType.BILL);
+		
+		when(sessionManager.getSessionID(session)).thenReturn("expired");
+		when(sessionManager.renew(session, "expired")).thenReturn("renewed");
+		
+		IInterfaceManualLoad remoteData = mock(IInterfaceManualLoad.class);
+		when(syncService.getRemoteData()).thenReturn(remoteData);
+		@SuppressWarnings("unchecked")
+		Call<DocumentResponse> call = (Call<DocumentResponse>) mock(Call.class);
+		DocumentResponse documentResponse = new DocumentResponse();
+		DocumentResponse.Data data = new DocumentResponse.Data();
+		data.setBase64("base64");
+		documentResponse.setData(Collections.singletonList(data));
+		when(remoteData.getPrintableDoc(any(DocumentRequest.class), anyString()))
+				.thenReturn(call);
+		when(call.execute()).thenReturn(Response.error(401,
+						ResponseBody.create("", MediaType.parse("application/json"))))
+				.thenReturn(Response.success(documentResponse));
+		
+		SyncJob job = new SyncJob(SyncJobRegistry.DOCUMENTS, "test@test.com",
+				"documents");
+		job.setThread(Thread.currentThread());
+		
+		documentService.extracted(job, 0, Collections.singletonList(documentEnt), user);
+		
+		verify(call, times(2)).execute();
+		verify(documentContentService).store(documentEnt, "base64");
+		verify(documentFetchQueue, never()).fail(any(Document.class), anyInt(),
+				anyString());
 	}
 	
 	@Test
@@ -221,6 +361,8 @@ public class DocumentServiceImplTest {
 		User user = new User();
 		user.setEmail(name);
 		user.setSession(session);
+		when(sessionManager.getAccount(session)).thenReturn(
+				new DellinCredentialPool.Account("appkey", "login", "pass"));
 		user.setCompanies(set);
 		
 		Order orderEnt = new Order();
@@ -237,8 +379,8 @@ public class DocumentServiceImplTest {
 		lenient().when(userService.getUser(anyString()))
 				.thenReturn(user);
 		
-		lenient().when(
-						documentRepository.findByBase64NullAndOrder_Company(any(Company.class)))
+		lenient().when(documentRepository.findActiveWithoutContentByCompany(
+						any(Company.class)))
 				.thenReturn(documentsEnt);
 		
 		IInterfaceManualLoad remoteData = mock(IInterfaceManualLoad.class);
@@ -259,8 +401,18 @@ public class DocumentServiceImplTest {
 		expectedDocumentResponse.setMetadata(metadata);
 		expectedDocumentResponse.setData(responseDataCollection);
 		
-		when(remoteData.getPrintableDoc(any(DocumentRequest.class))).thenReturn(call);
-		when(call.execute()).thenReturn(expectedResponse);
+		when(remoteData.getPrintableDoc(any(DocumentRequest.class), anyString()))
+				.thenReturn(call);
+		// the rate governor keeps the thread waiting until the next permit
+		when(call.execute()).thenAnswer(invocation -> {
+			try {
+				Thread.sleep(5000L);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException(e.getMessage());
+			}
+			return expectedResponse;
+		});
 		
 		Runnable test = () -> {
 			Thread testThread = Thread.currentThread();
@@ -274,9 +426,61 @@ public class DocumentServiceImplTest {
 		Thread thread = new Thread(test);
 		thread.start();
 		
-		documentService.extracted(currentThread, 0, documentsEnt, user);
+		SyncJob job = new SyncJob(SyncJobRegistry.DOCUMENTS, name, "documents");
+		job.setThread(currentThread);
+		
+		documentService.extracted(job, 0, documentsEnt, user);
 		
 		assertThat(currentThread.isInterrupted(), is(true));
+		verify(documentFetchQueue, never()).fail(any(Document.class), anyInt(),
+				anyString());
+	}
+	
+	@Test
+	public void extracted_stopped() throws IOException {
+		
+		Session session = new Session();
+		User user = new User();
+		user.setSession(session);
+		when(sessionManager.getAccount(session)).thenReturn(
+				new DellinCredentialPool.Account("appkey", "login", "pass"));
+		
+		Order orderEnt = new Order();
+		orderEnt.setDocId("orderDocId_1");
+		Document first = new Document();
+		first.setUid("0x1");
+		first.setOrder(orderEnt);
+		first.setType(OrderDocType.BILL);
+		Document second = new Document();
+		second.setUid("0x2");
+		second.setOrder(orderEnt);
+		second.setType(OrderDocType.INVOICE);
+		
+		IInterfaceManualLoad remoteData = mock(IInterfaceManualLoad.class);
+		when(syncService.getRemoteData()).thenReturn(remoteData);
+		@SuppressWarnings("unchecked")
+		Call<DocumentResponse> call = (Call<DocumentResponse>) mock(Call.class);
+		when(remoteData.getPrintableDoc(any(DocumentRequest.class), anyString()))
+				.thenReturn(call);
+		// OkHttp cancels the call of the stopped job without the interrupted state
+		when(call.execute()).thenThrow(new InterruptedIOException("interrupted"));
+		
+		SyncJob job = new SyncJob(SyncJobRegistry.DOCUMENTS, "test@test.com",
+				"documents");
+		job.setThread(Thread.currentThread());
+		
+		try {
+			documentService.extracted(job, 0, List.of(first, second), user);
+			
+			assertThat(Thread.currentThread().isInterrupted(), is(true));
+		} finally {
+			Thread.interrupted();
+		}
+		verify(remoteData, times(1)).getPrintableDoc(any(DocumentRequest.class),
+				anyString());
+		verify(documentFetchQueue, never()).fail(any(Document.class), anyInt(),
+				anyString());
+		assertEquals(0, job.getProgress().getDone());
 	}
 	
 	@Test
@@ -305,6 +509,8 @@ public class DocumentServiceImplTest {
 		User user = new User();
 		user.setEmail(name);
 		user.setSession(session);
+		when(sessionManager.getAccount(session)).thenReturn(
+				new DellinCredentialPool.Account("appkey", "login", "pass"));
 		user.setCompanies(set);
 		
 		Order orderEnt = new Order();
@@ -321,8 +527,8 @@ public class DocumentServiceImplTest {
 		lenient().when(userService.getUser(anyString()))
 				.thenReturn(user);
 		
-		lenient().when(
-						documentRepository.findByBase64NullAndOrder_Company(any(Company.class)))
+		lenient().when(documentRepository.findActiveWithoutContentByCompany(
+						any(Company.class)))
 				.thenReturn(documentsEnt);
 		
 		IInterfaceManualLoad remoteData = mock(IInterfaceManualLoad.class);
@@ -333,13 +539,18 @@ public class DocumentServiceImplTest {
 		@SuppressWarnings("unchecked")
 		Response<DocumentResponse> expectedResponse = mock(Response.class);
 		
-		when(remoteData.getPrintableDoc(any(DocumentRequest.class))).thenReturn(call);
+		when(remoteData.getPrintableDoc(any(DocumentRequest.class), anyString()))
+				.thenReturn(call);
 		when(call.execute()).thenReturn(expectedResponse);
 		
-		documentService.extracted(currentThread, 0, documentsEnt, user);
+		SyncJob job = new SyncJob(SyncJobRegistry.DOCUMENTS, name, "documents");
+		job.setThread(currentThread);
+		
+		documentService.extracted(job, 0, documentsEnt, user);
 		
 		verify(call, times(1)).execute();
 		assertNull(call.execute().body());
+		verify(documentFetchQueue).fail(documentEnt, 0, "Unknown error");
 	}
 	
 	@Test
@@ -368,6 +579,8 @@ public class DocumentServiceImplTest {
 		User user = new User();
 		user.setEmail(name);
 		user.setSession(session);
+		when(sessionManager.getAccount(session)).thenReturn(
+				new DellinCredentialPool.Account("appkey", "login", "pass"));
 		user.setCompanies(set);
 		
 		Order orderEnt = new Order();
@@ -384,8 +597,8 @@ public class DocumentServiceImplTest {
 		lenient().when(userService.getUser(anyString()))
 				.thenReturn(user);
 		
-		lenient().when(
-						documentRepository.findByBase64NullAndOrder_Company(any(Company.class)))
+		lenient().when(documentRepository.findActiveWithoutContentByCompany(
+						any(Company.class)))
 				.thenReturn(documentsEnt);
 		
 		IInterfaceManualLoad remoteData = mock(IInterfaceManualLoad.class);
@@ -398,26 +611,29 @@ public class DocumentServiceImplTest {
 				ResponseBody.create("{\"error\":[\"some_api_error_response\"]}",
 						MediaType.parse("application/json")));
 		
-		when(remoteData.getPrintableDoc(any(DocumentRequest.class))).thenReturn(call);
+		when(remoteData.getPrintableDoc(any(DocumentRequest.class), anyString()))
+				.thenReturn(call);
 		when(call.execute()).thenReturn(expectedResponse);
 		
-		documentService.extracted(currentThread, 0, documentsEnt, user);
+		SyncJob job = new SyncJob(SyncJobRegistry.DOCUMENTS, name, "documents");
+		job.setThread(currentThread);
+		
+		documentService.extracted(job, 0, documentsEnt, user);
 		
 		verify(call, times(1)).execute();
 		assertNotNull(call.execute().errorBody());
+		verify(documentFetchQueue).fail(documentEnt, 403,
+				"{\"error\":[\"some_api_error_response\"]}");
 	}
 	
 	@Test
 	public void stopUpdate() {
 		
-		Thread thread = mock(Thread.class);
-		
-		documentService.setTaskThread(thread);
-		documentService.setInitializedThread(true);
+		when(syncJobRegistry.stop(SyncJobRegistry.DOCUMENTS)).thenReturn(true);
 		
 		documentService.stopUpdate();
 		
-		verify(thread, atLeastOnce()).interrupt();
+		verify(syncJobRegistry, atLeastOnce()).stop(SyncJobRegistry.DOCUMENTS);
 	}
 	
 	@Test
@@ -438,8 +654,9 @@ public class DocumentServiceImplTest {
 		documentEnt.setType(OrderDocType.BILL);
 		
 		documentService.updateDocData(documentEnt, responseDataCollection);
-		assertEquals(data.getBase64(), documentEnt.getBase64());
+		verify(documentContentService).store(documentEnt, data.getBase64());
 		verify(documentRepository, atLeastOnce()).save(any(Document.class));
+		verify(orderViewService, never()).markDocumentReady(any(Document.class));
 	}
 	
 	@Test
@@ -463,26 +680,27 @@ public class DocumentServiceImplTest {
 		documentEnt.setType(OrderDocType.GIVEOUT);
 		
 		documentService.updateDocData(documentEnt, responseDataCollection);
-		assertEquals(data.getBase64(), documentEnt.getBase64());
+		verify(documentContentService).store(documentEnt, data.getBase64());
 		verify(documentRepository, atLeastOnce()).save(any(Document.class));
+		verify(orderViewService).markDocumentReady(documentEnt);
 	}
 	
 	@Test
-	public void getDocsByBase64Null() {
+	public void getDocsWithoutContent() {
 		
 		Document document = new Document();
 		document.setUid("0x1");
 		List<Document> documents = Collections.singletonList(document);
 		
-		when(documentRepository.findByBase64Null()).thenReturn(documents);
+		when(documentRepository.findActiveWithoutContent()).thenReturn(documents);
 		
-		List<Document> result = documentService.getDocsByBase64Null();
+		List<Document> result = documentService.getDocsWithoutContent();
 		
 		assertEquals(document.getUid(), result.get(0).getUid());
 	}
 	
 	@Test
-	public void getDocsByBase64NullAndCompanies() {
+	public void getDocsWithoutContentAndCompanies() {
 		
 		Company companyOne = new Company();
 		Company companyTwo = new Company();
@@ -497,7 +715,7 @@ public class DocumentServiceImplTest {
 		orderThree.setCompany(companyOne);
 		
 		Document documentOne = new Document();
-		documentOne.setBase64("base64");
+		documentOne.setContentId(1L);
 		documentOne.setOrder(orderOne);
 		Document documentTwo = new Document();
 		documentTwo.setUid("0x1");
@@ -506,12 +724,62 @@ public class DocumentServiceImplTest {
 		Collection<Document> documents = Collections.singletonList(documentTwo);
 		Collection<Company> companies = Collections.singletonList(companyTwo);
 		
-		when(documentRepository.findByBase64NullAndOrder_Company(companyTwo)).thenReturn(
+		when(documentRepository.findActiveWithoutContentByCompany(companyTwo)).thenReturn(
 				documents);
 		
 		List<Document> result =
-				documentService.getDocsByBase64NullAndCompanies(companies);
+				documentService.getDocsWithoutContentAndCompanies(companies);
 		
 		assertEquals(documentTwo.getUid(), result.get(0).getUid());
 	}
+	
+	@Test
+	public void getDocument() {
+		
+		Document document = getDocument(false);
+		
+		assertEquals(document, documentService.getDocument("0x1", "bill"));
+	}
+	
+	@Test(expected = CustomException.class)
+	public void getDocument_notRoleAdmin() {
+		
+		getDocument(true);
+		
+		documentService.getDocument("0x1", "BILL");
+	}
+	
+	@Test(expected = CustomException.class)
+	public void getDocument_unknownType() {
+		
+		documentService.getDocument("0x1", "receipt");
+	}
+	
+	@Test(expected = CustomException.class)
+	public void getDocument_notFound() {
+		
+		when(documentRepository.findByUidAndType("0x1", OrderDocType.BILL)).thenReturn(
+				Optional.empty());
+		
+		documentService.getDocument("0x1", "bill");
+	}
+	
+	private Document getDocument(boolean basicRole) {
+		Company company = new Company();
+		company.setId(1L);
+		when(userPrincipalCache.getCurrent()).thenReturn(
+				new UserPrincipal(1L, "test@test.com", Set.of(1L),
+						Set.of(basicRole ? "ROLE_USER" : "ROLE_ADMIN")));
+		
+		Order order = new Order();
+		order.setCompany(company);
+		order.setComments(new ArrayList<>());
+		Document document = new Document();
+		document.setUid("0x1");
+		document.setType(OrderDocType.BILL);
+		document.setOrder(order);
+		when(documentRepository.findByUidAndType("0x1", OrderDocType.BILL)).thenReturn(
+				Optional.of(document));
+		return document;
+	}
 }
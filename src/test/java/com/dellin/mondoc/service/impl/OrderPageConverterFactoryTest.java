@@ -0,0 +1,122 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.model.pojo.DocumentResponse;
+import com.dellin.mondoc.model.pojo.OrderResponse;
+import com.google.gson.GsonBuilder;
+import java.io.*;
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.junit.Test;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class OrderPageConverterFactoryTest {
+	
+	private static final MediaType JSON = MediaType.get("application/json");
+	
+	private final Retrofit retrofit =
+			new Retrofit.Builder().baseUrl("https://api.dellin.ru").build();
+	
+	@SuppressWarnings("unchecked")
+	private final Converter<ResponseBody, OrderResponse> streaming =
+			(Converter<ResponseBody, OrderResponse>) new OrderPageConverterFactory()
+					.responseBodyConverter(OrderResponse.class, new Annotation[0],
+							retrofit);
+	
+	@SuppressWarnings("unchecked")
+	private final Converter<ResponseBody, OrderResponse> pojo =
+			(Converter<ResponseBody, OrderResponse>) GsonConverterFactory.create(
+							new GsonBuilder().setLenient().create())
+					.responseBodyConverter(OrderResponse.class, new Annotation[0],
+							retrofit);
+	
+	@Test
+	public void convert_sameAsPojo() throws IOException {
+		
+		String page = getPage(20);
+		
+		OrderResponse expected = pojo.convert(ResponseBody.create(page, JSON));
+		OrderResponse actual = streaming.convert(ResponseBody.create(page, JSON));
+		
+		assertEquals(expected.getMetadata(), actual.getMetadata());
+		assertEquals(expected.getDeleted(), actual.getDeleted());
+		assertEquals(expected.getOrders().size(), actual.getOrders().size());
+		
+		Iterator<OrderResponse.Order> actualOrders = actual.getOrders().iterator();
+		for (OrderResponse.Order e : expected.getOrders()) {
+			OrderResponse.Order a = actualOrders.next();
+			assertEquals(e.getOrderId(), a.getOrderId());
+			assertEquals(e.getState(), a.getState());
+			assertEquals(e.getStateDate(), a.getStateDate());
+			assertEquals(e.getDocuments().size(), a.getDocuments().size());
+			
+			Iterator<OrderResponse.Order.Document> actualDocs =
+					a.getDocuments().iterator();
+			for (OrderResponse.Order.Document ed : e.getDocuments()) {
+				OrderResponse.Order.Document ad = actualDocs.next();
+				assertEquals(ed.getId(), ad.getId());
+				assertEquals(ed.getUid(), ad.getUid());
+				assertEquals(ed.getType(), ad.getType());
+				assertEquals(ed.getPayer().getInn(), ad.getPayer().getInn());
+				assertEquals(ed.getPayer().getName(), ad.getPayer().getName());
+				assertEquals(ed.getAvailableDocs(), ad.getAvailableDocs());
+				assertNull(ad.getSender());
+				assertNull(ad.getServices());
+			}
+			assertNull(a.getDerival());
+			assertNull(a.getOrderDatesAdditional());
+		}
+	}
+	
+	@Test
+	public void convert_nullValues() throws IOException {
+		
+		OrderResponse response = streaming.convert(ResponseBody.create(
+				"{\"metadata\":null,\"orders\":[{\"state\":null,\"documents\":[{\"payer\""
+						+ ":null,\"availableDocs\":null}]}],\"deleted\":null}", JSON));
+		
+		assertNull(response.getMetadata());
+		assertNull(response.getDeleted());
+		OrderResponse.Order order = response.getOrders().iterator().next();
+		assertNull(order.getState());
+		assertNull(order.getDocuments().iterator().next().getPayer());
+	}
+	
+	@Test
+	public void responseBodyConverter_otherTypes() {
+		
+		assertNull(new OrderPageConverterFactory().responseBodyConverter(
+				DocumentResponse.class, new Annotation[0], retrofit));
+	}
+	
+	/**
+	 * Builds the page of orders from the recorded API Dellin order
+	 */
+	private static String getPage(int orders) throws IOException {
+		String order;
+		try (InputStream in = OrderPageConverterFactoryTest.class.getResourceAsStream(
+				"/dellin-order.json")) {
+			order = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		
+		StringJoiner page = new StringJoiner(",", "{\"metadata\":{\"status\":200,"
+				+ "\"currentPage\":1,\"nextPage\":2,\"prevPage\":null,\"totalPages\":7,"
+				+ "\"generatedAt\":\"2023-02-01 21:00:05\"},\"orders\":[",
+				"],\"deleted\":[\"100500\"]}");
+		for (int i = 0; i < orders; i++) {
+			page.add(order.replace("ORDER_ID", "order" + i)
+					.replace("DOC_ID", "id" + i)
+					.replace("DOC_UID", "0x" + i)
+					.replace("PAYER_INN", String.valueOf(7700000000L + i % 10)));
+		}
+		return page.toString();
+	}
+}
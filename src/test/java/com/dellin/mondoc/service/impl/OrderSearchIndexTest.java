@@ -0,0 +1,72 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.model.entity.Comment;
+import com.dellin.mondoc.model.entity.Order;
+import com.dellin.mondoc.model.repository.OrderRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.dao.InvalidDataAccessResourceUsageException;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OrderSearchIndexTest {
+	
+	@InjectMocks
+	private OrderSearchIndex searchIndex;
+	@Mock
+	private OrderRepository orderRepository;
+	
+	@Test
+	public void getSearchText() {
+		
+		Order order = new Order();
+		order.setDocId("11-22");
+		order.setUid("0xAB");
+		Comment comment = new Comment();
+		comment.setText("Доставить ЗАВТРА");
+		order.setComments(List.of(comment, new Comment()));
+		
+		assertEquals("11-22 0xab доставить завтра", OrderSearchIndex.getSearchText(order));
+	}
+	
+	@Test
+	public void getSearchText_newOrder() {
+		
+		Order order = new Order();
+		order.setDocId("11-22");
+		
+		assertEquals("11-22", OrderSearchIndex.getSearchText(order));
+	}
+	
+	@Test
+	public void createIndexes_noExtension() {
+		
+		doThrow(new InvalidDataAccessResourceUsageException("permission denied")).when(
+				orderRepository).createTrigramExtension();
+		
+		searchIndex.createIndexes();
+		
+		verify(orderRepository, never()).createSearchIndex();
+	}
+	
+	@Test
+	public void fill() {
+		
+		when(orderRepository.fillSearchText(1000)).thenReturn(1000, 10, 0);
+		
+		searchIndex.fill();
+		
+		verify(orderRepository, times(3)).fillSearchText(1000);
+	}
+}
@@ -0,0 +1,576 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.exceptions.CustomException;
+import com.dellin.mondoc.model.entity.Comment;
+import com.dellin.mondoc.model.entity.Company;
+import com.dellin.mondoc.model.entity.Document;
+import com.dellin.mondoc.model.entity.Order;
+import com.dellin.mondoc.model.entity.OrderView;
+import com.dellin.mondoc.model.entity.User;
+import com.dellin.mondoc.model.enums.EntityStatus;
+import com.dellin.mondoc.model.enums.OrderDocType;
+import com.dellin.mondoc.model.pojo.CommentHistory;
+import com.dellin.mondoc.model.pojo.OrderFilter;
+import com.dellin.mondoc.model.pojo.OrderModel;
+import com.dellin.mondoc.model.pojo.OrderResponse;
+import com.dellin.mondoc.model.pojo.UserPrincipal;
+import com.dellin.mondoc.model.repository.CompanyRepository;
+import com.dellin.mondoc.model.repository.DocumentRepository;
+import com.dellin.mondoc.model.repository.OrderRepository;
+import com.dellin.mondoc.service.RoleService;
+import com.dellin.mondoc.service.UserService;
+import java.time.LocalDateTime;
+import javax.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.ui.ModelMap;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that a page of {@link OrderServiceImpl#getOrders} costs a constant number of
+ * queries, whatever the number of orders and comments on it, and the listing of
+ * {@link OrderServiceImpl#getOrdersAfter} by cursor, the filters of both and the
+ * search. Also compares the statements of the page upsert with the former per-order
+ * one
+ */
+@Slf4j
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.properties.hibernate.generate_statistics=true"})
+@Import({OrderServiceImpl.class, OrderViewService.class})
+public class OrderServiceImplQueryTest {
+	
+	private static final String EMAIL = "test@test.com";
+	
+	@Autowired
+	private OrderServiceImpl orderService;
+	@Autowired
+	private OrderViewService orderViewService;
+	@Autowired
+	private TestEntityManager entityManager;
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	@Autowired
+	private CompanyRepository companyRepository;
+	@Autowired
+	private OrderRepository orderRepository;
+	@Autowired
+	private DocumentRepository documentRepository;
+	@MockBean
+	private UserService userService;
+	@MockBean
+	private RoleService roleService;
+	@MockBean
+	private SyncService syncService;
+	@MockBean
+	private SyncRunService syncRunService;
+	@MockBean
+	private SyncJobRegistry syncJobRegistry;
+	@MockBean
+	private DocumentFetchQueue documentFetchQueue;
+	@MockBean
+	private DellinSessionManager sessionManager;
+	@MockBean
+	private UserPrincipalCache userPrincipalCache;
+	
+	private Company company;
+	private User user;
+	
+	@Before
+	public void setUp() {
+		company = new Company();
+		company.setName("company");
+		company.setInn("123456789");
+		entityManager.persist(company);
+		
+		user = new User();
+		user.setEmail(EMAIL);
+		user.setPassword("pass");
+		entityManager.persist(user);
+	}
+	
+	@Test
+	public void getOrders_constantQueries() {
+		
+		persistOrders(5);
+		long smallPage = countQueries(5, "ROLE_ADMIN");
+		
+		persistOrders(45);
+		long largePage = countQueries(50, "ROLE_ADMIN");
+		
+		assertEquals(smallPage, largePage);
+		assertTrue(largePage <= 3);
+	}
+	
+	@Test
+	public void getOrders_content() {
+		
+		persistOrders(4);
+		fillViews();
+		authenticate("ROLE_USER");
+		
+		ModelMap map = orderService.getOrders(1, 10, "docId", Sort.Direction.ASC,
+				new OrderFilter());
+		
+		@SuppressWarnings("unchecked")
+		List<OrderModel> content = (List<OrderModel>) map.get("content");
+		assertEquals(List.of("1", "3"),
+				content.stream().map(OrderModel::getDocId).collect(Collectors.toList()));
+		OrderModel model = content.get(0);
+		assertEquals("company", model.getCompanyName());
+		assertEquals("state-1", model.getState());
+		assertEquals("uid-1", model.getUid());
+		assertEquals(List.of("comment-1-0", "comment-1-1"), model.getComments()
+				.stream()
+				.map(CommentHistory::getText)
+				.collect(Collectors.toList()));
+		assertEquals(EMAIL, model.getComments().iterator().next().getUserName());
+	}
+	
+	@Test
+	public void getOrders_commentedPages() {
+		
+		persistOrders(10);
+		fillViews();
+		authenticate("ROLE_USER");
+		
+		for (int page = 1; page <= 3; page++) {
+			ModelMap map = orderService.getOrders(page, 2, "docId", Sort.Direction.ASC,
+					new OrderFilter());
+			
+			assertEquals(page < 3 ? 2 : 1, map.get("PageSize"));
+			assertEquals(3, map.get("totalPages"));
+		}
+	}
+	
+	@Test
+	public void getOrders_filters() {
+		
+		persistOrders(4);
+		Document bill = new Document();
+		bill.setUid("uid-1");
+		bill.setType(OrderDocType.BILL);
+		bill.setOrder(entityManager.getEntityManager()
+				.createQuery("select o from Order o where o.docId = '1'", Order.class)
+				.getSingleResult());
+		entityManager.persist(bill);
+		fillViews();
+		authenticate("ROLE_ADMIN");
+		LocalDateTime tomorrow = LocalDateTime.now().plusDays(1);
+		
+		assertEquals(List.of("2"), getDocIds(filter(f -> f.setState("state-2"))));
+		assertEquals(List.of("0", "1", "2", "3"),
+				getDocIds(filter(f -> f.setCompanyInn("123456789"))));
+		assertEquals(List.of(), getDocIds(filter(f -> f.setCompanyInn("000000000"))));
+		assertEquals(List.of("0", "1", "2", "3"),
+				getDocIds(filter(f -> f.setCreatedTo(tomorrow))));
+		assertEquals(List.of(), getDocIds(filter(f -> f.setCreatedFrom(tomorrow))));
+		assertEquals(List.of("0", "2", "3"),
+				getDocIds(filter(f -> f.setMissingDocType(OrderDocType.BILL))));
+		assertEquals(List.of("0", "2"), getDocIds(filter(f -> f.setCommented(false))));
+		assertEquals(List.of("3"), getDocIds(filter(f -> {
+			f.setCommented(true);
+			f.setState("state-3");
+		})));
+	}
+	
+	@Test(expected = CustomException.class)
+	public void getOrders_unavailableSort() {
+		
+		authenticate("ROLE_ADMIN");
+		orderService.getOrders(1, 2, "companyName", Sort.Direction.ASC,
+				new OrderFilter());
+	}
+	
+	@Test
+	public void search() {
+		
+		persistOrders(4);
+		fillViews();
+		authenticate("ROLE_ADMIN");
+		
+		assertEquals(List.of("3", "2", "1", "0"), search("COMPA"));
+		assertEquals(List.of("1"), search("Comment-1"));
+		assertEquals(List.of("3"), search("uid-3 company"));
+		assertEquals(List.of(), search("uid-3 uid-1"));
+		assertEquals(List.of(), search("100%"));
+		
+		authenticate("ROLE_USER");
+		assertEquals(List.of("3", "1"), search("compa"));
+	}
+	
+	@Test(expected = CustomException.class)
+	public void search_emptyText() {
+		
+		orderService.search(" ", null, 10);
+	}
+	
+	@Test
+	public void createAndUpdateOrders_view() {
+		
+		orderService.createAndUpdateOrders(
+				List.of(getResponse("10", "payer", "arrived", "bill", "invoice")));
+		entityManager.flush();
+		entityManager.clear();
+		orderService.createAndUpdateOrders(
+				List.of(getResponse("11", "payer", "arrived")));
+		entityManager.flush();
+		entityManager.clear();
+		
+		OrderView view = getView("10");
+		assertEquals("payer", view.getCompanyName());
+		assertEquals("987654321", view.getCompanyInn());
+		assertEquals("arrived", view.getState());
+		assertEquals(OrderDocType.BILL.getBit() | OrderDocType.INVOICE.getBit(),
+				view.getDocuments());
+		assertEquals(0, view.getDocumentsReady());
+		assertEquals(0, view.getCommentCount());
+		
+		orderService.createAndUpdateOrders(
+				List.of(getResponse("11", "renamed", "finished", "bill")));
+		entityManager.flush();
+		entityManager.clear();
+		
+		assertEquals("renamed", getView("10").getCompanyName());
+		view = getView("11");
+		assertEquals("renamed", view.getCompanyName());
+		assertEquals("finished", view.getState());
+		assertEquals(OrderDocType.BILL.getBit(), view.getDocuments());
+	}
+	
+	/**
+	 * Counts the statements of one page of 100 orders of 10 payers with 3 available
+	 * documents each, first all new and then all with a new state, written by the page
+	 * upsert and by the former per-order path. Both write the same rows, the page
+	 * upsert also writes their listing rows.
+	 */
+	@Test
+	public void createAndUpdateOrders_queriesPerPage() {
+		
+		long perOrder = countQueries(() -> getPage("a", "arrived"),
+				this::createAndUpdateOrdersPerOrder);
+		long perPage = countQueries(() -> getPage("b", "arrived"),
+				orderService::createAndUpdateOrders);
+		log.info("Statements per page of 100 new orders: per order [{}], per page [{}]",
+				perOrder, perPage);
+		assertTrue(perPage < perOrder);
+		
+		perOrder = countQueries(() -> getPage("a", "finished"),
+				this::createAndUpdateOrdersPerOrder);
+		perPage = countQueries(() -> getPage("b", "finished"),
+				orderService::createAndUpdateOrders);
+		log.info("Statements per page of 100 updated orders: per order [{}], per page "
+				+ "[{}]", perOrder, perPage);
+		assertTrue(perPage < perOrder);
+	}
+	
+	@Test
+	public void orderView_documentsAndComments() {
+		
+		persistOrders(2);
+		fillViews();
+		OrderView view = getView("1");
+		assertEquals(2, view.getCommentCount());
+		assertEquals("comment-1-1", view.getLastCommentText());
+		assertEquals(EMAIL, view.getLastCommentUser());
+		
+		Order order = entityManager.getEntityManager()
+				.createQuery("select o from Order o where o.docId = '0'", Order.class)
+				.getSingleResult();
+		Document bill = new Document();
+		bill.setUid("uid-0");
+		bill.setType(OrderDocType.BILL);
+		bill.setUrl("url");
+		bill.setOrder(order);
+		order.getDocuments().add(bill);
+		entityManager.persist(bill);
+		orderViewService.markDocumentReady(bill);
+		orderViewService.markDocumentReady(bill);
+		
+		Comment comment = new Comment();
+		comment.setText("comment-0");
+		comment.setUser(entityManager.find(User.class, user.getId()));
+		comment.setOrder(order);
+		entityManager.persist(comment);
+		order.getComments().add(comment);
+		orderViewService.refreshComments(order);
+		entityManager.flush();
+		entityManager.clear();
+		authenticate("ROLE_USER");
+		
+		view = getView("0");
+		assertEquals(1, view.getCommentCount());
+		assertEquals("comment-0", view.getLastCommentText());
+		assertEquals(OrderDocType.BILL.getBit(), view.getDocumentsReady());
+		
+		ModelMap map = orderService.getOrders(1, 10, "docId", Sort.Direction.ASC,
+				new OrderFilter());
+		
+		@SuppressWarnings("unchecked")
+		List<OrderModel> content = (List<OrderModel>) map.get("content");
+		assertEquals(List.of("0", "1"),
+				content.stream().map(OrderModel::getDocId).collect(Collectors.toList()));
+		assertEquals(Set.of(OrderDocType.BILL), content.get(0).getReadyDocuments());
+		assertEquals(Set.of(), content.get(1).getReadyDocuments());
+	}
+	
+	@Test
+	public void getOrdersAfter_allPages() {
+		
+		persistOrders(7);
+		entityManager.getEntityManager()
+				.createQuery("select o from Order o", Order.class)
+				.getResultList()
+				.forEach(o -> o.setState(Long.parseLong(o.getDocId()) % 3 == 0 ? null
+						: "state-" + Long.parseLong(o.getDocId()) % 2));
+		fillViews();
+		authenticate("ROLE_ADMIN");
+		
+		assertEquals(List.of("2", "4", "1", "5", "0", "3", "6"),
+				readAfter("state", Sort.Direction.ASC));
+		assertEquals(List.of("6", "3", "0", "5", "1", "4", "2"),
+				readAfter("state", Sort.Direction.DESC));
+		assertEquals(List.of("0", "1", "2", "3", "4", "5", "6"),
+				readAfter("docId", Sort.Direction.ASC));
+	}
+	
+	@Test(expected = CustomException.class)
+	public void getOrdersAfter_invalidCursor() {
+		
+		authenticate("ROLE_ADMIN");
+		orderService.getOrdersAfter("not-a-cursor", 2, "docId", Sort.Direction.ASC,
+				new OrderFilter());
+	}
+	
+	@Test(expected = CustomException.class)
+	public void getOrdersAfter_unavailableSort() {
+		
+		authenticate("ROLE_ADMIN");
+		orderService.getOrdersAfter("", 2, "companyName", Sort.Direction.ASC,
+				new OrderFilter());
+	}
+	
+	private List<String> getDocIds(OrderFilter filter) {
+		ModelMap map = orderService.getOrders(1, 10, "docId", Sort.Direction.ASC, filter);
+		
+		@SuppressWarnings("unchecked")
+		List<OrderModel> content = (List<OrderModel>) map.get("content");
+		return content.stream().map(OrderModel::getDocId).collect(Collectors.toList());
+	}
+	
+	private List<String> search(String text) {
+		@SuppressWarnings("unchecked")
+		List<OrderModel> content = (List<OrderModel>) orderService.search(text, null, 10)
+				.get("content");
+		return content.stream().map(OrderModel::getDocId).collect(Collectors.toList());
+	}
+	
+	private static OrderFilter filter(Consumer<OrderFilter> setter) {
+		OrderFilter filter = new OrderFilter();
+		setter.accept(filter);
+		return filter;
+	}
+	
+	/**
+	 * Reads all pages of two orders by cursor
+	 */
+	private List<String> readAfter(String sort, Sort.Direction order) {
+		List<String> docIds = new ArrayList<>();
+		String cursor = "";
+		do {
+			ModelMap map = orderService.getOrdersAfter(cursor, 2, sort, order,
+					new OrderFilter());
+			
+			@SuppressWarnings("unchecked")
+			List<OrderModel> content = (List<OrderModel>) map.get("content");
+			content.forEach(m -> docIds.add(m.getDocId()));
+			cursor = (String) map.get("next");
+		} while (cursor != null);
+		return docIds;
+	}
+	
+	private long countQueries(int perPage, String role) {
+		fillViews();
+		authenticate(role);
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class)
+				.getStatistics();
+		statistics.clear();
+		
+		ModelMap map = orderService.getOrders(1, perPage, "docId", Sort.Direction.ASC,
+				new OrderFilter());
+		
+		assertEquals(perPage, ((List<?>) map.get("content")).size());
+		return statistics.getPrepareStatementCount();
+	}
+	
+	private long countQueries(Supplier<List<OrderResponse.Order>> page,
+			Consumer<List<OrderResponse.Order>> upsert) {
+		List<OrderResponse.Order> orders = page.get();
+		entityManager.flush();
+		entityManager.clear();
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class)
+				.getStatistics();
+		statistics.clear();
+		
+		upsert.accept(orders);
+		entityManager.flush();
+		
+		long count = statistics.getPrepareStatementCount();
+		entityManager.clear();
+		return count;
+	}
+	
+	/**
+	 * Builds the page of 100 orders of 10 payers with 3 available documents each
+	 */
+	private static List<OrderResponse.Order> getPage(String prefix, String state) {
+		List<OrderResponse.Order> orders = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			OrderResponse.Order order = getResponse(prefix + i, "payer-" + i % 10, state,
+					"bill", "invoice", "giveout");
+			order.getDocuments().iterator().next().getPayer().setInn(
+					prefix + "-inn-" + i % 10);
+			orders.add(order);
+		}
+		return orders;
+	}
+	
+	/**
+	 * The upsert of orders as it was before the page upsert: the company, the order and
+	 * every document are looked up by one query each, and every order is saved on its
+	 * own
+	 */
+	private void createAndUpdateOrdersPerOrder(Collection<OrderResponse.Order> orders) {
+		orders.forEach(o -> o.getDocuments()
+				.stream()
+				.filter(d -> d.getType().equalsIgnoreCase("shipping"))
+				.forEach(d -> {
+					Company payer = companyRepository.findByInn(d.getPayer().getInn())
+							.orElseGet(() -> {
+								Company created = new Company();
+								created.setStatus(EntityStatus.CREATED);
+								created.setInn(d.getPayer().getInn());
+								created.setName(d.getPayer().getName());
+								return created;
+							});
+					Order order = orderRepository.findByDocId(d.getId()).orElseGet(() -> {
+						Order created = new Order();
+						created.setUid(d.getUid());
+						created.setDocId(d.getId());
+						created.setCompany(payer);
+						payer.getOrders().add(created);
+						return created;
+					});
+					order.setState(o.getState());
+					d.getAvailableDocs()
+							.stream()
+							.map(doc -> OrderDocType.valueOf(doc.toUpperCase()))
+							.filter(type -> documentRepository.findByUidAndType(
+									d.getUid(), type).isEmpty())
+							.forEach(type -> {
+								Document document = new Document();
+								document.setType(type);
+								document.setOrder(order);
+								document.setUid(d.getUid());
+								document.setStatus(EntityStatus.CREATED);
+								order.getDocuments().add(document);
+							});
+					order.setStatus(EntityStatus.UPDATED);
+					order.setUpdatedAt(LocalDateTime.now());
+					companyRepository.save(payer);
+				}));
+	}
+	
+	/**
+	 * Writes the listing rows of the persisted orders which have none
+	 */
+	private void fillViews() {
+		entityManager.flush();
+		orderViewService.fill();
+		entityManager.clear();
+	}
+	
+	private OrderView getView(String docId) {
+		return entityManager.getEntityManager()
+				.createQuery("select v from OrderView v where v.docId = :docId",
+						OrderView.class)
+				.setParameter("docId", docId)
+				.getSingleResult();
+	}
+	
+	private static OrderResponse.Order getResponse(String docId, String payerName,
+			String state, String... availableDocs) {
+		OrderResponse.Order.Member payer = new OrderResponse.Order.Member();
+		payer.setName(payerName);
+		payer.setInn("987654321");
+		
+		OrderResponse.Order.Document document = new OrderResponse.Order.Document();
+		document.setType("shipping");
+		document.setUid("uid-" + docId);
+		document.setId(docId);
+		document.setPayer(payer);
+		document.setAvailableDocs(List.of(availableDocs));
+		
+		OrderResponse.Order order = new OrderResponse.Order();
+		order.setDocuments(List.of(document));
+		order.setState(state);
+		return order;
+	}
+	
+	/**
+	 * Persists orders with the docIds going on from the existing ones, odd orders get two
+	 * comments
+	 */
+	private void persistOrders(int count) {
+		company = entityManager.find(Company.class, company.getId());
+		user = entityManager.find(User.class, user.getId());
+		long existing = entityManager.getEntityManager()
+				.createQuery("select count(o) from Order o", Long.class)
+				.getSingleResult();
+		for (long i = existing; i < existing + count; i++) {
+			Order order = new Order();
+			order.setDocId(String.valueOf(i));
+			order.setUid("uid-" + i);
+			order.setState("state-" + i);
+			order.setCompany(company);
+			order.setComments(new ArrayList<>());
+			if (i % 2 == 1) {
+				for (int j = 0; j < 2; j++) {
+					Comment comment = new Comment();
+					comment.setText("comment-" + i + "-" + j);
+					comment.setUser(user);
+					comment.setOrder(order);
+					comment.setUpdatedAt(LocalDateTime.now());
+					order.getComments().add(comment);
+				}
+			}
+			order.setSearchText(OrderSearchIndex.getSearchText(order));
+			entityManager.persist(order);
+		}
+	}
+	
+	private void authenticate(String role) {
+		when(userPrincipalCache.getCurrent()).thenReturn(
+				new UserPrincipal(user.getId(), EMAIL, Set.of(company.getId()),
+						Set.of(role)));
+	}
+}
@@ -0,0 +1,150 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.model.entity.Order;
+import com.dellin.mondoc.model.entity.OrderView;
+import com.dellin.mondoc.model.entity.SyncRun;
+import com.dellin.mondoc.model.entity.User;
+import com.dellin.mondoc.model.enums.EntityStatus;
+import com.dellin.mondoc.model.pojo.OrderRequest;
+import com.dellin.mondoc.model.pojo.OrderResponse;
+import com.dellin.mondoc.model.repository.OrderRepository;
+import com.dellin.mondoc.model.repository.OrderViewRepository;
+import com.dellin.mondoc.service.RoleService;
+import com.dellin.mondoc.service.UserService;
+import java.io.*;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import retrofit2.Call;
+import retrofit2.Response;
+
+import java.util.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the manual update of orders against the database, without the transaction
+ * of test, so the pages are written only in the transactions the service opens itself
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties =
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({OrderServiceImpl.class, OrderViewService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class OrderServiceImplSyncTest {
+	
+	@Autowired
+	private OrderServiceImpl orderService;
+	@Autowired
+	private OrderRepository orderRepository;
+	@Autowired
+	private OrderViewRepository orderViewRepository;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@MockBean
+	private UserService userService;
+	@MockBean
+	private RoleService roleService;
+	@MockBean
+	private SyncService syncService;
+	@MockBean
+	private SyncRunService syncRunService;
+	@MockBean
+	private SyncJobRegistry syncJobRegistry;
+	@MockBean
+	private DocumentFetchQueue documentFetchQueue;
+	@MockBean
+	private DellinSessionManager sessionManager;
+	@MockBean
+	private UserPrincipalCache userPrincipalCache;
+	
+	@After
+	public void tearDown() {
+		JdbcTestUtils.deleteFromTables(jdbcTemplate, "order_view", "orders_documents",
+				"companies_orders", "documents", "orders", "companies");
+	}
+	
+	@Test
+	public void extracted_pagesPersisted() throws IOException {
+		
+		IInterfaceManualLoad remoteData = mock(IInterfaceManualLoad.class);
+		when(syncService.getRemoteData()).thenReturn(remoteData);
+		@SuppressWarnings("unchecked")
+		Call<OrderResponse> call = (Call<OrderResponse>) mock(Call.class);
+		when(remoteData.update(any(OrderRequest.class), anyString())).thenReturn(call);
+		when(call.execute()).thenReturn(
+						Response.success(getPage(List.of(getOrder("10", "payer"),
+								getOrder("11", "payer")), List.of())))
+				.thenReturn(Response.success(getPage(List.of(getOrder("10", "renamed")),
+						List.of("11"))));
+		
+		SyncRun run = new SyncRun();
+		run.setFirstPage(1);
+		run.setLastPage(2);
+		SyncJob job = new SyncJob(SyncJobRegistry.ORDERS, "test@test.com", "pages");
+		job.setThread(Thread.currentThread());
+		
+		orderService.extracted(job, run, new User(), OrderRequest.builder()
+				.setAppKey("appkey")
+				.setDateStart("2023-01-01")
+				.setDateEnd("2023-01-10"), new Date());
+		
+		Map<String, Order> orders = orderRepository.findByDocIdIn(List.of("10", "11"))
+				.stream()
+				.collect(Collectors.toMap(Order::getDocId, Function.identity()));
+		assertEquals(EntityStatus.DELETED, orders.get("11").getStatus());
+		
+		OrderView view = orderViewRepository.findById(orders.get("10").getId())
+				.orElseThrow();
+		assertEquals("renamed", view.getCompanyName());
+		view = orderViewRepository.findById(orders.get("11").getId()).orElseThrow();
+		assertEquals("renamed", view.getCompanyName());
+		assertEquals(EntityStatus.DELETED, view.getStatus());
+	}
+	
+	private static OrderResponse getPage(List<OrderResponse.Order> orders,
+			List<String> deleted) {
+		OrderResponse.Metadata metadata = new OrderResponse.Metadata();
+		metadata.setStatus(200);
+		metadata.setTotalPages(2);
+		
+		OrderResponse page = new OrderResponse();
+		page.setOrders(orders);
+		page.setDeleted(deleted);
+		page.setMetadata(metadata);
+		return page;
+	}
+	
+	private static OrderResponse.Order getOrder(String docId, String payerName) {
+		OrderResponse.Order.Member payer = new OrderResponse.Order.Member();
+		payer.setName(payerName);
+		payer.setInn("987654321");
+		
+		OrderResponse.Order.Document document = new OrderResponse.Order.Document();
+		document.setType("shipping");
+		document.setUid("uid-" + docId);
+		document.setId(docId);
+		document.setPayer(payer);
+		document.setAvailableDocs(List.of("bill"));
+		
+		OrderResponse.Order order = new OrderResponse.Order();
+		order.setDocuments(List.of(document));
+		order.setState("arrived");
+		return order;
+	}
+}
@@ -7,12 +7,18 @@ import com.dellin.mondoc.model.entity.Document;
 import com.dellin.mondoc.model.entity.Order;
 import com.dellin.mondoc.model.entity.Role;
 import com.dellin.mondoc.model.entity.Session;
+import com.dellin.mondoc.model.entity.SyncRun;
 import com.dellin.mondoc.model.entity.User;
+import com.dellin.mondoc.model.enums.DocumentFetchPriority;
 import com.dellin.mondoc.model.enums.OrderDocType;
+import com.dellin.mondoc.model.enums.SyncRunKind;
+import com.dellin.mondoc.model.pojo.OrderComment;
+import com.dellin.mondoc.model.pojo.OrderFilter;
 import com.dellin.mondoc.model.pojo.OrderModel;
 import com.dellin.mondoc.model.pojo.OrderRequest;
 import com.dellin.mondoc.model.pojo.OrderRequestBuilder;
 import com.dellin.mondoc.model.pojo.OrderResponse;
+import com.dellin.mondoc.model.pojo.UserPrincipal;
 import com.dellin.mondoc.model.repository.CompanyRepository;
 import com.dellin.mondoc.model.repository.DocumentRepository;
 import com.dellin.mondoc.model.repository.OrderRepository;
@@ -22,33 +28,42 @@ import java.io.*;
 import java.time.LocalDateTime;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.ui.ModelMap;
 import retrofit2.Call;
 import retrofit2.Response;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.*;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -68,6 +83,21 @@ public class OrderServiceImplTest {
 	private DocumentRepository documentRepository;
 	@Mock
 	private SyncService syncService;
+	@Mock
+	private SyncRunService syncRunService;
+	@Mock
+	private SyncJobRegistry syncJobRegistry;
+	@Mock
+	private DocumentFetchQueue documentFetchQueue;
+	@Mock
+	private DellinSessionManager sessionManager;
+	@Mock
+	private UserPrincipalCache userPrincipalCache;
+	@Mock
+	private OrderViewService orderViewService;
+	@Spy
+	private TransactionOperations transactionOperations =
+			TransactionOperations.withoutTransaction();
 	
 	@Test
 	@Transactional
@@ -91,6 +121,8 @@ public class OrderServiceImplTest {
 		User user = new User();
 		user.setEmail(name);
 		user.setSession(session);
+		when(sessionManager.getAccount(session)).thenReturn(
+				new DellinCredentialPool.Account("appkey", "login", "pass"));
 		
 		when(userService.getUser(anyString())).thenReturn(user);
 		
@@ -132,7 +164,7 @@ public class OrderServiceImplTest {
 		when(syncService.getRemoteData()).thenReturn(remoteData);
 		@SuppressWarnings("unchecked")
 		Call<OrderResponse> call = (Call<OrderResponse>) mock(Call.class);
-		when(remoteData.update(any(OrderRequest.class))).thenReturn(call);
+		when(remoteData.update(any(OrderRequest.class), anyString())).thenReturn(call);
 		OrderResponse expectedOrderResponse = new OrderResponse();
 		
 		Response<OrderResponse> expectedResponse =
@@ -148,6 +180,12 @@ public class OrderServiceImplTest {
 		expectedOrderResponse.setMetadata(metadata);
 		when(call.execute()).thenReturn(expectedResponse);
 		
+		SyncRun run = new SyncRun();
+		run.setFirstPage(2);
+		run.setLastPage(2);
+		when(syncRunService.create(any(SyncRunKind.class), anyString(),
+				any(OrderRequest.class), anyBoolean())).thenReturn(run);
+		
 		Runnable task = latch::countDown;
 		
 		Thread thread = new Thread(task);
@@ -156,6 +194,17 @@ public class OrderServiceImplTest {
 		latch.await();
 		
 		orderService.update(request);
+		
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<Consumer<SyncJob>> jobTask =
+				ArgumentCaptor.forClass(Consumer.class);
+		verify(syncJobRegistry).start(eq(SyncJobRegistry.ORDERS), eq(name), eq("pages"),
+				jobTask.capture());
+		
+		SyncJob job = new SyncJob(SyncJobRegistry.ORDERS, name, "pages");
+		job.setThread(Thread.currentThread());
+		jobTask.getValue().accept(job);
+		verify(syncRunService).finish(run, true);
 	}
 	
 	@Test
@@ -180,6 +229,8 @@ public class OrderServiceImplTest {
 		User user = new User();
 		user.setEmail(name);
 		user.setSession(session);
+		when(sessionManager.getAccount(session)).thenReturn(
+				new DellinCredentialPool.Account("appkey", "login", "pass"));
 		
 		when(userService.getUser(anyString())).thenReturn(user);
 		
@@ -224,7 +275,7 @@ public class OrderServiceImplTest {
 		when(syncService.getRemoteData()).thenReturn(remoteData);
 		@SuppressWarnings("unchecked")
 		Call<OrderResponse> call = (Call<OrderResponse>) mock(Call.class);
-		when(remoteData.update(any(OrderRequest.class))).thenReturn(call);
+		when(remoteData.update(any(OrderRequest.class), anyString())).thenReturn(call);
 		OrderResponse expectedOrderResponse = new OrderResponse();
 		
 		Response<OrderResponse> expectedResponse =
@@ -240,6 +291,12 @@ public class OrderServiceImplTest {
 		expectedOrderResponse.setMetadata(metadata);
 		when(call.execute()).thenReturn(expectedResponse);
 		
+		SyncRun run = new SyncRun();
+		run.setFirstPage(2);
+		run.setLastPage(2);
+		when(syncRunService.create(any(SyncRunKind.class), anyString(),
+				any(OrderRequest.class), anyBoolean())).thenReturn(run);
+		
 		Runnable task = latch::countDown;
 		
 		Thread thread = new Thread(task);
@@ -248,6 +305,44 @@ public class OrderServiceImplTest {
 		latch.await();
 		
 		orderService.update(request);
+		
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<Consumer<SyncJob>> jobTask =
+				ArgumentCaptor.forClass(Consumer.class);
+		verify(syncJobRegistry).start(eq(SyncJobRegistry.ORDERS), eq(name), eq("pages"),
+				jobTask.capture());
+		
+		SyncJob job = new SyncJob(SyncJobRegistry.ORDERS, name, "pages");
+		job.setThread(Thread.currentThread());
+		jobTask.getValue().accept(job);
+		verify(syncRunService).finish(run, true);
+	}
+	
+	@Test(expected = CustomException.class)
+	public void resume_alreadyRunning() {
+		
+		String name = "test@test.com";
+		
+		Session session = new Session();
+		session.setAppkey(EncodingUtil.getEncrypted("appkey"));
+		session.setSessionDl(EncodingUtil.getEncrypted("sessionDl"));
+		
+		User user = new User();
+		user.setEmail(name);
+		user.setSession(session);
+		when(sessionManager.getAccount(session)).thenReturn(
+				new DellinCredentialPool.Account("appkey", "login", "pass"));
+		
+		SyncRun run = new SyncRun();
+		run.setOwner(name);
+		
+		when(userService.getUser(name)).thenReturn(user);
+		when(syncRunService.getRequestBuilder(run)).thenReturn(OrderRequest.builder());
+		when(syncJobRegistry.start(eq(SyncJobRegistry.ORDERS), eq(name), eq("pages"),
+				any())).thenThrow(new CustomException("Sync job [orders] is already "
+				+ "running", HttpStatus.CONFLICT));
+		
+		orderService.resume(run);
 	}
 	
 	@Test
@@ -275,13 +370,11 @@ public class OrderServiceImplTest {
 		
 		//create a mock response
 		
-		OrderRequest orderRequest = requestBuilder.build();
-		
 		IInterfaceManualLoad remoteData = mock(IInterfaceManualLoad.class);
 		when(syncService.getRemoteData()).thenReturn(remoteData);
 		@SuppressWarnings("unchecked")
 		Call<OrderResponse> call = (Call<OrderResponse>) mock(Call.class);
-		when(remoteData.update(any(OrderRequest.class))).thenReturn(call);
+		when(remoteData.update(any(OrderRequest.class), anyString())).thenReturn(call);
 		
 		OrderResponse expectedOrderResponse = new OrderResponse();
 		expectedOrderResponse.setOrders(Collections.emptyList());
@@ -299,8 +392,20 @@ public class OrderServiceImplTest {
 		
 		when(call.execute()).thenReturn(expectedResponse);
 		
-		orderService.extracted(currentThread, orderRequest, user, 1, 1, requestBuilder,
-				programStart);
+		SyncRun run = new SyncRun();
+		run.setFirstPage(1);
+		run.setLastPage(1);
+		
+		SyncJob job = new SyncJob(SyncJobRegistry.ORDERS, name, "pages");
+		job.setThread(currentThread);
+		
+		orderService.extracted(job, run, user, requestBuilder, programStart);
+		verify(syncRunService).begin(run);
+		verify(transactionOperations).executeWithoutResult(any());
+		verify(syncRunService).checkpoint(run, expectedOrderResponse, 1);
+		verify(syncRunService).finish(run, true);
+		assertEquals(1, job.getProgress().getDone());
+		assertEquals(Long.valueOf(1), job.getProgress().getTotal());
 	}
 	
 	@Test(expected = CustomException.class)
@@ -329,19 +434,23 @@ public class OrderServiceImplTest {
 		
 		//create a mock response
 		
-		OrderRequest orderRequest = requestBuilder.build();
-		
 		IInterfaceManualLoad remoteData = mock(IInterfaceManualLoad.class);
 		when(syncService.getRemoteData()).thenReturn(remoteData);
 		@SuppressWarnings("unchecked")
 		Call<OrderResponse> call = (Call<OrderResponse>) mock(Call.class);
-		when(remoteData.update(any(OrderRequest.class))).thenReturn(call);
+		when(remoteData.update(any(OrderRequest.class), anyString())).thenReturn(call);
 		
 		Response<OrderResponse> expectedResponse = mock(Response.class);
 		when(call.execute()).thenReturn(expectedResponse);
 		
-		orderService.extracted(currentThread, orderRequest, user, 1, 1, requestBuilder,
-				programStart);
+		SyncRun run = new SyncRun();
+		run.setFirstPage(1);
+		run.setLastPage(1);
+		
+		SyncJob job = new SyncJob(SyncJobRegistry.ORDERS, name, "pages");
+		job.setThread(currentThread);
+		
+		orderService.extracted(job, run, user, requestBuilder, programStart);
 	}
 	
 	@Test
@@ -369,13 +478,11 @@ public class OrderServiceImplTest {
 		
 		//create a mock response
 		
-		OrderRequest orderRequest = requestBuilder.build();
-		
 		IInterfaceManualLoad remoteData = mock(IInterfaceManualLoad.class);
 		when(syncService.getRemoteData()).thenReturn(remoteData);
 		@SuppressWarnings("unchecked")
 		Call<OrderResponse> call = (Call<OrderResponse>) mock(Call.class);
-		when(remoteData.update(any(OrderRequest.class))).thenReturn(call);
+		when(remoteData.update(any(OrderRequest.class), anyString())).thenReturn(call);
 		
 		OrderResponse expectedOrderResponse = new OrderResponse();
 		expectedOrderResponse.setOrders(Collections.emptyList());
@@ -391,7 +498,16 @@ public class OrderServiceImplTest {
 		Response<OrderResponse> expectedResponse =
 				Response.success(expectedOrderResponse);
 		
-		when(call.execute()).thenReturn(expectedResponse);
+		// the rate governor keeps the thread waiting until the next permit
+		when(call.execute()).thenAnswer(invocation -> {
+			try {
+				Thread.sleep(5000L);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException(e.getMessage());
+			}
+			return expectedResponse;
+		});
 		
 		Runnable test = () -> {
 			Thread testThread = Thread.currentThread();
@@ -405,9 +521,16 @@ public class OrderServiceImplTest {
 		Thread thread = new Thread(test);
 		thread.start();
 		
-		orderService.extracted(currentThread, orderRequest, user, 1, 1, requestBuilder,
-				programStart);
+		SyncRun run = new SyncRun();
+		run.setFirstPage(1);
+		run.setLastPage(1);
+		
+		SyncJob job = new SyncJob(SyncJobRegistry.ORDERS, name, "pages");
+		job.setThread(currentThread);
+		
+		orderService.extracted(job, run, user, requestBuilder, programStart);
 		assertThat(currentThread.isInterrupted(), is(true));
+		verify(syncRunService).finish(run, false);
 	}
 	
 	@Test
@@ -440,6 +563,7 @@ public class OrderServiceImplTest {
 		
 		Order orderEnt = new Order();
 		orderEnt.setUid("0x1");
+		orderEnt.setDocId("id1");
 		orderEnt.setState("arrived");
 		
 		Document documentEnt = new Document();
@@ -449,19 +573,64 @@ public class OrderServiceImplTest {
 		Collection<OrderResponse.Order> orders = new ArrayList<>();
 		orders.add(order);
 		
-		when(companyService.findByInn(anyString())).thenReturn(Optional.of(companyEnt));
-		when(orderRepository.findByDocId(anyString())).thenReturn(Optional.of(orderEnt));
+		when(companyService.findByInnIn(anyCollection())).thenReturn(
+				Collections.singletonList(companyEnt));
+		when(orderRepository.findByDocIdIn(anyCollection())).thenReturn(
+				Collections.singletonList(orderEnt));
+		when(documentRepository.findByUidIn(anyCollection())).thenReturn(
+				Collections.emptyList());
+		
+		orderService.createAndUpdateOrders(orders);
+		verify(companyService, times(1)).saveAll(Collections.singleton(companyEnt));
+		verify(orderRepository, times(1)).saveAll(Collections.singleton(orderEnt));
+		assertEquals("finished", orderEnt.getState());
+		assertEquals(1, orderEnt.getDocuments().size());
+		verify(orderViewService).refresh(List.of(orderEnt));
+		verify(documentFetchQueue).enqueue(Collections.singleton("0x1"),
+				DocumentFetchPriority.RECENT);
+	}
+	
+	@Test
+	public void createAndUpdateOrders_nothingChanged() {
+		
+		OrderResponse.Order.Member payer = new OrderResponse.Order.Member();
+		payer.setName("Mondoc");
+		payer.setInn("123456789");
 		
-		when(documentRepository.findByUidAndType(anyString(),
-				any(OrderDocType.class))).thenReturn(Optional.empty());
+		OrderResponse.Order.Document document = new OrderResponse.Order.Document();
+		document.setType("shipping");
+		document.setUid("0x1");
+		document.setId("id1");
+		document.setPayer(payer);
+		document.setAvailableDocs(Collections.singletonList("bill"));
 		
-		@SuppressWarnings("unchecked")
-		Collection<String> strings = mock(Collection.class);
-		lenient().when(strings.stream())
-				.thenReturn(avDocs.stream());
+		OrderResponse.Order order = new OrderResponse.Order();
+		order.setDocuments(Collections.singletonList(document));
+		order.setState("finished");
 		
-		orderService.createAndUpdateOrders(orders);
-		verify(companyService, times(1)).save(companyEnt);
+		Company companyEnt = new Company();
+		companyEnt.setInn("123456789");
+		companyEnt.setName("Mondoc");
+		
+		Order orderEnt = new Order();
+		orderEnt.setUid("0x1");
+		orderEnt.setDocId("id1");
+		orderEnt.setState("finished");
+		
+		Document documentEnt = new Document();
+		documentEnt.setUid("0x1");
+		documentEnt.setType(OrderDocType.BILL);
+		
+		when(companyService.findByInnIn(anyCollection())).thenReturn(
+				Collections.singletonList(companyEnt));
+		when(orderRepository.findByDocIdIn(anyCollection())).thenReturn(
+				Collections.singletonList(orderEnt));
+		when(documentRepository.findByUidIn(anyCollection())).thenReturn(
+				Collections.singletonList(documentEnt));
+		
+		orderService.createAndUpdateOrders(Collections.singletonList(order));
+		verify(companyService, never()).saveAll(anyCollection());
+		verify(orderRepository, never()).saveAll(anyCollection());
 	}
 	
 	@Test
@@ -491,18 +660,50 @@ public class OrderServiceImplTest {
 		Collection<OrderResponse.Order> orders = new ArrayList<>();
 		orders.add(order);
 		
-		when(companyService.findByInn(anyString())).thenReturn(Optional.empty());
+		orderService.createAndUpdateOrders(orders);
+		
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<Collection<Company>> captor =
+				ArgumentCaptor.forClass(Collection.class);
+		verify(companyService).saveAll(captor.capture());
+		Company created = captor.getValue().iterator().next();
+		assertEquals("123456789", created.getInn());
+		assertEquals(1, created.getOrders().size());
+		verify(orderRepository, never()).saveAll(anyCollection());
+	}
+	
+	@Test
+	public void persistPage() {
+		
+		OrderResponse page = new OrderResponse();
+		page.setOrders(Collections.emptyList());
+		page.setDeleted(Arrays.asList("id1", "id2"));
 		
-		when(orderRepository.findByDocId(anyString())).thenReturn(Optional.empty());
+		when(documentRepository.markDeletedByOrders(anyCollection(),
+				any(LocalDateTime.class))).thenReturn(3);
+		when(orderRepository.markDeleted(anyCollection(),
+				any(LocalDateTime.class))).thenReturn(2);
 		
-		when(documentRepository.findByUidAndType(anyString(),
-				any(OrderDocType.class))).thenReturn(Optional.empty());
+		orderService.persistPage(page);
 		
-		Mockito.lenient()
-				.when(companyService.save(any(Company.class)))
-				.thenAnswer(i -> i.getArguments()[0]);
-		orderService.createAndUpdateOrders(orders);
-		verify(companyService).save(any(Company.class));
+		verify(orderRepository).markDeleted(eq(Arrays.asList("id1", "id2")),
+				any(LocalDateTime.class));
+		verify(documentRepository).markDeletedByOrders(eq(Arrays.asList("id1", "id2")),
+				any(LocalDateTime.class));
+		verify(orderViewService).markDeleted(eq(Arrays.asList("id1", "id2")),
+				any(LocalDateTime.class));
+	}
+	
+	@Test
+	public void deleteOrders_nothingDeleted() {
+		
+		orderService.deleteOrders(null);
+		orderService.deleteOrders(Collections.emptyList());
+		
+		verify(orderRepository, never()).markDeleted(anyCollection(),
+				any(LocalDateTime.class));
+		verify(documentRepository, never()).markDeletedByOrders(anyCollection(),
+				any(LocalDateTime.class));
 	}
 	
 	@Test
@@ -528,62 +729,34 @@ public class OrderServiceImplTest {
 		String sort = "state";
 		Sort.Direction order = Sort.Direction.DESC;
 		
-		Order ord = new Order();
-		ord.setState("finished");
-		ord.setDocId("11-22");
-		ord.setUid("0x1");
-		
-		Company company = new Company();
-		company.setInn("123456789");
-		company.setName("company");
-		ord.setCompany(company);
-		
-		List<Order> orders = Collections.singletonList(ord);
+		OrderModel commented = new OrderModel("11-22", "company", "finished", "0x1",
+				Set.of());
+		OrderModel uncommented = new OrderModel("33-44", "company", "finished", "0x2",
+				Set.of());
 		
 		@SuppressWarnings("unchecked")
-		Page<Order> pageResult = mock(Page.class);
+		Page<OrderModel> pageResult = mock(Page.class);
 		
 		String name = "test@test.com";
+		when(userPrincipalCache.getCurrent()).thenReturn(
+				new UserPrincipal(1L, name, Set.of(1L), Set.of("ROLE_ADMIN")));
 		
-		SecurityContext securityContext = mock(SecurityContext.class);
-		Authentication a = new UsernamePasswordAuthenticationToken(name, null);
-		
-		when(securityContext.getAuthentication()).thenReturn(a);
-		securityContext.setAuthentication(a);
-		SecurityContextHolder.setContext(securityContext);
-		
-		User user = new User();
-		user.setEmail(name);
-		Role role = new Role();
-		role.setRoleName("ROLE_ADMIN");
-		List<Role> roles = Collections.singletonList(role);
-		user.setRoles(roles);
-		
-		Comment comment = new Comment();
-		comment.setText("some text");
-		comment.setUser(user);
-		comment.setUpdatedAt(LocalDateTime.now());
-		
-		Collection<Comment> comments = Collections.singletonList(comment);
-		ord.setComments(comments);
-		
-		when(userService.getUser(anyString())).thenReturn(user);
+		when(orderRepository.findModels(eq(Set.of(1L)), eq(false),
+				any(OrderFilter.class), any(Pageable.class))).thenReturn(pageResult);
+		when(pageResult.getContent()).thenReturn(List.of(commented, uncommented));
+		when(orderRepository.findComments(Set.of("11-22", "33-44"))).thenReturn(List.of(
+				new OrderComment("11-22", name, LocalDateTime.now(), "some text")));
 		
-		when(orderRepository.findByCompanyIn(any(Collection.class),
-				any(Pageable.class))).thenReturn(pageResult);
-		when(pageResult.getContent()).thenReturn(orders);
-		
-		@SuppressWarnings("unchecked")
-		Collection<Order> mockOrders = mock(Collection.class);
-		lenient().when(mockOrders.stream())
-				.thenReturn(orders.stream());
-		
-		ModelMap resultMap = orderService.getOrders(page, perPage, sort, order);
+		ModelMap resultMap = orderService.getOrders(page, perPage, sort, order,
+				new OrderFilter());
 		
 		@SuppressWarnings("unchecked")
 		List<OrderModel> orderModels = (List<OrderModel>) resultMap.get("content");
 		
-		assertEquals(ord.getDocId(), orderModels.get(0).getDocId());
+		assertEquals(commented.getDocId(), orderModels.get(0).getDocId());
+		assertEquals("some text",
+				orderModels.get(0).getComments().iterator().next().getText());
+		assertEquals(2, orderModels.size());
 	}
 	
 	@Test(expected = CustomException.class)
@@ -594,7 +767,7 @@ public class OrderServiceImplTest {
 		String sort = "state";
 		Sort.Direction order = Sort.Direction.DESC;
 		
-		orderService.getOrders(page, perPage, sort, order);
+		orderService.getOrders(page, perPage, sort, order, new OrderFilter());
 	}
 	
 	@Test
@@ -605,75 +778,42 @@ public class OrderServiceImplTest {
 		String sort = "state";
 		Sort.Direction order = Sort.Direction.DESC;
 		
-		Order ord = new Order();
-		ord.setState("finished");
-		ord.setDocId("11-22");
-		ord.setUid("0x1");
-		
-		Company company = new Company();
-		company.setInn("123456789");
-		company.setName("company");
-		ord.setCompany(company);
-		
-		List<Order> orders = Collections.singletonList(ord);
+		OrderModel commented = new OrderModel("11-22", "company", "finished", "0x1",
+				Set.of());
 		
 		@SuppressWarnings("unchecked")
-		Page<Order> pageResult = mock(Page.class);
+		Page<OrderModel> pageResult = mock(Page.class);
 		
 		String name = "test@test.com";
+		when(userPrincipalCache.getCurrent()).thenReturn(
+				new UserPrincipal(1L, name, Set.of(1L), Set.of("ROLE_USER")));
 		
-		SecurityContext securityContext = mock(SecurityContext.class);
-		Authentication a = new UsernamePasswordAuthenticationToken(name, null);
-		
-		when(securityContext.getAuthentication()).thenReturn(a);
-		securityContext.setAuthentication(a);
-		SecurityContextHolder.setContext(securityContext);
-		
-		User user = new User();
-		user.setEmail(name);
-		Role role = new Role();
-		role.setRoleName("ROLE_USER");
-		List<Role> roles = Collections.singletonList(role);
-		user.setRoles(roles);
-		
-		Comment comment = new Comment();
-		comment.setText("some text");
-		comment.setUser(user);
-		comment.setUpdatedAt(LocalDateTime.now());
+		when(orderRepository.findModels(eq(Set.of(1L)), eq(true),
+				any(OrderFilter.class), any(Pageable.class))).thenReturn(pageResult);
+		when(pageResult.getContent()).thenReturn(List.of(commented));
+		when(orderRepository.findComments(Set.of("11-22"))).thenReturn(List.of(
+				new OrderComment("11-22", name, LocalDateTime.now(), "some text")));
 		
-		Collection<Comment> comments = Collections.singletonList(comment);
-		ord.setComments(comments);
-		
-		when(userService.getUser(anyString())).thenReturn(user);
-		
-		when(orderRepository.findByCompanyIn(any(Collection.class),
-				any(Pageable.class))).thenReturn(pageResult);
-		when(pageResult.getContent()).thenReturn(orders);
-		
-		@SuppressWarnings("unchecked")
-		Collection<Order> mockOrders = mock(Collection.class);
-		lenient().when(mockOrders.stream())
-				.thenReturn(orders.stream());
-		
-		ModelMap resultMap = orderService.getOrders(page, perPage, sort, order);
+		ModelMap resultMap = orderService.getOrders(page, perPage, sort, order,
+				new OrderFilter());
 		
 		@SuppressWarnings("unchecked")
 		List<OrderModel> orderModels = (List<OrderModel>) resultMap.get("content");
 		
-		assertEquals(ord.getDocId(), orderModels.get(0).getDocId());
+		assertEquals(commented.getDocId(), orderModels.get(0).getDocId());
+		assertEquals("some text",
+				orderModels.get(0).getComments().iterator().next().getText());
+		assertEquals(1, orderModels.size());
 	}
 	
 	@Test
 	@Transactional
 	public void stopUpdate() {
 		
-		Thread thread = mock(Thread.class);
-		
-		orderService.setTaskThread(thread);
-		orderService.setInitializedThread(true);
+		when(syncJobRegistry.stop(SyncJobRegistry.ORDERS)).thenReturn(true);
 		
 		orderService.stopUpdate();
 		
-		verify(thread, atLeastOnce()).interrupt();
+		verify(syncJobRegistry, atLeastOnce()).stop(SyncJobRegistry.ORDERS);
 	}
 }
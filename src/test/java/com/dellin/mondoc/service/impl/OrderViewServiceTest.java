@@ -0,0 +1,168 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.model.entity.Comment;
+import com.dellin.mondoc.model.entity.Company;
+import com.dellin.mondoc.model.entity.Document;
+import com.dellin.mondoc.model.entity.Order;
+import com.dellin.mondoc.model.entity.OrderView;
+import com.dellin.mondoc.model.entity.User;
+import com.dellin.mondoc.model.enums.OrderDocType;
+import com.dellin.mondoc.model.repository.OrderViewRepository;
+import java.time.LocalDateTime;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OrderViewServiceTest {
+	
+	@InjectMocks
+	private OrderViewService orderViewService;
+	@Mock
+	private OrderViewRepository orderViewRepository;
+	
+	@Test
+	public void refresh_newRow() {
+		
+		Order order = getOrder();
+		when(orderViewRepository.findAllById(anyCollection())).thenReturn(List.of());
+		
+		orderViewService.refresh(List.of(order));
+		
+		OrderView view = getSaved();
+		assertEquals(Long.valueOf(1L), view.getId());
+		assertEquals("11-22", view.getDocId());
+		assertEquals("company", view.getCompanyName());
+		assertEquals("finished", view.getState());
+		assertEquals(OrderDocType.BILL.getBit() | OrderDocType.GIVEOUT.getBit(),
+				view.getDocuments());
+		assertEquals(OrderDocType.GIVEOUT.getBit(), view.getDocumentsReady());
+		assertEquals(2, view.getCommentCount());
+		assertEquals("last", view.getLastCommentText());
+		assertEquals("test@test.com", view.getLastCommentUser());
+	}
+	
+	@Test
+	public void refresh_existingRow() {
+		
+		Order order = getOrder();
+		OrderView existing = new OrderView();
+		existing.setId(1L);
+		when(orderViewRepository.findAllById(anyCollection())).thenReturn(
+				List.of(existing));
+		
+		orderViewService.refresh(List.of(order));
+		
+		OrderView view = getSaved();
+		assertSame(existing, view);
+		assertEquals("finished", view.getState());
+		assertEquals(0, view.getCommentCount());
+		assertNull(view.getLastCommentText());
+	}
+	
+	@Test
+	public void refreshComments() {
+		
+		Order order = getOrder();
+		OrderView existing = new OrderView();
+		existing.setId(1L);
+		when(orderViewRepository.findById(1L)).thenReturn(Optional.of(existing));
+		
+		orderViewService.refreshComments(order);
+		
+		verify(orderViewRepository).save(existing);
+		assertEquals(2, existing.getCommentCount());
+		assertEquals("last", existing.getLastCommentText());
+	}
+	
+	@Test
+	public void markDocumentReady() {
+		
+		Document document = new Document();
+		document.setType(OrderDocType.INVOICE);
+		document.setOrder(getOrder());
+		
+		orderViewService.markDocumentReady(document);
+		
+		verify(orderViewRepository).markDocumentReady(eq(1L),
+				eq(OrderDocType.INVOICE.getBit()), any(LocalDateTime.class));
+	}
+	
+	@Test
+	public void fill() {
+		
+		when(orderViewRepository.fill(1000)).thenReturn(1000, 10, 0);
+		
+		orderViewService.fill();
+		
+		verify(orderViewRepository, times(3)).fill(1000);
+	}
+	
+	@Test
+	public void dropLegacyIndexes() {
+		
+		orderViewService.dropLegacyIndexes();
+		
+		verify(orderViewRepository).dropIndex("idx_orders_state");
+		verify(orderViewRepository).dropIndex("idx_orders_company_updated");
+		verify(orderViewRepository, times(4)).dropIndex(anyString());
+	}
+	
+	private OrderView getSaved() {
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<Collection<OrderView>> captor =
+				ArgumentCaptor.forClass(Collection.class);
+		verify(orderViewRepository).saveAll(captor.capture());
+		return captor.getValue().iterator().next();
+	}
+	
+	/**
+	 * The order with a bill, a giveout with link and two comments
+	 */
+	private static Order getOrder() {
+		Company company = new Company();
+		company.setId(2L);
+		company.setName("company");
+		
+		Order order = new Order();
+		order.setId(1L);
+		order.setDocId("11-22");
+		order.setState("finished");
+		order.setCompany(company);
+		
+		Document bill = new Document();
+		bill.setType(OrderDocType.BILL);
+		Document giveout = new Document();
+		giveout.setType(OrderDocType.GIVEOUT);
+		giveout.setUrl("url");
+		order.getDocuments().addAll(List.of(bill, giveout));
+		
+		User user = new User();
+		user.setEmail("test@test.com");
+		Comment first = new Comment();
+		first.setId(3L);
+		first.setText("first");
+		Comment last = new Comment();
+		last.setId(5L);
+		last.setText("last");
+		last.setUser(user);
+		order.setComments(List.of(last, first));
+		return order;
+	}
+}
@@ -38,6 +38,9 @@ public class RoleServiceImplTest {
 	@Mock
 	private UserServiceImpl userService;
 	
+	@Mock
+	private UserPrincipalCache userPrincipalCache;
+	
 	@Spy
 	private ObjectMapper mapper;
 	
@@ -110,6 +113,7 @@ public class RoleServiceImplTest {
 		roleService.addRoleToUser("test@test.com", "role");
 		
 		verify(userRepository, times(1)).save(user);
+		verify(userPrincipalCache).evict("test@test.com");
 	}
 	
 	@Test(expected = CustomException.class)
@@ -0,0 +1,94 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.model.entity.Session;
+import com.dellin.mondoc.utils.EncodingUtil;
+import java.time.LocalDateTime;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class SessionCredentialCacheTest {
+	
+	private SessionCredentialCache credentialCache;
+	private Session session;
+	
+	@Before
+	public void setUp() {
+		credentialCache = new SessionCredentialCache();
+		credentialCache.ttlSeconds = 300;
+		
+		session = new Session();
+		session.setId(1L);
+		session.setAppkey(EncodingUtil.getEncrypted("appkey"));
+		session.setLogin(EncodingUtil.getEncrypted("login"));
+		session.setPassword(EncodingUtil.getEncrypted("pass"));
+		session.setSessionDl(EncodingUtil.getEncrypted("session_1"));
+		session.setUpdatedAt(LocalDateTime.now());
+	}
+	
+	@Test
+	public void get() {
+		
+		SessionCredentialCache.Credentials credentials = credentialCache.get(session);
+		
+		assertEquals("appkey", credentials.getAppkey());
+		assertEquals("login", credentials.getLogin());
+		assertEquals("pass", credentials.getPassword());
+		assertEquals("session_1", credentials.getSessionDl());
+		assertSame(credentials, credentialCache.get(session));
+	}
+	
+	@Test
+	public void get_sessionUpdated() {
+		
+		SessionCredentialCache.Credentials credentials = credentialCache.get(session);
+		session.setSessionDl(EncodingUtil.getEncrypted("session_2"));
+		session.setUpdatedAt(session.getUpdatedAt().plusMinutes(1));
+		
+		assertEquals("session_2", credentialCache.get(session).getSessionDl());
+		assertEquals("session_1", credentials.getSessionDl());
+	}
+	
+	@Test
+	public void get_expired() {
+		
+		credentialCache.ttlSeconds = 0;
+		
+		assertNotSame(credentialCache.get(session), credentialCache.get(session));
+	}
+	
+	@Test
+	public void get_noId() {
+		
+		session.setId(null);
+		
+		assertNotSame(credentialCache.get(session), credentialCache.get(session));
+	}
+	
+	@Test
+	public void evict() {
+		
+		SessionCredentialCache.Credentials credentials = credentialCache.get(session);
+		credentialCache.evict(session);
+		
+		assertNotSame(credentials, credentialCache.get(session));
+	}
+	
+	@Test
+	public void evictExpired() {
+		
+		SessionCredentialCache.Credentials credentials = credentialCache.get(session);
+		credentialCache.evictExpired();
+		assertSame(credentials, credentialCache.get(session));
+		
+		credentialCache.ttlSeconds = 0;
+		credentials = credentialCache.get(session);
+		session.setUpdatedAt(session.getUpdatedAt().plusMinutes(1));
+		credentialCache.evictExpired();
+		
+		assertNotSame(credentials, credentialCache.get(session));
+	}
+}
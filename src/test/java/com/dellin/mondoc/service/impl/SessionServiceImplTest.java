@@ -41,6 +41,8 @@ public class SessionServiceImplTest {
 	private UserRepository userRepository;
 	@Mock
 	private SyncService syncService;
+	@Mock
+	private DellinSessionManager sessionManager;
 	
 	@Test
 	public void getLoginResponse() throws IOException {
@@ -72,7 +74,7 @@ public class SessionServiceImplTest {
 		when(syncService.getRemoteData()).thenReturn(remoteData);
 		@SuppressWarnings("unchecked")
 		Call<AuthDellin> call = (Call<AuthDellin>) mock(Call.class);
-		when(remoteData.login(any(SessionDTO.class))).thenReturn(call);
+		when(remoteData.login(any(SessionDTO.class), anyString())).thenReturn(call);
 		
 		AuthDellin expectedAuthResponse = new AuthDellin();
 		AuthDellin.Data data = new AuthDellin.Data();
@@ -137,7 +139,7 @@ public class SessionServiceImplTest {
 		when(syncService.getRemoteData()).thenReturn(remoteData);
 		@SuppressWarnings("unchecked")
 		Call<AuthDellin> call = (Call<AuthDellin>) mock(Call.class);
-		when(remoteData.login(any(SessionDTO.class))).thenReturn(call);
+		when(remoteData.login(any(SessionDTO.class), anyString())).thenReturn(call);
 		
 		AuthDellin expectedAuthResponse = new AuthDellin();
 		AuthDellin.Data data = new AuthDellin.Data();
@@ -184,7 +186,7 @@ public class SessionServiceImplTest {
 		when(syncService.getRemoteData()).thenReturn(remoteData);
 		@SuppressWarnings("unchecked")
 		Call<AuthDellin> call = (Call<AuthDellin>) mock(Call.class);
-		when(remoteData.login(any(SessionDTO.class))).thenReturn(call);
+		when(remoteData.login(any(SessionDTO.class), anyString())).thenReturn(call);
 		
 		AuthDellin expectedAuthResponse = new AuthDellin();
 		AuthDellin.Data data = new AuthDellin.Data();
@@ -229,7 +231,7 @@ public class SessionServiceImplTest {
 		when(syncService.getRemoteData()).thenReturn(remoteData);
 		@SuppressWarnings("unchecked")
 		Call<AuthDellin> call = (Call<AuthDellin>) mock(Call.class);
-		when(remoteData.logout(any(SessionDTO.class))).thenReturn(call);
+		when(remoteData.logout(any(SessionDTO.class), anyString())).thenReturn(call);
 		
 		AuthDellin expectedAuthResponse = new AuthDellin();
 		AuthDellin.Data data = new AuthDellin.Data();
@@ -244,6 +246,7 @@ public class SessionServiceImplTest {
 		
 		AuthDellin resultAuth = sessionService.getLogoutResponse();
 		
+		verify(sessionManager).invalidate(user.getSession());
 		verify(userRepository, atLeastOnce()).save(user);
 		assertEquals("success", resultAuth.getData().getState());
 	}
@@ -288,7 +291,7 @@ public class SessionServiceImplTest {
 		when(syncService.getRemoteData()).thenReturn(remoteData);
 		@SuppressWarnings("unchecked")
 		Call<AuthDellin> call = (Call<AuthDellin>) mock(Call.class);
-		when(remoteData.logout(any(SessionDTO.class))).thenReturn(call);
+		when(remoteData.logout(any(SessionDTO.class), anyString())).thenReturn(call);
 		
 		@SuppressWarnings("unchecked")
 		Response<AuthDellin> expectedResponse = mock(Response.class);
@@ -0,0 +1,135 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.exceptions.CustomException;
+import com.dellin.mondoc.model.enums.SyncJobState;
+import org.junit.Test;
+
+import java.util.concurrent.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SyncJobRegistryTest {
+	
+	private final SyncJobRegistry registry = new SyncJobRegistry();
+	
+	@Test
+	public void start_alreadyRunning() throws InterruptedException {
+		
+		CountDownLatch release = new CountDownLatch(1);
+		SyncJob job = registry.start(SyncJobRegistry.ORDERS, "owner", "pages", j -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		
+		try {
+			registry.start(SyncJobRegistry.ORDERS, "owner", "pages", j -> {});
+			fail();
+		} catch (CustomException e) {
+			assertEquals("Sync job [orders] is already running", e.getMessage());
+		}
+		
+		release.countDown();
+		job.getThread().join();
+		
+		assertEquals(SyncJobState.COMPLETED, job.getProgress().getState());
+		SyncJob next = registry.start(SyncJobRegistry.ORDERS, "owner", "pages", j -> {});
+		next.getThread().join();
+		assertEquals(SyncJobState.COMPLETED, registry.getJob(SyncJobRegistry.ORDERS)
+				.getState());
+	}
+	
+	@Test
+	public void tryStart_alreadyRunning() throws InterruptedException {
+		
+		CountDownLatch release = new CountDownLatch(1);
+		assertTrue(registry.tryStart(SyncJobRegistry.SCHEDULED_DOCUMENTS, "owner",
+				"documents", j -> {
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}));
+		
+		assertFalse(registry.tryStart(SyncJobRegistry.SCHEDULED_DOCUMENTS, "owner",
+				"documents", j -> {}));
+		
+		release.countDown();
+		while (registry.isRunning(SyncJobRegistry.SCHEDULED_DOCUMENTS)) {
+			Thread.sleep(10L);
+		}
+		assertTrue(registry.tryStart(SyncJobRegistry.SCHEDULED_DOCUMENTS, "owner",
+				"documents", j -> {}));
+	}
+	
+	@Test
+	public void stop() throws InterruptedException {
+		
+		SyncJob job = registry.start(SyncJobRegistry.DOCUMENTS, "owner", "documents",
+				j -> {
+					try {
+						Thread.sleep(10000L);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+		
+		assertTrue(registry.stop(SyncJobRegistry.DOCUMENTS));
+		job.getThread().join();
+		
+		assertEquals(SyncJobState.INTERRUPTED, job.getProgress().getState());
+		assertFalse(registry.stop(SyncJobRegistry.DOCUMENTS));
+	}
+	
+	@Test
+	public void start_failed() throws InterruptedException {
+		
+		SyncJob job = registry.start(SyncJobRegistry.ORDERS, "owner", "pages", j -> {
+			throw new IllegalStateException("Response body is empty");
+		});
+		job.getThread().join();
+		
+		SyncJob.Progress progress = registry.getJob(SyncJobRegistry.ORDERS);
+		assertEquals(SyncJobState.FAILED, progress.getState());
+		assertEquals("Response body is empty", progress.getError());
+	}
+	
+	@Test(expected = CustomException.class)
+	public void getJob_notFound() {
+		
+		registry.getJob(SyncJobRegistry.SCHEDULED_ORDERS);
+	}
+	
+	@Test
+	public void getProgress() throws InterruptedException {
+		
+		SyncJob job = new SyncJob(SyncJobRegistry.ORDERS, "owner", "pages");
+		assertNull(job.getProgress().getTotal());
+		assertNull(job.getProgress().getEtaSec());
+		
+		job.setTotal(10);
+		Thread.sleep(20L);
+		job.advance();
+		job.record("fetch", 2_000_000L);
+		job.record("fetch", 4_000_000L);
+		
+		SyncJob.Progress progress = job.getProgress();
+		assertEquals(1, progress.getDone());
+		assertEquals(Long.valueOf(10), progress.getTotal());
+		assertTrue(progress.getItemsPerSec() > 0);
+		assertTrue(progress.getEtaSec() != null);
+		
+		SyncJob.StageMetrics fetch = progress.getStages().get(0);
+		assertEquals("fetch", fetch.getStage());
+		assertEquals(2, fetch.getCount());
+		assertEquals(3.0, fetch.getAverageMs(), 0.001);
+		assertEquals(4.0, fetch.getMaxMs(), 0.001);
+	}
+}
@@ -0,0 +1,52 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.model.pojo.OrderRequest;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SyncPlannerTest {
+	
+	private SyncPlanner syncPlanner;
+	
+	@Before
+	public void setUp() {
+		syncPlanner = new SyncPlanner();
+		syncPlanner.shardDays = 7;
+	}
+	
+	@Test
+	public void plan_fullReconciliation() {
+		
+		List<OrderRequest> shards = syncPlanner.plan(LocalDate.of(2023, 1, 1),
+				LocalDate.of(2023, 1, 20), null);
+		
+		assertEquals(3, shards.size());
+		assertTrue(shards.get(0).getDateStart().startsWith("2023-01-01"));
+		assertTrue(shards.get(0).getDateEnd().startsWith("2023-01-08"));
+		assertEquals(shards.get(0).getDateEnd(), shards.get(1).getDateStart());
+		assertTrue(shards.get(2).getDateEnd().startsWith("2023-01-20"));
+		assertNull(shards.get(2).getLastUpdate());
+		assertNull(shards.get(2).getAppKey());
+	}
+	
+	@Test
+	public void plan_incremental() {
+		
+		List<OrderRequest> shards = syncPlanner.plan(LocalDate.of(2023, 1, 1),
+				LocalDate.of(2023, 3, 1), LocalDateTime.of(2023, 2, 28, 21, 0));
+		
+		assertEquals(1, shards.size());
+		assertTrue(shards.get(0).getDateStart().startsWith("2023-01-01"));
+		assertTrue(shards.get(0).getDateEnd().startsWith("2023-03-01"));
+		assertNotNull(shards.get(0).getLastUpdate());
+	}
+}
@@ -0,0 +1,252 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.exceptions.CustomException;
+import com.dellin.mondoc.model.entity.SyncRun;
+import com.dellin.mondoc.model.enums.SyncRunKind;
+import com.dellin.mondoc.model.enums.SyncRunStatus;
+import com.dellin.mondoc.model.pojo.OrderRequest;
+import com.dellin.mondoc.model.pojo.OrderResponse;
+import com.dellin.mondoc.model.repository.SyncRunRepository;
+import java.time.LocalDateTime;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SyncRunServiceTest {
+	
+	@InjectMocks
+	private SyncRunService syncRunService;
+	@Mock
+	private SyncRunRepository syncRunRepository;
+	@Mock
+	private SyncWatermarkService syncWatermarkService;
+	
+	@Test
+	public void create() {
+		
+		when(syncRunRepository.save(any(SyncRun.class))).thenAnswer(
+				invocation -> invocation.getArgument(0));
+		
+		OrderRequest request = OrderRequest.builder()
+				.setAppKey("appkey")
+				.setSessionID("sessionID")
+				.setDocIds(Arrays.asList("123", "456"))
+				.build();
+		
+		SyncRun run = syncRunService.create(SyncRunKind.MANUAL, "test@test.com", request,
+				false);
+		
+		assertEquals(SyncRunStatus.RUNNING, run.getStatus());
+		assertEquals("123,456", run.getDocIds());
+		assertEquals(Integer.valueOf(1), run.getFirstPage());
+		assertNull(run.getLastPage());
+		assertEquals(1, SyncRunService.getStartPage(run));
+		assertEquals(Integer.MAX_VALUE, SyncRunService.getEndPage(run));
+		
+		OrderRequest resumed = syncRunService.getRequestBuilder(run).build();
+		assertEquals(request.getDocIds(), resumed.getDocIds());
+		assertNull(resumed.getAppKey());
+	}
+	
+	@Test
+	public void createBatch() {
+		
+		when(syncRunRepository.save(any(SyncRun.class))).thenAnswer(
+				invocation -> invocation.getArgument(0));
+		
+		List<OrderRequest> shards = Arrays.asList(
+				OrderRequest.builder().setDateStart("2023-01-01").setDateEnd("2023-01-08")
+						.build(),
+				OrderRequest.builder().setDateStart("2023-01-08").setDateEnd("2023-01-10")
+						.build());
+		
+		List<SyncRun> runs = syncRunService.createBatch(SyncRunKind.SCHEDULED, "login",
+				shards, true);
+		
+		assertEquals(2, runs.size());
+		assertEquals(runs.get(0).getBatch(), runs.get(1).getBatch());
+		assertEquals(SyncRunStatus.PENDING, runs.get(0).getStatus());
+		assertEquals("2023-01-08", runs.get(1).getDateStart());
+		assertTrue(runs.get(1).isFullReconciliation());
+	}
+	
+	@Test
+	public void getStartPage_afterCheckpoint() {
+		
+		SyncRun run = new SyncRun();
+		run.setFirstPage(1);
+		
+		OrderResponse.Metadata metadata = new OrderResponse.Metadata();
+		metadata.setTotalPages(40);
+		metadata.setGeneratedAt("2023-02-01 21:00:05");
+		OrderResponse page = new OrderResponse();
+		page.setMetadata(metadata);
+		
+		syncRunService.checkpoint(run, page, 12);
+		metadata.setGeneratedAt("2023-02-01 21:10:00");
+		syncRunService.checkpoint(run, page, 13);
+		
+		assertEquals(14, SyncRunService.getStartPage(run));
+		assertEquals(40, SyncRunService.getEndPage(run));
+		assertEquals("2023-02-01 21:00:05", run.getGeneratedAt());
+	}
+	
+	@Test(expected = CustomException.class)
+	public void begin_alreadyRunning() {
+		
+		SyncRun run = new SyncRun();
+		run.setId(1L);
+		run.setFirstPage(1);
+		
+		syncRunService.begin(run);
+		syncRunService.begin(run);
+	}
+	
+	@Test
+	public void finish_scheduled() {
+		
+		LocalDateTime startedAt = LocalDateTime.now();
+		SyncRun run = new SyncRun();
+		run.setId(1L);
+		run.setFirstPage(1);
+		run.setKind(SyncRunKind.SCHEDULED);
+		run.setOwner("login");
+		run.setGeneratedAt("2023-02-01 21:00:05");
+		run.setStartedAt(startedAt);
+		run.setFullReconciliation(true);
+		
+		syncRunService.begin(run);
+		syncRunService.finish(run, true);
+		
+		assertEquals(SyncRunStatus.COMPLETED, run.getStatus());
+		verify(syncWatermarkService).complete("login", "2023-02-01 21:00:05", startedAt,
+				true);
+		
+		syncRunService.begin(run);
+	}
+	
+	@Test
+	public void finish_batch() {
+		
+		LocalDateTime startedAt = LocalDateTime.now();
+		SyncRun first = getShard(1L, "2023-02-01 21:00:05", startedAt);
+		SyncRun second = getShard(2L, "2023-02-01 20:00:00", startedAt.plusMinutes(5));
+		when(syncRunRepository.findByBatch("batch")).thenReturn(
+				Arrays.asList(first, second));
+		
+		syncRunService.begin(first);
+		syncRunService.finish(first, true);
+		
+		verify(syncWatermarkService, never()).complete(anyString(), anyString(),
+				any(LocalDateTime.class), anyBoolean());
+		
+		syncRunService.begin(second);
+		syncRunService.finish(second, true);
+		
+		verify(syncWatermarkService).complete("login", "2023-02-01 20:00:00", startedAt,
+				true);
+	}
+	
+	@Test
+	public void finish_stopped() {
+		
+		SyncRun run = new SyncRun();
+		run.setId(1L);
+		run.setFirstPage(1);
+		run.setKind(SyncRunKind.SCHEDULED);
+		when(syncRunRepository.findById(1L)).thenReturn(Optional.of(run));
+		
+		syncRunService.begin(run);
+		syncRunService.finish(run, false);
+		
+		assertEquals(SyncRunStatus.STOPPED, run.getStatus());
+		verify(syncWatermarkService, never()).complete(anyString(), anyString(),
+				any(LocalDateTime.class), anyBoolean());
+		assertEquals(run, syncRunService.getResumable(1L));
+	}
+	
+	@Test(expected = CustomException.class)
+	public void getResumable_running() {
+		
+		SyncRun run = new SyncRun();
+		run.setId(1L);
+		run.setFirstPage(1);
+		when(syncRunRepository.findById(1L)).thenReturn(Optional.of(run));
+		
+		syncRunService.begin(run);
+		syncRunService.getResumable(1L);
+	}
+	
+	@Test(expected = CustomException.class)
+	public void abandon_completed() {
+		
+		SyncRun run = new SyncRun();
+		run.setId(1L);
+		run.setStatus(SyncRunStatus.COMPLETED);
+		when(syncRunRepository.findById(1L)).thenReturn(Optional.of(run));
+		
+		syncRunService.abandon(1L);
+	}
+	
+	@Test
+	public void abandon() {
+		
+		SyncRun run = new SyncRun();
+		run.setId(1L);
+		run.setStatus(SyncRunStatus.FAILED);
+		when(syncRunRepository.findById(1L)).thenReturn(Optional.of(run));
+		when(syncRunRepository.save(run)).thenReturn(run);
+		
+		assertEquals(SyncRunStatus.ABANDONED, syncRunService.abandon(1L).getStatus());
+	}
+	
+	@Test
+	public void recoverInterrupted() {
+		
+		SyncRun running = new SyncRun();
+		running.setId(1L);
+		running.setStatus(SyncRunStatus.RUNNING);
+		SyncRun pending = new SyncRun();
+		pending.setId(2L);
+		pending.setStatus(SyncRunStatus.PENDING);
+		when(syncRunRepository.findByStatusIn(
+				Arrays.asList(SyncRunStatus.PENDING, SyncRunStatus.RUNNING))).thenReturn(
+				new ArrayList<>(Arrays.asList(pending, running)));
+		
+		List<SyncRun> runs = syncRunService.recoverInterrupted();
+		
+		assertEquals(Arrays.asList(running, pending), runs);
+		assertEquals(SyncRunStatus.INTERRUPTED, running.getStatus());
+		verify(syncRunRepository).save(running);
+	}
+	
+	private static SyncRun getShard(Long id, String generatedAt,
+			LocalDateTime startedAt) {
+		SyncRun run = new SyncRun();
+		run.setId(id);
+		run.setFirstPage(1);
+		run.setKind(SyncRunKind.SCHEDULED);
+		run.setOwner("login");
+		run.setBatch("batch");
+		run.setStatus(SyncRunStatus.PENDING);
+		run.setGeneratedAt(generatedAt);
+		run.setStartedAt(startedAt);
+		run.setFullReconciliation(true);
+		return run;
+	}
+}
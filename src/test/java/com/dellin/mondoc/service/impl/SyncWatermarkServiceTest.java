@@ -0,0 +1,118 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.model.entity.SyncWatermark;
+import com.dellin.mondoc.model.repository.SyncWatermarkRepository;
+import java.time.LocalDateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SyncWatermarkServiceTest {
+	
+	private static final String CREDENTIAL = "login";
+	
+	@InjectMocks
+	private SyncWatermarkService syncWatermarkService;
+	@Mock
+	private SyncWatermarkRepository syncWatermarkRepository;
+	
+	@Before
+	public void setUp() {
+		ReflectionTestUtils.setField(syncWatermarkService, "fullIntervalDays", 7L);
+		ReflectionTestUtils.setField(syncWatermarkService, "overlapMinutes", 10L);
+	}
+	
+	@Test
+	public void getLastUpdate_noWatermark() {
+		
+		when(syncWatermarkRepository.findByCredential(CREDENTIAL)).thenReturn(
+				Optional.empty());
+		
+		assertTrue(syncWatermarkService.getLastUpdate(CREDENTIAL).isEmpty());
+	}
+	
+	@Test
+	public void getLastUpdate_fullReconciliationDue() {
+		
+		SyncWatermark watermark = new SyncWatermark();
+		watermark.setSyncedAt(LocalDateTime.now().minusDays(1));
+		watermark.setFullSyncedAt(LocalDateTime.now().minusDays(8));
+		when(syncWatermarkRepository.findByCredential(CREDENTIAL)).thenReturn(
+				Optional.of(watermark));
+		
+		assertTrue(syncWatermarkService.getLastUpdate(CREDENTIAL).isEmpty());
+	}
+	
+	@Test
+	public void getLastUpdate_incremental() {
+		
+		LocalDateTime syncedAt = LocalDateTime.now().minusDays(1);
+		SyncWatermark watermark = new SyncWatermark();
+		watermark.setSyncedAt(syncedAt);
+		watermark.setFullSyncedAt(LocalDateTime.now().minusDays(3));
+		when(syncWatermarkRepository.findByCredential(CREDENTIAL)).thenReturn(
+				Optional.of(watermark));
+		
+		assertEquals(Optional.of(syncedAt.minusMinutes(10)),
+				syncWatermarkService.getLastUpdate(CREDENTIAL));
+	}
+	
+	@Test
+	public void complete_full() {
+		
+		LocalDateTime startedAt = LocalDateTime.of(2023, 2, 1, 21, 0);
+		when(syncWatermarkRepository.findByCredential(CREDENTIAL)).thenReturn(
+				Optional.empty());
+		
+		syncWatermarkService.complete(CREDENTIAL, "2023-02-01 21:00:05", startedAt,
+				true);
+		
+		ArgumentCaptor<SyncWatermark> captor =
+				ArgumentCaptor.forClass(SyncWatermark.class);
+		verify(syncWatermarkRepository).save(captor.capture());
+		assertEquals(CREDENTIAL, captor.getValue().getCredential());
+		assertEquals(LocalDateTime.of(2023, 2, 1, 21, 0, 5),
+				captor.getValue().getSyncedAt());
+		assertEquals(startedAt, captor.getValue().getFullSyncedAt());
+	}
+	
+	@Test
+	public void complete_incrementalUnknownGeneratedAt() {
+		
+		LocalDateTime fullSyncedAt = LocalDateTime.of(2023, 1, 30, 21, 0);
+		LocalDateTime startedAt = LocalDateTime.of(2023, 2, 1, 21, 0);
+		SyncWatermark watermark = new SyncWatermark();
+		watermark.setCredential(CREDENTIAL);
+		watermark.setFullSyncedAt(fullSyncedAt);
+		when(syncWatermarkRepository.findByCredential(CREDENTIAL)).thenReturn(
+				Optional.of(watermark));
+		
+		syncWatermarkService.complete(CREDENTIAL, "yesterday", startedAt, false);
+		
+		verify(syncWatermarkRepository).save(watermark);
+		assertEquals(startedAt, watermark.getSyncedAt());
+		assertEquals(fullSyncedAt, watermark.getFullSyncedAt());
+	}
+	
+	@Test
+	public void getParsedGeneratedAt() {
+		
+		assertNull(SyncWatermarkService.getParsedGeneratedAt(null));
+		assertEquals(LocalDateTime.of(2023, 2, 1, 21, 0, 5),
+				SyncWatermarkService.getParsedGeneratedAt("2023-02-01 21:00:05"));
+	}
+}
@@ -0,0 +1,135 @@
+package com.dellin.mondoc.service.impl;
+
+import com.dellin.mondoc.exceptions.CustomException;
+import com.dellin.mondoc.model.pojo.UserPrincipal;
+import com.dellin.mondoc.model.repository.UserRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UserPrincipalCacheTest {
+	
+	private static final String EMAIL = "test@test.com";
+	
+	@InjectMocks
+	private UserPrincipalCache userPrincipalCache;
+	@Mock
+	private UserRepository userRepository;
+	
+	@Before
+	public void setUp() {
+		userPrincipalCache.ttlSeconds = 30;
+		authenticate("ROLE_USER");
+	}
+	
+	@After
+	public void tearDown() {
+		SecurityContextHolder.clearContext();
+		RequestContextHolder.resetRequestAttributes();
+	}
+	
+	@Test
+	public void getCurrent() {
+		
+		when(userRepository.findIdByEmail(EMAIL)).thenReturn(Optional.of(1L));
+		when(userRepository.findCompanyIds(1L)).thenReturn(Set.of(2L));
+		
+		UserPrincipal principal = userPrincipalCache.getCurrent();
+		userPrincipalCache.getCurrent();
+		
+		assertEquals(Long.valueOf(1L), principal.getId());
+		assertEquals(EMAIL, principal.getEmail());
+		assertEquals(Set.of(2L), principal.getCompanyIds());
+		assertTrue(principal.hasRole("ROLE_USER"));
+		assertFalse(principal.hasRole("ROLE_ADMIN"));
+		verify(userRepository, times(1)).findIdByEmail(EMAIL);
+	}
+	
+	@Test
+	public void getCurrent_request() {
+		
+		RequestContextHolder.setRequestAttributes(
+				new ServletRequestAttributes(new MockHttpServletRequest()));
+		when(userRepository.findIdByEmail(EMAIL)).thenReturn(Optional.of(1L));
+		when(userRepository.findCompanyIds(1L)).thenReturn(Set.of(2L));
+		
+		assertSame(userPrincipalCache.getCurrent(), userPrincipalCache.getCurrent());
+	}
+	
+	@Test
+	public void getCurrent_rolesOfToken() {
+		
+		when(userRepository.findIdByEmail(EMAIL)).thenReturn(Optional.of(1L));
+		when(userRepository.findCompanyIds(1L)).thenReturn(Set.of());
+		
+		userPrincipalCache.getCurrent();
+		authenticate("ROLE_ADMIN");
+		
+		assertTrue(userPrincipalCache.getCurrent().hasRole("ROLE_ADMIN"));
+		verify(userRepository, times(1)).findIdByEmail(EMAIL);
+	}
+	
+	@Test
+	public void getCurrent_expired() {
+		
+		userPrincipalCache.ttlSeconds = 0;
+		when(userRepository.findIdByEmail(EMAIL)).thenReturn(Optional.of(1L));
+		when(userRepository.findCompanyIds(1L)).thenReturn(Set.of(2L));
+		
+		userPrincipalCache.getCurrent();
+		userPrincipalCache.getCurrent();
+		
+		verify(userRepository, times(2)).findIdByEmail(EMAIL);
+	}
+	
+	@Test(expected = CustomException.class)
+	public void getCurrent_notFound() {
+		
+		when(userRepository.findIdByEmail(EMAIL)).thenReturn(Optional.empty());
+		
+		userPrincipalCache.getCurrent();
+	}
+	
+	@Test
+	public void evict() {
+		
+		RequestContextHolder.setRequestAttributes(
+				new ServletRequestAttributes(new MockHttpServletRequest()));
+		when(userRepository.findIdByEmail(EMAIL)).thenReturn(Optional.of(1L));
+		when(userRepository.findCompanyIds(1L)).thenReturn(Set.of(2L))
+				.thenReturn(Set.of(2L, 3L));
+		
+		userPrincipalCache.getCurrent();
+		userPrincipalCache.evict(EMAIL);
+		
+		assertEquals(Set.of(2L, 3L), userPrincipalCache.getCurrent().getCompanyIds());
+	}
+	
+	private static void authenticate(String role) {
+		SecurityContextHolder.setContext(new SecurityContextImpl(
+				new UsernamePasswordAuthenticationToken(EMAIL, null,
+						List.of(new SimpleGrantedAuthority(role)))));
+	}
+}
@@ -5,6 +5,8 @@ import com.dellin.mondoc.model.dto.UserDTO;
 import com.dellin.mondoc.model.entity.Role;
 import com.dellin.mondoc.model.entity.User;
 import com.dellin.mondoc.model.enums.EntityStatus;
+import com.dellin.mondoc.model.pojo.CursorPage;
+import com.dellin.mondoc.model.pojo.PageCursor;
 import com.dellin.mondoc.model.repository.RoleRepository;
 import com.dellin.mondoc.model.repository.UserRepository;
 import org.junit.Test;
@@ -27,7 +29,9 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -41,6 +45,8 @@ public class UserServiceImplTest {
 	private UserRepository userRepository;
 	@Spy
 	private PasswordEncoder passwordEncoder;
+	@Mock
+	private UserPrincipalCache userPrincipalCache;
 	
 	@Test
 	public void loadUserByUsername() {
@@ -143,6 +149,7 @@ public class UserServiceImplTest {
 		assertEquals(userDTO.getRoles()
 				.stream().findFirst().orElseThrow().getRoleName(), resultDTO.getRoles()
 				.stream().findFirst().orElseThrow().getRoleName());
+		verify(userPrincipalCache).evict("user@test.com");
 	}
 	
 	@Test(expected = CustomException.class)
@@ -185,6 +192,7 @@ public class UserServiceImplTest {
 		userService.delete("user@email.com");
 		
 		assertEquals(EntityStatus.DELETED, user.getStatus());
+		verify(userPrincipalCache).evict("user@email.com");
 	}
 	
 	@Test
@@ -233,6 +241,35 @@ public class UserServiceImplTest {
 		userService.getUsers(page, perPage, sort, order);
 	}
 	
+	@Test
+	public void getUsersAfter() {
+		
+		User user = new User();
+		user.setEmail("user@test.com");
+		PageCursor first = new PageCursor("email", Sort.Direction.ASC, null, null);
+		PageCursor next = first.after("user@test.com", 7L);
+		
+		when(userRepository.findAll(any(PageCursor.class), eq(1))).thenReturn(
+				new CursorPage<>(List.of(user), next));
+		ModelMap result = userService.getUsersAfter("", 1, "email", Sort.Direction.ASC);
+		
+		@SuppressWarnings("unchecked")
+		List<UserDTO> userDTOList = (List<UserDTO>) (result.get("content"));
+		assertEquals(user.getEmail(), userDTOList.get(0).getEmail());
+		
+		PageCursor decoded = PageCursor.of((String) result.get("next"), "id",
+				Sort.Direction.DESC, Set.of("email"));
+		assertEquals("email", decoded.getSort());
+		assertEquals(Sort.Direction.ASC, decoded.getDirection());
+		assertEquals("user@test.com", decoded.getValue());
+		assertEquals(Long.valueOf(7), decoded.getId());
+	}
+	
+	@Test(expected = CustomException.class)
+	public void getUsersAfter_unavailableSort() {
+		userService.getUsersAfter("", 1, "password", Sort.Direction.ASC);
+	}
+	
 	@Test
 	public void updateStatus() {
 		